@@ -21,6 +21,7 @@ public class AdminCliOptionsParser extends CliOptionsParser {
     private BuildCommandOptions buildCommandOptions;
     private ImportCommandOptions importCommandOptions;
     private LoadCommandOptions loadCommandOptions;
+    private CacheCommandOptions cacheCommandOptions;
 
 
     public AdminCliOptionsParser() {
@@ -36,11 +37,13 @@ public class AdminCliOptionsParser extends CliOptionsParser {
         buildCommandOptions = new BuildCommandOptions();
         importCommandOptions = new ImportCommandOptions();
         loadCommandOptions = new LoadCommandOptions();
+        cacheCommandOptions = new CacheCommandOptions();
 
         jCommander.addCommand("download", downloadCommandOptions);
         jCommander.addCommand("build", buildCommandOptions);
         jCommander.addCommand("import", importCommandOptions);
         jCommander.addCommand("load", loadCommandOptions);
+        jCommander.addCommand("cache", cacheCommandOptions);
     }
 
     public void parse(String[] args) throws ParameterException {
@@ -117,6 +120,49 @@ public class AdminCliOptionsParser extends CliOptionsParser {
 
         @Parameter(names = {"--exclude"}, description = "Exclude information separated by comma, e.g.:'XREF_DBNAME:Reactome Database ID Release 63'", arity = 1)
         public List<String> exclude;
+
+        @Parameter(names = {"--threads"}, description = "Number of threads used to build the CSV files", arity = 1)
+        public int threads = 1;
+
+        @Parameter(names = {"--compression"}, description = "CSV file compression: gzip, pgzip (parallel block gzip) or none", arity = 1)
+        public String compression = "gzip";
+
+        @Parameter(names = {"--compression-level"}, description = "Gzip compression level, from 1 (fastest) to 9 (smallest)", arity = 1)
+        public int compressionLevel = 6;
+
+        @Parameter(names = {"--biopax-in-memory"}, description = "Load the whole BioPAX file in memory instead of streaming it")
+        public boolean biopaxInMemory;
+
+        @Parameter(names = {"--resume"}, description = "Resume the build of the output directory from its last checkpoint")
+        public boolean resume;
+
+        @Parameter(names = {"--checkpoint-interval"}, description = "Number of variants between two checkpoints, 0 to take checkpoints"
+                + " only between build stages", arity = 1)
+        public long checkpointInterval = 500000;
+
+        @Parameter(names = {"--incremental"}, description = "Add the additional variant and network files to the previous build of the"
+                + " output directory, new nodes and relations are written to a directory under deltas")
+        public boolean incremental;
+
+        @Parameter(names = {"--reference-cache"}, description = "Directory of the gene and protein caches shared by builds, the caches"
+                + " of the same input files are reused", arity = 1)
+        public String referenceCache;
+
+        @Parameter(names = {"--bloom-filter-fpp"}, description = "False positive rate of the Bloom filters that skip the UID and xref"
+                + " store lookups of unknown keys, 0 to disable them", arity = 1)
+        public double bloomFilterFpp = 0.01;
+
+        @Parameter(names = {"--shard-rows"}, description = "Split each CSV file into a header file and part files of up to this number"
+                + " of rows, imported in parallel, 0 for no limit", arity = 1)
+        public long shardRows;
+
+        @Parameter(names = {"--shard-bytes"}, description = "Split each CSV file into a header file and part files of up to this number"
+                + " of bytes before compression, 0 for no limit", arity = 1)
+        public long shardBytes;
+
+        @Parameter(names = {"--progress-interval"}, description = "Seconds between build progress lines, 0 to disable them. The build"
+                + " metrics are saved in build-report.json next to the CSV files", arity = 1)
+        public long progressInterval = 60;
     }
 
     @Parameters(commandNames = {"import"}, commandDescription = "Import the built data models in format CSV files into the BioNetDB database")
@@ -130,6 +176,12 @@ public class AdminCliOptionsParser extends CliOptionsParser {
 
         @Parameter(names = {"-d", "--database"}, description = "BioNetDB database name", required = true, arity = 1)
         public String database;
+
+        @Parameter(names = {"--delta"}, description = "Merge the CSV files of an incremental build into the running database")
+        public boolean delta;
+
+        @Parameter(names = {"--batch-size"}, description = "Rows per transaction when merging an incremental build", arity = 1)
+        public int batchSize = 10000;
     }
 
     @Parameters(commandNames = {"load"}, commandDescription = "Load the built data models into the database")
@@ -155,6 +207,23 @@ public class AdminCliOptionsParser extends CliOptionsParser {
 
     }
 
+    @Parameters(commandNames = {"cache"}, commandDescription = "List and prune the gene and protein caches shared by builds")
+    public class CacheCommandOptions {
+
+        @ParametersDelegate
+        public CommonCommandOptions commonOptions = commonCommandOptions;
+
+        @Parameter(names = {"--reference-cache"}, description = "Reference cache directory", required = true, arity = 1)
+        public String referenceCache;
+
+        @Parameter(names = {"--prune"}, description = "Remove the incomplete caches and the least recently used ones, no build using"
+                + " the directory must be running")
+        public boolean prune;
+
+        @Parameter(names = {"--keep"}, description = "Caches to keep by type when pruning", arity = 1)
+        public int keep = 1;
+    }
+
     public CommonCommandOptions getCommonCommandOptions() {
         return commonCommandOptions;
     }
@@ -172,4 +241,8 @@ public class AdminCliOptionsParser extends CliOptionsParser {
     public LoadCommandOptions getLoadCommandOptions() {
         return loadCommandOptions;
     }
+
+    public CacheCommandOptions getCacheCommandOptions() {
+        return cacheCommandOptions;
+    }
 }
@@ -20,6 +20,7 @@ import com.beust.jcommander.ParameterException;
 import org.apache.commons.lang3.StringUtils;
 import org.opencb.bionetdb.app.cli.CommandExecutor;
 import org.opencb.bionetdb.app.cli.admin.executors.BuildCommandExecutor;
+import org.opencb.bionetdb.app.cli.admin.executors.CacheCommandExecutor;
 import org.opencb.bionetdb.app.cli.admin.executors.DownloadCommandExecutor;
 import org.opencb.bionetdb.app.cli.admin.executors.ImportCommandExecutor;
 import org.opencb.bionetdb.core.exceptions.BioNetDBException;
@@ -66,6 +67,9 @@ public class AdminMain {
                     case "import":
                         commandExecutor = new ImportCommandExecutor(cliOptionsParser.getImportCommandOptions());
                         break;
+                    case "cache":
+                        commandExecutor = new CacheCommandExecutor(cliOptionsParser.getCacheCommandOptions());
+                        break;
                     default:
                         break;
                 }
@@ -4,6 +4,7 @@ import org.opencb.bionetdb.app.cli.CommandExecutor;
 import org.opencb.bionetdb.app.cli.admin.AdminCliOptionsParser;
 import org.opencb.bionetdb.core.exceptions.BioNetDBException;
 import org.opencb.bionetdb.lib.BioNetDbManager;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.utils.FileUtils;
 
 import java.io.IOException;
@@ -25,7 +26,7 @@ public class BuildCommandExecutor extends CommandExecutor {
     }
 
     @Override
-    public void execute() {
+    public void execute() throws BioNetDBException, IOException {
         try {
             // Check input and output directories
             Path inputPath = Paths.get(buildCommandOptions.input);
@@ -34,10 +35,25 @@ public class BuildCommandExecutor extends CommandExecutor {
             Path outputPath = Paths.get(buildCommandOptions.output);
             FileUtils.checkDirectory(outputPath);
 
+            ObjectMap options = new ObjectMap();
+            options.put(BioNetDbManager.BUILD_THREADS, buildCommandOptions.threads);
+            options.put(BioNetDbManager.BUILD_CSV_COMPRESSION, buildCommandOptions.compression);
+            options.put(BioNetDbManager.BUILD_COMPRESSION_LEVEL, buildCommandOptions.compressionLevel);
+            options.put(BioNetDbManager.BUILD_BIOPAX_IN_MEMORY, buildCommandOptions.biopaxInMemory);
+            options.put(BioNetDbManager.BUILD_RESUME, buildCommandOptions.resume);
+            options.put(BioNetDbManager.BUILD_INCREMENTAL, buildCommandOptions.incremental);
+            options.put(BioNetDbManager.BUILD_REFERENCE_CACHE, buildCommandOptions.referenceCache);
+            options.put(BioNetDbManager.BUILD_CHECKPOINT_INTERVAL, buildCommandOptions.checkpointInterval);
+            options.put(BioNetDbManager.BUILD_BLOOM_FILTER_FPP, buildCommandOptions.bloomFilterFpp);
+            options.put(BioNetDbManager.BUILD_SHARD_ROWS, buildCommandOptions.shardRows);
+            options.put(BioNetDbManager.BUILD_SHARD_BYTES, buildCommandOptions.shardBytes);
+            options.put(BioNetDbManager.BUILD_PROGRESS_INTERVAL, buildCommandOptions.progressInterval);
+
             BioNetDbManager manager = new BioNetDbManager(configuration);
-            manager.build(inputPath, outputPath, buildCommandOptions.variantFiles, buildCommandOptions.networkFiles, buildCommandOptions.exclude);
-        } catch (IOException | NoSuchAlgorithmException | BioNetDBException e) {
-            e.printStackTrace();
+            manager.build(inputPath, outputPath, buildCommandOptions.variantFiles, buildCommandOptions.networkFiles,
+                    buildCommandOptions.exclude, options);
+        } catch (NoSuchAlgorithmException e) {
+            throw new BioNetDBException("Error building CSV files", e);
         }
     }
 }
@@ -0,0 +1,49 @@
+package org.opencb.bionetdb.app.cli.admin.executors;
+
+import org.opencb.bionetdb.app.cli.CommandExecutor;
+import org.opencb.bionetdb.app.cli.admin.AdminCliOptionsParser;
+import org.opencb.bionetdb.core.exceptions.BioNetDBException;
+import org.opencb.bionetdb.lib.BioNetDbManager;
+import org.opencb.bionetdb.lib.utils.cache.ReferenceCacheStore;
+import org.opencb.commons.utils.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+public class CacheCommandExecutor extends CommandExecutor {
+
+    private AdminCliOptionsParser.CacheCommandOptions cacheCommandOptions;
+
+    public CacheCommandExecutor(AdminCliOptionsParser.CacheCommandOptions cacheCommandOptions) {
+        super(cacheCommandOptions.commonOptions.logLevel, cacheCommandOptions.commonOptions.conf);
+
+        this.cacheCommandOptions = cacheCommandOptions;
+    }
+
+    @Override
+    public void execute() throws BioNetDBException, IOException {
+        Path cacheDir = Paths.get(cacheCommandOptions.referenceCache);
+        FileUtils.checkDirectory(cacheDir);
+
+        BioNetDbManager manager = new BioNetDbManager(configuration);
+        if (cacheCommandOptions.prune) {
+            List<ReferenceCacheStore.Release> removed = manager.pruneReferenceCaches(cacheDir, cacheCommandOptions.keep);
+            for (ReferenceCacheStore.Release release : removed) {
+                System.out.println("Removed " + release.getPath());
+            }
+            System.out.println(removed.size() + " caches removed");
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        System.out.println("#type\tchecksum\tcomplete\tsize (MB)\tlast used\tinputs");
+        for (ReferenceCacheStore.Release release : manager.listReferenceCaches(cacheDir)) {
+            System.out.println(release.getType() + "\t" + release.getChecksum() + "\t" + release.isComplete() + "\t"
+                    + release.getSize() / (1024 * 1024) + "\t" + dateFormat.format(new Date(release.getLastUsed())) + "\t"
+                    + String.join(",", release.getInputs()));
+        }
+    }
+}
@@ -2,12 +2,10 @@ package org.opencb.bionetdb.app.cli.admin.executors;
 
 import org.opencb.bionetdb.app.cli.CommandExecutor;
 import org.opencb.bionetdb.app.cli.admin.AdminCliOptionsParser;
-import org.opencb.bionetdb.core.exceptions.BioNetDBException;
 import org.opencb.bionetdb.lib.BioNetDbManager;
 import org.opencb.bionetdb.lib.utils.Importer;
 import org.opencb.commons.utils.FileUtils;
 
-import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
@@ -33,8 +31,13 @@ public class ImportCommandExecutor extends CommandExecutor {
             FileUtils.checkDirectory(inputPath);
 
             BioNetDbManager manager = new BioNetDbManager(configuration);
-            manager.load(importCommandOptions.database, inputPath);
-        } catch (IOException | BioNetDBException e) {
+            if (importCommandOptions.delta) {
+                manager.loadDelta(inputPath, importCommandOptions.batchSize);
+                manager.close();
+            } else {
+                manager.load(importCommandOptions.database, inputPath);
+            }
+        } catch (Exception e) {
             e.printStackTrace();
         }
     }
@@ -20,6 +20,7 @@ public class BioNetDBConfiguration {
 
     private DatabaseConfiguration database;
     private DownloadProperties download;
+    private RocksDbConfiguration rocksDb;
 
     protected static Logger logger = LoggerFactory.getLogger(BioNetDBConfiguration.class);
 
@@ -128,6 +129,7 @@ public class BioNetDBConfiguration {
         sb.append(", logFile='").append(logFile).append('\'');
         sb.append(", database=").append(database);
         sb.append(", download=").append(download);
+        sb.append(", rocksDb=").append(rocksDb);
         sb.append('}');
         return sb.toString();
     }
@@ -168,6 +170,15 @@ public class BioNetDBConfiguration {
         return this;
     }
 
+    public RocksDbConfiguration getRocksDb() {
+        return rocksDb;
+    }
+
+    public BioNetDBConfiguration setRocksDb(RocksDbConfiguration rocksDb) {
+        this.rocksDb = rocksDb;
+        return this;
+    }
+
     public static Logger getLogger() {
         return logger;
     }
@@ -5,6 +5,13 @@ package org.opencb.bionetdb.core.config;
  */
 public class DatabaseConfiguration {
 
+    public static final int DEFAULT_MAX_CONNECTION_POOL_SIZE = 100;
+    public static final long DEFAULT_CONNECTION_ACQUISITION_TIMEOUT = 60000;
+    public static final long DEFAULT_IDLE_TIME_BEFORE_CONNECTION_TEST = 30000;
+    public static final long DEFAULT_MAX_CONNECTION_LIFETIME = 3600000;
+    public static final int DEFAULT_WRITE_BATCH_SIZE = 10000;
+    public static final long DEFAULT_FETCH_SIZE = 1000;
+
 //    private String id;
 //    private String species;
 
@@ -13,6 +20,25 @@ public class DatabaseConfiguration {
     private String user;
     private String password;
 
+    /**
+     * Connection pool of the driver, shared by all the queries of a BioNetDbManager. Times are in milliseconds, a connection idle
+     * for longer than idleTimeBeforeConnectionTest is checked before it is used, a negative value disables the check.
+     */
+    private int maxConnectionPoolSize;
+    private long connectionAcquisitionTimeout;
+    private long idleTimeBeforeConnectionTest;
+    private long maxConnectionLifetime;
+
+    /**
+     * Nodes or relations written by each transaction of the bulk insert methods.
+     */
+    private int writeBatchSize;
+
+    /**
+     * Records pulled from the server at a time by the query iterators, the next ones are pulled as they are consumed.
+     */
+    private long fetchSize;
+
     /**
      * options parameter defines database-specific parameters.
      */
@@ -20,6 +46,12 @@ public class DatabaseConfiguration {
 
 
     public DatabaseConfiguration() {
+        this.maxConnectionPoolSize = DEFAULT_MAX_CONNECTION_POOL_SIZE;
+        this.connectionAcquisitionTimeout = DEFAULT_CONNECTION_ACQUISITION_TIMEOUT;
+        this.idleTimeBeforeConnectionTest = DEFAULT_IDLE_TIME_BEFORE_CONNECTION_TEST;
+        this.maxConnectionLifetime = DEFAULT_MAX_CONNECTION_LIFETIME;
+        this.writeBatchSize = DEFAULT_WRITE_BATCH_SIZE;
+        this.fetchSize = DEFAULT_FETCH_SIZE;
     }
 
 //    @Deprecated
@@ -30,6 +62,7 @@ public class DatabaseConfiguration {
 
 
     public DatabaseConfiguration(String host, int port, String user, String password) {
+        this();
         this.host = host;
         this.port = port;
         this.user = user;
@@ -43,6 +76,12 @@ public class DatabaseConfiguration {
         sb.append(", port=").append(port);
         sb.append(", user='").append(user).append('\'');
         sb.append(", password='").append(password).append('\'');
+        sb.append(", maxConnectionPoolSize=").append(maxConnectionPoolSize);
+        sb.append(", connectionAcquisitionTimeout=").append(connectionAcquisitionTimeout);
+        sb.append(", idleTimeBeforeConnectionTest=").append(idleTimeBeforeConnectionTest);
+        sb.append(", maxConnectionLifetime=").append(maxConnectionLifetime);
+        sb.append(", writeBatchSize=").append(writeBatchSize);
+        sb.append(", fetchSize=").append(fetchSize);
         sb.append('}');
         return sb.toString();
     }
@@ -82,4 +121,58 @@ public class DatabaseConfiguration {
         this.password = password;
         return this;
     }
+
+    public int getMaxConnectionPoolSize() {
+        return maxConnectionPoolSize;
+    }
+
+    public DatabaseConfiguration setMaxConnectionPoolSize(int maxConnectionPoolSize) {
+        this.maxConnectionPoolSize = maxConnectionPoolSize;
+        return this;
+    }
+
+    public long getConnectionAcquisitionTimeout() {
+        return connectionAcquisitionTimeout;
+    }
+
+    public DatabaseConfiguration setConnectionAcquisitionTimeout(long connectionAcquisitionTimeout) {
+        this.connectionAcquisitionTimeout = connectionAcquisitionTimeout;
+        return this;
+    }
+
+    public long getIdleTimeBeforeConnectionTest() {
+        return idleTimeBeforeConnectionTest;
+    }
+
+    public DatabaseConfiguration setIdleTimeBeforeConnectionTest(long idleTimeBeforeConnectionTest) {
+        this.idleTimeBeforeConnectionTest = idleTimeBeforeConnectionTest;
+        return this;
+    }
+
+    public long getMaxConnectionLifetime() {
+        return maxConnectionLifetime;
+    }
+
+    public DatabaseConfiguration setMaxConnectionLifetime(long maxConnectionLifetime) {
+        this.maxConnectionLifetime = maxConnectionLifetime;
+        return this;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public DatabaseConfiguration setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+        return this;
+    }
+
+    public long getFetchSize() {
+        return fetchSize;
+    }
+
+    public DatabaseConfiguration setFetchSize(long fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
 }
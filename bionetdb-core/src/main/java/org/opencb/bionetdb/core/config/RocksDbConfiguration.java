@@ -0,0 +1,72 @@
+package org.opencb.bionetdb.core.config;
+
+/**
+ * RocksDB settings of the build: the UID index and the gene and protein caches.
+ */
+public class RocksDbConfiguration {
+
+    public static final String DEFAULT_PROFILE = "default";
+    public static final String BULK_LOAD_PROFILE = "bulk-load";
+    public static final String READ_MOSTLY_PROFILE = "read-mostly";
+
+    public static final long DEFAULT_BLOCK_CACHE_SIZE = 256L * 1024 * 1024;
+    public static final int DEFAULT_MAX_OPEN_FILES = 1000;
+
+    /**
+     * profile: default, bulk-load (large memtables, fewer compactions) or read-mostly (ZSTD values, pinned filters).
+     */
+    private String profile;
+
+    /**
+     * blockCacheSize: bytes of the LRU block cache shared by all the stores, memtables are charged to it too.
+     */
+    private long blockCacheSize;
+    private int maxOpenFiles;
+
+    public RocksDbConfiguration() {
+        this(DEFAULT_PROFILE, DEFAULT_BLOCK_CACHE_SIZE, DEFAULT_MAX_OPEN_FILES);
+    }
+
+    public RocksDbConfiguration(String profile, long blockCacheSize, int maxOpenFiles) {
+        this.profile = profile;
+        this.blockCacheSize = blockCacheSize;
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("RocksDbConfiguration{");
+        sb.append("profile='").append(profile).append('\'');
+        sb.append(", blockCacheSize=").append(blockCacheSize);
+        sb.append(", maxOpenFiles=").append(maxOpenFiles);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public RocksDbConfiguration setProfile(String profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    public long getBlockCacheSize() {
+        return blockCacheSize;
+    }
+
+    public RocksDbConfiguration setBlockCacheSize(long blockCacheSize) {
+        this.blockCacheSize = blockCacheSize;
+        return this;
+    }
+
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    public RocksDbConfiguration setMaxOpenFiles(int maxOpenFiles) {
+        this.maxOpenFiles = maxOpenFiles;
+        return this;
+    }
+}
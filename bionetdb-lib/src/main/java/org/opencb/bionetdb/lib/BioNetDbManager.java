@@ -2,6 +2,7 @@ package org.opencb.bionetdb.lib;
 
 import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.tools.variant.converters.avro.VariantContextToVariantConverter;
 import org.opencb.bionetdb.core.config.BioNetDBConfiguration;
@@ -18,10 +19,17 @@ import org.opencb.bionetdb.lib.db.Neo4JNetworkDBAdaptor;
 import org.opencb.bionetdb.lib.executors.NetworkQueryExecutor;
 import org.opencb.bionetdb.lib.executors.NodeQueryExecutor;
 import org.opencb.bionetdb.lib.executors.PathQueryExecutor;
+import org.opencb.bionetdb.lib.utils.BuildMetrics;
 import org.opencb.bionetdb.lib.utils.Builder;
+import org.opencb.bionetdb.lib.utils.DeltaLoader;
 import org.opencb.bionetdb.lib.utils.Downloader;
 import org.opencb.bionetdb.lib.utils.Importer;
+import org.opencb.bionetdb.lib.utils.cache.ReferenceCacheStore;
+import org.opencb.bionetdb.lib.utils.csv.CsvCompression;
+import org.opencb.bionetdb.lib.utils.csv.CsvWriterFactory;
+import org.opencb.bionetdb.lib.utils.index.BloomFilter;
 import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.QueryResult;
 import org.opencb.commons.utils.FileUtils;
 import org.slf4j.Logger;
@@ -29,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
@@ -44,6 +53,19 @@ public class BioNetDbManager {
     private Logger logger;
 
     private static final int QUERY_MAX_RESULTS = 50000;
+
+    public static final String BUILD_THREADS = "threads";
+    public static final String BUILD_CSV_COMPRESSION = "csvCompression";
+    public static final String BUILD_COMPRESSION_LEVEL = "compressionLevel";
+    public static final String BUILD_BIOPAX_IN_MEMORY = "biopaxInMemory";
+    public static final String BUILD_RESUME = "resume";
+    public static final String BUILD_CHECKPOINT_INTERVAL = "checkpointInterval";
+    public static final String BUILD_INCREMENTAL = "incremental";
+    public static final String BUILD_REFERENCE_CACHE = "referenceCache";
+    public static final String BUILD_BLOOM_FILTER_FPP = "bloomFilterFpp";
+    public static final String BUILD_SHARD_ROWS = "shardRows";
+    public static final String BUILD_SHARD_BYTES = "shardBytes";
+    public static final String BUILD_PROGRESS_INTERVAL = "progressInterval";
     private TieringInterpretationAnalysis tieringInterpretationAnalysis;
 
     public BioNetDbManager(BioNetDBConfiguration configuration) throws BioNetDBException {
@@ -80,7 +102,50 @@ public class BioNetDbManager {
 
     public void build(Path inputPath, Path outputPath, List<String> variantFiles, List<String> networkFiles, List<String> exclude)
             throws IOException, NoSuchAlgorithmException {
+        build(inputPath, outputPath, variantFiles, networkFiles, exclude, 1);
+    }
+
+    public void build(Path inputPath, Path outputPath, List<String> variantFiles, List<String> networkFiles, List<String> exclude,
+                      int numThreads) throws IOException, NoSuchAlgorithmException {
+        build(inputPath, outputPath, variantFiles, networkFiles, exclude, new ObjectMap(BUILD_THREADS, numThreads));
+    }
+
+    /**
+     * Builds the CSV files to import.
+     *
+     * @param inputPath     Directory with the input files
+     * @param outputPath    Directory for the CSV files
+     * @param variantFiles  Additional variant files
+     * @param networkFiles  Additional network files
+     * @param exclude       Exclude filters
+     * @param options       Build options: BUILD_THREADS, BUILD_CSV_COMPRESSION (gzip, pgzip or none), BUILD_COMPRESSION_LEVEL,
+     *                      BUILD_BIOPAX_IN_MEMORY, BUILD_RESUME, BUILD_CHECKPOINT_INTERVAL, BUILD_INCREMENTAL,
+     *                      BUILD_REFERENCE_CACHE, BUILD_BLOOM_FILTER_FPP, BUILD_SHARD_ROWS, BUILD_SHARD_BYTES,
+     *                      BUILD_PROGRESS_INTERVAL (seconds, 0 to disable the progress line)
+     * @throws IOException  If any input file can not be read or any CSV file can not be written
+     * @throws NoSuchAlgorithmException If the variant IDs can not be computed
+     */
+    public void build(Path inputPath, Path outputPath, List<String> variantFiles, List<String> networkFiles, List<String> exclude,
+                      ObjectMap options) throws IOException, NoSuchAlgorithmException {
         Builder builder = new Builder(inputPath, outputPath, parseFilters(exclude));
+        builder.setNumThreads(options.getInt(BUILD_THREADS, 1));
+        builder.setCsvCompression(CsvCompression.parse(options.getString(BUILD_CSV_COMPRESSION, "gzip")));
+        builder.setCompressionLevel(options.getInt(BUILD_COMPRESSION_LEVEL, CsvWriterFactory.DEFAULT_COMPRESSION_LEVEL));
+        builder.setBiopaxInMemory(options.getBoolean(BUILD_BIOPAX_IN_MEMORY, false));
+        builder.setResume(options.getBoolean(BUILD_RESUME, false));
+        builder.setCheckpointInterval(options.getLong(BUILD_CHECKPOINT_INTERVAL, Builder.DEFAULT_CHECKPOINT_INTERVAL));
+        builder.setIncremental(options.getBoolean(BUILD_INCREMENTAL, false));
+        if (StringUtils.isNotEmpty(options.getString(BUILD_REFERENCE_CACHE))) {
+            builder.setReferenceCachePath(Paths.get(options.getString(BUILD_REFERENCE_CACHE)));
+        }
+        if (configuration.getRocksDb() != null) {
+            builder.getCsvInfo().setRocksDbConfiguration(configuration.getRocksDb());
+        }
+        builder.getCsvInfo().setBloomFilterFpp(options.getDouble(BUILD_BLOOM_FILTER_FPP, BloomFilter.DEFAULT_FPP));
+        builder.getCsvInfo().setShardRows(options.getLong(BUILD_SHARD_ROWS, 0));
+        builder.getCsvInfo().setShardBytes(options.getLong(BUILD_SHARD_BYTES, 0));
+        builder.getCsvInfo().getMetrics()
+                .setProgressInterval(options.getLong(BUILD_PROGRESS_INTERVAL, BuildMetrics.DEFAULT_PROGRESS_INTERVAL));
         if (CollectionUtils.isNotEmpty(variantFiles)) {
             builder.setAdditionalVariantFiles(variantFiles);
         }
@@ -125,6 +190,43 @@ public class BioNetDbManager {
         System.out.println("Indexing BioNetDB database done!!");
     }
 
+    /**
+     * Loads the CSV files of an incremental build into the running database, nodes and relations are merged by UID.
+     *
+     * @param deltaPath     Directory of the incremental build, i.e. deltas/0001 in the build output directory
+     * @param batchSize     Rows per transaction
+     * @throws IOException  If any CSV file can not be read
+     */
+    public void loadDelta(Path deltaPath, int batchSize) throws IOException {
+        System.out.println("Loading incremental build " + deltaPath + " into BioNetDB database...");
+        DeltaLoader deltaLoader = new DeltaLoader(((Neo4JNetworkDBAdaptor) networkDBAdaptor).getDriver(), batchSize);
+        deltaLoader.load(deltaPath);
+        System.out.println("Loading incremental build done!!");
+    }
+
+
+    /**
+     * Lists the gene and protein caches shared by builds.
+     *
+     * @param cacheDir      Reference cache directory
+     * @return              Cached releases
+     * @throws IOException  If the cache directory can not be read
+     */
+    public List<ReferenceCacheStore.Release> listReferenceCaches(Path cacheDir) throws IOException {
+        return new ReferenceCacheStore(cacheDir).list();
+    }
+
+    /**
+     * Removes the incomplete caches and the least recently used ones. No build using the cache directory must be running.
+     *
+     * @param cacheDir      Reference cache directory
+     * @param keep          Caches to keep by type
+     * @return              Removed releases
+     * @throws IOException  If any cache can not be removed
+     */
+    public List<ReferenceCacheStore.Release> pruneReferenceCaches(Path cacheDir, int keep) throws IOException {
+        return new ReferenceCacheStore(cacheDir).prune(keep);
+    }
 
     //---------------------------------------------
     // E X E C U T O R S
@@ -200,11 +302,13 @@ public class BioNetDbManager {
         List<NetworkPath> networkPaths = new ArrayList<>();
 
         long startTime = System.currentTimeMillis();
-        while (networkPathIterator.hasNext()) {
-            if (networkPaths.size() >= this.QUERY_MAX_RESULTS) {
-                break;
+        try (NetworkPathIterator iterator = networkPathIterator) {
+            while (iterator.hasNext()) {
+                if (networkPaths.size() >= this.QUERY_MAX_RESULTS) {
+                    break;
+                }
+                networkPaths.add(iterator.next());
             }
-            networkPaths.add(networkPathIterator.next());
         }
         long stopTime = System.currentTimeMillis();
 
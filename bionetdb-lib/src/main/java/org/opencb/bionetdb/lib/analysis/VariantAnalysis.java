@@ -151,9 +151,10 @@ public class VariantAnalysis extends BioNetDBAnalysis {
     private List<Variant> queryNodes(String cypher) throws BioNetDBException {
         List<Variant> nodes = new ArrayList<>();
 
-        NodeIterator nodeIterator = networkDBAdaptor.nodeIterator(cypher);
-        while (nodeIterator.hasNext()) {
-            nodes.add(NodeBuilder.newVariant(nodeIterator.next()));
+        try (NodeIterator nodeIterator = networkDBAdaptor.nodeIterator(cypher)) {
+            while (nodeIterator.hasNext()) {
+                nodes.add(NodeBuilder.newVariant(nodeIterator.next()));
+            }
         }
 
         return nodes;
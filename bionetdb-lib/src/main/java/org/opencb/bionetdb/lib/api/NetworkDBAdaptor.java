@@ -9,6 +9,11 @@ import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.core.QueryParam;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
 import static org.opencb.commons.datastore.core.QueryParam.Type.*;
 
 /**
@@ -75,6 +80,27 @@ public interface NetworkDBAdaptor extends AutoCloseable {
 
     void insert(Network network, QueryOptions queryOptions) throws BioNetDBException;
 
+    /**
+     * Inserts nodes in batches, nodes with the same labels are written together, one transaction per batch.
+     *
+     * @param nodes Nodes, with their UIDs
+     * @return      Number of nodes created, as counted by the database
+     * @throws BioNetDBException If a batch can not be written
+     */
+    long insertNodes(Iterator<Node> nodes) throws BioNetDBException;
+
+    /**
+     * Inserts relations in batches, relations with the same type and node labels are written together, one transaction per batch.
+     * Their nodes must have been inserted before. Each relation is created with its UID, so relations of the same type between the
+     * same nodes are kept apart.
+     *
+     * @param relations Relations, with the UIDs of their nodes
+     * @return          Number of relations created, as counted by the database. Relations whose nodes are not found are not
+     *                  created, so this may be lower than the number of relations given
+     * @throws BioNetDBException If a batch can not be written
+     */
+    long insertRelations(Iterator<Relation> relations) throws BioNetDBException;
+
     //-------------------------------------------------------------------------
     // A N N O T A T I O N     M E T H O D s
     //-------------------------------------------------------------------------
@@ -98,9 +124,32 @@ public interface NetworkDBAdaptor extends AutoCloseable {
 
     NodeIterator nodeIterator(Query query, QueryOptions queryOptions);
     NodeIterator nodeIterator(String cypher);
+    NodeIterator nodeIterator(String cypher, Map<String, Object> params);
 
     BioNetDBResult<Node> nodeQuery(Query query, QueryOptions queryOptions);
     BioNetDBResult<Node> nodeQuery(String cypher);
+    BioNetDBResult<Node> nodeQuery(String cypher, Map<String, Object> params);
+
+    /**
+     * Queries nodes without blocking the calling thread, the query runs on an asynchronous session of the driver.
+     *
+     * @param query         Query
+     * @param queryOptions  Query options
+     * @return              Stage completed with the nodes, or exceptionally if the query fails
+     */
+    CompletionStage<BioNetDBResult<Node>> nodeQueryAsync(Query query, QueryOptions queryOptions);
+    CompletionStage<BioNetDBResult<Node>> nodeQueryAsync(String cypher, Map<String, Object> params);
+
+    /**
+     * Streams nodes with back-pressure, the query runs on a reactive session of the driver when the publisher is subscribed,
+     * and records are fetched from the server as the subscriber requests them.
+     *
+     * @param query         Query
+     * @param queryOptions  Query options
+     * @return              Publisher of nodes, each subscription runs the query again
+     */
+    Flow.Publisher<Node> nodePublisher(Query query, QueryOptions queryOptions);
+    Flow.Publisher<Node> nodePublisher(String cypher, Map<String, Object> params);
 
     BioNetDBResult<NodeStats> nodeStats(Query query);
 
@@ -137,9 +186,17 @@ public interface NetworkDBAdaptor extends AutoCloseable {
 
     NetworkPathIterator networkPathIterator(Query networkPathQuery, QueryOptions queryOptions) throws BioNetDBException;
     NetworkPathIterator networkPathIterator(String cypher);
+    NetworkPathIterator networkPathIterator(String cypher, Map<String, Object> params);
 
     BioNetDBResult<NetworkPath> networkPathQuery(Query query, QueryOptions queryOptions) throws BioNetDBException;
     BioNetDBResult<NetworkPath> networkPathQuery(String cypher);
+    BioNetDBResult<NetworkPath> networkPathQuery(String cypher, Map<String, Object> params);
+
+    CompletionStage<BioNetDBResult<NetworkPath>> networkPathQueryAsync(Query query, QueryOptions queryOptions) throws BioNetDBException;
+    CompletionStage<BioNetDBResult<NetworkPath>> networkPathQueryAsync(String cypher, Map<String, Object> params);
+
+    Flow.Publisher<NetworkPath> networkPathPublisher(Query query, QueryOptions queryOptions) throws BioNetDBException;
+    Flow.Publisher<NetworkPath> networkPathPublisher(String cypher, Map<String, Object> params);
 
     //-------------------------------------------------------------------------
     // N E T W O R K S
@@ -4,7 +4,14 @@ import org.opencb.bionetdb.core.models.network.NetworkPath;
 
 import java.util.Iterator;
 
-public interface NetworkPathIterator extends Iterator<NetworkPath> {
+/**
+ * Results of a query, read as they are consumed. It must be closed if it is not read to the end, closing it releases the database
+ * session and stops the query.
+ */
+public interface NetworkPathIterator extends Iterator<NetworkPath>, AutoCloseable {
+
+    @Override
+    void close();
 
 //    @Override
 //    public boolean hasNext() {
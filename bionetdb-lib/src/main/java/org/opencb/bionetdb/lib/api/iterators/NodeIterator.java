@@ -4,7 +4,14 @@ import org.opencb.bionetdb.core.models.network.Node;
 
 import java.util.Iterator;
 
-public interface NodeIterator extends Iterator<Node> {
+/**
+ * Results of a query, read as they are consumed. It must be closed if it is not read to the end, closing it releases the database
+ * session and stops the query.
+ */
+public interface NodeIterator extends Iterator<Node>, AutoCloseable {
+
+    @Override
+    void close();
 
 //    @Override
 //    public boolean hasNext() {
@@ -4,6 +4,10 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.neo4j.driver.*;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.summary.SummaryCounters;
 import org.opencb.bionetdb.core.config.BioNetDBConfiguration;
 import org.opencb.bionetdb.core.config.DatabaseConfiguration;
 import org.opencb.bionetdb.core.exceptions.BioNetDBException;
@@ -14,13 +18,20 @@ import org.opencb.bionetdb.lib.api.iterators.NetworkPathIterator;
 import org.opencb.bionetdb.lib.api.iterators.NodeIterator;
 import org.opencb.bionetdb.lib.db.iterators.Neo4JNetworkPathIterator;
 import org.opencb.bionetdb.lib.db.iterators.Neo4JNodeIterator;
+import org.opencb.bionetdb.lib.db.iterators.Neo4JRecordPublisher;
 import org.opencb.bionetdb.lib.db.query.Neo4JQueryParser;
+import org.opencb.bionetdb.lib.utils.Neo4jConverter;
+import org.opencb.bionetdb.lib.utils.Utils;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static org.opencb.bionetdb.core.models.network.Node.Label.*;
 import static org.opencb.bionetdb.lib.utils.Utils.PREFIX_ATTRIBUTES;
@@ -31,7 +42,9 @@ import static org.opencb.bionetdb.lib.utils.Utils.PREFIX_ATTRIBUTES;
 public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
     private Driver driver;
+    private Thread shutdownHook;
     private BioNetDBConfiguration configuration;
+    private Set<String> indexedLabels;
 
     public Neo4JNetworkDBAdaptor(BioNetDBConfiguration configuration) {
         this.configuration = configuration;
@@ -43,8 +56,19 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
         String user = databaseConfiguration.getUser();
         String password = databaseConfiguration.getPassword();
 
-        driver = GraphDatabase.driver("bolt://" + databaseURI, AuthTokens.basic(user, password));
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> driver.close()));
+        // The driver keeps a pool of connections, it is thread-safe and must be shared by all the queries
+        Config.ConfigBuilder config = Config.builder()
+                .withMaxConnectionPoolSize(databaseConfiguration.getMaxConnectionPoolSize())
+                .withConnectionAcquisitionTimeout(databaseConfiguration.getConnectionAcquisitionTimeout(), TimeUnit.MILLISECONDS)
+                .withMaxConnectionLifetime(databaseConfiguration.getMaxConnectionLifetime(), TimeUnit.MILLISECONDS);
+        if (databaseConfiguration.getIdleTimeBeforeConnectionTest() >= 0) {
+            config.withConnectionLivenessCheckTimeout(databaseConfiguration.getIdleTimeBeforeConnectionTest(), TimeUnit.MILLISECONDS);
+        }
+
+        driver = GraphDatabase.driver("bolt://" + databaseURI, AuthTokens.basic(user, password), config.build());
+        shutdownHook = new Thread(() -> driver.close());
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        indexedLabels = Collections.synchronizedSet(new HashSet<>());
 
 //        // Add configuration node
 //        if (!existConfigNode()) {
@@ -52,9 +76,28 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 //        }
     }
 
+    /**
+     * Adaptor over an existing driver, the driver is closed with the adaptor.
+     *
+     * @param configuration BioNetDB configuration
+     * @param driver        Neo4J driver
+     */
+    Neo4JNetworkDBAdaptor(BioNetDBConfiguration configuration, Driver driver) {
+        this.configuration = configuration;
+        this.driver = driver;
+        indexedLabels = Collections.synchronizedSet(new HashSet<>());
+    }
+
     @Override
     public void close() {
         driver.close();
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down
+            }
+        }
     }
 
     @Override
@@ -90,18 +133,12 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
     }
 
     public boolean isReady() {
-        Transaction tx = null;
-        try {
-            tx = driver.session().beginTransaction();
+        try (Session session = driver.session(); Transaction tx = session.beginTransaction()) {
             tx.run("MATCH (n:" + Node.Label.INTERNAL_CONNFIG + "{uid:0}) return n");
             tx.commit();
             return true;
         } catch (Exception e) {
             return false;
-        } finally {
-            if (tx != null) {
-                tx.close();
-            }
         }
     }
 
@@ -117,25 +154,109 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
      */
     @Override
     public void insert(Network network, QueryOptions queryOptions) throws BioNetDBException {
-        Session session = this.driver.session();
-
         // First, insert Neo4J nodes
-        for (Node node : network.getNodes()) {
-            session.writeTransaction(tx -> {
-                addNode(node, tx);
-                return 1;
-            });
-        }
+        insertNodes(network.getNodes().iterator());
 
         // Second, insert Neo4J relationships
-        for (Relation relation : network.getRelations()) {
-            session.writeTransaction(tx -> {
-                addRelation(relation, tx);
-                return 1;
-            });
+        insertRelations(network.getRelations().iterator());
+    }
+
+    @Override
+    public long insertNodes(Iterator<Node> nodes) throws BioNetDBException {
+        int batchSize = Math.max(1, configuration.getDatabase().getWriteBatchSize());
+        long count = 0;
+        try (Session session = driver.session()) {
+            // Nodes are grouped by their labels, labels can not be query parameters
+            Map<String, List<Map<String, Object>>> batches = new HashMap<>();
+            while (nodes.hasNext()) {
+                Node node = nodes.next();
+                List<Map<String, Object>> batch = batches.computeIfAbsent(getLabels(node), k -> new ArrayList<>());
+                batch.add(getNodeProperties(node));
+                if (batch.size() >= batchSize) {
+                    count += createNodes(session, getLabels(node), batch);
+                }
+            }
+            for (Map.Entry<String, List<Map<String, Object>>> entry : batches.entrySet()) {
+                count += createNodes(session, entry.getKey(), entry.getValue());
+            }
+        } catch (RuntimeException e) {
+            throw new BioNetDBException("Error inserting nodes: " + e.getMessage(), e);
         }
+        return count;
+    }
 
-        session.close();
+    @Override
+    public long insertRelations(Iterator<Relation> relations) throws BioNetDBException {
+        int batchSize = Math.max(1, configuration.getDatabase().getWriteBatchSize());
+        long count = 0;
+        try (Session session = driver.session()) {
+            // Relations are grouped by their type and the labels of their nodes
+            Map<String, List<Map<String, Object>>> batches = new HashMap<>();
+            while (relations.hasNext()) {
+                Relation relation = relations.next();
+                String key = relation.getLabel() + ":" + relation.getOrigLabel() + ":" + relation.getDestLabel();
+                List<Map<String, Object>> batch = batches.computeIfAbsent(key, k -> new ArrayList<>());
+
+                // Each relation keeps its own UID and properties, relations of the same type between the same nodes are not merged
+                Map<String, Object> props = new HashMap<>();
+                props.put("uid", relation.getUid());
+                if (StringUtils.isNotEmpty(relation.getName())) {
+                    props.put("name", relation.getName());
+                }
+                props.putAll(getAttributeProperties(relation.getAttributes()));
+                Map<String, Object> row = new HashMap<>();
+                row.put("o", relation.getOrigUid());
+                row.put("d", relation.getDestUid());
+                row.put("props", props);
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    count += createRelations(session, key, batch);
+                }
+            }
+            for (Map.Entry<String, List<Map<String, Object>>> entry : batches.entrySet()) {
+                count += createRelations(session, entry.getKey(), entry.getValue());
+            }
+        } catch (RuntimeException e) {
+            throw new BioNetDBException("Error inserting relations: " + e.getMessage(), e);
+        }
+        return count;
+    }
+
+    private long createNodes(Session session, String labels, List<Map<String, Object>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // Relations are matched by UID, so nodes need the UID index of their first label
+        if (StringUtils.isNotEmpty(labels)) {
+            createUidIndex(session, labels.substring(1).split(":")[0]);
+        }
+        String cypher = "UNWIND $batch AS row CREATE (n" + labels + ") SET n = row";
+        return writeBatch(session, cypher, batch).nodesCreated();
+    }
+
+    private long createRelations(Session session, String key, List<Map<String, Object>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        String[] fields = key.split(":");
+        createUidIndex(session, fields[1]);
+        createUidIndex(session, fields[2]);
+        String cypher = "UNWIND $batch AS row MATCH (o:" + fields[1] + " {uid: row.o}) MATCH (d:" + fields[2] + " {uid: row.d})"
+                + " CREATE (o)-[r:" + fields[0] + "]->(d) SET r = row.props";
+        // Rows whose nodes are not matched create nothing, the counters tell them apart
+        return writeBatch(session, cypher, batch).relationshipsCreated();
+    }
+
+    private SummaryCounters writeBatch(Session session, String cypher, List<Map<String, Object>> batch) {
+        ResultSummary summary = session.writeTransaction(tx -> tx.run(cypher, Collections.singletonMap("batch", batch)).consume());
+        batch.clear();
+        return summary.counters();
+    }
+
+    private void createUidIndex(Session session, String label) {
+        if (indexedLabels.add(label)) {
+            session.writeTransaction(tx -> tx.run("CREATE INDEX IF NOT EXISTS FOR (n:" + label + ") ON (n.uid)").consume());
+        }
     }
 
     //-------------------------------------------------------------------------
@@ -269,31 +390,50 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
     @Override
     public NodeIterator nodeIterator(Query query, QueryOptions queryOptions) {
-        String cypher = Neo4JQueryParser.parseNodeQuery(query, queryOptions);
-        return nodeIterator(cypher);
+        Map<String, Object> params = new HashMap<>();
+        String cypher = Neo4JQueryParser.parseNodeQuery(query, queryOptions, params);
+        return nodeIterator(cypher, params);
     }
 
     @Override
     public NodeIterator nodeIterator(String cypher) {
-        Session session = this.driver.session();
-        System.out.println("Cypher query: " + cypher);
-        return new Neo4JNodeIterator(session.run(cypher));
+        return nodeIterator(cypher, Collections.emptyMap());
+    }
+
+    @Override
+    public NodeIterator nodeIterator(String cypher, Map<String, Object> params) {
+        System.out.println("Cypher query: " + cypher + ", params: " + params);
+        Session session = iteratorSession();
+        try {
+            Transaction tx = session.beginTransaction();
+            return new Neo4JNodeIterator(session, tx, tx.run(cypher, params));
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
     }
 
     @Override
     public BioNetDBResult<Node> nodeQuery(Query query, QueryOptions queryOptions) {
-        String cypher = Neo4JQueryParser.parseNodeQuery(query, queryOptions);
-        return nodeQuery(cypher);
+        Map<String, Object> params = new HashMap<>();
+        String cypher = Neo4JQueryParser.parseNodeQuery(query, queryOptions, params);
+        return nodeQuery(cypher, params);
     }
 
     @Override
     public BioNetDBResult<Node> nodeQuery(String cypher) {
+        return nodeQuery(cypher, Collections.emptyMap());
+    }
+
+    @Override
+    public BioNetDBResult<Node> nodeQuery(String cypher, Map<String, Object> params) {
         // Query for nodes using the node iterator
         StopWatch stopWatch = StopWatch.createStarted();
-        NodeIterator nodeIterator = nodeIterator(cypher);
         List<Node> nodes = new ArrayList<>();
-        while (nodeIterator.hasNext()) {
-            nodes.add(nodeIterator.next());
+        try (NodeIterator nodeIterator = nodeIterator(cypher, params)) {
+            while (nodeIterator.hasNext()) {
+                nodes.add(nodeIterator.next());
+            }
         }
         int dbTime = (int) stopWatch.getTime(TimeUnit.MILLISECONDS);
 
@@ -302,19 +442,44 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
         return queryResult;
     }
 
+    @Override
+    public CompletionStage<BioNetDBResult<Node>> nodeQueryAsync(Query query, QueryOptions queryOptions) {
+        Map<String, Object> params = new HashMap<>();
+        String cypher = Neo4JQueryParser.parseNodeQuery(query, queryOptions, params);
+        return nodeQueryAsync(cypher, params);
+    }
+
+    @Override
+    public CompletionStage<BioNetDBResult<Node>> nodeQueryAsync(String cypher, Map<String, Object> params) {
+        return queryAsync(cypher, params, Neo4jConverter::toNodeList);
+    }
+
+    @Override
+    public Flow.Publisher<Node> nodePublisher(Query query, QueryOptions queryOptions) {
+        Map<String, Object> params = new HashMap<>();
+        String cypher = Neo4JQueryParser.parseNodeQuery(query, queryOptions, params);
+        return nodePublisher(cypher, params);
+    }
+
+    @Override
+    public Flow.Publisher<Node> nodePublisher(String cypher, Map<String, Object> params) {
+        return publisher(cypher, params, Neo4jConverter::toNodeList);
+    }
+
     @Override
     public BioNetDBResult<NodeStats> nodeStats(Query query) {
         StopWatch stopWatch = StopWatch.createStarted();
         Session session = this.driver.session();
 
         StringBuilder where = new StringBuilder();
-        List<String> filters = Neo4JQueryParser.getFilters("n", query);
+        Map<String, Object> params = new HashMap<>();
+        List<String> filters = Neo4JQueryParser.getFilters("n", query, params);
         if (filters.size() > 0) {
             where.append(" where ").append(StringUtils.join(filters, " and"));
         }
         String cypher = "match (n)" + where.toString() + " with distinct labels(n) as label, count(labels(n)) as cnt return label, cnt";
-        System.out.println("Cypher query: " + cypher);
-        Result result = session.run(cypher);
+        System.out.println("Cypher query: " + cypher + ", params: " + params);
+        Result result = session.run(cypher, params);
 
         long total = 0;
         Map<String, Long> count = new HashMap<>();
@@ -333,6 +498,7 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
             total += cnt;
         }
 
+        session.close();
         NodeStats stats = new NodeStats(total, count);
         int dbTime = (int) stopWatch.getTime(TimeUnit.MILLISECONDS);
 
@@ -352,40 +518,7 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
         Session session = driver.session();
         try (Transaction tx = session.beginTransaction()) {
-
-            // Gather properties of the node to create a cypher string with them
-            List<String> props = new ArrayList<>();
-            props.add("n.uid=" + node.getUid());
-            if (StringUtils.isNotEmpty(node.getId())) {
-                props.add("n.id=\"" + cleanValue(node.getId()) + "\"");
-            }
-            if (StringUtils.isNotEmpty(node.getName())) {
-                props.add("n.name=\"" + cleanValue(node.getName()) + "\"");
-            }
-
-            for (String key : node.getAttributes().keySet()) {
-                if (StringUtils.isNumeric(node.getAttributes().getString(key))) {
-                    props.add("n." + PREFIX_ATTRIBUTES + key + "=" + node.getAttributes().getString(key));
-                } else {
-                    props.add("n." + PREFIX_ATTRIBUTES + key + "=\"" + cleanValue(node.getAttributes().getString(key)) + "\"");
-                }
-            }
-            //String propsJoined = "{" + String.join(",", props) + "}";
-
-            // Create the desired node
-            StringBuilder cypher = new StringBuilder("CREATE (n");
-            if (CollectionUtils.isNotEmpty(node.getLabels())) {
-                cypher.append(":").append(StringUtils.join(node.getLabels(), ":"));
-            }
-            cypher.append(")");
-            if (CollectionUtils.isNotEmpty(props)) {
-                cypher.append(" SET ").append(StringUtils.join(props, ","));
-            }
-
-            // Run cypher statement
-            System.out.println(cypher.toString());
-            //cypher.append(" RETURN ID(n) AS UID");
-            tx.run(cypher.toString());
+            addNode(node, tx);
             tx.commit();
         }
         session.close();
@@ -401,29 +534,20 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
             throw new BioNetDBException("Error updating node: it does not exist");
         }
 
-        Session session = driver.session();
-        try (Transaction tx = session.beginTransaction()) {
-            List<String> attrs = new ArrayList<>();
-            for (String key : node.getAttributes().keySet()) {
-                if (StringUtils.isNumeric(node.getAttributes().getString(key))) {
-                    attrs.add("n." + PREFIX_ATTRIBUTES + key + "=" + node.getAttributes().getString(key));
-                } else {
-                    attrs.add("n." + PREFIX_ATTRIBUTES + key + "=\"" + cleanValue(node.getAttributes().getString(key)) + "\"");
-                }
-            }
+        Map<String, Object> attrs = getAttributeProperties(node.getAttributes());
+        if (attrs.isEmpty()) {
+            return;
+        }
 
-            // Match the desired node
-            StringBuilder cypher = new StringBuilder("MATCh (n");
-            if (CollectionUtils.isNotEmpty(node.getLabels())) {
-                cypher.append(":").append(StringUtils.join(node.getLabels(), ":"));
-            }
-            cypher.append(")");
-            cypher.append(" WHERE n.id=\"").append(node.getId()).append("\"");
-            if (CollectionUtils.isNotEmpty(attrs)) {
-                cypher.append(" SET ").append(StringUtils.join(attrs, ","));
-            }
+        // Match the desired node and add its attributes
+        String cypher = "MATCH (n" + getLabels(node) + ") WHERE n.id = $id SET n += $attrs";
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", node.getId());
+        params.put("attrs", attrs);
 
-            tx.run(cypher.toString());
+        Session session = driver.session();
+        try (Transaction tx = session.beginTransaction()) {
+            tx.run(cypher, params);
             tx.commit();
         }
         session.close();
@@ -446,8 +570,8 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
         Session session = driver.session();
         try (Transaction tx = session.beginTransaction()) {
-            String cypher = "MATCH (n:" + node.getLabels() + "{id: '" + node.getId() + "'}) DETACH DELETE n";
-            tx.run(cypher);
+            String cypher = "MATCH (n" + getLabels(node) + " {id: $id}) DETACH DELETE n";
+            tx.run(cypher, Collections.singletonMap("id", node.getId()));
             tx.commit();
         }
         session.close();
@@ -471,28 +595,22 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
         // TODO: check if relation exists
 
-        List<String> props = new ArrayList<>();
-        for (String key : relation.getAttributes().keySet()) {
-            props.add(PREFIX_ATTRIBUTES + key + ":\"" + cleanValue(relation.getAttributes().getString(key)) + "\"");
-        }
-        String propsJoined = "{" + String.join(",", props) + "}";
+        Map<String, Object> params = new HashMap<>();
+        params.put("origId", origNode.getId());
+        params.put("destId", destNode.getId());
 
         StringBuilder cypher = new StringBuilder();
-        cypher.append("MATCH (o:").append(origNode.getLabels()).append("{id:\"")
-                .append(origNode.getId()).append("\"}) MATCH (d:").append(destNode.getLabels()).append("{id:\"")
-                .append(destNode.getId()).append("\"}) USING INDEX d:").append(destNode.getLabels())
-                .append("(id) MERGE (o)-[r:").append(relation.getLabel());
-        if (CollectionUtils.isNotEmpty(props)) {
-            cypher.append(propsJoined);
-        }
-        cypher.append("]-(d)");
+        cypher.append("MATCH (o").append(getLabels(origNode)).append(" {id: $origId}) MATCH (d").append(getLabels(destNode))
+                .append(" {id: $destId}) USING INDEX d:").append(destNode.getLabels().get(0))
+                .append("(id) MERGE (o)-[r:").append(relation.getLabel())
+                .append(getPropertyMap(getAttributeProperties(relation.getAttributes()), params)).append("]-(d)");
 
         System.out.println(cypher.toString());
 
         // Create the relationship
         Session session = driver.session();
         try (Transaction tx = session.beginTransaction()) {
-            tx.run(cypher.toString());
+            tx.run(cypher.toString(), params);
             tx.commit();
         }
         session.close();
@@ -504,25 +622,20 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
         // TODO: check if relation exists
 
-        List<String> props = new ArrayList<>();
-        for (String key : relation.getAttributes().keySet()) {
-            props.add("r." + PREFIX_ATTRIBUTES + key + "=\"" + cleanValue(relation.getAttributes().getString(key)) + "\"");
-        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("origId", origNode.getId());
+        params.put("destId", destNode.getId());
+        params.put("attrs", getAttributeProperties(relation.getAttributes()));
 
-        StringBuilder cypher = new StringBuilder();
-        cypher.append("MATCH (o:").append(origNode.getLabels()).append("{id:\"")
-                .append(origNode.getId()).append("\"})-[r:").append(relation.getLabel()).append("]-(d:").append(destNode.getLabels())
-                .append("{id:\"").append(destNode.getId()).append("\"})");
-        if (CollectionUtils.isNotEmpty(props)) {
-            cypher.append(" SET ").append(StringUtils.join(props, ","));
-        }
+        String cypher = "MATCH (o" + getLabels(origNode) + " {id: $origId})-[r:" + relation.getLabel() + "]-(d" + getLabels(destNode)
+                + " {id: $destId}) SET r += $attrs";
 
-        System.out.println(cypher.toString());
+        System.out.println(cypher);
 
         // Create the relationship
         Session session = driver.session();
         try (Transaction tx = session.beginTransaction()) {
-            tx.run(cypher.toString());
+            tx.run(cypher, params);
             tx.commit();
         }
         session.close();
@@ -534,23 +647,19 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
         // TODO: check if relation exists
 
-        List<String> props = new ArrayList<>();
-        for (String key : relation.getAttributes().keySet()) {
-            props.add(PREFIX_ATTRIBUTES + key + ":\"" + cleanValue(relation.getAttributes().getString(key)) + "\"");
-        }
-        String propsJoined = "{" + String.join(",", props) + "}";
+        Map<String, Object> params = new HashMap<>();
+        params.put("origId", origNode.getId());
+        params.put("destId", destNode.getId());
 
-        StringBuilder cypher = new StringBuilder();
-        cypher.append("MATCH (o:").append(origNode.getLabels()).append("{id:\"")
-                .append(origNode.getId()).append("\"})-[r:").append(relation.getLabel()).append("]-(d:").append(destNode.getLabels())
-                .append("{id:\"").append(destNode.getId()).append("\"}) DELETE r");
+        String cypher = "MATCH (o" + getLabels(origNode) + " {id: $origId})-[r:" + relation.getLabel() + "]-(d" + getLabels(destNode)
+                + " {id: $destId}) DELETE r";
 
-        System.out.println(cypher.toString());
+        System.out.println(cypher);
 
         // Create the relationship
         Session session = driver.session();
         try (Transaction tx = session.beginTransaction()) {
-            tx.run(cypher.toString());
+            tx.run(cypher, params);
             tx.commit();
         }
         session.close();
@@ -617,31 +726,90 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
     @Override
     public NetworkPathIterator networkPathIterator(Query networkPathQuery, QueryOptions queryOptions) throws BioNetDBException {
-        String cypher = Neo4JQueryParser.parseNetworkPathQuery(networkPathQuery, queryOptions);
-        return networkPathIterator(cypher);
+        Map<String, Object> params = new HashMap<>();
+        String cypher = Neo4JQueryParser.parseNetworkPathQuery(networkPathQuery, queryOptions, params);
+        return networkPathIterator(cypher, params);
     }
 
     @Override
     public NetworkPathIterator networkPathIterator(String cypher) {
-        Session session = this.driver.session();
-        System.out.println("Cypher query: " + cypher);
-        return new Neo4JNetworkPathIterator(session.run(cypher));
+        return networkPathIterator(cypher, Collections.emptyMap());
+    }
+
+    @Override
+    public NetworkPathIterator networkPathIterator(String cypher, Map<String, Object> params) {
+        System.out.println("Cypher query: " + cypher + ", params: " + params);
+        Session session = iteratorSession();
+        try {
+            Transaction tx = session.beginTransaction();
+            return new Neo4JNetworkPathIterator(session, tx, tx.run(cypher, params));
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    private Session iteratorSession() {
+        return driver.session(sessionConfig());
+    }
+
+    private SessionConfig sessionConfig() {
+        long fetchSize = configuration.getDatabase().getFetchSize();
+        if (fetchSize == 0) {
+            return SessionConfig.defaultConfig();
+        }
+        return SessionConfig.builder().withFetchSize(fetchSize).build();
+    }
+
+    private <T> CompletionStage<BioNetDBResult<T>> queryAsync(String cypher, Map<String, Object> params,
+                                                              Function<Record, List<T>> converter) {
+        System.out.println("Cypher query: " + cypher + ", params: " + params);
+        StopWatch stopWatch = StopWatch.createStarted();
+        AsyncSession session = driver.asyncSession(sessionConfig());
+        return session.runAsync(cypher, params)
+                .thenCompose(cursor -> cursor.listAsync(converter))
+                .thenApply(lists -> {
+                    List<T> results = new ArrayList<>();
+                    lists.forEach(results::addAll);
+                    int dbTime = (int) stopWatch.getTime(TimeUnit.MILLISECONDS);
+                    return new BioNetDBResult<>(dbTime, new ArrayList<>(), results.size(), results, results.size());
+                })
+                // Close the session before completing, whatever the outcome of the query
+                .handle((result, error) -> session.closeAsync()
+                        .thenCompose(ignored -> error == null
+                                ? CompletableFuture.completedFuture(result)
+                                : CompletableFuture.<BioNetDBResult<T>>failedFuture(error)))
+                .thenCompose(Function.identity());
+    }
+
+    private <T> Flow.Publisher<T> publisher(String cypher, Map<String, Object> params, Function<Record, List<T>> converter) {
+        System.out.println("Cypher query: " + cypher + ", params: " + params);
+        long fetchSize = configuration.getDatabase().getFetchSize();
+        return new Neo4JRecordPublisher<>(() -> driver.rxSession(sessionConfig()), cypher, params,
+                fetchSize > 0 ? fetchSize : DatabaseConfiguration.DEFAULT_FETCH_SIZE, converter);
     }
 
     @Override
     public BioNetDBResult<NetworkPath> networkPathQuery(Query query, QueryOptions queryOptions) throws BioNetDBException {
-        String cypher = Neo4JQueryParser.parseNetworkPathQuery(query, queryOptions);
-        return networkPathQuery(cypher);
+        Map<String, Object> params = new HashMap<>();
+        String cypher = Neo4JQueryParser.parseNetworkPathQuery(query, queryOptions, params);
+        return networkPathQuery(cypher, params);
     }
 
     @Override
     public BioNetDBResult<NetworkPath> networkPathQuery(String cypher) {
+        return networkPathQuery(cypher, Collections.emptyMap());
+    }
+
+    @Override
+    public BioNetDBResult<NetworkPath> networkPathQuery(String cypher, Map<String, Object> params) {
         // Query for nodes using the node iterator
         StopWatch stopWatch = StopWatch.createStarted();
-        NetworkPathIterator pathIterator = networkPathIterator(cypher);
         List<NetworkPath> networkPaths = new ArrayList<>();
-        while (pathIterator.hasNext()) {
-            networkPaths.add(pathIterator.next());
+        try (NetworkPathIterator pathIterator = networkPathIterator(cypher, params)) {
+            while (pathIterator.hasNext()) {
+                networkPaths.add(pathIterator.next());
+            }
         }
         int dbTime = (int) stopWatch.getTime(TimeUnit.MILLISECONDS);
 
@@ -651,6 +819,31 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
         return queryResult;
     }
 
+    @Override
+    public CompletionStage<BioNetDBResult<NetworkPath>> networkPathQueryAsync(Query query, QueryOptions queryOptions)
+            throws BioNetDBException {
+        Map<String, Object> params = new HashMap<>();
+        String cypher = Neo4JQueryParser.parseNetworkPathQuery(query, queryOptions, params);
+        return networkPathQueryAsync(cypher, params);
+    }
+
+    @Override
+    public CompletionStage<BioNetDBResult<NetworkPath>> networkPathQueryAsync(String cypher, Map<String, Object> params) {
+        return queryAsync(cypher, params, Neo4jConverter::toPathList);
+    }
+
+    @Override
+    public Flow.Publisher<NetworkPath> networkPathPublisher(Query query, QueryOptions queryOptions) throws BioNetDBException {
+        Map<String, Object> params = new HashMap<>();
+        String cypher = Neo4JQueryParser.parseNetworkPathQuery(query, queryOptions, params);
+        return networkPathPublisher(cypher, params);
+    }
+
+    @Override
+    public Flow.Publisher<NetworkPath> networkPathPublisher(String cypher, Map<String, Object> params) {
+        return publisher(cypher, params, Neo4jConverter::toPathList);
+    }
+
     //-------------------------------------------------------------------------
     // N E T W O R K     Q U E R I E S
     //-------------------------------------------------------------------------
@@ -687,6 +880,7 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
                 break;
             }
         }
+        session.close();
         int dbTime = (int) stopWatch.getTime(TimeUnit.MILLISECONDS);
 
         return new BioNetDBResult<>(dbTime, Collections.emptyList(), 1, Collections.singletonList(stats), 1);
@@ -791,43 +985,9 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
     //------------------------------------------------------------------------------------------------------------------
 
     public Result addNode(Node node, Transaction tx) {
-        // Gather properties of the node to create a cypher string with them
-        List<String> props = new ArrayList<>();
-        props.add("n.uid=" + node.getUid());
-        if (StringUtils.isNotEmpty(node.getId())) {
-            props.add("n.id=\"" + cleanValue(node.getId()) + "\"");
-        }
-        if (StringUtils.isNotEmpty(node.getName())) {
-            props.add("n.name=\"" + cleanValue(node.getName()) + "\"");
-        }
-//        if (StringUtils.isNotEmpty(node.getSource())) {
-//            props.add("n.source=\"" + node.getSource() + "\"");
-//        }
-        if (node.getAttributes().containsKey("uidCounter")) {
-            props.add("n." + PREFIX_ATTRIBUTES + "uidCounter=" + node.getAttributes().get("uidCounter"));
-        }
-        for (String key : node.getAttributes().keySet()) {
-            if (StringUtils.isNumeric(node.getAttributes().getString(key))) {
-                props.add("n." + PREFIX_ATTRIBUTES + key + "=" + node.getAttributes().getString(key));
-            } else {
-                props.add("n." + PREFIX_ATTRIBUTES + key + "=\"" + cleanValue(node.getAttributes().getString(key)) + "\"");
-            }
-        }
-        //String propsJoined = "{" + String.join(",", props) + "}";
-
-        // Create the desired node
-        StringBuilder cypher = new StringBuilder("CREATE (n");
-        if (CollectionUtils.isNotEmpty(node.getLabels())) {
-            cypher.append(":").append(StringUtils.join(node.getLabels(), ":"));
-        }
-        cypher.append(")");
-        if (CollectionUtils.isNotEmpty(props)) {
-            cypher.append(" SET ").append(StringUtils.join(props, ","));
-        }
-        //cypher.append(" RETURN ID(n) AS UID");
-        Result ret = tx.run(cypher.toString());
-        //node.setUid(ret.peek().get("UID").asLong());
-        return ret;
+        // Properties are passed as a parameter so nodes with the same labels share the same statement
+        String cypher = "CREATE (n" + getLabels(node) + " $props)";
+        return tx.run(cypher, Collections.singletonMap("props", getNodeProperties(node)));
     }
 
     public void mergeNode(Node node, String byKey, Transaction tx) {
@@ -846,19 +1006,9 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
                 value = node.getAttributes().get(byKey);
                 break;
         }
-        StringBuilder cypher = new StringBuilder("MATCH (n");
-        if (node.getLabels() != null) {
-            cypher.append(":").append(node.getLabels());
-        }
-        cypher.append(") WHERE n.").append(byKey);
-        if (value instanceof String) {
-            cypher.append("=\"").append(cleanValue(value.toString())).append("\"");
-        } else {
-            cypher.append("=").append(value);
-        }
-        cypher.append(" RETURN n");
+        String cypher = "MATCH (n" + getLabels(node) + ") WHERE n." + byKey + " = $value RETURN n";
 
-        Result ret = tx.run(cypher.toString());
+        Result ret = tx.run(cypher, Collections.singletonMap("value", value));
         if (ret.hasNext()) {
             node.setUid(ret.next().get(0).asNode().get("uid").asLong());
         } else {
@@ -894,11 +1044,8 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
                     break;
             }
         }
-        StringBuilder cypher = new StringBuilder("MATCH (n");
-        if (node.getLabels() != null) {
-            cypher.append(":").append(node.getLabels());
-        }
-        cypher.append(") WHERE ");
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder cypher = new StringBuilder("MATCH (n").append(getLabels(node)).append(") WHERE ");
         for (int i = 0; i < 2; i++) {
             cypher.append("n.");
             if (prefix.get(i)) {
@@ -906,18 +1053,15 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
             } else {
                 cypher.append(byKeys.get(i));
             }
-            if (values.get(i) instanceof String) {
-                cypher.append("=\"").append(cleanValue(values.get(i).toString())).append("\"");
-            } else {
-                cypher.append("=").append(values.get(i));
-            }
+            cypher.append(" = $value").append(i);
+            params.put("value" + i, values.get(i));
             if (i == 0) {
                 cypher.append(" AND ");
             }
         }
         cypher.append(" RETURN n");
 
-        Result ret = tx.run(cypher.toString());
+        Result ret = tx.run(cypher.toString(), params);
         if (ret.hasNext()) {
             node.setUid(ret.next().get(0).asNode().get("uid").asLong());
         } else {
@@ -931,35 +1075,24 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
     }
 
     public Result addRelation(Relation relation, Transaction tx) {
-        List<String> props = new ArrayList<>();
-        //props.add("uid:" + relation.getUid());
+        Map<String, Object> props = new HashMap<>();
         if (StringUtils.isNotEmpty(relation.getName())) {
-            props.add("name:\"" + cleanValue(relation.getName()) + "\"");
+            props.put("name", relation.getName());
         }
-//        if (StringUtils.isNotEmpty(relation.getSource())) {
-//            props.add("source:\"" + relation.getSource() + "\"");
-//        }
-        for (String key : relation.getAttributes().keySet()) {
-            props.add(PREFIX_ATTRIBUTES + key + ":\"" + cleanValue(relation.getAttributes().getString(key)) + "\"");
-        }
-        String propsJoined = "{" + String.join(",", props) + "}";
+        props.putAll(getAttributeProperties(relation.getAttributes()));
 
-        StringBuilder statementTemplate = new StringBuilder();
-        statementTemplate.append("MATCH (o:").append(relation.getOrigLabel()).append("{uid:")
-                .append(relation.getOrigUid()).append("}) MATCH (d:").append(relation.getDestLabel()).append("{uid:")
-                .append(relation.getDestUid()).append("}) USING INDEX d:").append(relation.getDestLabel())
-                .append("(uid) MERGE (o)-[r:").append(relation.getLabel());
-        if (CollectionUtils.isNotEmpty(props)) {
-            statementTemplate.append(propsJoined);
-        }
-        statementTemplate.append("]->(d)");
+        Map<String, Object> params = new HashMap<>();
+        params.put("origUid", relation.getOrigUid());
+        params.put("destUid", relation.getDestUid());
 
-        //.append(" RETURN ID(r) AS UID");
+        // Parameter maps can not be used in MERGE patterns, so property keys are part of the statement and values are parameters
+        StringBuilder statementTemplate = new StringBuilder();
+        statementTemplate.append("MATCH (o:").append(relation.getOrigLabel()).append(" {uid: $origUid}) MATCH (d:")
+                .append(relation.getDestLabel()).append(" {uid: $destUid}) USING INDEX d:").append(relation.getDestLabel())
+                .append("(uid) MERGE (o)-[r:").append(relation.getLabel()).append(getPropertyMap(props, params)).append("]->(d)");
 
         // Create the relationship
-        Result ret = tx.run(statementTemplate.toString());
-        //relation.setUid(ret.peek().get("UID").asLong());
-        return ret;
+        return tx.run(statementTemplate.toString(), params);
     }
 
     //-------------------------------------------------------------------------
@@ -990,14 +1123,12 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
     public void setUidCounter(long uidCounter) {
         // Build Cypher statement
-        StringBuilder cypher = new StringBuilder();
-        cypher.append("merge (n:" + Node.Label.INTERNAL_CONNFIG + "{uid:0}) set n.").append(PREFIX_ATTRIBUTES).append("uidCounter=")
-                .append(uidCounter);
-        System.out.println(cypher.toString());
+        String cypher = "merge (n:" + Node.Label.INTERNAL_CONNFIG + "{uid:0}) set n." + PREFIX_ATTRIBUTES + "uidCounter = $uidCounter";
+        System.out.println(cypher);
 
         // Run cypher statement
         Session session = this.driver.session();
-        session.run(cypher.toString());
+        session.run(cypher, Collections.singletonMap("uidCounter", uidCounter));
         session.close();
     }
 
@@ -1015,24 +1146,16 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 
     private void updateConfigNode(ObjectMap attrs) {
         // Build Cypher statement
-        StringBuilder cypher = new StringBuilder();
-        cypher.append("merge (n{uid:0}) set ");
-        List<String> sets = new ArrayList<>();
+        Map<String, Object> props = new HashMap<>();
         for (String key : attrs.keySet()) {
-            StringBuilder strSet = new StringBuilder("n.").append(PREFIX_ATTRIBUTES).append(key).append("=");
-            if (attrs.get(key) instanceof String) {
-                strSet.append("'").append(attrs.get(key)).append("'");
-            } else {
-                strSet.append(attrs.get(key));
-            }
-            sets.add(strSet.toString());
+            props.put(PREFIX_ATTRIBUTES + key, attrs.get(key));
         }
-        cypher.append(StringUtils.join(sets, ","));
+        String cypher = "merge (n{uid:0}) set n += $attrs";
 
         // Run cypher statement
         Session session = this.driver.session();
         try (Transaction tx = session.beginTransaction()) {
-            tx.run(cypher.toString());
+            tx.run(cypher, Collections.singletonMap("attrs", props));
             //tx.success();
         }
         session.close();
@@ -1188,8 +1311,46 @@ public class Neo4JNetworkDBAdaptor implements NetworkDBAdaptor {
 //        return "\"" + in + "\"";
 //    }
 
-    private String cleanValue(String value) {
-        return value.replace("\"", ",").replace("\\", "|");
+    private String getLabels(Node node) {
+        return CollectionUtils.isNotEmpty(node.getLabels()) ? ":" + StringUtils.join(node.getLabels(), ":") : "";
+    }
+
+    private Map<String, Object> getNodeProperties(Node node) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("uid", node.getUid());
+        if (StringUtils.isNotEmpty(node.getId())) {
+            props.put("id", node.getId());
+        }
+        if (StringUtils.isNotEmpty(node.getName())) {
+            props.put("name", node.getName());
+        }
+        props.putAll(getAttributeProperties(node.getAttributes()));
+        return props;
+    }
+
+    /**
+     * Attributes as node or relation properties: keys with the attribute prefix, numeric values as numbers.
+     *
+     * @param attributes    Attributes
+     * @return              Properties
+     */
+    private Map<String, Object> getAttributeProperties(ObjectMap attributes) {
+        Map<String, Object> props = new HashMap<>();
+        for (String key : attributes.keySet()) {
+            props.put(PREFIX_ATTRIBUTES + key, Utils.getAttributeValue(attributes.getString(key)));
+        }
+        return props;
+    }
+
+    private String getPropertyMap(Map<String, Object> props, Map<String, Object> params) {
+        if (props.isEmpty()) {
+            return "";
+        }
+        List<String> entries = new ArrayList<>(props.size());
+        for (String key : new TreeSet<>(props.keySet())) {
+            entries.add(key + ": " + Neo4JQueryParser.addParam(params, "p_" + key, props.get(key)));
+        }
+        return " {" + StringUtils.join(entries, ", ") + "}";
     }
 
     public Driver getDriver() {
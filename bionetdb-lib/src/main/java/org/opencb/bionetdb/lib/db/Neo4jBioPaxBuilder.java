@@ -9,6 +9,8 @@ import org.biopax.paxtools.model.level3.*;
 import org.biopax.paxtools.model.level3.Process;
 import org.opencb.bionetdb.core.models.network.Node;
 import org.opencb.bionetdb.core.models.network.Relation;
+import org.opencb.bionetdb.lib.utils.BuildExecutor;
+import org.opencb.bionetdb.lib.utils.BuildMetrics;
 import org.opencb.bionetdb.lib.utils.CsvInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,11 +21,14 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 
 public class Neo4jBioPaxBuilder {
     private static final String REACTOME_FEAT = "reactome.";
     private static final int TRANSACTION_BATCH_SIZE = 1000;
+    private static final int PARTITION_SIZE = 5000;
 
     private String source;
     private Map<String, Set<String>> filters;
@@ -41,6 +46,9 @@ public class Neo4jBioPaxBuilder {
 
     private CsvInfo csv;
     private BioPAXProcessing bioPAXProcessing;
+    private BuildExecutor executor;
+    private Object[] relationLocks;
+    private Map<Relation.Label, Long> relationCounts;
 
     protected static Logger logger;
 
@@ -72,11 +80,18 @@ public class Neo4jBioPaxBuilder {
         this.rdfToUid = new HashMap<>();
         this.uidToType = new HashMap<>();
         this.protRdfIdToCelLocUid = new HashMap<>();
-        this.celLocUidSet = new HashSet<>();
+        this.celLocUidSet = ConcurrentHashMap.newKeySet();
 
         this.nodes = new ArrayList<>();
         this.relations = new ArrayList<>();
 
+        this.executor = new BuildExecutor(1);
+        this.relationLocks = new Object[64];
+        for (int i = 0; i < relationLocks.length; i++) {
+            relationLocks[i] = new Object();
+        }
+        this.relationCounts = new EnumMap<>(Relation.Label.class);
+
         this.nodeLoadingTime = 0;
         this.relationLoadingTime = 0;
 
@@ -95,8 +110,10 @@ public class Neo4jBioPaxBuilder {
         this.source = path.toFile().getName();
 
         // Retrieving model from BioPAX file
+        BuildMetrics.Timer timer = csv.getMetrics().start("biopax_model");
         BioPAXIOHandler handler = new SimpleIOHandler();
         Model model = handler.convertFromOWL(inputStream);
+        timer.stop();
 
         // Retrieving BioPAX element
         Set<BioPAXElement> bioPAXElements = model.getObjects();
@@ -106,11 +123,11 @@ public class Neo4jBioPaxBuilder {
         long numProcessedItems = 0;
 
         long numNodes = 0;
-        long numRelations = 0;
 
         long startTime = System.currentTimeMillis();
 
         // First loop to create all physical entity nodes
+        timer = csv.getMetrics().start("biopax_nodes");
         Node node;
         while (iterator.hasNext()) {
             BioPAXElement bioPAXElement = iterator.next();
@@ -292,81 +309,112 @@ public class Neo4jBioPaxBuilder {
                 }
             }
             if (relations.size() > TRANSACTION_BATCH_SIZE) {
-                numRelations += relations.size();
-                bioPAXProcessing.processRelations(relations);
+                processRelations(relations);
                 relations.clear();
             }
         }
         if (nodes.size() > 0) {
             numNodes += nodes.size();
             bioPAXProcessing.processNodes(nodes);
+            nodes.clear();
         }
 
-        if (relations.size() > TRANSACTION_BATCH_SIZE) {
-            numRelations += relations.size();
-            bioPAXProcessing.processRelations(relations);
+        if (relations.size() > 0) {
+            processRelations(relations);
             relations.clear();
         }
-
-        // Second loop to create relationships between physical entity nodes
-        numProcessedItems = 0;
-        iterator = bioPAXElements.iterator();
-        while (iterator.hasNext()) {
-            BioPAXElement bioPAXElement = iterator.next();
-            switch (bioPAXElement.getModelInterface().getSimpleName()) {
-                case "Complex": {
-                    updateComplex(bioPAXElement);
-                    break;
+        timer.stop();
+
+        // Second loop to create relationships between physical entity nodes, it only reads the maps filled by the first loop,
+        // so the elements are split among the workers and their relations are written as they are produced
+        AtomicLong numProcessedElements = new AtomicLong();
+        BuildExecutor.PartitionHandler<BioPAXElement, Relation> relationWorker = (partition, sink) -> {
+            List<Relation> batch = new ArrayList<>();
+            for (BioPAXElement bioPAXElement : partition) {
+                updateRelations(bioPAXElement, batch);
+                long processed = numProcessedElements.incrementAndGet();
+                if (processed % 10000 == 0) {
+                    logger.info("2: " + Math.round(100. * processed / numItems) + "%");
                 }
-
-                // Pathways
-                case "Pathway": {
-                    updatePathway(bioPAXElement);
-                    break;
+                // Check batch size
+                if (batch.size() > TRANSACTION_BATCH_SIZE) {
+                    sink.add(batch);
+                    batch = new ArrayList<>();
                 }
-
-                // Interactions
-                case "BiochemicalReaction":
-                case "TemplateReaction":
-                case "Degradation":
-                case "ComplexAssembly":
-                case "MolecularInteraction":
-                case "Transport":
-                case "TransportWithBiochemicalReaction":
-                    updateReaction(bioPAXElement);
-                    break;
-                case "Catalysis":
-                    updateCatalysis(bioPAXElement);
-                    break;
-                case "Control":
-                case "Modulation":
-                case "TemplateReactionRegulation":
-                    updateRegulation(bioPAXElement);
-                    break;
-                default:
-                    break;
-            }
-            if (++numProcessedItems % 10000 == 0) {
-                logger.info("2: " + Math.round(100. * numProcessedItems / numItems) + "%");
-            }
-            // Check batch size
-            if (relations.size() > TRANSACTION_BATCH_SIZE) {
-                numRelations += relations.size();
-                bioPAXProcessing.processRelations(relations);
-                relations.clear();
             }
-        }
-
-        if (relations.size() > TRANSACTION_BATCH_SIZE) {
-            numRelations += relations.size();
-            bioPAXProcessing.processRelations(relations);
-        }
+            sink.add(batch);
+        };
+        timer = csv.getMetrics().start("biopax_relations");
+        executor.runPartitions(new ArrayList<>(bioPAXElements), PARTITION_SIZE, relationWorker, this::processRelations);
+        timer.stop();
+        long numRelations = relationCounts.values().stream().mapToLong(Long::longValue).sum();
 
         inputStream.close();
 
         logger.info("Processing {} containing {} BioPax elements in {} s", path, numItems, (System.currentTimeMillis() - startTime) / 1000);
         logger.info("Processing {} nodes", numNodes);
         logger.info("Processing {} relations", numRelations);
+        logger.info("Relations by type: {}", relationCounts);
+    }
+
+    private void updateRelations(BioPAXElement bioPAXElement, List<Relation> batch) {
+        switch (bioPAXElement.getModelInterface().getSimpleName()) {
+            case "Complex": {
+                updateComplex(bioPAXElement, batch);
+                break;
+            }
+
+            // Pathways
+            case "Pathway": {
+                updatePathway(bioPAXElement, batch);
+                break;
+            }
+
+            // Interactions
+            case "BiochemicalReaction":
+            case "TemplateReaction":
+            case "Degradation":
+            case "ComplexAssembly":
+            case "MolecularInteraction":
+            case "Transport":
+            case "TransportWithBiochemicalReaction":
+                updateReaction(bioPAXElement, batch);
+                break;
+            case "Catalysis":
+                updateCatalysis(bioPAXElement, batch);
+                break;
+            case "Control":
+            case "Modulation":
+            case "TemplateReactionRegulation":
+                updateRegulation(bioPAXElement, batch);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void processRelations(List<Relation> batch) throws IOException {
+        for (Relation relation : batch) {
+            relationCounts.merge(relation.getLabel(), 1L, Long::sum);
+        }
+        bioPAXProcessing.processRelations(batch);
+    }
+
+    /**
+     * Registers a relation ID, the relation workers may try to add the same relation at the same time.
+     *
+     * @param relId Relation ID
+     * @param type  Relation type
+     * @return      True if the relation ID was not registered yet
+     */
+    private boolean addRelationKey(String relId, String type) {
+        synchronized (relationLocks[Math.floorMod(relId.hashCode(), relationLocks.length)]) {
+            if (csv.getLong(relId, type) != null) {
+                return false;
+            }
+            csv.putLong(relId, type, 1);
+            return true;
+        }
     }
 
     private String cleanValue(String value) {
@@ -1058,7 +1106,7 @@ public class Neo4jBioPaxBuilder {
 //        physicalEntity.setFeatures(features);
     }
 
-    private void updateComplex(BioPAXElement bioPAXElement) {
+    private void updateComplex(BioPAXElement bioPAXElement, List<Relation> batch) {
         Complex complexBP = (Complex) bioPAXElement;
 
         String complexId = getBioPaxId(complexBP.getRDFId());
@@ -1081,7 +1129,7 @@ public class Neo4jBioPaxBuilder {
 
             // Check if that relation already exists
             String relId = componentUid + "." + complexUid;
-            if (csv.getLong(relId, Relation.Label.COMPONENT_OF_PHYSICAL_ENTITY_COMPLEX.name()) == null) {
+            if (addRelationKey(relId, Relation.Label.COMPONENT_OF_PHYSICAL_ENTITY_COMPLEX.name())) {
 
                 Node.Label componentLabel = uidToType.get(componentUid);
                 Relation relation = new Relation(csv.getAndIncUid(), null, componentUid, componentLabel, complexUid, complexLabel,
@@ -1089,18 +1137,16 @@ public class Neo4jBioPaxBuilder {
                 if (stoichiometryMap.containsKey(componentUid)) {
                     relation.addAttribute("stoichiometricCoeff", stoichiometryMap.get(componentUid));
                 }
-                relations.add(relation);
+                batch.add(relation);
 
                 // Check to add cellular location
-                checkProteinCellularLoc(getBioPaxId(component.getRDFId()), componentLabel, complexUid, complexLabel);
-
-                csv.putLong(relId, Relation.Label.COMPONENT_OF_PHYSICAL_ENTITY_COMPLEX.name(), 1);
+                checkProteinCellularLoc(getBioPaxId(component.getRDFId()), componentLabel, complexUid, complexLabel, batch);
             }
         }
     }
 
 
-    private void updatePathway(BioPAXElement bioPAXElement) {
+    private void updatePathway(BioPAXElement bioPAXElement, List<Relation> batch) {
         Pathway pathwayBP = (Pathway) bioPAXElement;
 
         String pathwayId = getBioPaxId(pathwayBP.getRDFId());
@@ -1114,7 +1160,7 @@ public class Neo4jBioPaxBuilder {
             Node.Label componentLabel = uidToType.get(componentUid);
             Relation relation = new Relation(csv.getAndIncUid(), null, componentUid, componentLabel, pathwayUid, pathwayLabel,
                     Relation.Label.COMPONENT_OF_PATHWAY);
-            relations.add(relation);
+            batch.add(relation);
         }
 
         //
@@ -1130,11 +1176,10 @@ public class Neo4jBioPaxBuilder {
                             Long nextStepUid = rdfToUid.get(getBioPaxId(nextStep.getRDFId()));
                             Node.Label nextStepLabel = uidToType.get(nextStepUid);
                             try {
-                                if (csv.getLong(currentStepUid + "." + nextStepUid, Node.Label.PATHWAY.name()) == null) {
+                                if (addRelationKey(currentStepUid + "." + nextStepUid, Node.Label.PATHWAY.name())) {
                                     Relation relation = new Relation(csv.getAndIncUid(), null, currentStepUid, currentStepLabel,
                                             nextStepUid, nextStepLabel, Relation.Label.PATHWAY_NEXT_STEP);
-                                    relations.add(relation);
-                                    csv.putLong(currentStepUid + "." + nextStepUid, Node.Label.PATHWAY.name(), 1L);
+                                    batch.add(relation);
                                 }
                             } catch (Exception e) {
                                 logger.info("impossible create realtionship: " + e.getMessage());
@@ -1150,7 +1195,7 @@ public class Neo4jBioPaxBuilder {
         }
     }
 
-    private void updateReaction(BioPAXElement bioPAXElement) {
+    private void updateReaction(BioPAXElement bioPAXElement, List<Relation> batch) {
         String className = bioPAXElement.getModelInterface().getSimpleName();
 
         switch (className) {
@@ -1168,17 +1213,15 @@ public class Neo4jBioPaxBuilder {
                     Long reactantUid = rdfToUid.get(getBioPaxId(templateReactBP.getTemplate().getRDFId()));
                     // Check if that relation already exists
                     String relId = templateReactUid + "." + reactantUid;
-                    if (csv.getLong(relId, Relation.Label.REACTANT.name()) == null) {
+                    if (addRelationKey(relId, Relation.Label.REACTANT.name())) {
                         Node.Label reactantLabel = uidToType.get(reactantUid);
                         Relation relation = new Relation(csv.getAndIncUid(), null, templateReactUid, templateReactLabel, reactantUid,
                                 reactantLabel, Relation.Label.REACTANT);
-                        relations.add(relation);
+                        batch.add(relation);
 
                         // Check to add cellular location
                         checkProteinCellularLoc(getBioPaxId(templateReactBP.getTemplate().getRDFId()), reactantLabel, templateReactUid,
-                                templateReactLabel);
-
-                        csv.putLong(relId, Relation.Label.REACTANT.name(), 1);
+                                templateReactLabel, batch);
                     }
                 }
 
@@ -1188,17 +1231,15 @@ public class Neo4jBioPaxBuilder {
                     Long productUid = rdfToUid.get(getBioPaxId(product.getRDFId()));
                     // Check if that relation already exists
                     String relId = templateReactUid + "." + productUid;
-                    if (csv.getLong(relId, Relation.Label.PRODUCT.name()) == null) {
+                    if (addRelationKey(relId, Relation.Label.PRODUCT.name())) {
                         Node.Label productLabel = uidToType.get(productUid);
                         Relation relation = new Relation(csv.getAndIncUid(), null, templateReactUid, templateReactLabel, productUid,
                                 productLabel, Relation.Label.PRODUCT);
-                        relations.add(relation);
+                        batch.add(relation);
 
                         // Check to add cellular location
                         checkProteinCellularLoc(getBioPaxId(product.getRDFId()), productLabel, templateReactUid,
-                                templateReactLabel);
-
-                        csv.putLong(relId, Relation.Label.PRODUCT.name(), 1);
+                                templateReactLabel, batch);
                     }
                 }
                 break;
@@ -1263,18 +1304,16 @@ public class Neo4jBioPaxBuilder {
                         Long uid = rdfToUid.get(id);
                         // Check if that relation already exists
                         String relId = conversionUid + "." + uid;
-                        if (csv.getLong(relId, label1.name()) == null) {
+                        if (addRelationKey(relId, label1.name())) {
                             Node.Label label = uidToType.get(uid);
                             Relation relation = new Relation(csv.getAndIncUid(), null, conversionUid, conversionLabel, uid, label, label1);
                             if (stoichiometryMap.containsKey(id)) {
                                 relation.addAttribute("stoichiometricCoeff", stoichiometryMap.get(id));
                             }
-                            relations.add(relation);
+                            batch.add(relation);
 
                             // Check to add cellular location
-                            checkProteinCellularLoc(id, label, conversionUid, conversionLabel);
-
-                            csv.putLong(relId, label1.name(), 1);
+                            checkProteinCellularLoc(id, label, conversionUid, conversionLabel, batch);
                         }
                     }
 
@@ -1283,18 +1322,16 @@ public class Neo4jBioPaxBuilder {
                         Long uid = rdfToUid.get(id);
                         // Check if that relation already exists
                         String relId = conversionUid + "." + uid;
-                        if (csv.getLong(relId, label2.name()) == null) {
+                        if (addRelationKey(relId, label2.name())) {
                             Node.Label label = uidToType.get(uid);
                             Relation relation = new Relation(csv.getAndIncUid(), null, conversionUid, conversionLabel, uid, label, label2);
                             if (stoichiometryMap.containsKey(id)) {
                                 relation.addAttribute("stoichiometricCoeff", stoichiometryMap.get(id));
                             }
-                            relations.add(relation);
+                            batch.add(relation);
 
                             // Check to add cellular location
-                            checkProteinCellularLoc(id, label, conversionUid, conversionLabel);
-
-                            csv.putLong(relId, label2.name(), 1);
+                            checkProteinCellularLoc(id, label, conversionUid, conversionLabel, batch);
                         }
                     }
                 }
@@ -1316,7 +1353,7 @@ public class Neo4jBioPaxBuilder {
         }
     }
 
-    private void updateCatalysis(BioPAXElement bioPAXElement) {
+    private void updateCatalysis(BioPAXElement bioPAXElement, List<Relation> batch) {
         Catalysis catalysisBP = (Catalysis) bioPAXElement;
 
         String catalysisId = getBioPaxId(catalysisBP.getRDFId());
@@ -1329,16 +1366,14 @@ public class Neo4jBioPaxBuilder {
             Long controllerUid = rdfToUid.get(getBioPaxId(controller.getRDFId()));
             // Check if that relation already exists
             String relId = catalysisUid + "." + controllerUid;
-            if (csv.getLong(relId,  Relation.Label.CONTROLLER.name()) == null) {
+            if (addRelationKey(relId, Relation.Label.CONTROLLER.name())) {
                 Node.Label controllerLabel = uidToType.get(controllerUid);
                 Relation relation = new Relation(csv.getAndIncUid(), null, catalysisUid, catalysisLabel, controllerUid, controllerLabel,
                         Relation.Label.CONTROLLER);
-                relations.add(relation);
+                batch.add(relation);
 
                 // Check to add cellular location
-                checkProteinCellularLoc(getBioPaxId(controller.getRDFId()), controllerLabel, catalysisUid, catalysisLabel);
-
-                csv.putLong(relId, Relation.Label.CONTROLLER.name(), 1);
+                checkProteinCellularLoc(getBioPaxId(controller.getRDFId()), controllerLabel, catalysisUid, catalysisLabel, batch);
             }
         }
 
@@ -1348,17 +1383,15 @@ public class Neo4jBioPaxBuilder {
             Long controlledUid = rdfToUid.get(getBioPaxId(controlledProcess.getRDFId()));
             // Check if that relation already exists
             String relId = catalysisUid + "." + controlledUid;
-            if (csv.getLong(relId,  Relation.Label.CONTROLLED.name()) == null) {
+            if (addRelationKey(relId, Relation.Label.CONTROLLED.name())) {
                 Node.Label controlledLabel = uidToType.get(controlledUid);
                 Relation relation = new Relation(csv.getAndIncUid(), null, catalysisUid, catalysisLabel, controlledUid, controlledLabel,
                         Relation.Label.CONTROLLED);
-                relations.add(relation);
+                batch.add(relation);
 
                 // Check to add cellular location
                 checkProteinCellularLoc(getBioPaxId(controlledProcess.getRDFId()), controlledLabel, catalysisUid,
-                        catalysisLabel);
-
-                csv.putLong(relId, Relation.Label.CONTROLLED.name(), 1);
+                        catalysisLabel, batch);
             }
         }
 
@@ -1368,22 +1401,20 @@ public class Neo4jBioPaxBuilder {
             Long cofactorUid = rdfToUid.get(getBioPaxId(cofactor.getRDFId()));
             // Check if that relation already exists
             String relId = catalysisUid + "." + cofactorUid;
-            if (csv.getLong(relId,  Relation.Label.COFACTOR.name()) == null) {
+            if (addRelationKey(relId, Relation.Label.COFACTOR.name())) {
 
                 Node.Label cofactorLabel = uidToType.get(cofactorUid);
                 Relation relation = new Relation(csv.getAndIncUid(), null, catalysisUid, catalysisLabel, cofactorUid, cofactorLabel,
                         Relation.Label.COFACTOR);
-                relations.add(relation);
+                batch.add(relation);
 
                 // Check to add cellular location
-                checkProteinCellularLoc(getBioPaxId(cofactor.getRDFId()), cofactorLabel, catalysisUid, catalysisLabel);
-
-                csv.putLong(relId, Relation.Label.COFACTOR.name(), 1);
+                checkProteinCellularLoc(getBioPaxId(cofactor.getRDFId()), cofactorLabel, catalysisUid, catalysisLabel, batch);
             }
         }
     }
 
-    private void updateRegulation(BioPAXElement bioPAXElement) {
+    private void updateRegulation(BioPAXElement bioPAXElement, List<Relation> batch) {
         Control controlBP = (Control) bioPAXElement;
 
         String controlId = getBioPaxId(controlBP.getRDFId());
@@ -1398,17 +1429,15 @@ public class Neo4jBioPaxBuilder {
             Long controllerUid = rdfToUid.get(getBioPaxId(controller.getRDFId()));
             // Check if that relation already exists
             String relId = controlUid + "." + controllerUid;
-            if (csv.getLong(relId, Relation.Label.CONTROLLER.name()) == null) {
+            if (addRelationKey(relId, Relation.Label.CONTROLLER.name())) {
 
                 Node.Label controllerLabel = uidToType.get(controllerUid);
                 Relation relation = new Relation(csv.getAndIncUid(), null, controlUid, controlLabel, controllerUid, controllerLabel,
                         Relation.Label.CONTROLLER);
-                relations.add(relation);
+                batch.add(relation);
 
                 // Check to add cellular location
-                checkProteinCellularLoc(getBioPaxId(controller.getRDFId()), controllerLabel, controlUid, controlLabel);
-
-                csv.putLong(relId, Relation.Label.CONTROLLER.name(), 1);
+                checkProteinCellularLoc(getBioPaxId(controller.getRDFId()), controllerLabel, controlUid, controlLabel, batch);
             }
         }
 
@@ -1418,30 +1447,28 @@ public class Neo4jBioPaxBuilder {
             Long controlledUid = rdfToUid.get(getBioPaxId(controlledProcess.getRDFId()));
             // Check if that relation already exists
             String relId = controlUid + "." + controlledUid;
-            if (csv.getLong(relId, Relation.Label.CONTROLLED.name()) == null) {
+            if (addRelationKey(relId, Relation.Label.CONTROLLED.name())) {
 
                 Node.Label controlledLabel = uidToType.get(controlledUid);
                 Relation relation = new Relation(csv.getAndIncUid(), null, controlUid, controlLabel, controlledUid, controlledLabel,
                         Relation.Label.CONTROLLED);
-                relations.add(relation);
+                batch.add(relation);
 
                 // Check to add cellular location
-                checkProteinCellularLoc(getBioPaxId(controlledProcess.getRDFId()), controlledLabel, controlUid, controlLabel);
-
-                csv.putLong(relId, Relation.Label.CONTROLLED.name(), 1);
+                checkProteinCellularLoc(getBioPaxId(controlledProcess.getRDFId()), controlledLabel, controlUid, controlLabel, batch);
             }
         }
     }
 
-    private void checkProteinCellularLoc(String proteinRdfId, Node.Label proteinLabel, long targetUid, Node.Label targetLabel) {
+    private void checkProteinCellularLoc(String proteinRdfId, Node.Label proteinLabel, long targetUid, Node.Label targetLabel,
+                                         List<Relation> batch) {
         if (proteinLabel == Node.Label.PROTEIN) {
             if (protRdfIdToCelLocUid.containsKey(proteinRdfId)) {
                 long celLocUid = protRdfIdToCelLocUid.get(proteinRdfId);
-                if (!celLocUidSet.contains(targetUid + "." + celLocUid)) {
+                if (celLocUidSet.add(targetUid + "." + celLocUid)) {
                     Relation relation = new Relation(csv.getAndIncUid(), null, targetUid, targetLabel, celLocUid,
                             Node.Label.CELLULAR_LOCATION, Relation.Label.CELLULAR_LOCATION);
-                    relations.add(relation);
-                    celLocUidSet.add(targetUid + "." + celLocUid);
+                    batch.add(relation);
                 }
             }
         }
@@ -1485,4 +1512,19 @@ public class Neo4jBioPaxBuilder {
     private boolean isMicroRNA(String rnaName) {
         return (StringUtils.isNotEmpty(rnaName) && rnaName.startsWith("miR-"));
     }
+
+    public BuildExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Executor used to split the relationship pass among its worker threads, by default the pass runs on the caller thread.
+     *
+     * @param executor  Build executor
+     * @return          This builder
+     */
+    public Neo4jBioPaxBuilder setExecutor(BuildExecutor executor) {
+        this.executor = executor;
+        return this;
+    }
 }
@@ -0,0 +1,681 @@
+package org.opencb.bionetdb.lib.db;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.bionetdb.core.models.network.Node;
+import org.opencb.bionetdb.core.models.network.Relation;
+import org.opencb.bionetdb.lib.db.biopax.BioPaxRecord;
+import org.opencb.bionetdb.lib.db.biopax.BioPaxStreamReader;
+import org.opencb.bionetdb.lib.utils.BuildMetrics;
+import org.opencb.bionetdb.lib.utils.CsvInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Same nodes and relations as Neo4jBioPaxBuilder, but the BioPAX file is streamed three times instead of being loaded as a
+ * Paxtools model: the first pass indexes the small elements the entities refer to (entity references, xrefs, vocabularies,
+ * stoichiometries and pathway steps), the second one creates the nodes and the third one the relations. Only the ID maps and
+ * those indexes are kept in memory.
+ * Elements are processed in file order, so UIDs and CSV line order differ from the Paxtools builder, which iterates the model
+ * in hash order. Feature descriptions (feat*_name), which are not exported to the CSV files, are not rebuilt.
+ */
+public class Neo4jBioPaxStreamBuilder {
+    private static final int TRANSACTION_BATCH_SIZE = 1000;
+
+    private static final Set<String> INDEX_TYPES = new HashSet<>(Arrays.asList("ProteinReference", "SmallMoleculeReference",
+            "DnaReference", "RnaReference", "DnaRegionReference", "RnaRegionReference", "UnificationXref", "RelationshipXref",
+            "PublicationXref", "CellularLocationVocabulary", "InteractionVocabulary", "Stoichiometry", "PathwayStep",
+            "BiochemicalPathwayStep", "ModificationFeature", "FragmentFeature", "BindingFeature", "CovalentBindingFeature",
+            "EntityFeature"));
+    private static final Set<String> PHYSICAL_ENTITY_TYPES = new HashSet<>(Arrays.asList("PhysicalEntity", "Dna", "Rna", "Protein",
+            "Complex", "SmallMolecule"));
+    private static final Set<String> REACTION_TYPES = new HashSet<>(Arrays.asList("BiochemicalReaction", "TemplateReaction",
+            "Degradation", "ComplexAssembly", "MolecularInteraction", "Transport", "TransportWithBiochemicalReaction"));
+    private static final Set<String> REGULATION_TYPES = new HashSet<>(Arrays.asList("Control", "Modulation",
+            "TemplateReactionRegulation"));
+    private static final Set<String> NODE_TYPES = new HashSet<>();
+    private static final Set<String> RELATION_TYPES = new HashSet<>();
+
+    static {
+        NODE_TYPES.addAll(PHYSICAL_ENTITY_TYPES);
+        NODE_TYPES.addAll(REACTION_TYPES);
+        NODE_TYPES.addAll(REGULATION_TYPES);
+        NODE_TYPES.add("Pathway");
+        NODE_TYPES.add("Catalysis");
+
+        RELATION_TYPES.addAll(REACTION_TYPES);
+        RELATION_TYPES.addAll(REGULATION_TYPES);
+        RELATION_TYPES.add("Complex");
+        RELATION_TYPES.add("Pathway");
+        RELATION_TYPES.add("Catalysis");
+    }
+
+    private String source;
+    private Map<String, Set<String>> filters;
+
+    private Map<String, Long> rdfToUid;
+    private Map<Long, Node.Label> uidToType;
+    private Map<String, Long> protRdfIdToCelLocUid;
+    private Set<String> celLocUidSet;
+
+    // Indexes built by the first pass
+    private Map<String, BioPaxRecord> entityReferences;
+    private Map<String, BioPaxRecord> xrefs;
+    private Map<String, BioPaxRecord> vocabularies;
+    private Map<String, BioPaxRecord> features;
+    private Map<String, BioPaxRecord> stoichiometries;
+    private Map<String, BioPaxRecord> pathwaySteps;
+
+    private List<Node> nodes;
+    private List<Relation> relations;
+    private long numNodes;
+    private Map<Relation.Label, Long> relationCounts;
+
+    private CsvInfo csv;
+    private Neo4jBioPaxBuilder.BioPAXProcessing bioPAXProcessing;
+
+    protected static Logger logger;
+
+    public Neo4jBioPaxStreamBuilder(CsvInfo csv, Neo4jBioPaxBuilder.BioPAXProcessing bioPAXProcessing) {
+        this(csv, null, bioPAXProcessing);
+    }
+
+    public Neo4jBioPaxStreamBuilder(CsvInfo csv, Map<String, Set<String>> filters, Neo4jBioPaxBuilder.BioPAXProcessing bioPAXProcessing) {
+        this.csv = csv;
+        this.filters = filters;
+        this.bioPAXProcessing = bioPAXProcessing;
+
+        this.rdfToUid = new HashMap<>();
+        this.uidToType = new HashMap<>();
+        this.protRdfIdToCelLocUid = new HashMap<>();
+        this.celLocUidSet = new HashSet<>();
+
+        this.nodes = new ArrayList<>();
+        this.relations = new ArrayList<>();
+        this.relationCounts = new EnumMap<>(Relation.Label.class);
+
+        this.logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    public void build(Path path) throws IOException {
+        this.source = path.toFile().getName();
+        BioPaxStreamReader reader = new BioPaxStreamReader(path);
+
+        long startTime = System.currentTimeMillis();
+
+        // First pass to index the elements referred by the entities
+        BuildMetrics.Timer timer = csv.getMetrics().start("biopax_index");
+        entityReferences = new HashMap<>();
+        xrefs = new HashMap<>();
+        vocabularies = new HashMap<>();
+        features = new HashMap<>();
+        stoichiometries = new HashMap<>();
+        pathwaySteps = new HashMap<>();
+        long numIndexed = reader.read(INDEX_TYPES, this::index);
+        logger.info("1: {} BioPax auxiliary elements indexed", numIndexed);
+        timer.stop();
+
+        // Second pass to create all the nodes
+        timer = csv.getMetrics().start("biopax_nodes");
+        long numItems = reader.read(NODE_TYPES, this::loadNode);
+        flushNodes();
+        flushRelations();
+        logger.info("2: {} BioPax entities processed", numItems);
+        timer.stop();
+
+        // Entity references, xrefs and vocabularies are not needed anymore
+        entityReferences = null;
+        xrefs = null;
+        vocabularies = null;
+        features = null;
+
+        // Third pass to create relationships between nodes
+        timer = csv.getMetrics().start("biopax_relations");
+        reader.read(RELATION_TYPES, this::loadRelations);
+        flushRelations();
+        timer.stop();
+
+        stoichiometries = null;
+        pathwaySteps = null;
+
+        logger.info("Processing {} containing {} BioPax elements in {} s", path, numItems, (System.currentTimeMillis() - startTime) / 1000);
+        logger.info("Processing {} nodes", numNodes);
+        logger.info("Processing {} relations", relationCounts.values().stream().mapToLong(Long::longValue).sum());
+        logger.info("Relations by type: {}", relationCounts);
+    }
+
+    private void index(BioPaxRecord record) {
+        // Only the properties read later are kept
+        String type = record.getType();
+        if (type.endsWith("Reference")) {
+            entityReferences.put(record.getId(), record.retain("xref", "comment"));
+        } else if (type.endsWith("Xref")) {
+            xrefs.put(record.getId(), record.retain("db", "id"));
+        } else if (type.endsWith("Vocabulary")) {
+            vocabularies.put(record.getId(), record.retain("term"));
+        } else if (type.endsWith("Feature")) {
+            features.put(record.getId(), record.retain());
+        } else if (type.equals("Stoichiometry")) {
+            stoichiometries.put(record.getId(), record.retain("physicalEntity", "stoichiometricCoefficient"));
+        } else {
+            pathwaySteps.put(record.getId(), record.retain("stepProcess", "nextStep"));
+        }
+    }
+
+    private void flushNodes() throws IOException {
+        if (!nodes.isEmpty()) {
+            numNodes += nodes.size();
+            bioPAXProcessing.processNodes(nodes);
+            nodes.clear();
+        }
+    }
+
+    private void flushRelations() throws IOException {
+        if (!relations.isEmpty()) {
+            for (Relation relation : relations) {
+                relationCounts.merge(relation.getLabel(), 1L, Long::sum);
+            }
+            bioPAXProcessing.processRelations(relations);
+            relations.clear();
+        }
+    }
+
+    //-------------------------------------------------------------------------
+    // NODE CREATION
+    //-------------------------------------------------------------------------
+
+    private void loadNode(BioPaxRecord record) throws IOException {
+        Node node = null;
+        String type = record.getType();
+        switch (type) {
+            case "PhysicalEntity":
+                node = loadPhysicalEntity(record, Node.Label.UNDEFINED);
+                break;
+            case "Dna":
+                node = loadPhysicalEntity(record, Node.Label.DNA);
+                break;
+            case "Rna":
+                node = loadPhysicalEntity(record, Node.Label.RNA);
+                break;
+            case "Protein":
+                node = loadProtein(record);
+                break;
+            case "Complex":
+                node = loadPhysicalEntity(record, Node.Label.PHYSICAL_ENTITY_COMPLEX);
+                break;
+            case "SmallMolecule":
+                node = loadPhysicalEntity(record, Node.Label.SMALL_MOLECULE);
+                break;
+            case "Pathway":
+                node = new Node(csv.getAndIncUid(), record.getId(), record.get("displayName"), Node.Label.PATHWAY);
+                node.addAttribute("source", source);
+                updateAuxMaps(node);
+                break;
+            case "Catalysis":
+                node = loadInteraction(record, Node.Label.CATALYSIS);
+                break;
+            default:
+                if (REACTION_TYPES.contains(type)) {
+                    node = loadInteraction(record, Node.Label.REACTION);
+                } else if (REGULATION_TYPES.contains(type)) {
+                    node = loadInteraction(record, Node.Label.REGULATION);
+                }
+                break;
+        }
+
+        if (node != null) {
+            nodes.add(node);
+            if (nodes.size() >= TRANSACTION_BATCH_SIZE) {
+                flushNodes();
+            }
+        }
+        if (relations.size() > TRANSACTION_BATCH_SIZE) {
+            flushRelations();
+        }
+    }
+
+    private Node loadProtein(BioPaxRecord record) {
+        // Get the protein primary ID
+        String protPrimaryId = null;
+        String protName = record.get("displayName");
+        if (StringUtils.isNotEmpty(protName)) {
+            protPrimaryId = csv.getProteinCache().getPrimaryId(protName);
+        }
+        if (StringUtils.isEmpty(protPrimaryId)) {
+            BioPaxRecord entityReference = getEntityReference(record);
+            if (entityReference != null) {
+                for (BioPaxRecord xref : uriOrder(entityReference.getAll("xref"), xrefs)) {
+                    if ("UniProt".equals(xref.get("db"))) {
+                        protPrimaryId = csv.getProteinCache().getPrimaryId(xref.get("id"));
+                    }
+                    if (StringUtils.isNotEmpty(protPrimaryId)) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (StringUtils.isEmpty(protPrimaryId)) {
+            protPrimaryId = record.getId();
+        }
+
+        // Get the protein UID
+        Long protUid = csv.getLong(protPrimaryId, Node.Label.PROTEIN.name());
+        if (protUid == null) {
+            Node node = loadPhysicalEntity(record, Node.Label.PROTEIN);
+            csv.putLong(protPrimaryId, Node.Label.PROTEIN.name(), node.getUid());
+            return node;
+        }
+
+        // The protein node exists, save the RDF ID to be referenced later for the possible relationships (interaction,
+        // complex,...) and create the cellular location node and relationship if necessary
+        String protRDFId = record.getId();
+        updateAuxMaps(protRDFId, protUid, Node.Label.PROTEIN);
+        for (String name : getCellularLocationTerms(record)) {
+            long celLocUid = getCellularLocationUid(name);
+            protRdfIdToCelLocUid.put(protRDFId, celLocUid);
+
+            if (!celLocUidSet.contains(protUid + "." + celLocUid)) {
+                relations.add(new Relation(csv.getAndIncUid(), null, protUid, Node.Label.PROTEIN, celLocUid,
+                        Node.Label.CELLULAR_LOCATION, Relation.Label.CELLULAR_LOCATION));
+                celLocUidSet.add(protUid + "." + celLocUid);
+            }
+        }
+        return null;
+    }
+
+    private Node loadPhysicalEntity(BioPaxRecord record, Node.Label label) {
+        Node node = new Node(csv.getAndIncUid(), record.getId(), record.get("displayName"), label);
+        if (label != Node.Label.UNDEFINED) {
+            node.getLabels().add(Node.Label.PHYSICAL_ENTITY);
+        }
+        node.addAttribute("source", source);
+
+        // Common properties
+        addSetAttributes(record.getAll("comment"), "comment", node);
+        addSetAttributes(record.getAll("availability"), "availability", node);
+        int i = 0;
+        for (BioPaxRecord feature : uriOrder(record.getAll("feature"), features)) {
+            node.addAttribute("feat" + i + "_type", feature.getType());
+            i++;
+        }
+
+        // Entity reference properties
+        BioPaxRecord entityReference = getEntityReference(record);
+        if (entityReference != null && label != Node.Label.UNDEFINED && label != Node.Label.PHYSICAL_ENTITY_COMPLEX) {
+            addSetAttributes(entityReference.getAll("comment"), "description", node);
+            if (label != Node.Label.SMALL_MOLECULE) {
+                List<String> xrefIds = new ArrayList<>();
+                List<String> xrefDbs = new ArrayList<>();
+                for (BioPaxRecord xref : uriOrder(entityReference.getAll("xref"), xrefs)) {
+                    xrefIds.add(xref.get("id"));
+                    xrefDbs.add(xref.get("db"));
+                }
+                node.addAttribute("xrefIds", StringUtils.join(xrefIds, ";"));
+                node.addAttribute("xrefDbs", StringUtils.join(xrefDbs, ";"));
+            }
+        }
+
+        updateAuxMaps(node);
+
+        // Cellular location
+        String physicalEntityId = node.getId();
+        long physicalEntityUid = node.getUid();
+        for (String name : getCellularLocationTerms(record)) {
+            long celLocUid = getCellularLocationUid(name);
+            if (!celLocUidSet.contains(physicalEntityUid + "." + celLocUid)) {
+                relations.add(new Relation(csv.getAndIncUid(), null, physicalEntityUid, label, celLocUid,
+                        Node.Label.CELLULAR_LOCATION, Relation.Label.CELLULAR_LOCATION));
+                celLocUidSet.add(physicalEntityUid + "." + celLocUid);
+                if (label == Node.Label.PROTEIN) {
+                    protRdfIdToCelLocUid.put(physicalEntityId, celLocUid);
+                }
+            }
+        }
+        return node;
+    }
+
+    private Node loadInteraction(BioPaxRecord record, Node.Label label) {
+        Node node = new Node(csv.getAndIncUid(), record.getId(), record.get("displayName"), label);
+        node.getLabels().add(Node.Label.INTERACTION);
+        node.addAttribute("source", source);
+
+        switch (record.getType()) {
+            case "ComplexAssembly":
+                node.getLabels().add(Node.Label.COMPLEX_ASSEMBLY);
+                break;
+            case "Transport":
+            case "TransportWithBiochemicalReaction":
+                node.getLabels().add(Node.Label.TRANSPORT);
+                break;
+            default:
+                break;
+        }
+
+        // Common properties
+        addSetAttributes(record.getAll("availability"), "availability", node);
+        StringBuilder types = new StringBuilder();
+        for (BioPaxRecord vocabulary : uriOrder(record.getAll("interactionType"), vocabularies)) {
+            if (types.length() > 0) {
+                types.append(";");
+            }
+            types.append(StringUtils.join(hashOrder(vocabulary.getAll("term")), ";"));
+        }
+        if (types.length() > 0) {
+            node.addAttribute("interactionTypes", types);
+        }
+
+        String spontaneous = record.get("spontaneous");
+        if (spontaneous != null && REACTION_TYPES.contains(record.getType())) {
+            node.addAttribute("spontaneous", Boolean.parseBoolean(spontaneous.trim()));
+        }
+        String controlType = record.get("controlType");
+        if (controlType != null) {
+            node.addAttribute("controlType", controlType.trim().replace('-', '_'));
+        }
+
+        updateAuxMaps(node);
+        return node;
+    }
+
+    private long getCellularLocationUid(String name) {
+        Long celLocUid = csv.getLong(name, Node.Label.CELLULAR_LOCATION.name());
+        if (celLocUid == null) {
+            Node cellularLocNode = new Node(csv.getAndIncUid(), null, name, Node.Label.CELLULAR_LOCATION);
+            cellularLocNode.addAttribute("source", source);
+            nodes.add(cellularLocNode);
+            celLocUid = cellularLocNode.getUid();
+            csv.putLong(name, Node.Label.CELLULAR_LOCATION.name(), celLocUid);
+        }
+        return celLocUid;
+    }
+
+    private Collection<String> getCellularLocationTerms(BioPaxRecord record) {
+        String vocabularyId = record.get("cellularLocation");
+        BioPaxRecord vocabulary = vocabularyId == null ? null : vocabularies.get(vocabularyId);
+        return vocabulary == null ? Collections.emptyList() : hashOrder(vocabulary.getAll("term"));
+    }
+
+    private BioPaxRecord getEntityReference(BioPaxRecord record) {
+        String entityReferenceId = record.get("entityReference");
+        return entityReferenceId == null ? null : entityReferences.get(entityReferenceId);
+    }
+
+    /**
+     * Paxtools keeps the referenced elements in hash maps by RDF ID, the same order is used so xrefIds, xrefDbs and the other
+     * multi-valued attributes do not change.
+     *
+     * @param ids   IDs of the referenced elements, in file order
+     * @param index Index where the elements are
+     * @return      Elements in Paxtools order
+     */
+    private Collection<BioPaxRecord> uriOrder(List<String> ids, Map<String, BioPaxRecord> index) {
+        Map<String, BioPaxRecord> records = new HashMap<>();
+        for (String id : ids) {
+            BioPaxRecord record = index.get(id);
+            if (record != null) {
+                records.put(record.getUri(), record);
+            }
+        }
+        return records.values();
+    }
+
+    //-------------------------------------------------------------------------
+    // RELATIONSHIP CREATION
+    //-------------------------------------------------------------------------
+
+    private void loadRelations(BioPaxRecord record) throws IOException {
+        String type = record.getType();
+        switch (type) {
+            case "Complex":
+                updateComplex(record);
+                break;
+            case "Pathway":
+                updatePathway(record);
+                break;
+            case "TemplateReaction":
+                updateTemplateReaction(record);
+                break;
+            case "Catalysis":
+                updateControl(record);
+                for (String cofactorId : record.getAll("cofactor")) {
+                    addControlRelation(record.getId(), cofactorId, Relation.Label.COFACTOR);
+                }
+                break;
+            default:
+                if (REGULATION_TYPES.contains(type)) {
+                    updateControl(record);
+                } else if (!type.equals("MolecularInteraction")) {
+                    updateConversion(record);
+                }
+                break;
+        }
+
+        // Check batch size
+        if (relations.size() > TRANSACTION_BATCH_SIZE) {
+            flushRelations();
+        }
+    }
+
+    private void updateComplex(BioPaxRecord record) {
+        Long complexUid = rdfToUid.get(record.getId());
+        Node.Label complexLabel = uidToType.get(complexUid);
+
+        Map<Long, Float> stoichiometryMap = getStoichiometryMap(record.getAll("componentStoichiometry"));
+        for (String componentId : new LinkedHashSet<>(record.getAll("component"))) {
+            Long componentUid = rdfToUid.get(componentId);
+            String relId = componentUid + "." + complexUid;
+            if (csv.getLong(relId, Relation.Label.COMPONENT_OF_PHYSICAL_ENTITY_COMPLEX.name()) == null) {
+                Node.Label componentLabel = uidToType.get(componentUid);
+                Relation relation = new Relation(csv.getAndIncUid(), null, componentUid, componentLabel, complexUid, complexLabel,
+                        Relation.Label.COMPONENT_OF_PHYSICAL_ENTITY_COMPLEX);
+                if (stoichiometryMap.containsKey(componentUid)) {
+                    relation.addAttribute("stoichiometricCoeff", stoichiometryMap.get(componentUid));
+                }
+                relations.add(relation);
+
+                checkProteinCellularLoc(componentId, componentLabel, complexUid, complexLabel);
+
+                csv.putLong(relId, Relation.Label.COMPONENT_OF_PHYSICAL_ENTITY_COMPLEX.name(), 1);
+            }
+        }
+    }
+
+    private void updatePathway(BioPaxRecord record) {
+        Long pathwayUid = rdfToUid.get(record.getId());
+        Node.Label pathwayLabel = uidToType.get(pathwayUid);
+
+        for (String componentId : new LinkedHashSet<>(record.getAll("pathwayComponent"))) {
+            Long componentUid = rdfToUid.get(componentId);
+            relations.add(new Relation(csv.getAndIncUid(), null, componentUid, uidToType.get(componentUid), pathwayUid, pathwayLabel,
+                    Relation.Label.COMPONENT_OF_PATHWAY));
+        }
+
+        for (String stepId : record.getAll("pathwayOrder")) {
+            BioPaxRecord pathwayStep = pathwaySteps.get(stepId);
+            if (pathwayStep == null) {
+                continue;
+            }
+            for (String currentStepId : pathwayStep.getAll("stepProcess")) {
+                Long currentStepUid = rdfToUid.get(currentStepId);
+                Node.Label currentStepLabel = uidToType.get(currentStepUid);
+
+                for (String nextStepId : pathwayStep.getAll("nextStep")) {
+                    BioPaxRecord pathwayNextStep = pathwaySteps.get(nextStepId);
+                    if (pathwayNextStep == null) {
+                        continue;
+                    }
+                    for (String nextStep : pathwayNextStep.getAll("stepProcess")) {
+                        Long nextStepUid = rdfToUid.get(nextStep);
+                        if (nextStepUid != null) {
+                            if (csv.getLong(currentStepUid + "." + nextStepUid, Node.Label.PATHWAY.name()) == null) {
+                                relations.add(new Relation(csv.getAndIncUid(), null, currentStepUid, currentStepLabel, nextStepUid,
+                                        uidToType.get(nextStepUid), Relation.Label.PATHWAY_NEXT_STEP));
+                                csv.putLong(currentStepUid + "." + nextStepUid, Node.Label.PATHWAY.name(), 1L);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateTemplateReaction(BioPaxRecord record) {
+        String template = record.get("template");
+        if (template != null) {
+            addReactionRelation(record.getId(), template, Relation.Label.REACTANT, null);
+        }
+        for (String productId : new LinkedHashSet<>(record.getAll("product"))) {
+            addReactionRelation(record.getId(), productId, Relation.Label.PRODUCT, null);
+        }
+    }
+
+    private void updateConversion(BioPaxRecord record) {
+        Relation.Label label1 = null;
+        Relation.Label label2 = null;
+        String direction = record.get("conversionDirection");
+        if (direction != null) {
+            switch (direction.trim()) {
+                case "LEFT-TO-RIGHT":
+                case "LEFT_TO_RIGHT":
+                    label1 = Relation.Label.REACTANT;
+                    label2 = Relation.Label.PRODUCT;
+                    break;
+                case "RIGHT-TO-LEFT":
+                case "RIGHT_TO_LEFT":
+                    label1 = Relation.Label.PRODUCT;
+                    label2 = Relation.Label.REACTANT;
+                    break;
+                default:
+                    break;
+            }
+        } else {
+            label1 = Relation.Label.REACTANT;
+            label2 = Relation.Label.PRODUCT;
+        }
+
+        if (label1 != null && label2 != null) {
+            Map<String, Float> stoichiometryMap = new HashMap<>();
+            for (String stoichiometryId : record.getAll("participantStoichiometry")) {
+                BioPaxRecord stoichiometry = stoichiometries.get(stoichiometryId);
+                if (stoichiometry != null && stoichiometry.get("physicalEntity") != null) {
+                    stoichiometryMap.put(stoichiometry.get("physicalEntity"), getCoefficient(stoichiometry));
+                }
+            }
+            for (String id : new LinkedHashSet<>(record.getAll("left"))) {
+                addReactionRelation(record.getId(), id, label1, stoichiometryMap.get(id));
+            }
+            for (String id : new LinkedHashSet<>(record.getAll("right"))) {
+                addReactionRelation(record.getId(), id, label2, stoichiometryMap.get(id));
+            }
+        }
+    }
+
+    private void addReactionRelation(String reactionId, String participantId, Relation.Label relationLabel, Float coefficient) {
+        Long reactionUid = rdfToUid.get(reactionId);
+        Node.Label reactionLabel = uidToType.get(reactionUid);
+        Long uid = rdfToUid.get(participantId);
+        String relId = reactionUid + "." + uid;
+        if (csv.getLong(relId, relationLabel.name()) == null) {
+            Node.Label label = uidToType.get(uid);
+            Relation relation = new Relation(csv.getAndIncUid(), null, reactionUid, reactionLabel, uid, label, relationLabel);
+            if (coefficient != null) {
+                relation.addAttribute("stoichiometricCoeff", coefficient);
+            }
+            relations.add(relation);
+
+            checkProteinCellularLoc(participantId, label, reactionUid, reactionLabel);
+
+            csv.putLong(relId, relationLabel.name(), 1);
+        }
+    }
+
+    private void updateControl(BioPaxRecord record) {
+        for (String controllerId : new LinkedHashSet<>(record.getAll("controller"))) {
+            addControlRelation(record.getId(), controllerId, Relation.Label.CONTROLLER);
+        }
+        for (String controlledId : new LinkedHashSet<>(record.getAll("controlled"))) {
+            addControlRelation(record.getId(), controlledId, Relation.Label.CONTROLLED);
+        }
+    }
+
+    private void addControlRelation(String controlId, String targetId, Relation.Label relationLabel) {
+        Long controlUid = rdfToUid.get(controlId);
+        Node.Label controlLabel = uidToType.get(controlUid);
+        Long targetUid = rdfToUid.get(targetId);
+        String relId = controlUid + "." + targetUid;
+        if (csv.getLong(relId, relationLabel.name()) == null) {
+            Node.Label targetLabel = uidToType.get(targetUid);
+            relations.add(new Relation(csv.getAndIncUid(), null, controlUid, controlLabel, targetUid, targetLabel, relationLabel));
+
+            checkProteinCellularLoc(targetId, targetLabel, controlUid, controlLabel);
+
+            csv.putLong(relId, relationLabel.name(), 1);
+        }
+    }
+
+    private Map<Long, Float> getStoichiometryMap(List<String> stoichiometryIds) {
+        Map<Long, Float> stoichiometryMap = new HashMap<>();
+        for (String stoichiometryId : stoichiometryIds) {
+            BioPaxRecord stoichiometry = stoichiometries.get(stoichiometryId);
+            if (stoichiometry != null && stoichiometry.get("physicalEntity") != null) {
+                stoichiometryMap.put(rdfToUid.get(stoichiometry.get("physicalEntity")), getCoefficient(stoichiometry));
+            }
+        }
+        return stoichiometryMap;
+    }
+
+    private Float getCoefficient(BioPaxRecord stoichiometry) {
+        String coefficient = stoichiometry.get("stoichiometricCoefficient");
+        try {
+            return coefficient == null ? null : Float.valueOf(coefficient.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void checkProteinCellularLoc(String proteinRdfId, Node.Label proteinLabel, long targetUid, Node.Label targetLabel) {
+        if (proteinLabel == Node.Label.PROTEIN) {
+            Long celLocUid = protRdfIdToCelLocUid.get(proteinRdfId);
+            if (celLocUid != null && !celLocUidSet.contains(targetUid + "." + celLocUid)) {
+                relations.add(new Relation(csv.getAndIncUid(), null, targetUid, targetLabel, celLocUid, Node.Label.CELLULAR_LOCATION,
+                        Relation.Label.CELLULAR_LOCATION));
+                celLocUidSet.add(targetUid + "." + celLocUid);
+            }
+        }
+    }
+
+    private void addSetAttributes(List<String> input, String attrName, Node node) {
+        String value = StringUtils.join(hashOrder(input), ";");
+        if (StringUtils.isNotEmpty(value)) {
+            node.addAttribute(attrName, value);
+        }
+    }
+
+    /**
+     * Paxtools keeps multi-valued properties in hash sets, they are joined in the same order so attributes do not change.
+     *
+     * @param values    Values in file order
+     * @return          Values in hash set order
+     */
+    private Collection<String> hashOrder(List<String> values) {
+        if (values.size() < 2) {
+            return values;
+        }
+        Set<String> set = new HashSet<>();
+        set.addAll(values);
+        return set;
+    }
+
+    private void updateAuxMaps(Node node) {
+        rdfToUid.put(node.getId(), node.getUid());
+        uidToType.put(node.getUid(), node.getLabels().get(0));
+    }
+
+    private void updateAuxMaps(String rdfId, Long uid, Node.Label label) {
+        rdfToUid.put(rdfId, uid);
+        uidToType.put(uid, label);
+    }
+}
@@ -0,0 +1,78 @@
+package org.opencb.bionetdb.lib.db.biopax;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One BioPAX element as read from the OWL file: its class name, its ID and its property values. References to other elements
+ * are stored as their IDs, as returned by getBioPaxId, so the referenced elements do not need to be in memory.
+ */
+public class BioPaxRecord {
+
+    private String type;
+    private String id;
+    private String uri;
+    private Map<String, List<String>> properties;
+
+    public BioPaxRecord(String type, String id, String uri) {
+        this.type = type;
+        this.id = id;
+        this.uri = uri;
+        this.properties = new HashMap<>();
+    }
+
+    public void add(String property, String value) {
+        properties.computeIfAbsent(property, k -> new ArrayList<>(2)).add(value);
+    }
+
+    /**
+     * Drops all the properties but the given ones, to keep only what is needed when many records are indexed.
+     *
+     * @param names Properties to keep
+     * @return      This record
+     */
+    public BioPaxRecord retain(String... names) {
+        Map<String, List<String>> retained = new HashMap<>(4);
+        for (String name : names) {
+            List<String> values = properties.get(name);
+            if (values != null) {
+                retained.put(name, values);
+            }
+        }
+        properties = retained;
+        return this;
+    }
+
+    public List<String> getAll(String property) {
+        return properties.getOrDefault(property, Collections.emptyList());
+    }
+
+    public String get(String property) {
+        List<String> values = properties.get(property);
+        return values == null ? null : values.get(0);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Full RDF ID, the same value as Paxtools BioPAXElement.getRDFId.
+     *
+     * @return RDF ID
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    public Map<String, List<String>> getProperties() {
+        return properties;
+    }
+}
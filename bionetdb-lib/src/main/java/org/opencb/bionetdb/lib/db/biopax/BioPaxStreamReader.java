@@ -0,0 +1,184 @@
+package org.opencb.bionetdb.lib.db.biopax;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming reader for BioPAX level 3 RDF/XML files. Each call to read() parses the file once and hands the elements of the
+ * requested classes to the handler, one at a time, so only the current element is in memory.
+ */
+public class BioPaxStreamReader {
+
+    public static final String BIOPAX_NS = "http://www.biopax.org/release/biopax-level3.owl#";
+    public static final String RDF_NS = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    public static final String XML_NS = "http://www.w3.org/XML/1998/namespace";
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final Pattern WHITESPACES = Pattern.compile("[\\n\\r\\t ]+");
+
+    private Path path;
+    private XMLInputFactory xmlInputFactory;
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(BioPaxRecord record) throws IOException;
+    }
+
+    public BioPaxStreamReader(Path path) {
+        this.path = path;
+
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Reads the file and calls the handler for each element whose class is in the given set, in file order.
+     *
+     * @param types     BioPAX class names, e.g. Protein or PathwayStep
+     * @param handler   Record handler
+     * @return          Number of records handled
+     * @throws IOException If the file can not be read or parsed
+     */
+    public long read(Set<String> types, RecordHandler handler) throws IOException {
+        long counter = 0;
+        try (InputStream inputStream = open()) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                String xmlBase = "";
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        if (depth == 1) {
+                            // rdf:RDF, the base is needed to build the full RDF IDs
+                            String base = reader.getAttributeValue(XML_NS, "base");
+                            if (base != null) {
+                                xmlBase = base;
+                            }
+                        } else if (depth == 2) {
+                            if (BIOPAX_NS.equals(reader.getNamespaceURI()) && types.contains(reader.getLocalName())) {
+                                handler.handle(readRecord(reader, xmlBase, types, handler));
+                                counter++;
+                            } else {
+                                skipElement(reader);
+                            }
+                            depth--;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Error parsing BioPAX file " + path + ": " + e.getMessage(), e);
+        }
+        return counter;
+    }
+
+    private BioPaxRecord readRecord(XMLStreamReader reader, String xmlBase, Set<String> types, RecordHandler handler)
+            throws XMLStreamException, IOException {
+        String uri;
+        String rdfId = reader.getAttributeValue(RDF_NS, "ID");
+        if (rdfId != null) {
+            uri = xmlBase.endsWith("#") ? xmlBase + rdfId : xmlBase + "#" + rdfId;
+        } else {
+            uri = reader.getAttributeValue(RDF_NS, "about");
+        }
+        BioPaxRecord record = new BioPaxRecord(reader.getLocalName(), getBioPaxId(uri), uri);
+
+        // Properties, each one is either a literal or a reference to another element
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String property = reader.getLocalName();
+            String resource = reader.getAttributeValue(RDF_NS, "resource");
+            if (resource != null) {
+                record.add(property, getBioPaxId(resource));
+                skipElement(reader);
+            } else {
+                String value = readValue(reader, xmlBase, types, handler);
+                if (value != null) {
+                    record.add(property, value);
+                }
+            }
+        }
+        return record;
+    }
+
+    private String readValue(XMLStreamReader reader, String xmlBase, Set<String> types, RecordHandler handler)
+            throws XMLStreamException, IOException {
+        StringBuilder text = new StringBuilder();
+        String nestedId = null;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                text.append(reader.getText());
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                // Nested element, it is handled as any other element and the property refers to it
+                if (BIOPAX_NS.equals(reader.getNamespaceURI()) && types.contains(reader.getLocalName())) {
+                    BioPaxRecord nested = readRecord(reader, xmlBase, types, handler);
+                    handler.handle(nested);
+                    nestedId = nested.getId();
+                } else {
+                    String uri = reader.getAttributeValue(RDF_NS, "ID") != null
+                            ? reader.getAttributeValue(RDF_NS, "ID")
+                            : reader.getAttributeValue(RDF_NS, "about");
+                    nestedId = uri == null ? null : getBioPaxId(uri);
+                    skipElement(reader);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                // Whitespaces are collapsed, as Paxtools does
+                return nestedId != null ? nestedId : WHITESPACES.matcher(text).replaceAll(" ");
+            }
+        }
+    }
+
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private InputStream open() throws IOException {
+        if (path.toFile().getName().endsWith(".gz")) {
+            return new GZIPInputStream(new FileInputStream(path.toFile()), BUFFER_SIZE);
+        } else {
+            return Files.newInputStream(path);
+        }
+    }
+
+    /**
+     * Same ID as Neo4jBioPaxBuilder uses: the part of the RDF ID after the '#'.
+     *
+     * @param uri   RDF ID or reference
+     * @return      BioPAX ID
+     */
+    public static String getBioPaxId(String uri) {
+        int index = uri.indexOf('#');
+        if (index < 0) {
+            return uri;
+        }
+        int end = uri.indexOf('#', index + 1);
+        return end < 0 ? uri.substring(index + 1) : uri.substring(index + 1, end);
+    }
+}
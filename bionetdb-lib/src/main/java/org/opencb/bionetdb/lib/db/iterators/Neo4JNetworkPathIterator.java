@@ -1,36 +1,23 @@
 package org.opencb.bionetdb.lib.db.iterators;
 
+import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
 import org.opencb.bionetdb.core.models.network.NetworkPath;
 import org.opencb.bionetdb.lib.api.iterators.NetworkPathIterator;
 import org.opencb.bionetdb.lib.utils.Neo4jConverter;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 
-public class Neo4JNetworkPathIterator implements NetworkPathIterator {
-    private Result result;
-    private List<NetworkPath> buffer;
+public class Neo4JNetworkPathIterator extends Neo4JRecordIterator<NetworkPath> implements NetworkPathIterator {
 
-    public Neo4JNetworkPathIterator(Result result) {
-        this.result = result;
-        this.buffer = new ArrayList<>();
+    public Neo4JNetworkPathIterator(Session session, Transaction tx, Result result) {
+        super(session, tx, result);
     }
 
     @Override
-    public boolean hasNext() {
-        if (!buffer.isEmpty()) {
-            return true;
-        } else {
-            if (result.hasNext()) {
-                buffer = Neo4jConverter.toPathList(result.next());
-            }
-            return !buffer.isEmpty();
-        }
-    }
-
-    @Override
-    public NetworkPath next() {
-        return buffer.remove(0);
+    protected Collection<NetworkPath> convert(Record record) {
+        return Neo4jConverter.toPathList(record);
     }
 }
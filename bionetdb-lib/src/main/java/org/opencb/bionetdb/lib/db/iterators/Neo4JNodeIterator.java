@@ -1,37 +1,23 @@
 package org.opencb.bionetdb.lib.db.iterators;
 
+import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
 import org.opencb.bionetdb.core.models.network.Node;
 import org.opencb.bionetdb.lib.api.iterators.NodeIterator;
 import org.opencb.bionetdb.lib.utils.Neo4jConverter;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 
-public class Neo4JNodeIterator implements NodeIterator {
-    private Result result;
-    private List<Node> buffer;
+public class Neo4JNodeIterator extends Neo4JRecordIterator<Node> implements NodeIterator {
 
-    public Neo4JNodeIterator(Result result) {
-        this.result = result;
-        this.buffer = new ArrayList<>();
+    public Neo4JNodeIterator(Session session, Transaction tx, Result result) {
+        super(session, tx, result);
     }
 
     @Override
-    public boolean hasNext() {
-        if (!buffer.isEmpty()) {
-            return true;
-        } else {
-            if (result.hasNext()) {
-                buffer = Neo4jConverter.toNodeList(result.next());
-            }
-            return !buffer.isEmpty();
-        }
+    protected Collection<Node> convert(Record record) {
+        return Neo4jConverter.toNodeList(record);
     }
-
-    @Override
-    public Node next() {
-        return buffer.remove(0);
-    }
-
 }
@@ -0,0 +1,71 @@
+package org.opencb.bionetdb.lib.db.iterators;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the results of a Cypher query, it owns the session and the transaction of the query. Records are pulled from the
+ * server as they are consumed, in batches of the session fetch size, so results are never held in memory. Closing the iterator
+ * before the end rolls back the transaction, which stops the query in the server; it is also closed when the last result is read.
+ *
+ * @param <T> Type of the results, a record can be converted into several results
+ */
+public abstract class Neo4JRecordIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private Session session;
+    private Transaction tx;
+    private Result result;
+    private ArrayDeque<T> buffer;
+    private boolean closed;
+
+    protected Neo4JRecordIterator(Session session, Transaction tx, Result result) {
+        this.session = session;
+        this.tx = tx;
+        this.result = result;
+        this.buffer = new ArrayDeque<>();
+    }
+
+    protected abstract Collection<T> convert(Record record);
+
+    @Override
+    public boolean hasNext() {
+        while (buffer.isEmpty() && !closed) {
+            if (result.hasNext()) {
+                buffer.addAll(convert(result.next()));
+            } else {
+                close();
+            }
+        }
+        return !buffer.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.poll();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (tx != null) {
+                tx.close();
+            }
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.opencb.bionetdb.lib.db.iterators;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.reactive.RxSession;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Publisher of the results of a Cypher query, each subscription opens a reactive session and runs the query. Records are requested
+ * from the server in batches only when the subscriber has demand, so a slow subscriber does not make results pile up in memory.
+ * The session is closed when the query ends, fails or the subscription is cancelled.
+ *
+ * @param <T> Type of the results, a record can be converted into several results
+ */
+public class Neo4JRecordPublisher<T> implements Flow.Publisher<T> {
+
+    private Supplier<RxSession> sessionSupplier;
+    private String cypher;
+    private Map<String, Object> params;
+    private long batchSize;
+    private Function<Record, ? extends Collection<T>> converter;
+
+    public Neo4JRecordPublisher(Supplier<RxSession> sessionSupplier, String cypher, Map<String, Object> params, long batchSize,
+                                Function<Record, ? extends Collection<T>> converter) {
+        this.sessionSupplier = sessionSupplier;
+        this.cypher = cypher;
+        this.params = params;
+        this.batchSize = Math.max(1, batchSize);
+        this.converter = converter;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        RxSession session;
+        try {
+            session = sessionSupplier.get();
+        } catch (RuntimeException e) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(e);
+            return;
+        }
+        session.run(cypher, params).records().subscribe(new RecordSubscription<>(session, subscriber, batchSize, converter));
+    }
+
+    /**
+     * Bridges the driver records to the subscriber, all the signals to the subscriber are emitted from the drain loop, or from the
+     * session close once the drain loop has terminated.
+     */
+    private static class RecordSubscription<T> implements Subscriber<Record>, Flow.Subscription {
+
+        private final RxSession session;
+        private final Flow.Subscriber<? super T> downstream;
+        private final long batchSize;
+        private final Function<Record, ? extends Collection<T>> converter;
+
+        private final Queue<T> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicLong pendingRecords = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile Subscription upstream;
+        private volatile boolean done;
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+        private boolean terminated;
+
+        RecordSubscription(RxSession session, Flow.Subscriber<? super T> downstream, long batchSize,
+                           Function<Record, ? extends Collection<T>> converter) {
+            this.session = session;
+            this.downstream = downstream;
+            this.batchSize = batchSize;
+            this.converter = converter;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(Record record) {
+            if (done) {
+                return;
+            }
+            pendingRecords.decrementAndGet();
+            try {
+                buffer.addAll(converter.apply(record));
+            } catch (RuntimeException e) {
+                upstream.cancel();
+                error = e;
+                done = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                upstream.cancel();
+                error = new IllegalArgumentException("Non-positive request: " + n);
+                done = true;
+            } else {
+                requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                upstream.cancel();
+                drain();
+            }
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (terminated) {
+                    buffer.clear();
+                } else if (cancelled) {
+                    terminated = true;
+                    buffer.clear();
+                    closeSession(false);
+                } else if (done && error != null) {
+                    terminated = true;
+                    buffer.clear();
+                    closeSession(true);
+                } else {
+                    long demand = requested.get();
+                    long emitted = 0;
+                    while (emitted != demand && !cancelled && !buffer.isEmpty()) {
+                        downstream.onNext(buffer.poll());
+                        emitted++;
+                    }
+                    if (emitted > 0 && demand != Long.MAX_VALUE) {
+                        requested.addAndGet(-emitted);
+                    }
+                    if (!cancelled && buffer.isEmpty()) {
+                        if (done) {
+                            terminated = true;
+                            closeSession(true);
+                        } else if (requested.get() > 0 && pendingRecords.get() == 0) {
+                            // Ask for the next batch of records only when the previous one has been consumed
+                            pendingRecords.set(batchSize);
+                            upstream.request(batchSize);
+                        }
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void closeSession(boolean signal) {
+            session.<Void>close().subscribe(new Subscriber<Void>() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Void ignored) {
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    if (signal) {
+                        downstream.onError(error != null ? error : throwable);
+                    }
+                }
+
+                @Override
+                public void onComplete() {
+                    if (signal) {
+                        if (error != null) {
+                            downstream.onError(error);
+                        } else {
+                            downstream.onComplete();
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
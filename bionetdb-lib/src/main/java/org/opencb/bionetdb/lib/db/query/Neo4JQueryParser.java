@@ -59,7 +59,16 @@ public class Neo4JQueryParser {
         }
     }
 
-    public static String parseNodeQuery(Query query, QueryOptions options) {
+    /**
+     * Parses a node query into a Cypher template, the values of the filters are added to the parameter map, so queries with the same
+     * filters and different values share the same Cypher statement and the same plan.
+     *
+     * @param query     Node query
+     * @param options   Query options, i.e. include and limit
+     * @param params    Map where the parameters of the Cypher statement are added
+     * @return          Cypher statement
+     */
+    public static String parseNodeQuery(Query query, QueryOptions options, Map<String, Object> params) {
         String nameNode = "n";
 
         // Match clause
@@ -72,7 +81,7 @@ public class Neo4JQueryParser {
 
         // Where clauses, parse attributes and relationships
         StringBuilder where = new StringBuilder();
-        List<String> filters = getFilters(nameNode, query);
+        List<String> filters = getFilters(nameNode, query, params);
         if (filters.size() > 0) {
             where.append(" WHERE ").append(StringUtils.join(filters, " AND "));
         }
@@ -97,7 +106,7 @@ public class Neo4JQueryParser {
         }
 
         if (options.containsKey(QueryOptions.LIMIT)) {
-            ret.append(" LIMIT ").append(options.getString(QueryOptions.LIMIT));
+            ret.append(" LIMIT ").append(addParam(params, "limit", options.getLong(QueryOptions.LIMIT)));
         }
 
         // Build the complete Cypher statement
@@ -107,20 +116,39 @@ public class Neo4JQueryParser {
         return cypher.toString();
     }
 
-    public static List<String> getFilters(String nodeName, Query query) {
+    public static List<String> getFilters(String nodeName, Query query, Map<String, Object> params) {
         List<String> filters = new ArrayList<>();
 
-        addFilters("uid", nodeName, query, filters);
-        addFilters("id", nodeName, query, filters);
-        addFilters("name", nodeName, query, filters);
-        addFilters("label", nodeName, query, filters);
-        addFilters("source", nodeName, query, filters);
-        addFilters("attribute", nodeName, query, filters);
+        addFilters("uid", nodeName, query, filters, params);
+        addFilters("id", nodeName, query, filters, params);
+        addFilters("name", nodeName, query, filters, params);
+        addFilters("label", nodeName, query, filters, params);
+        addFilters("source", nodeName, query, filters, params);
+        addFilters("attribute", nodeName, query, filters, params);
 
         return filters;
     }
 
-    public static String parseNetworkPathQuery(Query query, QueryOptions options) throws BioNetDBException {
+    /**
+     * Adds a parameter to the map and returns its reference for the Cypher statement. The name is used as it is, or followed by the
+     * first free number if it is already in the map. Names only depend on the order of the filters and never on their values, so
+     * the same query shape always gives the same Cypher statement.
+     *
+     * @param params    Parameter map
+     * @param name      Parameter name
+     * @param value     Parameter value
+     * @return          Parameter reference, e.g. $name
+     */
+    public static String addParam(Map<String, Object> params, String name, Object value) {
+        String key = name;
+        for (int i = 1; params.containsKey(key); i++) {
+            key = name + i;
+        }
+        params.put(key, value);
+        return "$" + key;
+    }
+
+    public static String parseNetworkPathQuery(Query query, QueryOptions options, Map<String, Object> params) throws BioNetDBException {
         String origNodeName = "n1";
         String destNodeName = "n2";
         String origLabel = query.containsKey("origin_label") ? query.getString("origin_label") : "";
@@ -139,11 +167,11 @@ public class Neo4JQueryParser {
         // Where clauses, parse attributes
         List<String> filters = new ArrayList<>();
         if (query.containsKey("origin_filters")) {
-            filters.addAll(getFilters(origNodeName, buildQuery(query.getList("origin_filters"))));
+            filters.addAll(getFilters(origNodeName, buildQuery(query.getList("origin_filters")), params));
         }
 
         if (query.containsKey("destination_filters")) {
-            filters.addAll(getFilters(destNodeName, buildQuery(query.getList("destination_filters"))));
+            filters.addAll(getFilters(destNodeName, buildQuery(query.getList("destination_filters")), params));
         }
 
         StringBuilder where = new StringBuilder();
@@ -186,47 +214,42 @@ public class Neo4JQueryParser {
     // P R I V A T E     M E T H O D S
     //-------------------------------------------------------------------------
 
-    private static void addFilters(String key, String nodeName, Query query, List<String> filters) {
+    private static void addFilters(String key, String nodeName, Query query, List<String> filters, Map<String, Object> params) {
         if (query.containsKey(key)) {
             String[] values = query.getString(key).split(",");
 
-            StringBuilder filter = new StringBuilder("(");
+            String filter;
             switch (key) {
                 case "uid":
-                    filter.append(nodeName).append(".").append(key).append("=").append(values[0]);
+                    List<Long> uids = new ArrayList<>(values.length);
+                    for (String value : values) {
+                        uids.add(Long.parseLong(value.trim()));
+                    }
+                    filter = nodeName + "." + key + " IN " + addParam(params, nodeName + "_" + key, uids);
                     break;
                 case "label":
-                    filter.append(nodeName).append(":").append(values[0]);
+                    // Labels can not be parameters
+                    List<String> labels = new ArrayList<>(values.length);
+                    for (String value : values) {
+                        labels.add(nodeName + ":" + value);
+                    }
+                    filter = StringUtils.join(labels, " OR ");
                     break;
                 case "attribute":
-                    String[] fields = values[0].split("=");
-                    filter.append(nodeName).append(".").append("attr_").append(fields[0]).append("=\"").append(fields[1]).append("\"");
+                    List<String> attributes = new ArrayList<>(values.length);
+                    for (String value : values) {
+                        String[] fields = value.split("=");
+                        attributes.add(nodeName + ".attr_" + fields[0] + " = " + addParam(params, nodeName + "_attr_" + fields[0],
+                                fields[1]));
+                    }
+                    filter = StringUtils.join(attributes, " OR ");
                     break;
                 default:
-                    filter.append(nodeName).append(".").append(key).append("=\"").append(values[0]).append("\"");
+                    filter = nodeName + "." + key + " IN " + addParam(params, nodeName + "_" + key, Arrays.asList(values));
                     break;
             }
-            for (int i = 1; i < values.length; i++) {
-                filter.append(" OR ");
-                switch (key) {
-                    case "uid":
-                        filter.append(nodeName).append(".").append(key).append("=").append(values[i]);
-                        break;
-                    case "label":
-                        filter.append(nodeName).append(":").append(values[0]);
-                        break;
-                    case "attribute":
-                        String[] fields = values[i].split("=");
-                        filter.append(nodeName).append(".").append("attr_").append(fields[0]).append("=\"").append(fields[1]).append("\"");
-                        break;
-                    default:
-                        filter.append(nodeName).append(".").append(key).append("=\"").append(values[i]).append("\"");
-                        break;
-                }
-            }
-            filter.append(")");
 
-            filters.add(filter.toString());
+            filters.add("(" + filter + ")");
         }
     }
 
@@ -383,57 +406,4 @@ public class Neo4JQueryParser {
 
         return retStatement.toString();
     }
-
-    public static String parse(String nodeName, Query query, QueryOptions options) throws BioNetDBException {
-        if (query == null) {
-            query = new Query();
-        }
-
-        List<String> myMatchList = new ArrayList<>();
-        List<String> myWhereClauses = new ArrayList<>();
-        StringBuilder cypherQuery = new StringBuilder();
-
-        if (StringUtils.isNotEmpty(query.getString(NetworkDBAdaptor.NetworkQueryParams.NODE_TYPE.key()))) {
-            myMatchList.add("(" + nodeName + ":" + query.getString(NetworkDBAdaptor.NetworkQueryParams.NODE_TYPE.key()
-                    .replace(',', '|')).toUpperCase() + ")");
-        }
-//        else {
-//            myMatchList.add("(" + nodeName + ")");
-//        }
-
-        if (StringUtils.isNotEmpty(query.getString(NetworkDBAdaptor.NetworkQueryParams.NODE_UID.key()))) {
-            myWhereClauses.add(nodeName + ".uid=" + query.getString(NetworkDBAdaptor.NetworkQueryParams.NODE_UID.key()));
-        }
-
-        if (StringUtils.isNotEmpty(query.getString(NetworkDBAdaptor.NetworkQueryParams.NODE_ID.key()))) {
-            myWhereClauses.add(nodeName + ".id=\"" + query.getString(NetworkDBAdaptor.NetworkQueryParams.NODE_ID.key())
-                    + "\"");
-        }
-
-        if (StringUtils.isNotEmpty(query.getString(NetworkDBAdaptor.NetworkQueryParams.PE_ID.key()))) {
-            myMatchList.add("(" + nodeName + ")-[:XREF]->(" + nodeName + "x:XREF)");
-            myWhereClauses.add(nodeName + "x.id IN [\"" + query.getString(NetworkDBAdaptor.NetworkQueryParams.PE_ID.key())
-                    .replace(",", "\", \"") + "\"]");
-        }
-
-        if (StringUtils.isNotEmpty(query.getString(NetworkDBAdaptor.NetworkQueryParams.PE_ONTOLOGY.key()))) {
-            myMatchList.add("(" + nodeName + ")-[:ONTOLOGY]->(" + nodeName + "o:ONTOLOGY)");
-            myWhereClauses.add(nodeName + "o.id IN [\"" + query.getString(NetworkDBAdaptor.NetworkQueryParams.PE_ONTOLOGY.key())
-                    .replace(",", "\", \"") + "\"]");
-        }
-
-        if (StringUtils.isNotEmpty(query.getString(NetworkDBAdaptor.NetworkQueryParams.PE_CELLOCATION.key()))) {
-            myMatchList.add("(" + nodeName + ")-[:CELLULAR_LOCATION]->(" + nodeName + "c:CELLULAR_LOCATION)");
-            myWhereClauses.add(nodeName + "c.name IN [\"" + query.getString(NetworkDBAdaptor.NetworkQueryParams.PE_CELLOCATION.key())
-                    .replace(",", "\", \"") + "\"]");
-        }
-
-        cypherQuery.append(StringUtils.join(myMatchList, ','));
-
-        if (myWhereClauses.size() > 0) {
-            cypherQuery.append(" WHERE ");
-            cypherQuery.append(StringUtils.join(myWhereClauses, " AND "));
-        }
-        return cypherQuery.toString();
-    }
 }
@@ -1,7 +1,6 @@
 package org.opencb.bionetdb.lib.db.query;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.opencb.bionetdb.lib.api.query.VariantQueryParam;
 import org.opencb.bionetdb.lib.utils.NodeBuilder;
 import org.opencb.commons.datastore.core.Query;
@@ -18,7 +17,15 @@ public class Neo4JVariantQueryParser {
 
     private static final Pattern POP_FREQ_PATTERN = Pattern.compile("([^=<>!]+)(!=?|<=?|>=?|<<=?|>>=?|==?|=?)([^=<>!]+.*)$");
 
-    public static String parse(Query query, QueryOptions options) {
+    /**
+     * Parses a variant query into a Cypher template, the values of the filters are added to the parameter map.
+     *
+     * @param query     Variant query
+     * @param options   Query options
+     * @param params    Map where the parameters of the Cypher statement are added
+     * @return          Cypher statement
+     */
+    public static String parse(Query query, QueryOptions options, Map<String, Object> params) {
         // Check query
         Set<VariantQueryParam> includeMap = getIncludeMap(query);
         Set<VariantQueryParam> excludeMap = getExcludeMap(query);
@@ -35,24 +42,25 @@ public class Neo4JVariantQueryParser {
             String geneValues = query.getString(VariantQueryParam.GENE.key());
             query.remove(VariantQueryParam.GENE.key());
 
-            List<Neo4JQueryParser.CypherStatement> panelCypherStatements = getCypherStatements(query, options);
+            List<Neo4JQueryParser.CypherStatement> panelCypherStatements = getCypherStatements(query, options, params);
 
             query.remove(VariantQueryParam.PANEL.key());
             query.put(VariantQueryParam.GENE.key(), geneValues);
 
-            List<Neo4JQueryParser.CypherStatement> geneCypherStatements = getCypherStatements(query, options);
+            List<Neo4JQueryParser.CypherStatement> geneCypherStatements = getCypherStatements(query, options, params);
 
             cypher = buildCypherStatement(query, includeAttrs, panelCypherStatements)
                     + "\nUNION\n"
                     + buildCypherStatement(query, includeAttrs, geneCypherStatements);
         } else {
-            cypher = buildCypherStatement(query, includeAttrs, getCypherStatements(query, options));
+            cypher = buildCypherStatement(query, includeAttrs, getCypherStatements(query, options, params));
         }
 
         return cypher;
     }
 
-    public static String parseProteinNetworkInterpretation(Query query, QueryOptions options, boolean complexOrReaction) {
+    public static String parseProteinNetworkInterpretation(Query query, QueryOptions options, boolean complexOrReaction,
+                                                           Map<String, Object> params) {
         // Check query
         Set<VariantQueryParam> includeMap = getIncludeMap(query);
         Set<VariantQueryParam> excludeMap = getExcludeMap(query);
@@ -72,18 +80,18 @@ public class Neo4JVariantQueryParser {
 
             query.remove(VariantQueryParam.GENE.key());
 
-            String panelCypherQuery = getProteinNetworkCypher(query, options, includeAttrs, complexOrReaction);
+            String panelCypherQuery = getProteinNetworkCypher(query, options, includeAttrs, complexOrReaction, params);
 
             query.remove(VariantQueryParam.PANEL.key());
             query.put(VariantQueryParam.GENE.key(), geneValues);
             query.put(VariantQueryParam.ANNOT_BIOTYPE.key(), biotypeValues);
             query.put(VariantQueryParam.CHROMOSOME.key(), chromValues);
 
-            String geneCypherQuery = getProteinNetworkCypher(query, options, includeAttrs, complexOrReaction);
+            String geneCypherQuery = getProteinNetworkCypher(query, options, includeAttrs, complexOrReaction, params);
 
             cypher = panelCypherQuery + "\nUNION\n" + geneCypherQuery;
         } else {
-            cypher = getProteinNetworkCypher(query, options, includeAttrs, complexOrReaction);
+            cypher = getProteinNetworkCypher(query, options, includeAttrs, complexOrReaction, params);
         }
 
         System.out.println(cypher);
@@ -243,7 +251,8 @@ public class Neo4JVariantQueryParser {
         return excludes;
     }
 
-    public static List<Neo4JQueryParser.CypherStatement> getCypherStatements(Query query, QueryOptions queryOptions) {
+    public static List<Neo4JQueryParser.CypherStatement> getCypherStatements(Query query, QueryOptions queryOptions,
+                                                                             Map<String, Object> params) {
         List<Neo4JQueryParser.CypherStatement> cypherStatements = new ArrayList<>();
 
         // Chromosome
@@ -251,20 +260,20 @@ public class Neo4JVariantQueryParser {
         String param = VariantQueryParam.CHROMOSOME.key();
         if (query.containsKey(param)) {
             List<String> chromosomes = Arrays.asList(query.getString(param).split(","));
-            chromWhere = getConditionString(chromosomes, "v.attr_chromosome", true);
+            chromWhere = getConditionString(chromosomes, "v.attr_chromosome", true, params);
         }
 
         // Panel
         if (query.containsKey(VariantQueryParam.PANEL.key())) {
             cypherStatements.addAll(parsePanel(query.getString(VariantQueryParam.PANEL.key()),
-                    query.getString(VariantQueryParam.ANNOT_BIOTYPE.key()), chromWhere));
+                    query.getString(VariantQueryParam.ANNOT_BIOTYPE.key()), chromWhere, params));
             chromWhere = "";
         }
 
         // Gene
         if (query.containsKey(VariantQueryParam.GENE.key())) {
             cypherStatements.addAll(parseGene(query.getString(VariantQueryParam.GENE.key()),
-                    query.getString(VariantQueryParam.ANNOT_BIOTYPE.key()), chromWhere));
+                    query.getString(VariantQueryParam.ANNOT_BIOTYPE.key()), chromWhere, params));
             chromWhere = "";
         }
 
@@ -275,7 +284,7 @@ public class Neo4JVariantQueryParser {
                 biotypeValues = query.getString(VariantQueryParam.ANNOT_BIOTYPE.key());
             }
             cypherStatements.add(parseConsequenceType(query.getString(VariantQueryParam.ANNOT_CONSEQUENCE_TYPE.key()), biotypeValues,
-                    chromWhere));
+                    chromWhere, params));
             chromWhere = "";
         }
 
@@ -290,14 +299,14 @@ public class Neo4JVariantQueryParser {
         param = VariantQueryParam.ANNOT_BIOTYPE.key();
         if (query.containsKey(param) && !query.containsKey(VariantQueryParam.PANEL.key())
                 && !query.containsKey(VariantQueryParam.ANNOT_CONSEQUENCE_TYPE.key())) {
-            cypherStatements.add(parseBiotype(param, chromWhere));
+            cypherStatements.add(parseBiotype(query.getString(param), chromWhere, params));
             chromWhere = "";
         }
 
         // Population frequency (alternate frequency)
         param = VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key();
         if (query.containsKey(param)) {
-            cypherStatements.addAll(parsePopulationFrequency(query.getString(param), chromWhere));
+            cypherStatements.addAll(parsePopulationFrequency(query.getString(param), chromWhere, params));
         }
 
         return cypherStatements;
@@ -335,7 +344,8 @@ public class Neo4JVariantQueryParser {
         return sb.toString();
     }
 
-    public static List<Neo4JQueryParser.CypherStatement> parsePanel(String panelValues, String biotypeValues, String chromWhere) {
+    public static List<Neo4JQueryParser.CypherStatement> parsePanel(String panelValues, String biotypeValues, String chromWhere,
+                                                                    Map<String, Object> params) {
         List<String> panels = Arrays.asList(panelValues.split(","));
         List<Neo4JQueryParser.CypherStatement> cypherStatements = new ArrayList<>();
 
@@ -344,19 +354,20 @@ public class Neo4JVariantQueryParser {
         String match = "MATCH (p:DISEASE_PANEL)-[:PANEL__GENE]-(:GENE)-[:HAS___GENE___TRANSCRIPT]-(tr1:TRANSCRIPT)";
 
         // Where1
-        String where = "WHERE " + getConditionString(panels, "p.name", false);
+        String where = "WHERE " + getConditionString(panels, "p.name", false, params);
 
         // With1
         String with = "WITH DISTINCT tr1";
 
         cypherStatements.add(new Neo4JQueryParser.CypherStatement(match, where, with));
 
-        cypherStatements.add(getTranscriptMatch(biotypeValues, chromWhere));
+        cypherStatements.add(getTranscriptMatch(biotypeValues, chromWhere, params));
 
         return cypherStatements;
     }
 
-    public static List<Neo4JQueryParser.CypherStatement> parseGene(String geneValues, String biotypeValues, String chromWhere) {
+    public static List<Neo4JQueryParser.CypherStatement> parseGene(String geneValues, String biotypeValues, String chromWhere,
+                                                                   Map<String, Object> params) {
         List<String> genes = Arrays.asList(geneValues.split(","));
         List<Neo4JQueryParser.CypherStatement> cypherStatements = new ArrayList<>();
 
@@ -364,19 +375,20 @@ public class Neo4JVariantQueryParser {
         String match = "MATCH (r:XREF)-[:XREF]-(:GENE)-[:HAS___GENE___TRANSCRIPT]-(tr1:TRANSCRIPT)";
 
         // Where1
-        String where = "WHERE " + getConditionString(genes, "r.id", false);
+        String where = "WHERE " + getConditionString(genes, "r.id", false, params);
 
         // With1
         String with = "WITH DISTINCT tr1";
 
         cypherStatements.add(new Neo4JQueryParser.CypherStatement(match, where, with));
 
-        cypherStatements.add(getTranscriptMatch(biotypeValues, chromWhere));
+        cypherStatements.add(getTranscriptMatch(biotypeValues, chromWhere, params));
 
         return cypherStatements;
     }
 
-    private static Neo4JQueryParser.CypherStatement getTranscriptMatch(String biotypeValues, String chromWhere) {
+    private static Neo4JQueryParser.CypherStatement getTranscriptMatch(String biotypeValues, String chromWhere,
+                                                                       Map<String, Object> params) {
         // Match2
         String match = "MATCH (tr1:TRANSCRIPT)-[:ANNOTATION___VARIANT_CONSEQUENCE_TYPE___TRANSCRIPT]-(ct:VARIANT_CONSEQUENCE_TYPE)-"
                 + "[:ANNOTATION___VARIANT___VARIANT_CONSEQUENCE_TYPE]"
@@ -385,7 +397,7 @@ public class Neo4JVariantQueryParser {
         // Where2
         String where = "";
         if (org.apache.commons.lang3.StringUtils.isNotEmpty(biotypeValues)) {
-            where = "WHERE " + (getConditionString(Arrays.asList(biotypeValues.split(",")), "ct.attr_biotype", false)) + chromWhere;
+            where = "WHERE " + (getConditionString(Arrays.asList(biotypeValues.split(",")), "ct.attr_biotype", false, params)) + chromWhere;
         } else if (org.apache.commons.lang3.StringUtils.isNotEmpty(chromWhere)) {
             where = chromWhere.replace("AND", "WHERE");
         }
@@ -424,7 +436,8 @@ public class Neo4JVariantQueryParser {
 //        return cypherStatements;
 //    }
 
-    private static Neo4JQueryParser.CypherStatement parseConsequenceType(String ctValues, String biotypeValues, String chromWhere) {
+    private static Neo4JQueryParser.CypherStatement parseConsequenceType(String ctValues, String biotypeValues, String chromWhere,
+                                                                         Map<String, Object> params) {
         List<String> cts = Arrays.asList(ctValues.split(","));
 
         // Match
@@ -432,9 +445,9 @@ public class Neo4JVariantQueryParser {
                 + "[:ANNOTATION___VARIANT___VARIANT_CONSEQUENCE_TYPE]-(v:VARIANT)";
 
         // Where
-        String where = "WHERE " + getConditionString(cts, "so.name", false) + chromWhere;
+        String where = "WHERE " + getConditionString(cts, "so.name", false, params) + chromWhere;
         if (org.apache.commons.lang3.StringUtils.isNotEmpty(biotypeValues)) {
-            where += (getConditionString(Arrays.asList(biotypeValues.split(",")), "ct.attr_biotype", true));
+            where += (getConditionString(Arrays.asList(biotypeValues.split(",")), "ct.attr_biotype", true, params));
         }
 
         // With
@@ -443,14 +456,14 @@ public class Neo4JVariantQueryParser {
         return new Neo4JQueryParser.CypherStatement(match, where, with);
     }
 
-    private static Neo4JQueryParser.CypherStatement parseBiotype(String biotypeValues, String chromWhere) {
+    private static Neo4JQueryParser.CypherStatement parseBiotype(String biotypeValues, String chromWhere, Map<String, Object> params) {
         List<String> biotypes = Arrays.asList(biotypeValues.split(","));
 
         // Match
         String match = "MATCH (ct:VARIANT_CONSEQUENCE_TYPE)-[:ANNOTATION___VARIANT___VARIANT_CONSEQUENCE_TYPE]-(v:VARIANT)";
 
         // Where
-        String where = "WHERE " + getConditionString(biotypes, "ct.attr_biotype", false) + chromWhere;
+        String where = "WHERE " + getConditionString(biotypes, "ct.attr_biotype", false, params) + chromWhere;
 
         // With
         String with = "WITH DISTINCT v";
@@ -458,7 +471,8 @@ public class Neo4JVariantQueryParser {
         return new Neo4JQueryParser.CypherStatement(match, where, with);
     }
 
-    private static List<Neo4JQueryParser.CypherStatement> parsePopulationFrequency(String popFreqValues, String chromWhere) {
+    private static List<Neo4JQueryParser.CypherStatement> parsePopulationFrequency(String popFreqValues, String chromWhere,
+                                                                                   Map<String, Object> params) {
         List<Neo4JQueryParser.CypherStatement> cypherStatements = new ArrayList<>();
 
         String[] popFreqs = popFreqValues.split("[,;]");
@@ -479,8 +493,7 @@ public class Neo4JVariantQueryParser {
                     if (!first) {
                         where.append(" OR ");
                     }
-                    where.append("(pf.id = '" + matcher.group(1)).append("' AND toFloat(pf.attr_altAlleleFreq)")
-                            .append(matcher.group(2)).append(matcher.group(3)).append(")");
+                    where.append(getPopulationFrequencyCondition(matcher, popFreq, params));
                     first = false;
                 } else {
                     throw new InvalidParameterException("Invalid population frequency parameter: " + popFreq);
@@ -503,8 +516,7 @@ public class Neo4JVariantQueryParser {
                     + "(pf:VARIANT_POPULATION_FREQUENCY)";
 
                     // Where
-                    String where = "WHERE (pf.id = '" + matcher.group(1) + "' AND toFloat(pf.attr_altAlleleFreq)" + matcher.group(2)
-                            + matcher.group(3) + ")" + chromWhere;
+                    String where = "WHERE " + getPopulationFrequencyCondition(matcher, popFreq, params) + chromWhere;
                     chromWhere = "";
 
                     // With
@@ -528,31 +540,33 @@ public class Neo4JVariantQueryParser {
      * @param stringList The list of elements that will compound the filter
      * @param calling    The index we want to use to call if from the database
      * @param isNotFirst A boolean that adds an "AND" operator at the start of the substring if needed
+     * @param params     Map where the list of elements is added as a parameter
      * @return the substring with the filter ready to use for Neo4j
      */
-    public static String getConditionString(List<String> stringList, String calling, boolean isNotFirst) {
-        return getConditionString(stringList, calling, "=", " OR ", isNotFirst);
+    public static String getConditionString(List<String> stringList, String calling, boolean isNotFirst, Map<String, Object> params) {
+        if (stringList.size() == 0) {
+            return "";
+        }
+        String substring = "(" + calling + " IN " + Neo4JQueryParser.addParam(params, calling.replace('.', '_'), stringList) + ")";
+        if (isNotFirst) {
+            substring = " AND " + substring;
+        }
+        return substring;
     }
 
-    private static String getConditionString(List<String> stringList, String calling, String op, String logicalOp, boolean isNotFirst) {
-        String substring = "";
-        if (stringList.size() == 0) {
-            return substring;
-        } else {
-            List<String> elements = new ArrayList<>();
-            for (String element : stringList) {
-                elements.add(substring + calling + op + "'" + element + "'");
-            }
-            substring = StringUtils.join(elements, logicalOp);
-            substring = "(" + substring + ")";
-            if (isNotFirst) {
-                substring = " AND " + substring;
-            }
-            return substring;
+    private static String getPopulationFrequencyCondition(Matcher matcher, String popFreq, Map<String, Object> params) {
+        double freq;
+        try {
+            freq = Double.parseDouble(matcher.group(3));
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterException("Invalid population frequency parameter: " + popFreq);
         }
+        return "(pf.id = " + Neo4JQueryParser.addParam(params, "pf_id", matcher.group(1)) + " AND toFloat(pf.attr_altAlleleFreq)"
+                + matcher.group(2) + Neo4JQueryParser.addParam(params, "pf_altAlleleFreq", freq) + ")";
     }
 
-    private static String getProteinNetworkCypher(Query query, QueryOptions options, List<String> includeAttrs, boolean complexOrReaction) {
+    private static String getProteinNetworkCypher(Query query, QueryOptions options, List<String> includeAttrs, boolean complexOrReaction,
+                                                  Map<String, Object> params) {
         StringBuilder cypher = new StringBuilder();
 
         if (!query.containsKey(VariantQueryParam.PANEL.key()) && !query.containsKey(VariantQueryParam.GENE.key())) {
@@ -564,7 +578,7 @@ public class Neo4JVariantQueryParser {
         String param = VariantQueryParam.CHROMOSOME.key();
         if (query.containsKey(param)) {
             List<String> chromosomes = Arrays.asList(query.getString(param).split(","));
-            chromWhere = getConditionString(chromosomes, "v.attr_chromosome", true);
+            chromWhere = getConditionString(chromosomes, "v.attr_chromosome", true, params);
         }
 
         String nexus = complexOrReaction ? COMPLEX : REACTION;
@@ -579,12 +593,12 @@ public class Neo4JVariantQueryParser {
 
         // PanelTail
         if (query.containsKey(VariantQueryParam.PANEL.key())) {
-            cypher.append(parsePanelTail(query));
+            cypher.append(parsePanelTail(query, params));
         }
 
         // GeneTail
         if (query.containsKey(VariantQueryParam.GENE.key())) {
-            cypher.append(parseGeneTail(query));
+            cypher.append(parseGeneTail(query, params));
         }
 
         // With1
@@ -599,7 +613,7 @@ public class Neo4JVariantQueryParser {
         // Where2
         String biotypeValues = query.getString(VariantQueryParam.ANNOT_BIOTYPE.key());
         if (org.apache.commons.lang3.StringUtils.isNotEmpty(biotypeValues)) {
-            cypher.append("WHERE ").append(getConditionString(Arrays.asList(biotypeValues.split(",")), "ct.attr_biotype", false))
+            cypher.append("WHERE ").append(getConditionString(Arrays.asList(biotypeValues.split(",")), "ct.attr_biotype", false, params))
                     .append(chromWhere).append("\n");
         } else if (org.apache.commons.lang3.StringUtils.isNotEmpty(chromWhere)) {
             cypher.append(chromWhere.replace("AND", "WHERE")).append("\n");
@@ -613,7 +627,7 @@ public class Neo4JVariantQueryParser {
         query.remove(VariantQueryParam.GENE.key());
         query.remove(VariantQueryParam.ANNOT_BIOTYPE.key());
         query.remove(VariantQueryParam.CHROMOSOME.key());
-        List<Neo4JQueryParser.CypherStatement> cypherStatements = getCypherStatements(query, options);
+        List<Neo4JQueryParser.CypherStatement> cypherStatements = getCypherStatements(query, options, params);
 
         int i;
         Neo4JQueryParser.CypherStatement st;
@@ -639,7 +653,7 @@ public class Neo4JVariantQueryParser {
         return cypher.toString();
     }
 
-    private static StringBuilder parsePanelTail(Query query) {
+    private static StringBuilder parsePanelTail(Query query, Map<String, Object> params) {
         StringBuilder panelTail = new StringBuilder();
 
         // Match1 tail
@@ -648,11 +662,11 @@ public class Neo4JVariantQueryParser {
 
         // Where1
         panelTail.append("WHERE ").append(getConditionString(Arrays.asList(query.getString(VariantQueryParam.PANEL.key())
-                .split(",")), "p.name", false)).append("\n");
+                .split(",")), "p.name", false, params)).append("\n");
         return panelTail;
     }
 
-    private static StringBuilder parseGeneTail(Query query) {
+    private static StringBuilder parseGeneTail(Query query, Map<String, Object> params) {
         StringBuilder panelTail = new StringBuilder();
 
         // Match1 tail
@@ -661,7 +675,7 @@ public class Neo4JVariantQueryParser {
 
         // Where1
         panelTail.append("WHERE ").append(getConditionString(Arrays.asList(query.getString(VariantQueryParam.GENE.key())
-                .split(",")), "r.id", false)).append("\n");
+                .split(",")), "r.id", false, params)).append("\n");
         return panelTail;
     }
 }
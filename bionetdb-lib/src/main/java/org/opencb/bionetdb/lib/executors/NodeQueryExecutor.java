@@ -101,11 +101,14 @@ public class NodeQueryExecutor {
         List<Node> nodes = new ArrayList<>();
 
         long startTime = System.currentTimeMillis();
-        while (nodeIterator.hasNext()) {
-            if (nodes.size() >= this.QUERY_MAX_RESULTS) {
-                break;
+        // Closing the iterator stops the query if there are more results than the maximum
+        try (NodeIterator iterator = nodeIterator) {
+            while (iterator.hasNext()) {
+                if (nodes.size() >= this.QUERY_MAX_RESULTS) {
+                    break;
+                }
+                nodes.add(iterator.next());
             }
-            nodes.add(nodeIterator.next());
         }
         long stopTime = System.currentTimeMillis();
 
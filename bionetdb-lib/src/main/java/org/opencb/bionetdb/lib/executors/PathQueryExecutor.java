@@ -49,11 +49,14 @@ public class PathQueryExecutor {
         List<NetworkPath> networkPaths = new ArrayList<>();
 
         long startTime = System.currentTimeMillis();
-        while (pathIterator.hasNext()) {
-            if (networkPaths.size() >= this.QUERY_MAX_RESULTS) {
-                break;
+        // Closing the iterator stops the query if there are more results than the maximum
+        try (NetworkPathIterator iterator = pathIterator) {
+            while (iterator.hasNext()) {
+                if (networkPaths.size() >= this.QUERY_MAX_RESULTS) {
+                    break;
+                }
+                networkPaths.add(iterator.next());
             }
-            networkPaths.add(pathIterator.next());
         }
         long stopTime = System.currentTimeMillis();
 
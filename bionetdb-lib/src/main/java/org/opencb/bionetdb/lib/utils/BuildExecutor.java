@@ -0,0 +1,573 @@
+package org.opencb.bionetdb.lib.utils;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.opencb.commons.utils.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the parallel parts of a build: independent build stages and the reading and JSON decoding of the input files.
+ * With one thread everything runs on the caller thread, as the builder always did.
+ */
+public class BuildExecutor implements Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private int numThreads;
+    private int batchSize;
+
+    private ExecutorService stagePool;
+    private ExecutorService workerPool;
+
+    private static Logger logger = LoggerFactory.getLogger(BuildExecutor.class);
+
+    @FunctionalInterface
+    public interface Stage {
+        void run() throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface JsonLineHandler<T> {
+        void handle(String line, T object) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface JsonLineMapper<T, R> {
+        R map(String line, T object) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface PartitionMapper<T, R> {
+        R map(List<T> partition) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface ResultHandler<R> {
+        void handle(R result) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface BatchSink<R> {
+        void add(List<R> batch) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface PartitionHandler<T, R> {
+        void handle(List<T> partition, BatchSink<R> sink) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface BatchHandler<R> {
+        void handle(List<R> batch) throws Exception;
+    }
+
+    public BuildExecutor(int numThreads) {
+        this(numThreads, DEFAULT_BATCH_SIZE);
+    }
+
+    public BuildExecutor(int numThreads, int batchSize) {
+        this.numThreads = Math.max(1, numThreads);
+        this.batchSize = Math.max(1, batchSize);
+
+        if (this.numThreads > 1) {
+            // Daemon threads, so that a failed build never keeps the JVM alive
+            stagePool = Executors.newCachedThreadPool(threadFactory("build-stage-"));
+            workerPool = Executors.newFixedThreadPool(this.numThreads, threadFactory("build-worker-"));
+            logger.info("Build executor using {} threads", this.numThreads);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Runs the given stages, concurrently when more than one thread is available. The stages must not depend on each other.
+     *
+     * @param stages Stages to run
+     * @throws IOException If any stage fails
+     */
+    public void runStages(Stage... stages) throws IOException {
+        if (stagePool == null || stages.length < 2) {
+            for (Stage stage : stages) {
+                runStage(stage);
+            }
+            return;
+        }
+
+        // The first stage runs on the caller thread, the rest on the stage pool
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 1; i < stages.length; i++) {
+            Stage stage = stages[i];
+            futures.add(stagePool.submit(() -> {
+                stage.run();
+                return null;
+            }));
+        }
+        IOException exception = null;
+        try {
+            runStage(stages[0]);
+        } catch (IOException e) {
+            exception = e;
+        }
+        for (Future<Void> future : futures) {
+            try {
+                waitFor(future);
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    public <T> long readJsonLines(Path path, ObjectReader reader, JsonLineHandler<T> handler) throws IOException {
+        return readJsonLines(path, reader, handler, new PipelineStats());
+    }
+
+    /**
+     * Reads a file with one JSON object per line. With several threads this is a three-stage pipeline: a reader thread reads and
+     * decompresses batches of lines, the worker pool decodes them, and the caller thread hands them to the handler in the same
+     * order as in the file, so the handler does not need to be thread-safe. The number of batches in flight is bounded, so a
+     * slow handler stops the reader instead of filling the memory.
+     *
+     * @param path      Input file, it can be gzipped
+     * @param reader    Jackson reader for the line objects, it is shared by the workers
+     * @param handler   Handler for each line and its decoded object
+     * @param stats     Time spent by each stage
+     * @param <T>       Object type
+     * @return          Number of lines read
+     * @throws IOException If the file can not be read or any line can not be decoded or handled
+     */
+    public <T> long readJsonLines(Path path, ObjectReader reader, JsonLineHandler<T> handler, PipelineStats stats)
+            throws IOException {
+        return readJsonLines(path, reader, handler, stats, 0);
+    }
+
+    /**
+     * Same as readJsonLines, but the first lines are skipped without decoding them, e.g. lines already processed by a build
+     * that is resumed. Gzipped files can not seek, so these lines are still read and decompressed.
+     *
+     * @param path      Input file, it can be gzipped
+     * @param reader    Jackson reader for the line objects, it is shared by the workers
+     * @param handler   Handler for each line and its decoded object
+     * @param stats     Time spent by each stage
+     * @param skipLines Number of lines to skip
+     * @param <T>       Object type
+     * @return          Number of lines read, skipped lines are not included
+     * @throws IOException If the file can not be read or any line can not be decoded or handled
+     */
+    public <T> long readJsonLines(Path path, ObjectReader reader, JsonLineHandler<T> handler, PipelineStats stats, long skipLines)
+            throws IOException {
+        return readJsonLines(path, reader, (String line, T object) -> object, handler, stats, skipLines);
+    }
+
+    /**
+     * Same as readJsonLines, but the workers also map each decoded object, e.g. to build its nodes and look up UIDs, so only
+     * what depends on the order, such as assigning UIDs and writing lines, is left to the handler. The mapper must be
+     * thread-safe, the handler still gets the results in file order.
+     *
+     * @param path      Input file, it can be gzipped
+     * @param reader    Jackson reader for the line objects, it is shared by the workers
+     * @param mapper    Mapper for each line and its decoded object, it runs on the workers
+     * @param handler   Handler for each line and its mapped object
+     * @param stats     Time spent by each stage, mapping is included in decoding
+     * @param skipLines Number of lines to skip
+     * @param <T>       Object type
+     * @param <R>       Mapped type
+     * @return          Number of lines read, skipped lines are not included
+     * @throws IOException If the file can not be read or any line can not be decoded, mapped or handled
+     */
+    public <T, R> long readJsonLines(Path path, ObjectReader reader, JsonLineMapper<T, R> mapper, JsonLineHandler<R> handler,
+                                     PipelineStats stats, long skipLines) throws IOException {
+        stats.start(workerPool == null ? 1 : numThreads);
+        try {
+            if (workerPool == null) {
+                readJsonLinesSequential(path, reader, mapper, handler, stats, skipLines);
+            } else {
+                readJsonLinesPipelined(path, reader, mapper, handler, stats, skipLines);
+            }
+        } finally {
+            stats.end();
+        }
+        return stats.getItems();
+    }
+
+    /**
+     * Splits the items in partitions, maps them in the worker pool and hands the results to the handler on the caller thread in
+     * partition order, so the output does not depend on the number of threads. At most 2 * numThreads partitions are mapped
+     * ahead of the handler. With one thread everything runs on the caller thread.
+     *
+     * @param items         Items to map, they are only read
+     * @param partitionSize Number of items per partition
+     * @param mapper        Partition mapper, it must be thread-safe
+     * @param handler       Handler for the results
+     * @param <T>           Item type
+     * @param <R>           Result type
+     * @throws IOException If any partition can not be mapped or handled
+     */
+    public <T, R> void mapPartitions(List<T> items, int partitionSize, PartitionMapper<T, R> mapper, ResultHandler<R> handler)
+            throws IOException {
+        int size = Math.max(1, partitionSize);
+        if (workerPool == null) {
+            for (int i = 0; i < items.size(); i += size) {
+                List<T> partition = items.subList(i, Math.min(i + size, items.size()));
+                handleResult(handler, mapPartition(mapper, partition));
+            }
+            return;
+        }
+
+        Deque<Future<R>> futures = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < items.size(); i += size) {
+                List<T> partition = items.subList(i, Math.min(i + size, items.size()));
+                futures.add(workerPool.submit(() -> mapper.map(partition)));
+                if (futures.size() >= 2 * numThreads) {
+                    handleResult(handler, waitFor(futures.poll()));
+                }
+            }
+            while (!futures.isEmpty()) {
+                handleResult(handler, waitFor(futures.poll()));
+            }
+        } finally {
+            // Stop the workers if the handler failed
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Splits the items in partitions and processes them in the worker pool. Workers add the batches they produce to a bounded
+     * queue that the caller thread drains into the batch handler, so the handler does not need to be thread-safe, but batches
+     * from different partitions are handled in any order. With one thread everything runs on the caller thread, in order.
+     *
+     * @param items         Items to process, they are only read
+     * @param partitionSize Number of items per partition
+     * @param worker        Partition handler, it must be thread-safe
+     * @param handler       Handler for the produced batches
+     * @param <T>           Item type
+     * @param <R>           Result type
+     * @throws IOException If any partition or batch fails
+     */
+    public <T, R> void runPartitions(List<T> items, int partitionSize, PartitionHandler<T, R> worker, BatchHandler<R> handler)
+            throws IOException {
+        int size = Math.max(1, partitionSize);
+        if (workerPool == null) {
+            BatchSink<R> sink = batch -> handleBatch(handler, batch);
+            for (int i = 0; i < items.size(); i += size) {
+                runPartition(worker, items.subList(i, Math.min(i + size, items.size())), sink);
+            }
+            return;
+        }
+
+        // Each worker adds an empty batch when its partition is done, workers give up queueing once the caller thread stops
+        BlockingQueue<List<R>> queue = new ArrayBlockingQueue<>(2 * numThreads);
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            List<T> partition = items.subList(i, Math.min(i + size, items.size()));
+            futures.add(workerPool.submit(() -> {
+                try {
+                    runPartition(worker, partition, batch -> {
+                        if (!batch.isEmpty()) {
+                            offer(queue, batch, stopped);
+                        }
+                    });
+                } finally {
+                    offer(queue, Collections.emptyList(), stopped);
+                }
+                return null;
+            }));
+        }
+
+        try {
+            int pending = futures.size();
+            while (pending > 0) {
+                List<R> batch = take(queue);
+                if (batch.isEmpty()) {
+                    pending--;
+                } else {
+                    handleBatch(handler, batch);
+                }
+            }
+            // Worker errors are reported here
+            for (Future<Void> future : futures) {
+                waitFor(future);
+            }
+        } finally {
+            // Stop the workers if the handler failed
+            stopped.set(true);
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T, R> void readJsonLinesSequential(Path path, ObjectReader reader, JsonLineMapper<T, R> mapper, JsonLineHandler<R> handler,
+                                                PipelineStats stats, long skipLines) throws IOException {
+        try (BufferedReader bufferedReader = FileUtils.newBufferedReader(path)) {
+            skip(bufferedReader, skipLines);
+            List<String> lines = readBatch(bufferedReader, stats);
+            while (!lines.isEmpty()) {
+                List<R> objects = decode(reader, mapper, lines, stats);
+                handleBatch(handler, lines, objects, stats);
+                lines = readBatch(bufferedReader, stats);
+            }
+        }
+    }
+
+    private <T, R> void readJsonLinesPipelined(Path path, ObjectReader reader, JsonLineMapper<T, R> mapper, JsonLineHandler<R> handler,
+                                               PipelineStats stats, long skipLines) throws IOException {
+        // Batches are queued in file order, each one with the future of its decoding, an empty batch marks the end of the file.
+        // The reader is not interrupted, it gives up queueing batches once the caller thread stops taking them.
+        BlockingQueue<DecodedBatch<R>> queue = new ArrayBlockingQueue<>(2 * numThreads);
+        AtomicBoolean stopped = new AtomicBoolean();
+        Future<Void> readerFuture = stagePool.submit(() -> {
+            try (BufferedReader bufferedReader = FileUtils.newBufferedReader(path)) {
+                skip(bufferedReader, skipLines);
+                List<String> lines = readBatch(bufferedReader, stats);
+                while (!lines.isEmpty() && !stopped.get()) {
+                    List<String> batch = lines;
+                    offer(queue, new DecodedBatch<>(batch, workerPool.submit(() -> decode(reader, mapper, batch, stats))), stopped);
+                    lines = readBatch(bufferedReader, stats);
+                }
+            } finally {
+                offer(queue, new DecodedBatch<>(Collections.emptyList(), null), stopped);
+            }
+            return null;
+        });
+
+        try {
+            DecodedBatch<R> batch = take(queue);
+            while (!batch.lines.isEmpty()) {
+                long start = System.nanoTime();
+                List<R> objects = waitFor(batch.objects);
+                stats.addWait(System.nanoTime() - start);
+                handleBatch(handler, batch.lines, objects, stats);
+                batch = take(queue);
+            }
+            // Reading errors are reported here
+            waitFor(readerFuture);
+        } finally {
+            // Stop the reader if the handler failed, and wait for it so that no thread is left blocked on the queue
+            stopped.set(true);
+            awaitQuietly(readerFuture);
+            for (DecodedBatch<R> pending : queue) {
+                if (pending.objects != null) {
+                    pending.objects.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static void skip(BufferedReader bufferedReader, long lines) throws IOException {
+        long skipped = 0;
+        while (skipped < lines && bufferedReader.readLine() != null) {
+            skipped++;
+        }
+    }
+
+    private static class DecodedBatch<T> {
+        private final List<String> lines;
+        private final Future<List<T>> objects;
+
+        DecodedBatch(List<String> lines, Future<List<T>> objects) {
+            this.lines = lines;
+            this.objects = objects;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (stagePool != null) {
+            stagePool.shutdownNow();
+            workerPool.shutdownNow();
+        }
+    }
+
+    private List<String> readBatch(BufferedReader bufferedReader, PipelineStats stats) throws IOException {
+        long start = System.nanoTime();
+        List<String> lines = new ArrayList<>(batchSize);
+        String line = bufferedReader.readLine();
+        while (line != null) {
+            lines.add(line);
+            if (lines.size() >= batchSize) {
+                break;
+            }
+            line = bufferedReader.readLine();
+        }
+        stats.addRead(System.nanoTime() - start);
+        return lines;
+    }
+
+    private static <T, R> List<R> decode(ObjectReader reader, JsonLineMapper<T, R> mapper, List<String> lines, PipelineStats stats)
+            throws IOException {
+        long start = System.nanoTime();
+        List<R> objects = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            T object = reader.readValue(line);
+            try {
+                objects.add(mapper.map(line, object));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+        stats.addDecode(System.nanoTime() - start);
+        return objects;
+    }
+
+    private static <T> void handleBatch(JsonLineHandler<T> handler, List<String> lines, List<T> objects, PipelineStats stats)
+            throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < lines.size(); i++) {
+            handle(handler, lines.get(i), objects.get(i));
+        }
+        stats.addHandle(lines.size(), System.nanoTime() - start);
+    }
+
+    private static <T, R> R mapPartition(PartitionMapper<T, R> mapper, List<T> partition) throws IOException {
+        try {
+            return mapper.map(partition);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <T, R> void runPartition(PartitionHandler<T, R> worker, List<T> partition, BatchSink<R> sink)
+            throws IOException {
+        try {
+            worker.handle(partition, sink);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <R> void handleResult(ResultHandler<R> handler, R result) throws IOException {
+        try {
+            handler.handle(result);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <R> void handleBatch(BatchHandler<R> handler, List<R> batch) throws IOException {
+        try {
+            handler.handle(batch);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Adds the item to the queue, unless the consumer stops before there is room for it, so the producer is never left blocked on
+     * a full queue that nobody drains.
+     */
+    private static <T> void offer(BlockingQueue<T> queue, T item, AtomicBoolean stopped) throws IOException {
+        try {
+            boolean queued = false;
+            while (!queued && !stopped.get()) {
+                queued = queue.offer(item, 100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static void awaitQuietly(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The error is reported by the caller, or it is a consequence of the error that stopped the caller
+            logger.debug("Background task failed: {}", e.getCause().getMessage());
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static void runStage(Stage stage) throws IOException {
+        try {
+            stage.run();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <T> void handle(JsonLineHandler<T> handler, String line, T object) throws IOException {
+        try {
+            handler.handle(line, object);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <T> T waitFor(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+}
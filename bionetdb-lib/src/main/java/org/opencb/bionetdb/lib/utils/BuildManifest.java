@@ -0,0 +1,230 @@
+package org.opencb.bionetdb.lib.utils;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of a build at its last checkpoint, saved as JSON in the output directory: completed stages, UID counter, lines
+ * processed in the input being read, and the lengths of the CSV files and the UID journal. A resumed build skips the
+ * completed stages and truncates the files to these lengths before appending to them.
+ * Incremental builds write their CSV files to a new directory under deltas, the manifest then refers to those files.
+ */
+public class BuildManifest {
+
+    public static final String FILENAME = "build-manifest.json";
+    public static final String DELTAS_DIRNAME = "deltas";
+    public static final String INTERNAL_CONFIG_STAGE = "internal_config";
+
+    private String csvCompression;
+    private String csvPath;
+    private List<String> deltas;
+    private List<String> completedStages;
+    private long uidCounter;
+    private Map<String, Long> inputLines;
+    private Map<String, Long> csvFiles;
+    private Map<String, Long> uidJournal;
+    private Map<String, String> referenceCaches;
+    private long timestamp;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(SerializationFeature.INDENT_OUTPUT, true);
+
+    public BuildManifest() {
+        completedStages = new ArrayList<>();
+        deltas = new ArrayList<>();
+        inputLines = new LinkedHashMap<>();
+        csvFiles = new LinkedHashMap<>();
+        uidJournal = new LinkedHashMap<>();
+    }
+
+    /**
+     * Reads the manifest of the output directory.
+     *
+     * @param outputPath    Output directory
+     * @return              Manifest or null if there is no manifest
+     * @throws IOException  If the manifest can not be read
+     */
+    public static BuildManifest load(Path outputPath) throws IOException {
+        Path path = outputPath.resolve(FILENAME);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        return MAPPER.readValue(path.toFile(), BuildManifest.class);
+    }
+
+    /**
+     * Saves the manifest, it is written to a temporary file and then renamed, so a crash never leaves a partial manifest.
+     *
+     * @param outputPath    Output directory
+     * @throws IOException  If the manifest can not be written
+     */
+    public void save(Path outputPath) throws IOException {
+        timestamp = System.currentTimeMillis();
+        Path tmp = outputPath.resolve(FILENAME + ".tmp");
+        MAPPER.writeValue(tmp.toFile(), this);
+        Files.move(tmp, outputPath.resolve(FILENAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Starts an incremental build, its CSV files are written to a new directory under deltas.
+     *
+     * @return  CSV directory, relative to the output directory
+     */
+    public String startDelta() {
+        csvPath = DELTAS_DIRNAME + "/" + String.format("%04d", deltas.size() + 1);
+        inputLines.clear();
+        csvFiles = new LinkedHashMap<>();
+        return csvPath;
+    }
+
+    /**
+     * Checks whether the build writing the current CSV files, the full build or the last incremental one, was completed.
+     *
+     * @return  True if it was completed
+     */
+    @JsonIgnore
+    public boolean isCsvCompleted() {
+        return isCompleted(INTERNAL_CONFIG_STAGE);
+    }
+
+    public boolean isCompleted(String stage) {
+        return completedStages.contains(getStageName(stage));
+    }
+
+    public BuildManifest addCompletedStage(String stage) {
+        completedStages.add(getStageName(stage));
+        if (csvPath != null && INTERNAL_CONFIG_STAGE.equals(stage)) {
+            deltas.add(csvPath);
+        }
+        return this;
+    }
+
+    private String getStageName(String stage) {
+        // Stages of incremental builds are prefixed by their CSV directory
+        return csvPath == null ? stage : csvPath + ":" + stage;
+    }
+
+    public long getInputLines(String input) {
+        return inputLines.getOrDefault(input, 0L);
+    }
+
+    public BuildManifest setInputLines(String input, long lines) {
+        inputLines.put(input, lines);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("BuildManifest{");
+        sb.append("csvCompression='").append(csvCompression).append('\'');
+        sb.append(", csvPath='").append(csvPath).append('\'');
+        sb.append(", completedStages=").append(completedStages);
+        sb.append(", uidCounter=").append(uidCounter);
+        sb.append(", inputLines=").append(inputLines);
+        sb.append(", timestamp=").append(timestamp);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public String getCsvCompression() {
+        return csvCompression;
+    }
+
+    public BuildManifest setCsvCompression(String csvCompression) {
+        this.csvCompression = csvCompression;
+        return this;
+    }
+
+    public String getCsvPath() {
+        return csvPath;
+    }
+
+    public BuildManifest setCsvPath(String csvPath) {
+        this.csvPath = csvPath;
+        return this;
+    }
+
+    public List<String> getDeltas() {
+        return deltas;
+    }
+
+    public BuildManifest setDeltas(List<String> deltas) {
+        this.deltas = deltas;
+        return this;
+    }
+
+    public List<String> getCompletedStages() {
+        return completedStages;
+    }
+
+    public BuildManifest setCompletedStages(List<String> completedStages) {
+        this.completedStages = completedStages;
+        return this;
+    }
+
+    public long getUidCounter() {
+        return uidCounter;
+    }
+
+    public BuildManifest setUidCounter(long uidCounter) {
+        this.uidCounter = uidCounter;
+        return this;
+    }
+
+    public Map<String, Long> getInputLines() {
+        return inputLines;
+    }
+
+    public BuildManifest setInputLines(Map<String, Long> inputLines) {
+        this.inputLines = inputLines;
+        return this;
+    }
+
+    public Map<String, Long> getCsvFiles() {
+        return csvFiles;
+    }
+
+    public BuildManifest setCsvFiles(Map<String, Long> csvFiles) {
+        this.csvFiles = csvFiles;
+        return this;
+    }
+
+    public Map<String, Long> getUidJournal() {
+        return uidJournal;
+    }
+
+    public BuildManifest setUidJournal(Map<String, Long> uidJournal) {
+        this.uidJournal = uidJournal;
+        return this;
+    }
+
+    public Map<String, String> getReferenceCaches() {
+        return referenceCaches;
+    }
+
+    public BuildManifest setReferenceCaches(Map<String, String> referenceCaches) {
+        this.referenceCaches = referenceCaches;
+        return this;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public BuildManifest setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        return this;
+    }
+}
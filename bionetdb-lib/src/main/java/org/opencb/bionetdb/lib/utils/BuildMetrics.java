@@ -0,0 +1,318 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Wall and CPU time of the build stages and the records written by them, and a progress line printed periodically while the
+ * build runs. CPU time is the CPU time of the whole process, including compression and worker threads, so stages running at
+ * the same time share it; so do their records, i.e. the CSV lines written while they run.
+ */
+public class BuildMetrics {
+
+    public static final long DEFAULT_PROGRESS_INTERVAL = 60;
+
+    /**
+     * Metrics of a stage, wallMillis is -1 while it runs.
+     */
+    public static class Stage {
+        private String name;
+        private long started;
+        private long wallMillis;
+        private long cpuMillis;
+        private long records;
+        private double recordsPerSecond;
+        private boolean skipped;
+
+        public Stage() {
+        }
+
+        public Stage(String name) {
+            this.name = name;
+            this.started = System.currentTimeMillis();
+            this.wallMillis = -1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.1f s, %.1f s CPU, %d records, %.0f records/s%s", name, wallMillis / 1000.0, cpuMillis / 1000.0,
+                    records, recordsPerSecond, skipped ? " (skipped)" : "");
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Stage setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public long getStarted() {
+            return started;
+        }
+
+        public Stage setStarted(long started) {
+            this.started = started;
+            return this;
+        }
+
+        public long getWallMillis() {
+            return wallMillis;
+        }
+
+        public Stage setWallMillis(long wallMillis) {
+            this.wallMillis = wallMillis;
+            return this;
+        }
+
+        public long getCpuMillis() {
+            return cpuMillis;
+        }
+
+        public Stage setCpuMillis(long cpuMillis) {
+            this.cpuMillis = cpuMillis;
+            return this;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public Stage setRecords(long records) {
+            this.records = records;
+            return this;
+        }
+
+        public double getRecordsPerSecond() {
+            return recordsPerSecond;
+        }
+
+        public Stage setRecordsPerSecond(double recordsPerSecond) {
+            this.recordsPerSecond = recordsPerSecond;
+            return this;
+        }
+
+        public boolean isSkipped() {
+            return skipped;
+        }
+
+        public Stage setSkipped(boolean skipped) {
+            this.skipped = skipped;
+            return this;
+        }
+    }
+
+    /**
+     * Running stage, returned by start().
+     */
+    public class Timer {
+        private final Stage stage;
+        private final long startNanos;
+        private final long startCpuNanos;
+        private final long startRecords;
+
+        Timer(Stage stage) {
+            this.stage = stage;
+            this.startNanos = System.nanoTime();
+            this.startCpuNanos = processCpuNanos();
+            this.startRecords = recordCounter.getAsLong();
+        }
+
+        /**
+         * Ends the stage.
+         *
+         * @return  Stage metrics
+         */
+        public Stage stop() {
+            long wallNanos = System.nanoTime() - startNanos;
+            long records = recordCounter.getAsLong() - startRecords;
+            stage.setWallMillis(wallNanos / 1000000)
+                    .setCpuMillis((processCpuNanos() - startCpuNanos) / 1000000)
+                    .setRecords(records)
+                    .setRecordsPerSecond(wallNanos > 0 ? Math.round(records * 1e9 / wallNanos) : 0);
+            running.remove(this);
+            return stage;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+    }
+
+    private final List<Stage> stages;
+    private final Set<Timer> running;
+    private LongSupplier recordCounter;
+    private long progressInterval;
+    private ScheduledExecutorService progressExecutor;
+    private long lastProgressNanos;
+    private long lastProgressRecords;
+
+    private final long started;
+    private final long startNanos;
+    private final long startCpuNanos;
+
+    private static Logger logger = LoggerFactory.getLogger(BuildMetrics.class);
+
+    public BuildMetrics() {
+        this(() -> 0);
+    }
+
+    public BuildMetrics(LongSupplier recordCounter) {
+        this.recordCounter = recordCounter;
+        this.stages = new ArrayList<>();
+        this.running = ConcurrentHashMap.newKeySet();
+        this.progressInterval = DEFAULT_PROGRESS_INTERVAL;
+        this.started = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.startCpuNanos = processCpuNanos();
+    }
+
+    /**
+     * Starts a stage, the same name can be used by several stages, e.g. a stage resumed after a failure.
+     *
+     * @param name  Stage name
+     * @return      Timer to stop when the stage ends
+     */
+    public Timer start(String name) {
+        Stage stage = new Stage(name);
+        synchronized (stages) {
+            stages.add(stage);
+        }
+        Timer timer = new Timer(stage);
+        running.add(timer);
+        return timer;
+    }
+
+    /**
+     * Records a stage that was not run, e.g. completed by a previous run of a resumed build.
+     *
+     * @param name  Stage name
+     */
+    public void skip(String name) {
+        synchronized (stages) {
+            stages.add(new Stage(name).setWallMillis(0).setSkipped(true));
+        }
+    }
+
+    public List<Stage> getStages() {
+        synchronized (stages) {
+            return new ArrayList<>(stages);
+        }
+    }
+
+    public List<String> getRunningStages() {
+        List<String> names = new ArrayList<>();
+        for (Timer timer : running) {
+            names.add(timer.getStage().getName());
+        }
+        names.sort(null);
+        return names;
+    }
+
+    /**
+     * Prints a progress line every progressInterval seconds: elapsed time, running stages, records written and the rate of the
+     * last interval, followed by the given status.
+     *
+     * @param status    Status appended to the line, e.g. cache hit rates
+     */
+    public synchronized void startProgress(Supplier<String> status) {
+        if (progressExecutor != null || progressInterval <= 0) {
+            return;
+        }
+        lastProgressNanos = System.nanoTime();
+        lastProgressRecords = recordCounter.getAsLong();
+        progressExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "build-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        progressExecutor.scheduleAtFixedRate(() -> {
+            try {
+                String line = progressLine() + ", " + status.get();
+                System.out.println(line);
+                logger.info(line);
+            } catch (RuntimeException e) {
+                logger.info("Error printing build progress: {}", e.getMessage());
+            }
+        }, progressInterval, progressInterval, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopProgress() {
+        if (progressExecutor != null) {
+            progressExecutor.shutdownNow();
+            progressExecutor = null;
+        }
+    }
+
+    private synchronized String progressLine() {
+        long now = System.nanoTime();
+        long records = recordCounter.getAsLong();
+        double rate = now > lastProgressNanos ? (records - lastProgressRecords) * 1e9 / (now - lastProgressNanos) : 0;
+        lastProgressNanos = now;
+        lastProgressRecords = records;
+        return String.format("Build progress %d s, stages %s: %d records, %.0f records/s", getWallMillis() / 1000, getRunningStages(),
+                records, rate);
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public long getWallMillis() {
+        return (System.nanoTime() - startNanos) / 1000000;
+    }
+
+    public long getCpuMillis() {
+        return (processCpuNanos() - startCpuNanos) / 1000000;
+    }
+
+    public long getRecords() {
+        return recordCounter.getAsLong();
+    }
+
+    public BuildMetrics setRecordCounter(LongSupplier recordCounter) {
+        this.recordCounter = recordCounter;
+        return this;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * Sets the seconds between progress lines, it must be set before startProgress() is called.
+     *
+     * @param progressInterval  Seconds, 0 to disable the progress line
+     * @return                  This
+     */
+    public BuildMetrics setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+        return this;
+    }
+
+    /**
+     * CPU time used by the JVM, or 0 if the platform does not provide it.
+     *
+     * @return  Nanoseconds
+     */
+    public static long processCpuNanos() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,307 @@
+package org.opencb.bionetdb.lib.utils;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Metrics of a build, saved as JSON next to the CSV files at every checkpoint and when the build ends, so builds of different
+ * releases can be compared: stage times, nodes and relations written, CSV sizes, RocksDB calls and cache hit rates.
+ * Counters cover the current run only, a resumed build does not include the lines written before it was resumed.
+ */
+public class BuildReport {
+
+    public static final String FILENAME = "build-report.json";
+
+    private long started;
+    private long wallMillis;
+    private long cpuMillis;
+    private long records;
+    private double recordsPerSecond;
+    private boolean completed;
+    private List<BuildMetrics.Stage> stages;
+    private Map<String, Long> nodes;
+    private Map<String, Long> relations;
+    private Map<String, CsvFileStats> csvFiles;
+    private Map<String, Number> rocksDb;
+    private Map<String, CacheStats> caches;
+    private Map<String, CacheStats> uidIndex;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(SerializationFeature.INDENT_OUTPUT, true);
+
+    /**
+     * Lines written to a CSV file, their length before compression, and the size of its files on disk.
+     */
+    public static class CsvFileStats {
+        private long rows;
+        private long chars;
+        private long bytes;
+
+        public long getRows() {
+            return rows;
+        }
+
+        public CsvFileStats setRows(long rows) {
+            this.rows = rows;
+            return this;
+        }
+
+        public long getChars() {
+            return chars;
+        }
+
+        public CsvFileStats setChars(long chars) {
+            this.chars = chars;
+            return this;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public CsvFileStats setBytes(long bytes) {
+            this.bytes = bytes;
+            return this;
+        }
+    }
+
+    /**
+     * Lookups of a cache: hits, misses, and the lookups answered by its Bloom filter without reaching RocksDB.
+     */
+    public static class CacheStats {
+        private long entries;
+        private long hits;
+        private long misses;
+        private double hitRate;
+        private long filterSavedLookups;
+        private long filterFalsePositives;
+
+        public CacheStats() {
+        }
+
+        public CacheStats(long hits, long misses) {
+            this.hits = hits;
+            this.misses = misses;
+            this.hitRate = hits + misses > 0 ? Math.round(10000.0 * hits / (hits + misses)) / 10000.0 : 0;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public CacheStats setEntries(long entries) {
+            this.entries = entries;
+            return this;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public CacheStats setHits(long hits) {
+            this.hits = hits;
+            return this;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public CacheStats setMisses(long misses) {
+            this.misses = misses;
+            return this;
+        }
+
+        public double getHitRate() {
+            return hitRate;
+        }
+
+        public CacheStats setHitRate(double hitRate) {
+            this.hitRate = hitRate;
+            return this;
+        }
+
+        public long getFilterSavedLookups() {
+            return filterSavedLookups;
+        }
+
+        public CacheStats setFilterSavedLookups(long filterSavedLookups) {
+            this.filterSavedLookups = filterSavedLookups;
+            return this;
+        }
+
+        public long getFilterFalsePositives() {
+            return filterFalsePositives;
+        }
+
+        public CacheStats setFilterFalsePositives(long filterFalsePositives) {
+            this.filterFalsePositives = filterFalsePositives;
+            return this;
+        }
+    }
+
+    public BuildReport() {
+        stages = new ArrayList<>();
+        nodes = new TreeMap<>();
+        relations = new TreeMap<>();
+        csvFiles = new TreeMap<>();
+        caches = new TreeMap<>();
+        uidIndex = new TreeMap<>();
+    }
+
+    public static BuildReport load(Path path) throws IOException {
+        Path file = path.resolve(FILENAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        return MAPPER.readValue(file.toFile(), BuildReport.class);
+    }
+
+    /**
+     * Saves the report, it is written to a temporary file and then renamed, so readers never see a partial report.
+     *
+     * @param path          Directory of the CSV files
+     * @throws IOException  If the report can not be written
+     */
+    public void save(Path path) throws IOException {
+        Path tmp = path.resolve(FILENAME + ".tmp");
+        MAPPER.writeValue(tmp.toFile(), this);
+        Files.move(tmp, path.resolve(FILENAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public BuildReport setStarted(long started) {
+        this.started = started;
+        return this;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public BuildReport setWallMillis(long wallMillis) {
+        this.wallMillis = wallMillis;
+        return this;
+    }
+
+    public long getCpuMillis() {
+        return cpuMillis;
+    }
+
+    public BuildReport setCpuMillis(long cpuMillis) {
+        this.cpuMillis = cpuMillis;
+        return this;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public BuildReport setRecords(long records) {
+        this.records = records;
+        return this;
+    }
+
+    public double getRecordsPerSecond() {
+        return recordsPerSecond;
+    }
+
+    public BuildReport setRecordsPerSecond(double recordsPerSecond) {
+        this.recordsPerSecond = recordsPerSecond;
+        return this;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public BuildReport setCompleted(boolean completed) {
+        this.completed = completed;
+        return this;
+    }
+
+    public List<BuildMetrics.Stage> getStages() {
+        return stages;
+    }
+
+    public BuildReport setStages(List<BuildMetrics.Stage> stages) {
+        this.stages = stages;
+        return this;
+    }
+
+    public Map<String, Long> getNodes() {
+        return nodes;
+    }
+
+    public BuildReport setNodes(Map<String, Long> nodes) {
+        this.nodes = nodes;
+        return this;
+    }
+
+    public Map<String, Long> getRelations() {
+        return relations;
+    }
+
+    public BuildReport setRelations(Map<String, Long> relations) {
+        this.relations = relations;
+        return this;
+    }
+
+    public Map<String, CsvFileStats> getCsvFiles() {
+        return csvFiles;
+    }
+
+    public BuildReport setCsvFiles(Map<String, CsvFileStats> csvFiles) {
+        this.csvFiles = csvFiles;
+        return this;
+    }
+
+    public Map<String, Number> getRocksDb() {
+        return rocksDb;
+    }
+
+    public BuildReport setRocksDb(Map<String, Number> rocksDb) {
+        this.rocksDb = rocksDb;
+        return this;
+    }
+
+    @JsonIgnore
+    public BuildReport setRocksDbStats(RocksDbManager.Stats stats) {
+        this.rocksDb = MAPPER.convertValue(stats, new TypeReference<Map<String, Number>>() { });
+        return this;
+    }
+
+    public Map<String, CacheStats> getCaches() {
+        return caches;
+    }
+
+    public BuildReport setCaches(Map<String, CacheStats> caches) {
+        this.caches = caches;
+        return this;
+    }
+
+    public Map<String, CacheStats> getUidIndex() {
+        return uidIndex;
+    }
+
+    public BuildReport setUidIndex(Map<String, CacheStats> uidIndex) {
+        this.uidIndex = uidIndex;
+        return this;
+    }
+}
@@ -18,23 +18,27 @@ import org.opencb.biodata.models.metadata.Sample;
 import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.*;
-import org.opencb.biodata.models.variant.metadata.VariantFileMetadata;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
 import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
-import org.opencb.bionetdb.core.models.network.Network;
 import org.opencb.bionetdb.core.models.network.Node;
 import org.opencb.bionetdb.core.models.network.Relation;
 import org.opencb.bionetdb.lib.db.Neo4jBioPaxBuilder;
+import org.opencb.bionetdb.lib.db.Neo4jBioPaxStreamBuilder;
 import org.opencb.bionetdb.lib.utils.cache.GeneCache;
 import org.opencb.bionetdb.lib.utils.cache.ProteinCache;
+import org.opencb.bionetdb.lib.utils.cache.ReferenceCacheStore;
+import org.opencb.bionetdb.lib.utils.csv.CsvCompression;
+import org.opencb.bionetdb.lib.utils.csv.CsvWriterFactory;
+import org.opencb.bionetdb.lib.utils.index.UidIndex;
 import org.opencb.commons.utils.FileUtils;
+import org.rocksdb.RocksDB;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
@@ -61,6 +65,12 @@ public class Builder {
 
     public static final Object CLINICAL_VARIANT_FILENAME = "clinical_variants.full.json";
 
+    // Variants processed between two checkpoints
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 500000;
+
+    // Network node UIDs kept in memory while reading an additional network, about 40 MB, the rest are spilled to disk
+    private static final int NETWORK_UIDS_IN_MEMORY = 1024 * 1024;
+
     private List<String> additionalVariantFiles;
     private List<String> additionalNeworkFiles;
 
@@ -69,9 +79,21 @@ public class Builder {
     private Path outputPath;
     private Map<String, Set<String>> filters;
     private ObjectMapper mapper;
+    private ObjectReader variantReader;
 
     private List<String> sampleIds;
 
+    private int numThreads;
+    private BuildExecutor executor;
+    private CsvCompression csvCompression;
+    private int compressionLevel;
+    private boolean biopaxInMemory;
+    private boolean resume;
+    private boolean incremental;
+    private Path referenceCachePath;
+    private long checkpointInterval;
+    private BuildManifest manifest;
+
     protected static Logger logger;
 
     public Builder(Path inputPath, Path outputPath, Map<String, Set<String>> filters) {
@@ -79,6 +101,10 @@ public class Builder {
         this.inputPath = inputPath;
         this.outputPath = outputPath;
         this.filters = filters;
+        this.numThreads = 1;
+        this.csvCompression = CsvCompression.GZIP;
+        this.compressionLevel = CsvWriterFactory.DEFAULT_COMPRESSION_LEVEL;
+        this.checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
 
         // Prepare CSV object
         csv = new CsvInfo(inputPath, outputPath);
@@ -91,9 +117,32 @@ public class Builder {
         this.logger = LoggerFactory.getLogger(this.getClass().toString());
     }
 
+    /**
+     * Builds the CSV files. Whatever the outcome, the CSV files are closed and the build threads stopped, a failed build can
+     * then be resumed from its last checkpoint.
+     *
+     * @throws IOException  If any input file can not be read or any CSV file can not be written
+     * @throws NoSuchAlgorithmException If the variant IDs can not be computed
+     */
     public void build() throws IOException, NoSuchAlgorithmException {
-        long start;
+        try {
+            if (incremental) {
+                buildIncremental();
+            } else {
+                buildComplete();
+            }
+        } catch (Throwable e) {
+            try {
+                close(false);
+            } catch (Throwable closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+        close(true);
+    }
 
+    private void buildComplete() throws IOException, NoSuchAlgorithmException {
         // Check input files
 
         File ensemblGeneFile = new File(inputPath + "/" + ENSEMBL_GENE_FILENAME);
@@ -131,116 +180,245 @@ public class Builder {
         // Group the variant files before openning the CSV files
         List<File> variantFiles = new ArrayList<>();
         variantFiles.add(clinicalVariantFile);
-        if (CollectionUtils.isNotEmpty(additionalVariantFiles)) {
-            for (String additionalVariantFile : additionalVariantFiles) {
-                File file = Paths.get(additionalVariantFile).toFile();
-                if (file.exists()) {
-                    variantFiles.add(file);
-                } else {
-                    System.out.println("Ignoring variant file " + additionalVariantFile + ": it does not exist.");
+        variantFiles.addAll(existingAdditionalVariantFiles());
+
+        // A resumed build goes on from the last checkpoint of the previous run
+        manifest = resume ? BuildManifest.load(outputPath) : null;
+        if (manifest != null && manifest.getCsvPath() != null) {
+            throw new IOException("The output directory " + outputPath + " contains incremental builds, use the incremental mode");
+        }
+        if (manifest != null) {
+            logger.info("Resuming build: {}", manifest);
+            System.out.println("Resuming build, completed stages: " + manifest.getCompletedStages());
+            if (!csvCompression.name().equals(manifest.getCsvCompression())) {
+                logger.info("Using {} CSV compression of the resumed build", manifest.getCsvCompression());
+                csvCompression = CsvCompression.valueOf(manifest.getCsvCompression());
+            }
+        }
+
+        // Shared gene and protein caches, indexed once by release
+        if (referenceCachePath != null) {
+            List<Path> geneFiles = new ArrayList<>();
+            for (File geneFile : Arrays.asList(ensemblGeneFile, refSeqGeneFile)) {
+                if (geneFile.exists()) {
+                    geneFiles.add(geneFile.toPath());
                 }
             }
+            csv.openReferenceCaches(referenceCachePath, geneFiles, proteinFile.toPath(), manifest == null);
         }
 
-        // Create and open CSV files
-        csv.openCSVFiles(variantFiles);
+        // Create and open CSV files, compression runs on background threads
+        csv.setWriterFactory(new CsvWriterFactory(csvCompression, compressionLevel, numThreads));
+        csv.openUidJournal(manifest);
+        csv.openCSVFiles(variantFiles, manifest == null ? null : manifest.getCsvFiles());
+        if (manifest == null) {
+            manifest = new BuildManifest().setCsvCompression(csvCompression.name()).setReferenceCaches(csv.getReferenceCachePaths());
+            checkpoint();
+        }
 
-        // Processing metadata files
-        System.out.println("Processing metadata files...");
-        logger.info("Processing metadata files...");
-        start = System.currentTimeMillis();
-        processMetadata(variantFiles);
-        logger.info("Metadata processing done in {} s", (System.currentTimeMillis() - start) / 1000);
-        System.out.println("Metadata processing done in " + (System.currentTimeMillis() - start) / 1000 + " s");
+        BuildExecutor executor = getExecutor();
+        Path proteinPath = proteinFile.toPath();
+        csv.getMetrics().startProgress(csv::getProgressStatus);
 
-        // Processing proteins
-        System.out.println("Processing proteins...");
-        logger.info("Processing proteins...");
-        start = System.currentTimeMillis();
-        buildProteins(proteinFile.toPath());
-        logger.info("Protein processing done in {} s", (System.currentTimeMillis() - start) / 1000);
-        System.out.println("Protein processing done in " + (System.currentTimeMillis() - start) / 1000 + " s");
+        // Metadata and proteins are independent stages: they write different nodes and relations
+        runStage("metadata_proteins", () -> executor.runStages(
+                () -> runStep("metadata", "metadata files", () -> processMetadata(variantFiles)),
+                () -> runStep("proteins", "proteins", () -> buildProteins(proteinPath))));
+        csv.completeReferenceCache(ReferenceCacheStore.PROTEINS);
 
-        // Processing genes
+        // Processing genes, transcripts need the protein UIDs
         if (ensemblGeneFile.exists()) {
-            System.out.println("Processing Ensembl genes...");
-            logger.info("Processing Ensembl genes...");
-            start = System.currentTimeMillis();
-            buildGenes(ensemblGeneFile.toPath());
-            logger.info("Ensembl gene processing done in {} s", (System.currentTimeMillis() - start) / 1000);
-            System.out.println("Ensembl gene processing done in " + (System.currentTimeMillis() - start) / 1000 + " s");
+            Path ensemblGenePath = ensemblGeneFile.toPath();
+            runStage("ensembl_genes", () -> runStep("ensembl_genes", "Ensembl genes", () -> buildGenes(ensemblGenePath)));
         }
 
         if (refSeqGeneFile.exists()) {
-            System.out.println("Processing RefSeq genes...");
-            logger.info("Processing RefSeq genes...");
-            start = System.currentTimeMillis();
-            buildGenes(refSeqGeneFile.toPath());
-            logger.info("RefSeq gene processing done in {} s", (System.currentTimeMillis() - start) / 1000);
-            System.out.println("RefSeq gene processing done in " + (System.currentTimeMillis() - start) / 1000 + " s");
-        }
-
-        // Disease panels support
-        System.out.println("Processing disease panels...");
-        logger.info("Processing disease panels...");
-        start = System.currentTimeMillis();
-        buildDiseasePanels(panelFile.toPath());
-        logger.info("Disease panels processing done in {} s", (System.currentTimeMillis() - start) / 1000);
-        System.out.println("Disease panels processing done in " + (System.currentTimeMillis() - start) / 1000 + " s");
-
-        // Procesing BioPAX file
-        System.out.println("Processing Reactome BioPax file...");
-        logger.info("Processing Reactome BioPax file...");
-        BioPAXProcessing biopaxProcessing = new BioPAXProcessing(this);
-        Neo4jBioPaxBuilder bioPAXImporter = new Neo4jBioPaxBuilder(csv, filters, biopaxProcessing);
-        start = System.currentTimeMillis();
-        bioPAXImporter.build(networkFile.toPath());
-        biopaxProcessing.post();
-        System.out.println("Processing Reactome BioPax file done in " + ((System.currentTimeMillis() - start) / 1000) + " s");
-        logger.info("Processing Reactome BioPax file done in {} s", (System.currentTimeMillis() - start) / 1000);
+            Path refSeqGenePath = refSeqGeneFile.toPath();
+            runStage("refseq_genes", () -> runStep("refseq_genes", "RefSeq genes", () -> buildGenes(refSeqGenePath)));
+        }
+        csv.completeReferenceCache(ReferenceCacheStore.GENES);
+
+        // Disease panels and BioPAX both take new UIDs, they run one after the other so that the UIDs do not depend on thread timing
+        runStage("panels", () -> runStep("panels", "disease panels", () -> buildDiseasePanels(panelFile.toPath())));
+        runStage("biopax", () -> runStep("biopax", "Reactome BioPax file", () -> {
+            BioPAXProcessing biopaxProcessing = new BioPAXProcessing(this);
+            if (biopaxInMemory) {
+                new Neo4jBioPaxBuilder(csv, filters, biopaxProcessing).setExecutor(executor).build(networkFile.toPath());
+            } else {
+                new Neo4jBioPaxStreamBuilder(csv, filters, biopaxProcessing).build(networkFile.toPath());
+            }
+            biopaxProcessing.post();
+        }));
 
         // Processing additional variants
-        if (CollectionUtils.isNotEmpty(additionalVariantFiles)) {
-            for (String additionalVariantFile: additionalVariantFiles) {
-                // Read sample IDs
-                sampleIds = readSampleIds(additionalVariantFile);
+        buildAdditionalVariantFiles();
 
-                logger.info("Processing additional variant file {}...", additionalVariantFile);
-                start = System.currentTimeMillis();
-                buildVariants(Paths.get(additionalVariantFile));
-                logger.info("Processing additional variant file done in {} s", (System.currentTimeMillis() - start) / 1000);
+        // Processing clinical variants
+        Path clinicalVariantPath = clinicalVariantFile.toPath();
+        runStage("clinical_variants", () -> runStep("clinical_variants", "clinical variants", () -> buildVariants(clinicalVariantPath)));
+
+        // Processing additional networks
+        buildAdditionalNetworkFiles();
+
+        // Set internal config
+        buildInternalConfig();
+    }
+
+    /**
+     * Incremental build: only the additional variant and network files are processed, genes, proteins and UIDs come from the
+     * previous build in the output directory. New nodes and relations are written to a new directory under deltas, they can
+     * be applied to a running database with the DeltaLoader.
+     *
+     * @throws IOException  If the previous build can not be read or any file can not be processed
+     */
+    private void buildIncremental() throws IOException {
+        manifest = BuildManifest.load(outputPath);
+        boolean resumeDelta = false;
+        if (manifest == null) {
+            // Previous build without manifest: UID counter from its configuration node and UID index from its node files
+            long uidCounter = csv.readUidCounter(outputPath);
+            csv.openUidJournal(null);
+            logger.info("Indexed {} nodes of the previous build", csv.indexNodeFiles(outputPath));
+            csv.setUid(uidCounter);
+            manifest = new BuildManifest().addCompletedStage(BuildManifest.INTERNAL_CONFIG_STAGE);
+        } else {
+            if (!manifest.isCsvCompleted()) {
+                if (!resume || manifest.getCsvPath() == null) {
+                    throw new IOException("The previous build in " + outputPath + " was not completed, it has to be resumed first");
+                }
+                resumeDelta = true;
+                csvCompression = CsvCompression.valueOf(manifest.getCsvCompression());
             }
+            csv.openUidJournal(manifest);
+            if (manifest.getReferenceCaches() != null) {
+                csv.openReferenceCaches(manifest.getReferenceCaches());
+            }
+        }
+        if (!resumeDelta) {
+            manifest.startDelta();
+            manifest.setCsvCompression(csvCompression.name());
         }
 
-        // Processing clinical variants
-        System.out.println("Processing clinical variants...");
-        logger.info("Processing clinical variants...");
-        start = System.currentTimeMillis();
-        buildVariants(clinicalVariantFile.toPath());
-        logger.info("Processing clinical variants done in {} s", (System.currentTimeMillis() - start) / 1000);
-        System.out.println("Processing clinical variants done in " + (System.currentTimeMillis() - start) / 1000 + " s");
+        Path csvPath = outputPath.resolve(manifest.getCsvPath());
+        Files.createDirectories(csvPath);
+        csv.setCsvPath(csvPath);
+        csv.setWriterFactory(new CsvWriterFactory(csvCompression, compressionLevel, numThreads));
+        csv.openCSVFiles(existingAdditionalVariantFiles(), resumeDelta ? manifest.getCsvFiles() : null);
+        checkpoint();
+        logger.info("Incremental build in {}, first UID {}", csvPath, csv.getUid());
+        System.out.println("Incremental build in " + csvPath + ", first UID " + csv.getUid());
+
+        csv.getMetrics().startProgress(csv::getProgressStatus);
+        runStage("metadata", () -> runStep("metadata", "metadata files", () -> processMetadata(existingAdditionalVariantFiles())));
+        buildAdditionalVariantFiles();
+        buildAdditionalNetworkFiles();
+        buildInternalConfig();
+    }
 
-        // Processing additional networks
+    private List<File> existingAdditionalVariantFiles() {
+        List<File> variantFiles = new ArrayList<>();
+        if (CollectionUtils.isNotEmpty(additionalVariantFiles)) {
+            for (String additionalVariantFile : additionalVariantFiles) {
+                File file = Paths.get(additionalVariantFile).toFile();
+                if (file.exists()) {
+                    variantFiles.add(file);
+                } else {
+                    System.out.println("Ignoring variant file " + additionalVariantFile + ": it does not exist.");
+                }
+            }
+        }
+        return variantFiles;
+    }
+
+    private void buildAdditionalVariantFiles() throws IOException {
+        if (CollectionUtils.isNotEmpty(additionalVariantFiles)) {
+            for (String additionalVariantFile: additionalVariantFiles) {
+                runStage("variants:" + additionalVariantFile, () -> runStep("variants:" + additionalVariantFile,
+                        "additional variant file " + additionalVariantFile, () -> {
+                            // Read sample IDs
+                            sampleIds = readSampleIds(additionalVariantFile);
+                            buildVariants(Paths.get(additionalVariantFile));
+                        }));
+            }
+        }
+    }
+
+    private void buildAdditionalNetworkFiles() throws IOException {
         if (CollectionUtils.isNotEmpty(additionalNeworkFiles)) {
             for (String additionalNeworkFile: additionalNeworkFiles) {
-                System.out.println("Processing additional network file " + additionalNeworkFile + "...");
-                logger.info("Processing additional network file {}...", additionalNeworkFile);
-                start = System.currentTimeMillis();
-                processAdditionalNetwork(additionalNeworkFile);
-                logger.info("Processing additional network file done in {} s", (System.currentTimeMillis() - start) / 1000);
-                System.out.println("Processing additional network file done in " + (System.currentTimeMillis() - start) / 1000 + " s");
+                runStage("network:" + additionalNeworkFile, () -> runStep("network:" + additionalNeworkFile,
+                        "additional network file " + additionalNeworkFile, () -> processAdditionalNetwork(additionalNeworkFile)));
             }
         }
+    }
 
-        // Set internal config
-        buildInternalConfigNode();
-        logger.info("Configuration node created.");
-        System.out.println("Configuration node created.");
+    private void buildInternalConfig() throws IOException {
+        runStage(BuildManifest.INTERNAL_CONFIG_STAGE, () -> runStep(BuildManifest.INTERNAL_CONFIG_STAGE, "configuration node",
+                this::buildInternalConfigNode));
+    }
+
+    private void close(boolean completed) throws IOException {
+        try {
+            // Close CSV files
+            csv.close(completed);
+            logger.info("CSV files closed.");
+            System.out.println("CSV files closed.");
+        } finally {
+            if (executor != null) {
+                executor.close();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Runs a stage unless a previous run of the build completed it, and then takes a checkpoint. A stage interrupted by a
+     * failure is run again from the start, its output after the last checkpoint is discarded when resuming.
+     *
+     * @param name          Stage name, as saved in the build manifest
+     * @param stage         Stage
+     * @throws IOException  If the stage fails or the checkpoint can not be written
+     */
+    private void runStage(String name, BuildExecutor.Stage stage) throws IOException {
+        if (manifest.isCompleted(name)) {
+            logger.info("Skipping stage {}, completed by a previous run", name);
+            System.out.println("Skipping stage " + name + ", completed by a previous run");
+            csv.getMetrics().skip(name);
+            return;
+        }
+        getExecutor().runStages(stage);
+        manifest.addCompletedStage(name);
+        manifest.getInputLines().clear();
+        checkpoint();
+    }
+
+    /**
+     * Runs a step of a stage, printing when it starts and ends, and records its time and the records written meanwhile in the
+     * build metrics.
+     *
+     * @param name          Step name, as saved in the build report
+     * @param description   Description printed
+     * @param step          Step
+     * @throws Exception    If the step fails
+     */
+    private void runStep(String name, String description, BuildExecutor.Stage step) throws Exception {
+        System.out.println("Processing " + description + "...");
+        logger.info("Processing {}...", description);
+        BuildMetrics.Timer timer = csv.getMetrics().start(name);
+        try {
+            step.run();
+        } finally {
+            timer.stop();
+        }
+        logger.info("Processing {} done: {}", description, timer.getStage());
+        System.out.println("Processing " + description + " done: " + timer.getStage());
+    }
 
-        // Close CSV files
-        csv.close();
-        logger.info("CSV files closed.");
-        System.out.println("CSV files closed.");
+    private void checkpoint() throws IOException {
+        long start = System.currentTimeMillis();
+        csv.checkpoint(manifest);
+        manifest.save(outputPath);
+        logger.info("Checkpoint saved in {} ms: {}", System.currentTimeMillis() - start, manifest);
     }
 
     //-------------------------------------------------------------------------
@@ -250,23 +428,32 @@ public class Builder {
     public class BioPAXProcessing implements Neo4jBioPaxBuilder.BioPAXProcessing {
         private Builder builder;
 
-        private List<Node> dnaNodes;
-        private List<Node> rnaNodes;
-
+        // DNA and RNA nodes wait for the post-processing as binary records, spilled to disk if needed
+        private NodeSpillQueue dnaNodes;
+        private NodeSpillQueue rnaNodes;
 
         public BioPAXProcessing(Builder builder) {
             this.builder = builder;
-            dnaNodes = new ArrayList<>();
-            rnaNodes = new ArrayList<>();
+            dnaNodes = new NodeSpillQueue(builder.getCsvInfo().getOutputPath(), "biopax_dna");
+            rnaNodes = new NodeSpillQueue(builder.getCsvInfo().getOutputPath(), "biopax_rna");
         }
 
         public void post() throws IOException {
+            try {
+                postDnaNodes();
+                postRnaNodes();
+            } finally {
+                dnaNodes.close();
+                rnaNodes.close();
+            }
+        }
+
+        private void postDnaNodes() throws IOException {
             CsvInfo csv = builder.getCsvInfo();
-            BufferedWriter bwNode, bwRel;
 
             // Post-process DNA nodes
             logger.info("Post-processing {} dna nodes", dnaNodes.size());
-            for (Node node : dnaNodes) {
+            dnaNodes.forEach(node -> {
                 // Write DNA node
                 writeNodeLine(node);
 
@@ -296,11 +483,15 @@ public class Builder {
                         writeRelationLine(IS___DNA___GENE.name(), node.getUid(), geneUid);
                     }
                 }
-            }
+            });
+        }
+
+        private void postRnaNodes() throws IOException {
+            CsvInfo csv = builder.getCsvInfo();
 
             // Post-process RNA nodes
             logger.info("Post-processing {} rna nodes", rnaNodes.size());
-            for (Node node : rnaNodes) {
+            rnaNodes.forEach(node -> {
                 // Write RNA node
                 writeNodeLine(node);
 
@@ -334,16 +525,13 @@ public class Builder {
                         writeRelationLine(IS___RNA___MIRNA.name(), node.getUid(), miRnaUid);
                     }
                 }
-            }
+            });
         }
 
         @Override
         public void processNodes(List<Node> nodes) throws IOException {
-            BufferedWriter bw;
             for (Node node : nodes) {
                 if (CollectionUtils.isNotEmpty(node.getLabels())) {
-                    bw = builder.getCsvInfo().getWriter(node.getLabels().get(0).name());
-
                     if (StringUtils.isNotEmpty(node.getName())) {
 //                        if (node.getLabels().contains(PROTEIN)) {
 //                            // Complete node proteins
@@ -361,15 +549,14 @@ public class Builder {
                     }
 
                     // Write node to CSV file
-                    bw.write(builder.getCsvInfo().nodeLine(node));
-                    bw.newLine();
+                    builder.getCsvInfo().writeNodeLine(node);
                 }
             }
         }
 
         @Override
         public void processRelations(List<Relation> relations) throws IOException {
-            BufferedWriter bw;
+            Writer bw;
             for (Relation relation : relations) {
                 String id = relation.getLabel() + FILENAME_SEPARATOR + relation.getOrigLabel() + FILENAME_SEPARATOR
                         + relation.getDestLabel();
@@ -378,8 +565,7 @@ public class Builder {
                     logger.info("BioPAX relationship not yet supported {}", id);
                 } else {
                     // Write relation to CSV file
-                    bw.write(builder.getCsvInfo().relationLine(relation.getOrigUid(), relation.getDestUid()));
-                    bw.newLine();
+                    builder.getCsvInfo().writeRelationLine(id, relation.getOrigUid(), relation.getDestUid());
                 }
             }
         }
@@ -460,9 +646,7 @@ public class Builder {
             }
 
             // Write gene node into the CSV file
-            BufferedWriter bw = csv.getWriter(GENE.name());
-            bw.write(csv.nodeLine(node));
-            bw.newLine();
+            writeNodeLine(node);
 
             return node.getUid();
         } else {
@@ -826,7 +1010,7 @@ public class Builder {
                 for (Constraint constraint : transcript.getAnnotation().getConstraints()) {
                     String constraintId = constraint.getName() + "." + constraint.getSource() + "." + constraint.getValue();
                     if (!done.contains(constraintId)) {
-                        Long constraintUid = checkConstraint(constraint);
+                        long constraintUid = checkConstraint(constraint);
                         writeRelationLine(ANNOTATION___TRANSCRIPT___TRANSCRIPT_CONSTRAINT_SCORE.name(), uid, constraintUid);
                         done.add(constraintId);
                     }
@@ -909,14 +1093,15 @@ public class Builder {
         return node;
     }
 
-    private Long processVariant(Variant variant) throws IOException, NoSuchAlgorithmException {
+    private long processVariant(Variant variant) throws IOException, NoSuchAlgorithmException {
         Node variantNode = null;
 
-        Long variantUid = csv.getLong(variant.toStringSimple(), VARIANT.name());
-        if (variantUid == null) {
+        String variantId = variant.toStringSimple();
+        long variantUid = csv.findUid(variantId, VARIANT.name());
+        if (variantUid == UidIndex.NO_UID) {
             variantNode = createVariantNode(variant);
             variantUid = variantNode.getUid();
-            csv.putLong(variant.toStringSimple(), VARIANT.name(), variantUid);
+            csv.putLong(variantId, VARIANT.name(), variantUid);
         }
 
         return variantUid;
@@ -982,8 +1167,8 @@ public class Builder {
                         for (SequenceOntologyTerm so : ct.getSequenceOntologyTerms()) {
                             String soId = so.getAccession();
                             if (soId != null) {
-                                Long soUid = csv.getLong(soId, SO_TERM.name());
-                                if (soUid == null) {
+                                long soUid = csv.findUid(soId, SO_TERM.name());
+                                if (soUid == UidIndex.NO_UID) {
                                     Node soNode = new Node(csv.getAndIncUid(), so.getAccession(), so.getName(), SO_TERM);
                                     updateCSVFiles(ctNode.getUid(), soNode, ANNOTATION___VARIANT_CONSEQUENCE_TYPE___SO_TERM
                                             .name());
@@ -1072,8 +1257,8 @@ public class Builder {
                 for (Repeat repeat : annotation.getRepeat()) {
                     if (StringUtils.isNotEmpty(repeat.getId())) {
                         String repeatId = repeat.getId() + "." + repeat.getChromosome() + "." + repeat.getStart() + "." + repeat.getEnd();
-                        Long repeatUid = csv.getLong(repeatId, REPEAT.name());
-                        if (repeatUid == null) {
+                        long repeatUid = csv.findUid(repeatId, REPEAT.name());
+                        if (repeatUid == UidIndex.NO_UID) {
                             node = NodeBuilder.newNode(csv.getAndIncUid(), repeat);
                             writeNodeLine(node);
                             repeatUid = node.getUid();
@@ -1088,8 +1273,8 @@ public class Builder {
             if (CollectionUtils.isNotEmpty(annotation.getCytoband())) {
                 for (Cytoband cytoband : annotation.getCytoband()) {
                     if (StringUtils.isNotEmpty(cytoband.getName())) {
-                        Long cytobandUid = csv.getLong(cytoband.getName(), CYTOBAND.name());
-                        if (cytobandUid == null) {
+                        long cytobandUid = csv.findUid(cytoband.getName(), CYTOBAND.name());
+                        if (cytobandUid == UidIndex.NO_UID) {
                             node = NodeBuilder.newNode(csv.getAndIncUid(), cytoband);
                             writeNodeLine(node);
                             cytobandUid = node.getUid();
@@ -1114,7 +1299,7 @@ public class Builder {
                 for (Constraint constraint : annotation.getGeneConstraints()) {
                     String constraintId = constraint.getName() + "." + constraint.getSource() + "." + constraint.getValue();
                     if (!done.contains(constraintId)) {
-                        Long constraintUid = checkConstraint(constraint);
+                        long constraintUid = checkConstraint(constraint);
                         writeRelationLine(ANNOTATION___VARIANT___TRANSCRIPT_CONSTRAINT_SCORE.name(), varUid, constraintUid);
                         done.add(constraintId);
                     }
@@ -1210,90 +1395,118 @@ public class Builder {
             return;
         }
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        Network network = objectMapper.readValue(addNetworkFile, Network.class);
-
-        Map<Long, Long> nodeUidMap = new HashMap<>();
-
-        // First, nodes
-        if (CollectionUtils.isNotEmpty(network.getNodes())) {
-            for (Node node: network.getNodes()) {
+        // Nodes and relations are streamed. The build UIDs of the network nodes are kept in a primitive index that spills to a
+        // temporary RocksDB, so the heap used does not grow with the network size
+        String type = "network:" + addNetworkFile.getName();
+        RocksDbManager rocksDbManager = csv.getRocksDbManager();
+        Path spillPath = Files.createTempDirectory(csv.getOutputPath(), "network_uids");
+        RocksDB spillRocksDb = rocksDbManager.getDBConnection(spillPath.toString(), true);
+        try {
+            UidIndex nodeUids = new UidIndex(rocksDbManager, spillRocksDb, NETWORK_UIDS_IN_MEMORY);
+            long[] missingNodes = {0};
+            new NetworkStreamReader(csv.getOutputPath()).read(addNetworkFile.toPath(), node -> {
                 if (CollectionUtils.isNotEmpty(node.getLabels())) {
-                    Long uid = csv.getLong(node.getId(), node.getLabels().get(0).name());
-                    if (uid == null) {
+                    long networkUid = node.getUid();
+                    long uid = csv.findUid(node.getId(), node.getLabels().get(0).name());
+                    if (uid == UidIndex.NO_UID) {
                         // Node does not exist in the !
-                        nodeUidMap.put(node.getUid(), csv.getAndIncUid());
+                        uid = csv.getAndIncUid();
                         // Update UID and append node to the CSV file
-                        node.setUid(nodeUidMap.get(node.getUid()));
+                        node.setUid(uid);
                         writeNodeLine(node);
-                    } else {
-                        // Node already exists !!
-                        nodeUidMap.put(node.getUid(), uid);
+                        // Later deltas find it in the UID index, restored from its journal
+                        if (StringUtils.isNotEmpty(node.getId())) {
+                            csv.putLong(node.getId(), node.getLabels().get(0).name(), uid);
+                        }
                     }
+                    nodeUids.put(Long.toString(networkUid), type, uid);
+                }
+            }, relation -> {
+                long origUid = nodeUids.get(Long.toString(relation.getOrigUid()), type);
+                long destUid = nodeUids.get(Long.toString(relation.getDestUid()), type);
+                if (origUid == UidIndex.NO_UID || destUid == UidIndex.NO_UID) {
+                    missingNodes[0]++;
+                    return;
                 }
-            }
-        }
-
-        // Second, relations
-        if (CollectionUtils.isNotEmpty(network.getRelations())) {
-            for (Relation relation: network.getRelations()) {
                 relation.setUid(csv.getAndIncUid());
-                writeRelationLine(relation.getLabel().name(), nodeUidMap.get(relation.getOrigUid()), nodeUidMap.get(relation.getDestUid()));
+                writeRelationLine(relation.getLabel().name(), origUid, destUid);
+            });
+            if (missingNodes[0] > 0) {
+                logger.warn("Skipped {} relations of {} with nodes not found in the network", missingNodes[0], additionalNeworkFilename);
             }
+        } finally {
+            rocksDbManager.close(spillRocksDb);
+            Utils.deleteDirectory(spillPath);
         }
     }
 
-    private Long checkConstraint(Constraint constraint) throws IOException {
-        Long constraintUid = csv.getLong(constraint.getName() + "." + constraint.getValue(), TRANSCRIPT_CONSTRAINT_SCORE.name());
-        if (constraintUid == null) {
+    private long checkConstraint(Constraint constraint) throws IOException {
+        String constraintId = constraint.getName() + "." + constraint.getValue();
+        long constraintUid = csv.findUid(constraintId, TRANSCRIPT_CONSTRAINT_SCORE.name());
+        if (constraintUid == UidIndex.NO_UID) {
             Node node = NodeBuilder.newNode(csv.getAndIncUid(), constraint);
             writeNodeLine(node);
             constraintUid = node.getUid();
-            csv.putLong(constraint.getName() + "." + constraint.getValue(), TRANSCRIPT_CONSTRAINT_SCORE.name(), constraintUid);
+            csv.putLong(constraintId, TRANSCRIPT_CONSTRAINT_SCORE.name(), constraintUid);
         }
         return constraintUid;
     }
 
     private void buildVariants(Path path) throws IOException, NoSuchAlgorithmException {
-        // Reading file line by line, each line a JSON object
-        BufferedReader reader = FileUtils.newBufferedReader(path);
-
-        long counter = 0;
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-        mapper.configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false);
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-//        logger.info("Processing JSON file {}", file.getPath());
-//        reader = FileUtils.newBufferedReader(file.toPath());
-        String line = reader.readLine();
-        while (line != null) {
-            Variant variant = mapper.readValue(line, Variant.class);
+        // Lines processed before the last checkpoint of a resumed build are skipped
+        String input = path.toString();
+        long skipLines = manifest == null ? 0 : manifest.getInputLines(input);
+        if (skipLines > 0) {
+            logger.info("Resuming {} after {} variants", path, skipLines);
+        }
+
+        // Reading file line by line, each line a JSON object, decoded by the executor workers
+        long[] counter = {skipLines};
+        PipelineStats stats = new PipelineStats();
+        getExecutor().readJsonLines(path, getVariantReader(), (String line, Variant variant) -> {
             processVariant(variant);
             if (variant.getStrand().equals("-")) {
                 System.out.println(variant.toStringSimple() + ", " + variant.getStrand());
             }
 
-            // read next line
-            line = reader.readLine();
-            if (++counter % 5000 == 0) {
-                logger.info("Parsing {} variants...", counter);
+            if (++counter[0] % 5000 == 0) {
+                logger.info("Parsing {} variants...", counter[0]);
+            }
+            if (manifest != null && checkpointInterval > 0 && counter[0] % checkpointInterval == 0) {
+                manifest.setInputLines(input, counter[0]);
+                checkpoint();
             }
+        }, stats, skipLines);
+        logger.info("Parsed {} variants from {}. Done!!!", counter[0], path);
+        logger.info(stats.summary("variants"));
+    }
+
+    private ObjectReader getVariantReader() {
+        // Readers are immutable and thread-safe, one is shared by all the variant files
+        if (variantReader == null) {
+            ObjectMapper variantMapper = new ObjectMapper();
+            variantMapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+            variantMapper.configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false);
+            variantMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            variantReader = variantMapper.readerFor(Variant.class);
         }
-        reader.close();
-        logger.info("Parsed {} variants from {}. Done!!!", counter, path);
+        return variantReader;
     }
 
 
     private void writeNodeLine(Node node) throws IOException {
-        BufferedWriter bw = csv.getWriter(node.getLabels().get(0).name());
-        bw.write(csv.nodeLine(node));
-        bw.newLine();
+        csv.writeNodeLine(node);
     }
 
-    private void writeRelationLine(String filename, Long origUid, Long destUid) throws IOException {
-        BufferedWriter bw = csv.getWriter(filename);
-        bw.write(csv.relationLine(origUid, destUid));
-        bw.newLine();
+    private void writeRelationLine(String filename, long origUid, long destUid) throws IOException {
+        csv.writeRelationLine(filename, origUid, destUid);
+    }
+
+    private BuildExecutor getExecutor() {
+        if (executor == null) {
+            executor = new BuildExecutor(numThreads);
+        }
+        return executor;
     }
 
     //-------------------------------------------------------------------------
@@ -1302,121 +1515,7 @@ public class Builder {
     private void processMetadata(List<File> variantFiles) throws IOException {
         // For variant file info, variant sample format and sample nodes we have to read variant metadata files to know which attributes
         // are present
-        if (CollectionUtils.isNotEmpty(variantFiles)) {
-            for (File variantFile : variantFiles) {
-                File metaFile = new File(variantFile.getAbsoluteFile() + ".meta.json");
-                if (!metaFile.exists()) {
-                    metaFile = new File(variantFile.getAbsoluteFile() + ".meta.json.gz");
-                }
-                if (!metaFile.exists()) {
-                    continue;
-                }
-
-                // Read info, format and sample from metadata file
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-                mapper.configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false);
-                mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                VariantMetadata variantMetadata;
-                try {
-                    BufferedReader bufferedReader = FileUtils.newBufferedReader(metaFile.toPath());
-                    String metadata = bufferedReader.readLine();
-                    bufferedReader.close();
-                    variantMetadata = mapper.readValue(metadata, VariantMetadata.class);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    continue;
-                }
-
-                if (CollectionUtils.isNotEmpty(variantMetadata.getStudies())) {
-                    // IMPORTANT: it considers only the first study
-                    VariantStudyMetadata variantStudyMetadata = variantMetadata.getStudies().get(0);
-
-                    // Create individual and family nodes and relations
-                    for (Individual individual : variantStudyMetadata.getIndividuals()) {
-                        Long individualUid = csv.getLong(individual.getId(), INDIVIDUAL.name());
-                        if (individualUid == null) {
-                            // First, check family
-                            Long familyUid = null;
-                            if (StringUtils.isNotEmpty(individual.getFamily())) {
-                                familyUid = csv.getLong(individual.getFamily(), FAMILY.name());
-                                if (familyUid == null) {
-                                    Node familyNode = new Node(csv.getAndIncUid(), individual.getFamily(), individual.getFamily(), FAMILY);
-                                    writeNodeLine(familyNode);
-                                    familyUid = familyNode.getUid();
-                                    csv.putLong(individual.getFamily(), FAMILY.name(), familyUid);
-                                }
-                            }
-
-                            // Create individual node
-                            Node individualNode = NodeBuilder.newNode(csv.getAndIncUid(), individual);
-                            writeNodeLine(individualNode);
-                            if (familyUid != null) {
-                                writeRelationLine(HAS___FAMILY___INDIVIDUAL.name(), individualUid, familyUid);
-                            }
-                            individualUid = individualNode.getUid();
-
-                            // Create sample nodes
-                            if (CollectionUtils.isNotEmpty(individual.getSamples())) {
-                                for (Sample sample : individual.getSamples()) {
-                                    if (StringUtils.isNotEmpty(sample.getId())) {
-                                        Node sampleNode = new Node(csv.getAndIncUid(), sample.getId(), sample.getId(), SAMPLE);
-                                        if (MapUtils.isNotEmpty(sample.getAnnotations())) {
-                                            for (Map.Entry<String, String> entry : sample.getAnnotations().entrySet()) {
-                                                sampleNode.addAttribute(entry.getKey(), entry.getValue());
-                                            }
-                                        }
-                                        writeNodeLine(sampleNode);
-                                        writeRelationLine(HAS___INDIVIDUAL___SAMPLE.name(), individualUid, sampleNode.getUid());
-
-                                        // Save sample UID
-                                        csv.putLong(sample.getId(), SAMPLE.name(), sampleNode.getUid());
-                                    }
-                                }
-                            }
-                            csv.putLong(individual.getId(), INDIVIDUAL.name(), individualUid);
-                        }
-                    }
-
-                    // Second loop, to fulfill mother-father relations
-                    for (Individual individual : variantStudyMetadata.getIndividuals()) {
-                        Long individualUid = csv.getLong(individual.getId(), INDIVIDUAL.name());
-                        if (StringUtils.isNotEmpty(individual.getMother())) {
-                            Long motherUid = csv.getLong(individual.getMother(), INDIVIDUAL.name());
-                            if (motherUid != null) {
-                                writeRelationLine(MOTHER_OF___INDIVIDUAL___INDIVIDUAL.name(), motherUid, individualUid);
-                            }
-                        }
-
-                        if (StringUtils.isNotEmpty(individual.getFather())) {
-                            Long fatherUid = csv.getLong(individual.getFather(), INDIVIDUAL.name());
-                            if (fatherUid != null) {
-                                writeRelationLine(FATHER_OF___INDIVIDUAL___INDIVIDUAL.name(), fatherUid, individualUid);
-                            }
-                        }
-                    }
-
-                    // File management
-                    if (CollectionUtils.isNotEmpty(variantStudyMetadata.getFiles())) {
-                        for (VariantFileMetadata fileMetadata : variantStudyMetadata.getFiles()) {
-                            Long fileUid = csv.getLong(fileMetadata.getId(), VARIANT_FILE.name());
-                            if (fileUid == null) {
-                                Node fileNode = new Node(csv.getAndIncUid(), fileMetadata.getId(), fileMetadata.getPath(), VARIANT_FILE);
-                                if (MapUtils.isNotEmpty(fileMetadata.getAttributes())) {
-                                    for (Map.Entry<String, String> entry : fileMetadata.getAttributes().entrySet()) {
-                                        fileNode.addAttribute(entry.getKey(), entry.getValue());
-                                    }
-                                }
-                                writeNodeLine(fileNode);
-
-                                // Save variant file UID
-                                csv.putLong(fileMetadata.getId(), VARIANT_FILE.name(), fileNode.getUid());
-                            }
-                        }
-                    }
-                }
-            }
-        }
+        new MetadataBuilder(csv, getExecutor()).build(variantFiles);
     }
 
     private void updateCSVFiles(long startUid, Node node, String relationType) throws IOException {
@@ -1428,189 +1527,166 @@ public class Builder {
     }
 
     public void buildGenes(Path genePath) throws IOException {
+        // Genes are read from the cache to create the nodes, only the IDs and miRNA targets are decoded here. A read-only cache is
+        // already indexed
         GeneCache geneCache = csv.getGeneCache();
-        BufferedReader reader = FileUtils.newBufferedReader(genePath);
+        boolean indexing = !geneCache.isReadOnly();
+        if (indexing) {
+            geneCache.startBulkLoad();
+        } else {
+            logger.info("Genes already indexed in {}", geneCache.getObjFilename());
+        }
 
-        String jsonGene = reader.readLine();
-        long geneCounter = 0;
+        long[] geneCounter = {0};
         Set<String> idDone = new HashSet<>();
-        while (jsonGene != null) {
-            Gene gene = geneCache.getObjReader().readValue(jsonGene);
-            String geneId = gene.getId();
-            if (StringUtils.isNotEmpty(geneId)) {
-                // RefSeq genes can have same ID but different names, we take the first one!!
-                if (!idDone.contains(geneId)) {
-                    idDone.add(geneId);
-                    geneCounter++;
-                    if (geneCounter % 5000 == 0) {
-                        logger.info("Building {} genes...", geneCounter);
-                    }
-                    // Save gene
-                    geneCache.saveObject(geneId, jsonGene);
-
-                    // Save xrefs for that gene
-                    geneCache.saveXref(geneId, geneId);
-                    if (StringUtils.isNotEmpty(gene.getName())) {
-                        geneCache.saveXref(gene.getSource() + "." + gene.getName(), geneId);
-                    }
+        // The spill file is removed whatever the outcome of the stage
+        try (SpillBuffer mirnaTargets = new SpillBuffer(csv.getOutputPath(), "mirna_targets")) {
+            getExecutor().readJsonLines(genePath, geneCache.getIdsReader(), (String jsonGene, GeneCache.GeneIds gene) -> {
+                String geneId = gene.getId();
+                if (StringUtils.isNotEmpty(geneId)) {
+                    // RefSeq genes can have same ID but different names, we take the first one!!
+                    if (!idDone.contains(geneId)) {
+                        idDone.add(geneId);
+                        geneCounter[0]++;
+                        if (geneCounter[0] % 5000 == 0) {
+                            logger.info("Building {} genes...", geneCounter[0]);
+                        }
+                        if (indexing) {
+                            // Save gene
+                            geneCache.saveObject(geneId, jsonGene);
+
+                            // Save xrefs for that gene
+                            geneCache.saveXref(geneId, geneId);
+                            if (StringUtils.isNotEmpty(gene.getName())) {
+                                geneCache.saveXref(gene.getSource() + "." + gene.getName(), geneId);
+                            }
+                        }
 
-                    // Process gene to save to CSV file and save gene name, source and uid for post-processing DNA, disease panels...
-                    Long geneUid = processGene(gene.getId(), gene.getName());
-                    if (geneUid != null && StringUtils.isNotEmpty(gene.getName())) {
-                        csv.putLong(gene.getName(), gene.getSource(), geneUid);
+                        // Process gene to save to CSV file and save gene name, source and uid for post-processing DNA, disease
+                        // panels...
+                        Long geneUid = processGene(gene.getId(), gene.getName());
+                        if (geneUid != null && StringUtils.isNotEmpty(gene.getName())) {
+                            csv.putLong(gene.getName(), gene.getSource(), geneUid);
+                        }
                     }
+                    bufferMirnaTargets(mirnaTargets, gene);
+                } else {
+                    String msg = "Skipping gene: missing gene ID from JSON file, gene name = " + gene.getName();
+                    System.out.println(msg);
+                    logger.info(msg);
                 }
-            } else {
-                String msg = "Skipping gene: missing gene ID from JSON file, gene name = " + gene.getName();
-                System.out.println(msg);
-                logger.info(msg);
+            });
+            if (indexing) {
+                geneCache.endBulkLoad();
             }
 
-            // Next line
-            jsonGene = reader.readLine();
-        }
-
-        // Second loop
-        reader.close();
-        reader = FileUtils.newBufferedReader(genePath);
-
-        jsonGene = reader.readLine();
-        while (jsonGene != null) {
-            Gene gene = geneCache.getObjReader().readValue(jsonGene);
-            if (gene.getAnnotation() != null && CollectionUtils.isNotEmpty(gene.getAnnotation().getMirnaTargets())) {
-                Long geneUid = csv.getLong(gene.getId(), GENE.name());
-                if (geneUid != null) {
-                    for (MirnaTarget mirnaTarget : gene.getAnnotation().getMirnaTargets()) {
-                        Long matureUid = csv.getLong(mirnaTarget.getSourceId(), MIRNA_MATURE.name());
-                        if (matureUid != null) {
-                            for (TargetGene target : mirnaTarget.getTargets()) {
-                                Node targetNode = new Node(csv.getAndIncUid(), null, null, MIRNA_TARGET);
-                                targetNode.addAttribute("experiment", target.getExperiment());
-                                targetNode.addAttribute("evidence", target.getEvidence());
-                                targetNode.addAttribute("pubmed", target.getPubmed());
-
-                                // Write mirna target node into the CSV file
-                                writeNodeLine(targetNode);
-
-                                // Write mirna target - gene relation
-                                writeRelationLine(ANNOTATION___GENE___MIRNA_TARGET.name(), geneUid, targetNode.getUid());
-
-                                // And write mirna target - mirna mature relation
-                                writeRelationLine(ANNOTATION___MIRNA_MATURE___MIRNA_TARGET.name(), matureUid, targetNode.getUid());
-                            }
-                        }
+            // miRNA targets are resolved once all the genes are processed, the mature miRNAs are created by the miRNA genes
+            mirnaTargets.replay(in -> {
+                long geneUid = in.readLong();
+                String matureId = SpillBuffer.readString(in);
+                Long matureUid = matureId == null ? null : csv.getLong(matureId, MIRNA_MATURE.name());
+                int numTargets = in.readInt();
+                for (int i = 0; i < numTargets; i++) {
+                    String experiment = SpillBuffer.readString(in);
+                    String evidence = SpillBuffer.readString(in);
+                    String pubmed = SpillBuffer.readString(in);
+                    if (matureUid != null) {
+                        Node targetNode = new Node(csv.getAndIncUid(), null, null, MIRNA_TARGET);
+                        targetNode.addAttribute("experiment", experiment);
+                        targetNode.addAttribute("evidence", evidence);
+                        targetNode.addAttribute("pubmed", pubmed);
+
+                        // Write mirna target node into the CSV file
+                        writeNodeLine(targetNode);
+
+                        // Write mirna target - gene relation
+                        writeRelationLine(ANNOTATION___GENE___MIRNA_TARGET.name(), geneUid, targetNode.getUid());
+
+                        // And write mirna target - mirna mature relation
+                        writeRelationLine(ANNOTATION___MIRNA_MATURE___MIRNA_TARGET.name(), matureUid, targetNode.getUid());
                     }
                 }
-            }
-
-            // Next line
-            jsonGene = reader.readLine();
+            });
+            logger.info("{} miRNA targets resolved{}", mirnaTargets.getRecords(), mirnaTargets.isSpilled() ? " from disk" : "");
         }
 
-        logger.info("Building {} genes. Done.", geneCounter);
+        logger.info("Building {} genes. Done.", geneCounter[0]);
+    }
 
-        reader.close();
+    private void bufferMirnaTargets(SpillBuffer mirnaTargets, GeneCache.GeneIds gene) throws IOException {
+        if (gene.getAnnotation() == null || CollectionUtils.isEmpty(gene.getAnnotation().getMirnaTargets())) {
+            return;
+        }
+        Long geneUid = csv.getLong(gene.getId(), GENE.name());
+        if (geneUid != null) {
+            for (MirnaTarget mirnaTarget : gene.getAnnotation().getMirnaTargets()) {
+                List<TargetGene> targets = mirnaTarget.getTargets() == null ? Collections.emptyList() : mirnaTarget.getTargets();
+                mirnaTargets.append(out -> {
+                    out.writeLong(geneUid);
+                    SpillBuffer.writeString(out, mirnaTarget.getSourceId());
+                    out.writeInt(targets.size());
+                    for (TargetGene target : targets) {
+                        SpillBuffer.writeString(out, target.getExperiment());
+                        SpillBuffer.writeString(out, target.getEvidence());
+                        SpillBuffer.writeString(out, target.getPubmed());
+                    }
+                });
+            }
+        }
     }
 
     public void buildProteins(Path proteinPath) throws IOException {
+        // Proteins are read from the cache to create the nodes. A read-only cache is already indexed, then only the IDs are
+        // decoded here
         ProteinCache proteinCache = csv.getProteinCache();
-        BufferedReader reader = FileUtils.newBufferedReader(proteinPath);
-
-        String jsonProtein = reader.readLine();
-        long proteinCounter = 0;
-        while (jsonProtein != null) {
-            Entry protein = proteinCache.getObjReader().readValue(jsonProtein);
-            if (CollectionUtils.isNotEmpty(protein.getAccession())) {
-                proteinCounter++;
-                if (proteinCounter % 5000 == 0) {
-                    logger.info("Building {} proteins...", proteinCounter);
-                }
-
-                // Save protein in RocksDB
-                String proteinAcc = protein.getAccession().get(0);
-                proteinCache.saveObject(proteinAcc, jsonProtein);
-
-                // Save protein xrefs
-                proteinCache.saveXref(proteinAcc, proteinAcc);
-                if (CollectionUtils.isNotEmpty(protein.getAccession())) {
-                    for (String acc: protein.getAccession()) {
-                        proteinCache.saveXref(acc, proteinAcc);
-                    }
-                }
-
-                if (protein.getProtein() != null && protein.getProtein().getRecommendedName() != null
-                        && CollectionUtils.isNotEmpty(protein.getProtein().getRecommendedName().getShortName())) {
-                    for (EvidencedStringType shortName : protein.getProtein().getRecommendedName().getShortName()) {
-                        if (StringUtils.isNotEmpty(shortName.getValue())) {
-                            proteinCache.saveXref(shortName.getValue(), proteinAcc);
-                        }
-                    }
-                }
-
-                String proteinName = null;
-                if (CollectionUtils.isNotEmpty(protein.getName())) {
-                    proteinName = protein.getName().get(0);
-                    for (String name: protein.getName()) {
-                        proteinCache.saveXref(name, proteinAcc);
-                    }
-                }
-
-                if (CollectionUtils.isNotEmpty(protein.getDbReference())) {
-                    Set<String> done = new HashSet<>();
-                    for (DbReferenceType dbRef: protein.getDbReference()) {
-                        if ("Ensembl".equals(dbRef.getType())) {
-                            for (PropertyType propertyType : dbRef.getProperty()) {
-                                if ("protein sequence ID".equals(propertyType.getType())) {
-                                    String xrefId = dbRef.getType() + "." + propertyType.getValue();
-                                    // In the list, one db reference can be multiple times
-                                    if (!done.contains(xrefId)) {
-                                        proteinCache.saveXref(xrefId, proteinAcc);
-                                        done.add(xrefId);
-                                    }
-                                    break;
-                                }
-                            }
-                        }
-                        String xrefId = dbRef.getType() + "." + dbRef.getId();
-                        // In the list, one db reference can be multiple times
-                        if (!done.contains(xrefId)) {
-                            proteinCache.saveXref(xrefId, proteinAcc);
-                            done.add(xrefId);
-                        }
-                    }
-                }
+        long[] proteinCounter = {0};
+        if (proteinCache.isReadOnly()) {
+            logger.info("Proteins already indexed in {}", proteinCache.getObjFilename());
+            getExecutor().readJsonLines(proteinPath, proteinCache.getIdsReader(), (String jsonProtein, ProteinCache.ProteinIds protein)
+                    -> processProtein(protein.getAccession(), protein.getName(), proteinCounter));
+        } else {
+            proteinCache.startBulkLoad();
+            getExecutor().readJsonLines(proteinPath, proteinCache.getObjReader(), (String jsonProtein, Entry protein) -> {
+                // Save protein and its xrefs in RocksDB
+                proteinCache.index(jsonProtein, protein);
+                processProtein(protein.getAccession(), protein.getName(), proteinCounter);
+            });
+            proteinCache.endBulkLoad();
+        }
+        logger.info("Building {} proteins. Done.", proteinCounter[0]);
+    }
 
-                // And process protein to save to CSV file
-                processProtein(proteinAcc, proteinName);
-            } else {
-                logger.info("Skipping building protein: missing protein accession from JSON file");
+    private void processProtein(List<String> accessions, List<String> names, long[] proteinCounter) throws IOException {
+        if (CollectionUtils.isNotEmpty(accessions)) {
+            proteinCounter[0]++;
+            if (proteinCounter[0] % 5000 == 0) {
+                logger.info("Building {} proteins...", proteinCounter[0]);
             }
 
-            // Next line
-            jsonProtein = reader.readLine();
+            // And process protein to save to CSV file
+            processProtein(accessions.get(0), CollectionUtils.isNotEmpty(names) ? names.get(0) : null);
+        } else {
+            logger.info("Skipping building protein: missing protein accession from JSON file");
         }
-        logger.info("Building {} proteins. Done.", proteinCounter);
-
-        reader.close();
     }
 
     public void buildDiseasePanels(Path panelPath) throws IOException {
         ObjectReader mapperReader = new ObjectMapper().reader(DiseasePanel.class);
 
-        // Get CSV file writers
-        BufferedReader reader = FileUtils.newBufferedReader(panelPath);
-
-        String jsonDiseasePanel = reader.readLine();
-        while (jsonDiseasePanel != null) {
-            DiseasePanel diseasePanel = mapperReader.readValue(jsonDiseasePanel);
+        // Workers decode the panels, build their nodes and look up their genes, UIDs are assigned and lines are written in file
+        // order, so the CSV files do not depend on the number of threads
+        getExecutor().readJsonLines(panelPath, mapperReader, this::newPanelNodes, (String jsonDiseasePanel, PanelNodes panelNodes) -> {
+            DiseasePanel diseasePanel = panelNodes.panel;
 
             // Create disease panel node and save CSV file
-            Node diseasePanelNode = NodeBuilder.newNode(csv.getAndIncUid(), diseasePanel);
+            Node diseasePanelNode = panelNodes.panelNode.setUid(csv.getAndIncUid());
             writeNodeLine(diseasePanelNode);
 
-            for (DiseasePanel.GenePanel panelGene : diseasePanel.getGenes()) {
+            for (int i = 0; i < diseasePanel.getGenes().size(); i++) {
+                DiseasePanel.GenePanel panelGene = diseasePanel.getGenes().get(i);
+
                 // Create panel gene node and save CSV file
-                Node panelGeneNode = NodeBuilder.newNode(csv.getAndIncUid(), panelGene);
+                Node panelGeneNode = panelNodes.geneNodes.get(i).setUid(csv.getAndIncUid());
                 writeNodeLine(panelGeneNode);
 
                 writeRelationLine(HAS___DISEASE_PANEL___PANEL_GENE.name(), diseasePanelNode.getUid(), panelGeneNode.getUid());
@@ -1620,58 +1696,59 @@ public class Builder {
                     logger.warn(msg);
                     System.out.println(msg);
                 } else {
-                    Long ensemblGeneUid = csv.getLong(panelGene.getName(), "ensembl");
-                    if (ensemblGeneUid == null) {
+                    if (panelNodes.ensemblGeneUids[i] == UidIndex.NO_UID) {
                         String msg = "Ensembl gene not found: gene " + panelGene.getName() + " (" + panelGene.getId()
                                 + ") from disease panel " + diseasePanel.getId();
                         logger.warn(msg);
                         System.out.println(msg);
                     } else {
                         // Add relation to CSV file
-                        writeRelationLine(ANNOTATION___GENE___PANEL_GENE.name(), ensemblGeneUid, panelGeneNode.getUid());
+                        writeRelationLine(ANNOTATION___GENE___PANEL_GENE.name(), panelNodes.ensemblGeneUids[i], panelGeneNode.getUid());
                     }
 
-                    Long refSeqGeneUid = csv.getLong(panelGene.getName(), "refseq");
-                    if (refSeqGeneUid == null) {
+                    if (panelNodes.refSeqGeneUids[i] == UidIndex.NO_UID) {
                         String msg = "RefSeq gene not found: gene " + panelGene.getName() + " (" + panelGene.getId()
                                 + ") from disease panel " + diseasePanel.getId();
                         logger.warn(msg);
                         System.out.println(msg);
                     } else {
-                        writeRelationLine(ANNOTATION___GENE___PANEL_GENE.name(), refSeqGeneUid, panelGeneNode.getUid());
+                        writeRelationLine(ANNOTATION___GENE___PANEL_GENE.name(), panelNodes.refSeqGeneUids[i], panelGeneNode.getUid());
                     }
                 }
             }
+        }, new PipelineStats(), 0);
+    }
 
-            // Next panel
-            jsonDiseasePanel = reader.readLine();
+    /**
+     * Nodes of a disease panel and the UIDs of its genes, built by the workers. The nodes get their UIDs when they are written.
+     */
+    private static class PanelNodes {
+        private DiseasePanel panel;
+        private Node panelNode;
+        private List<Node> geneNodes;
+        private long[] ensemblGeneUids;
+        private long[] refSeqGeneUids;
+    }
+
+    private PanelNodes newPanelNodes(String jsonDiseasePanel, DiseasePanel diseasePanel) {
+        PanelNodes panelNodes = new PanelNodes();
+        panelNodes.panel = diseasePanel;
+        panelNodes.panelNode = NodeBuilder.newNode(UidIndex.NO_UID, diseasePanel);
+        panelNodes.geneNodes = new ArrayList<>(diseasePanel.getGenes().size());
+        List<String> geneNames = new ArrayList<>(diseasePanel.getGenes().size());
+        for (DiseasePanel.GenePanel panelGene : diseasePanel.getGenes()) {
+            panelNodes.geneNodes.add(NodeBuilder.newNode(UidIndex.NO_UID, panelGene));
+            geneNames.add(StringUtils.isEmpty(panelGene.getName()) ? "" : panelGene.getName());
         }
+        panelNodes.ensemblGeneUids = csv.findUids(geneNames, "ensembl");
+        panelNodes.refSeqGeneUids = csv.findUids(geneNames, "refseq");
+        return panelNodes;
     }
 
     private List<String> readSampleIds(String variantFile) {
         List<String> sampleIds = new ArrayList<>();
-
-        File metaFile = new File(variantFile + ".meta.json");
-        if (!metaFile.exists()) {
-            metaFile = new File(variantFile + ".meta.json.gz");
-        }
-        if (!metaFile.exists()) {
-            return sampleIds;
-        }
-
-        // Read info, format and sample from metadata file
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-        mapper.configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false);
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        VariantMetadata variantMetadata;
-        try {
-            BufferedReader bufferedReader = FileUtils.newBufferedReader(metaFile.toPath());
-            String metadata = bufferedReader.readLine();
-            bufferedReader.close();
-            variantMetadata = mapper.readValue(metadata, VariantMetadata.class);
-        } catch (IOException e) {
-            e.printStackTrace();
+        VariantMetadata variantMetadata = MetadataBuilder.readVariantMetadata(new File(variantFile));
+        if (variantMetadata == null) {
             return sampleIds;
         }
 
@@ -1713,4 +1790,109 @@ public class Builder {
         this.additionalNeworkFiles = additionalNeworkFiles;
         return this;
     }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public Builder setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+        return this;
+    }
+
+    public CsvCompression getCsvCompression() {
+        return csvCompression;
+    }
+
+    public Builder setCsvCompression(CsvCompression csvCompression) {
+        this.csvCompression = csvCompression;
+        return this;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public Builder setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    public boolean isBiopaxInMemory() {
+        return biopaxInMemory;
+    }
+
+    /**
+     * Loads the whole BioPAX file as a Paxtools model instead of streaming it, the streaming builder needs much less memory.
+     *
+     * @param biopaxInMemory    Use the Paxtools model
+     * @return                  This builder
+     */
+    public Builder setBiopaxInMemory(boolean biopaxInMemory) {
+        this.biopaxInMemory = biopaxInMemory;
+        return this;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * Resumes the build of the output directory from its last checkpoint: completed stages are skipped, the CSV files are
+     * appended and the variant files are read from the last checkpointed line. Without checkpoint, a new build is started.
+     *
+     * @param resume    Resume the previous build
+     * @return          This builder
+     */
+    public Builder setResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Sets how often checkpoints are taken while reading variant files, checkpoints are also taken after every stage.
+     *
+     * @param checkpointInterval    Number of variants between two checkpoints, 0 to take checkpoints only between stages
+     * @return                      This builder
+     */
+    public Builder setCheckpointInterval(long checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Adds the additional variant and network files to the previous build in the output directory, only the new nodes and
+     * relations are written, to a new directory under deltas.
+     *
+     * @param incremental   Incremental build
+     * @return              This builder
+     */
+    public Builder setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    public Path getReferenceCachePath() {
+        return referenceCachePath;
+    }
+
+    /**
+     * Sets the directory of the gene and protein caches shared by builds. The caches of the input files are reused if they
+     * were indexed by a previous build, otherwise this build indexes them there.
+     *
+     * @param referenceCachePath    Reference cache directory
+     * @return                      This builder
+     */
+    public Builder setReferenceCachePath(Path referenceCachePath) {
+        this.referenceCachePath = referenceCachePath;
+        return this;
+    }
 }
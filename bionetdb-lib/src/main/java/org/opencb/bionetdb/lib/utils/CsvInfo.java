@@ -18,18 +18,30 @@ import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
 import org.opencb.biodata.models.variant.metadata.VariantFileMetadata;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
 import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
+import org.opencb.bionetdb.core.config.RocksDbConfiguration;
 import org.opencb.bionetdb.core.models.network.Node;
 import org.opencb.bionetdb.core.models.network.Relation;
+import org.opencb.bionetdb.lib.utils.cache.Cache;
 import org.opencb.bionetdb.lib.utils.cache.GeneCache;
 import org.opencb.bionetdb.lib.utils.cache.ProteinCache;
+import org.opencb.bionetdb.lib.utils.cache.ReferenceCacheStore;
+import org.opencb.bionetdb.lib.utils.csv.CsvFileGroup;
+import org.opencb.bionetdb.lib.utils.csv.CsvLineWriter;
+import org.opencb.bionetdb.lib.utils.csv.CsvWriterFactory;
+import org.opencb.bionetdb.lib.utils.index.BloomFilter;
+import org.opencb.bionetdb.lib.utils.index.UidIndex;
+import org.opencb.bionetdb.lib.utils.index.UidJournal;
 import org.opencb.commons.utils.FileUtils;
 import org.rocksdb.RocksDB;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.opencb.bionetdb.lib.utils.Utils.PREFIX_ATTRIBUTES;
 
@@ -40,19 +52,36 @@ public class CsvInfo {
     public static final String ARRAY_SEPARATOR = "|";
     public static final String MISSING_VALUE = ""; //"-";
 
-    private long uid;
+    public static final String UID_ROCKSDB_DIRNAME = "uidRocksDB";
+    public static final String UID_JOURNAL_DIRNAME = "uidJournal";
+    public static final String GENE_XREF_OVERLAY_DIRNAME = "xref.genes.overlay.rocksdb";
+    public static final String PROTEIN_XREF_OVERLAY_DIRNAME = "xref.proteins.overlay.rocksdb";
+
+    private UidAllocator uidAllocator;
     private Path inputPath;
     private Path outputPath;
+    private Path csvPath;
 
-    private Map<String, BufferedWriter> csvWriters;
+    private Map<String, Writer> csvWriters;
+    private Map<String, CsvLineWriter> lineWriters;
+    private Map<Node.Label, String[]> nodeAttributeArrays;
+    private CsvWriterFactory writerFactory;
     private Map<String, List<String>> nodeAttributes;
     private Set<String> noAttributes;
 
     private RocksDbManager rocksDbManager;
     private RocksDB uidRocksDb;
+    private UidIndex uidIndex;
+    private double bloomFilterFpp;
+    private long shardRows;
+    private long shardBytes;
 
     private GeneCache geneCache;
     private ProteinCache proteinCache;
+    private ReferenceCacheStore referenceCacheStore;
+    private Map<String, ReferenceCacheStore.Release> referenceCacheReleases;
+
+    private BuildMetrics metrics;
 
     private ObjectMapper mapper;
     private ObjectReader geneReader;
@@ -219,18 +248,28 @@ public class CsvInfo {
     }
 
     public CsvInfo(Path inputPath, Path outputPath) {
-        uid = 1;
+        uidAllocator = new UidAllocator(1);
 
         this.inputPath = inputPath;
         this.outputPath = outputPath;
+        this.csvPath = outputPath;
 
         csvWriters = new HashMap<>();
+        lineWriters = new HashMap<>();
+        nodeAttributeArrays = new EnumMap<>(Node.Label.class);
+        writerFactory = new CsvWriterFactory();
 
         rocksDbManager = new RocksDbManager();
-        uidRocksDb = this.rocksDbManager.getDBConnection(outputPath.toString() + "/uidRocksDB", true);
+        uidRocksDb = this.rocksDbManager.getDBConnection(outputPath.resolve(UID_ROCKSDB_DIRNAME).toString(), true);
+        uidIndex = new UidIndex(rocksDbManager, uidRocksDb);
+        bloomFilterFpp = uidIndex.getBloomFilterFpp();
+
+        geneCache = new GeneCache(outputPath, false, rocksDbManager);
+        geneCache.setXrefFilter(bloomFilterFpp);
+        proteinCache = new ProteinCache(outputPath, false, rocksDbManager);
+        proteinCache.setXrefFilter(bloomFilterFpp);
 
-        geneCache = new GeneCache(outputPath);
-        proteinCache = new ProteinCache(outputPath);
+        metrics = new BuildMetrics(this::getLines);
 
         mapper = new ObjectMapper();
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
@@ -243,39 +282,53 @@ public class CsvInfo {
     }
 
     public long getAndIncUid() {
-        long ret = uid;
-        uid++;
-        return ret;
+        return uidAllocator.getAndInc();
     }
 
     public void openCSVFiles(List<File> variantFiles) throws IOException {
-        BufferedWriter bw;
-        String filename;
+        openCSVFiles(variantFiles, null);
+    }
+
+    /**
+     * Opens the CSV files in the CSV directory. A resumed build truncates them to the lengths saved at its last checkpoint and
+     * appends to them, headers are not written again.
+     *
+     * @param variantFiles  Variant files, their metadata define the attributes of some nodes
+     * @param csvLengths    CSV file lengths of the last checkpoint, or null to create new files
+     * @throws IOException  If any file can not be opened
+     */
+    public void openCSVFiles(List<File> variantFiles, Map<String, Long> csvLengths) throws IOException {
+        Writer bw;
 
         noAttributes = createNoAttributes();
         nodeAttributes = createNodeAttributes(variantFiles);
 
         // CSV files for nodes
         for (Node.Label label : Node.Label.values()) {
-            filename = label.toString() + ".csv.gz";
-
-            bw = FileUtils.newBufferedWriter(outputPath.resolve(filename));
+            bw = openWriter(label.toString(), csvLengths);
             csvWriters.put(label.toString(), bw);
 
-            if (CollectionUtils.isNotEmpty(nodeAttributes.get(label.toString()))) {
-                bw.write(getNodeHeaderLine(nodeAttributes.get(label.toString())));
-                bw.newLine();
+            List<String> attrs = nodeAttributes.get(label.toString());
+            if (CollectionUtils.isNotEmpty(attrs)) {
+                if (csvLengths == null) {
+                    bw.write(getNodeHeaderLine(attrs));
+                    bw.write(System.lineSeparator());
+                }
+
+                // UID, ID and name are always the first three attributes
+                nodeAttributeArrays.put(label, attrs.subList(Math.min(3, attrs.size()), attrs.size()).toArray(new String[0]));
             }
         }
 
         // CSV files for relationships
         for (RelationFilename name : RelationFilename.values()) {
-            filename = name.name() + ".csv.gz";
-            bw = FileUtils.newBufferedWriter(outputPath.resolve(filename));
+            bw = openWriter(name.name(), csvLengths);
 
             // Write header
-            bw.write(getRelationHeaderLine(name.name()));
-            bw.newLine();
+            if (csvLengths == null) {
+                bw.write(getRelationHeaderLine(name.name()));
+                bw.write(System.lineSeparator());
+            }
 
             // Add writer to the map
             csvWriters.put(name.name(), bw);
@@ -290,12 +343,13 @@ public class CsvInfo {
                 }
             }
             if (!found) {
-                filename = label.name() + ".csv";
-                bw = FileUtils.newBufferedWriter(outputPath.resolve(filename));
+                bw = openWriter(label.name(), csvLengths);
 
                 // Write header
-                bw.write(getRelationHeaderLine(label.name()));
-                bw.newLine();
+                if (csvLengths == null) {
+                    bw.write(getRelationHeaderLine(label.name()));
+                    bw.write(System.lineSeparator());
+                }
 
                 // Add writer to the map
                 csvWriters.put(label.name(), bw);
@@ -303,26 +357,387 @@ public class CsvInfo {
 
         }
 
+        // Line writers, they serialise the lines into a reusable buffer per file
+        for (Map.Entry<String, Writer> entry : csvWriters.entrySet()) {
+            lineWriters.put(entry.getKey(), new CsvLineWriter(entry.getValue()));
+        }
+    }
+
+    /**
+     * Makes everything written so far durable and saves the CSV file lengths, the UID journal lengths and the UID counter in
+     * the manifest. No lines or UIDs can be written meanwhile.
+     *
+     * @param manifest      Build manifest
+     * @throws IOException  If any file can not be written
+     */
+    public void checkpoint(BuildManifest manifest) throws IOException {
+        manifest.setUidCounter(getUid());
+        manifest.setCsvFiles(writerFactory.checkpoint());
+        manifest.setUidJournal(uidIndex.getJournal() == null ? new TreeMap<>() : uidIndex.getJournal().sync());
+        getBuildReport().save(csvPath);
+    }
+
+    /**
+     * Gets the metrics of the build so far: stage times, lines written by CSV file, RocksDB calls and cache lookups.
+     *
+     * @return  Build report
+     */
+    public BuildReport getBuildReport() {
+        BuildReport report = new BuildReport()
+                .setStarted(metrics.getStarted())
+                .setWallMillis(metrics.getWallMillis())
+                .setCpuMillis(metrics.getCpuMillis())
+                .setRecords(getLines())
+                .setStages(metrics.getStages());
+        report.setRecordsPerSecond(report.getWallMillis() > 0 ? Math.round(report.getRecords() * 1000.0 / report.getWallMillis()) : 0);
+
+        Set<String> labels = new HashSet<>();
+        for (Node.Label label : Node.Label.values()) {
+            labels.add(label.name());
+        }
+        Map<String, Long> bytes = new HashMap<>();
+        for (CsvFileGroup group : CsvFileGroup.list(csvPath)) {
+            long size = 0;
+            for (Path file : group.getFiles()) {
+                size += file.toFile().length();
+            }
+            bytes.put(group.getName(), size);
+        }
+        for (Map.Entry<String, CsvLineWriter> entry : lineWriters.entrySet()) {
+            long lines = entry.getValue().getLines();
+            if (lines > 0) {
+                (labels.contains(entry.getKey()) ? report.getNodes() : report.getRelations()).put(entry.getKey(), lines);
+            }
+            report.getCsvFiles().put(entry.getKey(), new BuildReport.CsvFileStats().setRows(lines).setChars(entry.getValue().getChars())
+                    .setBytes(bytes.getOrDefault(entry.getKey(), 0L)));
+        }
+
+        report.setRocksDbStats(rocksDbManager.getStats());
+        report.getCaches().put("genes", getCacheStats(geneCache));
+        report.getCaches().put("proteins", getCacheStats(proteinCache));
+        for (UidIndex.TypeIndex typeIndex : uidIndex.getTypeIndexes().values()) {
+            BuildReport.CacheStats stats = new BuildReport.CacheStats(typeIndex.getHits() + typeIndex.getSpillHits(),
+                    typeIndex.getMisses()).setEntries(typeIndex.getSize());
+            setFilterStats(stats, typeIndex.getSpillFilter());
+            report.getUidIndex().put(typeIndex.getType(), stats);
+        }
+        return report;
+    }
+
+    private BuildReport.CacheStats getCacheStats(Cache<?> cache) {
+        return setFilterStats(new BuildReport.CacheStats(cache.getLruHits(), cache.getLruMisses()), cache.getXrefFilter());
+    }
+
+    private BuildReport.CacheStats setFilterStats(BuildReport.CacheStats stats, BloomFilter filter) {
+        if (filter != null) {
+            stats.setFilterSavedLookups(filter.getSavedLookups()).setFilterFalsePositives(filter.getFalsePositives());
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the status appended to the build progress line: cache and UID index hit rates and RocksDB calls.
+     *
+     * @return  Status
+     */
+    public String getProgressStatus() {
+        long hits = 0;
+        long misses = 0;
+        for (UidIndex.TypeIndex typeIndex : uidIndex.getTypeIndexes().values()) {
+            hits += typeIndex.getHits() + typeIndex.getSpillHits();
+            misses += typeIndex.getMisses();
+        }
+        return String.format("gene cache %.1f%% hits, protein cache %.1f%% hits, UID index %.1f%% hits, RocksDB %s",
+                hitRate(geneCache.getLruHits(), geneCache.getLruMisses()),
+                hitRate(proteinCache.getLruHits(), proteinCache.getLruMisses()), hitRate(hits, misses), rocksDbManager.getStats());
+    }
+
+    private static double hitRate(long hits, long misses) {
+        return hits + misses > 0 ? 100.0 * hits / (hits + misses) : 0;
+    }
+
+    /**
+     * Gets the lines written to the CSV files by this run, headers excluded.
+     *
+     * @return  Lines
+     */
+    public long getLines() {
+        long lines = 0;
+        for (CsvLineWriter lineWriter : lineWriters.values()) {
+            lines += lineWriter.getLines();
+        }
+        return lines;
+    }
+
+    private Writer openWriter(String name, Map<String, Long> csvLengths) throws IOException {
+        if (csvLengths == null) {
+            return writerFactory.newCsvWriter(csvPath, name, shardRows, shardBytes);
+        }
+        return writerFactory.appendCsvWriter(csvPath, name, csvLengths, shardRows, shardBytes);
+    }
+
+    /**
+     * Opens the UID index and its journal. The spill store may hold entries written after the last checkpoint, so it is
+     * rebuilt from the journal.
+     *
+     * @param manifest      Manifest of the build to resume or extend, or null to start an empty index
+     * @throws IOException  If the journal can not be read
+     */
+    public void openUidJournal(BuildManifest manifest) throws IOException {
+        String uidRocksDbPath = outputPath.resolve(UID_ROCKSDB_DIRNAME).toString();
+        rocksDbManager.close(uidRocksDb);
+        Utils.deleteDirectory(Paths.get(uidRocksDbPath));
+        uidRocksDb = rocksDbManager.getDBConnection(uidRocksDbPath, true);
+        uidIndex = new UidIndex(rocksDbManager, uidRocksDb, uidIndex.getMaxEntriesPerType()).setBloomFilterFpp(bloomFilterFpp);
+
+        UidJournal journal = new UidJournal(outputPath.resolve(UID_JOURNAL_DIRNAME), manifest == null ? null : manifest.getUidJournal());
+        long entries = uidIndex.open(journal);
+        if (manifest != null) {
+            setUid(manifest.getUidCounter());
+            logger.info("UID index rebuilt from {} journal entries, next UID {}", entries, manifest.getUidCounter());
+        }
     }
 
     public void close() throws IOException {
-        List<Map<String, BufferedWriter>> writerMaps = new ArrayList<>();
-        writerMaps.add(csvWriters);
-
-        for (Map<String, BufferedWriter> writerMap : writerMaps) {
-            if (MapUtils.isNotEmpty(writerMap)) {
-                Iterator<BufferedWriter> iterator = writerMap.values().iterator();
-                while (iterator.hasNext()) {
-                    iterator.next().close();
+        close(true);
+    }
+
+    /**
+     * Closes the CSV files, the UID journal, the UID spill store and the caches. A failed build is also closed, so that its threads
+     * and files are released, but its build report is not marked as completed.
+     *
+     * @param completed     Whether the build was completed
+     * @throws IOException  If any file can not be closed
+     */
+    public void close(boolean completed) throws IOException {
+        metrics.stopProgress();
+        try {
+            uidIndex.printStats();
+            geneCache.printStats();
+            proteinCache.printStats();
+
+            List<Map<String, Writer>> writerMaps = new ArrayList<>();
+            writerMaps.add(csvWriters);
+
+            for (Map<String, Writer> writerMap : writerMaps) {
+                if (MapUtils.isNotEmpty(writerMap)) {
+                    Iterator<Writer> iterator = writerMap.values().iterator();
+                    while (iterator.hasNext()) {
+                        iterator.next().close();
+                    }
+                }
+            }
+        } finally {
+            try {
+                writerFactory.close();
+                if (uidIndex.getJournal() != null) {
+                    uidIndex.getJournal().close();
+                }
+                BuildReport report = getBuildReport().setCompleted(completed);
+                report.save(csvPath);
+                logger.info("Build report saved in {}: {} records in {} s, {} s CPU", csvPath.resolve(BuildReport.FILENAME),
+                        report.getRecords(), report.getWallMillis() / 1000, report.getCpuMillis() / 1000);
+            } finally {
+                geneCache.close();
+                proteinCache.close();
+                // The UID spill store is locked while it is open, another build in the same process could not open it
+                if (uidRocksDb != null) {
+                    rocksDbManager.close(uidRocksDb);
+                    uidRocksDb = null;
+                }
+                rocksDbManager.close();
+            }
+        }
+    }
+
+    /**
+     * Uses the shared gene and protein caches of the input files instead of the caches of the output directory. Caches
+     * already indexed by a previous build are opened read-only, the others are indexed by this build.
+     *
+     * @param cacheDir      Reference cache directory
+     * @param geneFiles     Gene files, Ensembl and RefSeq
+     * @param proteinFile   Protein file
+     * @param fresh         Whether this is a new build, then the xrefs added by a previous build are removed
+     * @throws IOException  If the checksums can not be computed or any cache can not be opened
+     */
+    public void openReferenceCaches(Path cacheDir, List<Path> geneFiles, Path proteinFile, boolean fresh) throws IOException {
+        referenceCacheStore = new ReferenceCacheStore(cacheDir);
+        referenceCacheReleases = new HashMap<>();
+        referenceCacheReleases.put(ReferenceCacheStore.GENES, referenceCacheStore.open(ReferenceCacheStore.GENES, geneFiles));
+        referenceCacheReleases.put(ReferenceCacheStore.PROTEINS, referenceCacheStore.open(ReferenceCacheStore.PROTEINS,
+                Collections.singletonList(proteinFile)));
+        for (ReferenceCacheStore.Release release : referenceCacheReleases.values()) {
+            logger.info("{} cache {}: {}", release.getType(), release.getPath(), release.isComplete() ? "reused" : "to be indexed");
+        }
+
+        if (fresh) {
+            Utils.deleteDirectory(outputPath.resolve(GENE_XREF_OVERLAY_DIRNAME));
+            Utils.deleteDirectory(outputPath.resolve(PROTEIN_XREF_OVERLAY_DIRNAME));
+        }
+        ReferenceCacheStore.Release geneRelease = referenceCacheReleases.get(ReferenceCacheStore.GENES);
+        ReferenceCacheStore.Release proteinRelease = referenceCacheReleases.get(ReferenceCacheStore.PROTEINS);
+        openCaches(geneRelease.getPath(), geneRelease.isComplete(), proteinRelease.getPath(), proteinRelease.isComplete());
+    }
+
+    /**
+     * Uses the shared caches of a previous build, i.e. the build extended by an incremental build. They are opened read-only.
+     *
+     * @param cachePaths    Cache directories by type, as returned by getReferenceCachePaths
+     * @throws IOException  If any cache does not exist
+     */
+    public void openReferenceCaches(Map<String, String> cachePaths) throws IOException {
+        for (String cachePath : cachePaths.values()) {
+            if (!Files.exists(Paths.get(cachePath))) {
+                throw new IOException("Reference cache " + cachePath + " not found, it may have been pruned");
+            }
+        }
+        openCaches(Paths.get(cachePaths.get(ReferenceCacheStore.GENES)), true, Paths.get(cachePaths.get(ReferenceCacheStore.PROTEINS)),
+                true);
+    }
+
+    /**
+     * Marks a shared cache indexed by this build as complete, it is reopened read-only.
+     *
+     * @param type          Cache type, ReferenceCacheStore.GENES or ReferenceCacheStore.PROTEINS
+     * @throws IOException  If the cache metadata can not be written
+     */
+    public void completeReferenceCache(String type) throws IOException {
+        if (referenceCacheStore == null || referenceCacheReleases.get(type).isComplete()) {
+            return;
+        }
+        Cache<?> cache = ReferenceCacheStore.GENES.equals(type) ? geneCache : proteinCache;
+        cache.setReadOnly();
+        referenceCacheStore.complete(referenceCacheReleases.get(type));
+        logger.info("{} cache {} complete", type, referenceCacheReleases.get(type).getPath());
+    }
+
+    public Map<String, String> getReferenceCachePaths() {
+        if (referenceCacheReleases == null) {
+            return null;
+        }
+        Map<String, String> cachePaths = new TreeMap<>();
+        for (ReferenceCacheStore.Release release : referenceCacheReleases.values()) {
+            cachePaths.put(release.getType(), release.getPath().toAbsolutePath().toString());
+        }
+        return cachePaths;
+    }
+
+    private void openCaches(Path genePath, boolean geneReadOnly, Path proteinPath, boolean proteinReadOnly) {
+        // The xrefs of the genes and proteins not found in the caches are saved in the output directory
+        geneCache.close();
+        proteinCache.close();
+        geneCache = new GeneCache(genePath, geneReadOnly, rocksDbManager);
+        geneCache.setXrefOverlay(outputPath.resolve(GENE_XREF_OVERLAY_DIRNAME).toString());
+        geneCache.setXrefFilter(bloomFilterFpp);
+        proteinCache = new ProteinCache(proteinPath, proteinReadOnly, rocksDbManager);
+        proteinCache.setXrefOverlay(outputPath.resolve(PROTEIN_XREF_OVERLAY_DIRNAME).toString());
+        proteinCache.setXrefFilter(bloomFilterFpp);
+    }
+
+    /**
+     * Reads the UID counter saved in the configuration node of a previous build.
+     *
+     * @param path          Directory of the previous build
+     * @return              UID counter
+     * @throws IOException  If the configuration node file can not be read
+     */
+    public long readUidCounter(Path path) throws IOException {
+        CsvFileGroup file = CsvFileGroup.get(path, Node.Label.INTERNAL_CONNFIG.name());
+        try (BufferedReader bufferedReader = file.newBufferedReader()) {
+            List<String> header = Arrays.asList(bufferedReader.readLine().split(SEPARATOR, -1));
+            int column = header.indexOf(PREFIX_ATTRIBUTES + "uidCounter");
+            String line = bufferedReader.readLine();
+            if (column < 0 || line == null) {
+                throw new IOException("UID counter not found in " + file.getFiles());
+            }
+            return Long.parseLong(line.split(SEPARATOR, -1)[column]);
+        }
+    }
+
+    /**
+     * Adds the node IDs of the node files of a previous build to the UID index, for builds without UID journal. The UID index
+     * keys are the node IDs for most of the nodes, so this index is an approximation of the previous one.
+     *
+     * @param path          Directory of the previous build
+     * @return              Number of indexed nodes
+     * @throws IOException  If any node file can not be read
+     */
+    public long indexNodeFiles(Path path) throws IOException {
+        Map<String, CsvFileGroup> files = new HashMap<>();
+        for (CsvFileGroup file : CsvFileGroup.list(path)) {
+            files.put(file.getName(), file);
+        }
+
+        long count = 0;
+        for (Node.Label label : Node.Label.values()) {
+            CsvFileGroup file = files.get(label.name());
+            if (file == null) {
+                continue;
+            }
+            try (BufferedReader bufferedReader = file.newBufferedReader()) {
+                String header = bufferedReader.readLine();
+                if (header == null || !header.startsWith("uid:ID(")) {
+                    continue;
+                }
+                String line;
+                while ((line = bufferedReader.readLine()) != null) {
+                    String[] fields = line.split(SEPARATOR, 3);
+                    if (fields.length > 1 && StringUtils.isNotEmpty(fields[1])) {
+                        putLong(fields[1], label.name(), Long.parseLong(fields[0]));
+                        count++;
+                    }
                 }
             }
         }
+        return count;
+    }
+
+    public Path getCsvPath() {
+        return csvPath;
+    }
+
+    /**
+     * Sets the directory of the CSV files, by default the output directory. Incremental builds write their files to a
+     * directory under the previous build.
+     *
+     * @param csvPath   CSV directory
+     * @return          This CsvInfo
+     */
+    public CsvInfo setCsvPath(Path csvPath) {
+        this.csvPath = csvPath;
+        return this;
+    }
+
+    public CsvWriterFactory getWriterFactory() {
+        return writerFactory;
+    }
+
+    public CsvInfo setWriterFactory(CsvWriterFactory writerFactory) {
+        this.writerFactory = writerFactory;
+        return this;
     }
 
-    public BufferedWriter getWriter(String filename) {
+    public Writer getWriter(String filename) {
         return csvWriters.get(filename);
     }
 
+    public void writeNodeLine(Node node) throws IOException {
+        Node.Label label = node.getLabels().get(0);
+        String[] attrs = nodeAttributeArrays.get(label);
+        if (attrs == null && notdefined.add(label.name())) {
+            System.out.println("Attributes not defined for " + label);
+        }
+        getLineWriter(label.name()).writeNode(node, attrs);
+    }
+
+    public void writeRelationLine(String filename, long origUid, long destUid) throws IOException {
+        getLineWriter(filename).writeRelation(origUid, destUid);
+    }
+
+    private CsvLineWriter getLineWriter(String filename) {
+        return lineWriters.get(filename);
+    }
+
     public Long getGeneUid(String xrefId) {
         Long geneUid = null;
         String geneId = geneCache.getPrimaryId(xrefId);
@@ -391,11 +806,34 @@ public class CsvInfo {
     }
 
     public Long getLong(String id, String type) {
-        return rocksDbManager.getLong(id + "." + type, uidRocksDb);
+        long uid = uidIndex.get(id, type);
+        return uid == UidIndex.NO_UID ? null : uid;
+    }
+
+    /**
+     * Allocation-free version of getLong.
+     *
+     * @param id    ID
+     * @param type  Type, usually the node label
+     * @return      UID or UidIndex.NO_UID if not found
+     */
+    public long findUid(String id, String type) {
+        return uidIndex.get(id, type);
+    }
+
+    /**
+     * Looks up several IDs of the same type at once, see UidIndex.get(List, String).
+     *
+     * @param ids   IDs
+     * @param type  Type, usually the node label
+     * @return      UIDs in the same order as the IDs, UidIndex.NO_UID for the IDs not found
+     */
+    public long[] findUids(List<String> ids, String type) {
+        return uidIndex.get(ids, type);
     }
 
     public void putLong(String id, String type, long value) {
-        rocksDbManager.putLong(id + "." + type, value, uidRocksDb);
+        uidIndex.put(id, type, value);
     }
 
 
@@ -443,113 +881,7 @@ public class CsvInfo {
     }
 
     // Debug purposes
-    private Set<String> notdefined = new HashSet<>();
-
-    public String nodeLine(Node node) {
-        List<String> attrs = nodeAttributes.get(node.getLabels().get(0).name());
-        StringBuilder sb = new StringBuilder();
-        if (CollectionUtils.isEmpty(attrs)) {
-            if (!notdefined.contains(node.getLabels().get(0).name())) {
-                System.out.println("Attributes not defined for " + node.getLabels().get(0));
-                notdefined.add(node.getLabels().toString());
-            }
-        } else {
-            sb.append(node.getUid()).append(SEPARATOR);
-            String value = cleanString(node.getId());
-            sb.append(StringUtils.isEmpty(value) ? MISSING_VALUE : value).append(SEPARATOR);
-            value = cleanString(node.getName());
-            sb.append(StringUtils.isEmpty(value) ? MISSING_VALUE : value);
-            for (int i = 3; i < attrs.size(); i++) {
-                value = cleanString(node.getAttributes().getString(attrs.get(i)));
-                sb.append(SEPARATOR).append(StringUtils.isEmpty(value) ? MISSING_VALUE : value);
-            }
-        }
-
-        // Labels
-        sb.append(SEPARATOR).append(node.getLabels().get(0));
-        for (int i = 1; i < node.getLabels().size(); i++) {
-            sb.append(ARRAY_SEPARATOR).append(node.getLabels().get(i));
-        }
-
-
-//        switch (node.getLabels().get(0)) {
-//            case GENE: {
-//                if (node.getAttributes().containsKey("source")) {
-//                    if (node.getAttributes().getString("source").equals("ensembl")) {
-//                        sb.append(labelsLine(ENSEMBL_GENE));
-//                    } else if (node.getAttributes().getString("source").equals("refseq")) {
-//                        sb.append(labelsLine(REFSEQ_GENE));
-//                    } else {
-//                        sb.append(labelsLine(GENE));
-//                    }
-//                } else if (node.getId().startsWith("ENSG")) {
-//                    sb.append(labelsLine(ENSEMBL_GENE));
-//                } else {
-//                    sb.append(labelsLine(GENE));
-//                }
-//                break;
-//            }
-//            case TRANSCRIPT: {
-//                if (node.getAttributes().containsKey("source")) {
-//                    if (node.getAttributes().getString("source").equals("ensembl")) {
-//                        sb.append(labelsLine(ENSEMBL_TRANSCRIPT));
-//                    } else if (node.getAttributes().getString("source").equals("refseq")) {
-//                        sb.append(labelsLine(REFSEQ_TRANSCRIPT));
-//                    } else {
-//                        sb.append(labelsLine(TRANSCRIPT));
-//                    }
-//                } else if (node.getId().startsWith("ENST")) {
-//                    sb.append(labelsLine(ENSEMBL_TRANSCRIPT));
-//                } else {
-//                    sb.append(labelsLine(TRANSCRIPT));
-//                }
-//                break;
-//            }
-//            case EXON: {
-//                if (node.getAttributes().containsKey("source")) {
-//                    if (node.getAttributes().getString("source").equals("ensembl")) {
-//                        sb.append(labelsLine(ENSEMBL_EXON));
-//                    } else if (node.getAttributes().getString("source").equals("refseq")) {
-//                        sb.append(labelsLine(REFSEQ_EXON));
-//                    } else {
-//                        sb.append(labelsLine(EXON));
-//                    }
-//                } else if (node.getId().startsWith("ENSE")) {
-//                    sb.append(labelsLine(ENSEMBL_EXON));
-//                } else {
-//                    sb.append(labelsLine(EXON));
-//                }
-//                break;
-//            }
-//            default:
-//                sb.append(labelsLine(node.getLabels()));
-//                break;
-//        }
-        return sb.toString();
-    }
-
-//    private String labelsLine(Node.Label label) {
-//        StringBuilder sb = new StringBuilder();
-////        sb.append(SEPARATOR).append(label.getLabels().get(0));
-////        for (int i = 1; i < label.getLabels().size(); i++) {
-////            sb.append(ARRAY_SEPARATOR).append(label.getLabels().get(i));
-////        }
-//        return sb.toString();
-//    }
-
-    public String relationLine(long startUid, long endUid) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(startUid).append(SEPARATOR).append(endUid);
-        return sb.toString();
-    }
-
-    private String cleanString(String input) {
-        if (StringUtils.isNotEmpty(input)) {
-            return input.replace("\"", "");
-        } else {
-            return null;
-        }
-    }
+    private Set<String> notdefined = ConcurrentHashMap.newKeySet();
 
     private Map<String, List<String>> createNodeAttributes(List<File> variantFiles) {
         List<String> attrs;
@@ -939,11 +1271,92 @@ public class CsvInfo {
     }
 
     public long getUid() {
-        return uid;
+        return uidAllocator.getHighWaterMark();
     }
 
     public CsvInfo setUid(long uid) {
-        this.uid = uid;
+        uidAllocator.reset(uid);
+        return this;
+    }
+
+    public UidAllocator getUidAllocator() {
+        return uidAllocator;
+    }
+
+    public double getBloomFilterFpp() {
+        return bloomFilterFpp;
+    }
+
+    /**
+     * Sets the false positive rate of the Bloom filters in front of the UID spill store and the xref stores of the gene and
+     * protein caches.
+     *
+     * @param bloomFilterFpp    False positive rate, 0 to disable the filters
+     * @return                  this
+     */
+    public CsvInfo setBloomFilterFpp(double bloomFilterFpp) {
+        if (bloomFilterFpp != this.bloomFilterFpp) {
+            this.bloomFilterFpp = bloomFilterFpp;
+            uidIndex.setBloomFilterFpp(bloomFilterFpp);
+            geneCache.setXrefFilter(bloomFilterFpp);
+            proteinCache.setXrefFilter(bloomFilterFpp);
+        }
+        return this;
+    }
+
+    /**
+     * Reopens the UID index and the gene and protein caches with the given RocksDB profile and shared block cache, it must be
+     * called before the build starts.
+     *
+     * @param rocksDbConfiguration  RocksDB configuration
+     * @return                      This CsvInfo
+     */
+    public CsvInfo setRocksDbConfiguration(RocksDbConfiguration rocksDbConfiguration) {
+        geneCache.close();
+        proteinCache.close();
+        rocksDbManager.close(uidRocksDb);
+        rocksDbManager.close();
+
+        rocksDbManager = new RocksDbManager(rocksDbConfiguration);
+        uidRocksDb = rocksDbManager.getDBConnection(outputPath.resolve(UID_ROCKSDB_DIRNAME).toString(), true);
+        uidIndex = new UidIndex(rocksDbManager, uidRocksDb, uidIndex.getMaxEntriesPerType()).setBloomFilterFpp(bloomFilterFpp);
+        geneCache = new GeneCache(outputPath, false, rocksDbManager);
+        geneCache.setXrefFilter(bloomFilterFpp);
+        proteinCache = new ProteinCache(outputPath, false, rocksDbManager);
+        proteinCache.setXrefFilter(bloomFilterFpp);
+        logger.info("RocksDB profile {}, block cache of {} MB", rocksDbManager.getProfile(),
+                rocksDbManager.getBlockCacheSize() / (1024 * 1024));
+        return this;
+    }
+
+    public long getShardRows() {
+        return shardRows;
+    }
+
+    /**
+     * Splits the CSV files opened from now on into a header file and part files of up to this number of rows.
+     *
+     * @param shardRows Rows by part file, 0 for no limit
+     * @return          this
+     */
+    public CsvInfo setShardRows(long shardRows) {
+        this.shardRows = shardRows;
+        return this;
+    }
+
+    public long getShardBytes() {
+        return shardBytes;
+    }
+
+    /**
+     * Splits the CSV files opened from now on into a header file and part files of up to this number of bytes of text, before
+     * compression.
+     *
+     * @param shardBytes    Bytes by part file, 0 for no limit
+     * @return              this
+     */
+    public CsvInfo setShardBytes(long shardBytes) {
+        this.shardBytes = shardBytes;
         return this;
     }
 
@@ -978,6 +1391,10 @@ public class CsvInfo {
         return uidRocksDb;
     }
 
+    public UidIndex getUidIndex() {
+        return uidIndex;
+    }
+
     public GeneCache getGeneCache() {
         return geneCache;
     }
@@ -985,4 +1402,8 @@ public class CsvInfo {
     public ProteinCache getProteinCache() {
         return proteinCache;
     }
+
+    public BuildMetrics getMetrics() {
+        return metrics;
+    }
 }
@@ -0,0 +1,221 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.apache.commons.lang3.StringUtils;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.opencb.bionetdb.lib.utils.csv.CsvFileGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.opencb.bionetdb.lib.utils.Utils.PREFIX_ATTRIBUTES;
+
+/**
+ * Loads the CSV files of an incremental build into a running database. The offline importer needs an empty database, here
+ * nodes and relations are merged by UID with batched UNWIND queries, one transaction per batch, so a delta can be loaded
+ * again after a failure.
+ */
+public class DeltaLoader {
+
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    private Driver driver;
+    private int batchSize;
+
+    private Set<String> indexedLabels;
+
+    protected static Logger logger;
+
+    public DeltaLoader(Driver driver) {
+        this(driver, DEFAULT_BATCH_SIZE);
+    }
+
+    public DeltaLoader(Driver driver, int batchSize) {
+        this.driver = driver;
+        this.batchSize = batchSize;
+        this.indexedLabels = new LinkedHashSet<>();
+
+        this.logger = LoggerFactory.getLogger(this.getClass().toString());
+    }
+
+    /**
+     * Loads the node files of the delta directory and then its relation files.
+     *
+     * @param deltaPath     Directory of the incremental build
+     * @throws IOException  If any CSV file can not be read
+     */
+    public void load(Path deltaPath) throws IOException {
+        if (!deltaPath.toFile().isDirectory()) {
+            throw new IOException("Delta directory " + deltaPath + " is invalid");
+        }
+
+        List<CsvFileGroup> nodeFiles = new ArrayList<>();
+        List<CsvFileGroup> relationFiles = new ArrayList<>();
+        for (CsvFileGroup file : CsvFileGroup.list(deltaPath)) {
+            if (file.getName().contains("__")) {
+                relationFiles.add(file);
+            } else {
+                nodeFiles.add(file);
+            }
+        }
+
+        long nodes = 0;
+        for (CsvFileGroup file : nodeFiles) {
+            nodes += loadNodes(file);
+        }
+        logger.info("{} nodes merged from {}", nodes, deltaPath);
+
+        long relations = 0;
+        for (CsvFileGroup file : relationFiles) {
+            relations += loadRelations(file);
+        }
+        logger.info("{} relations merged from {}", relations, deltaPath);
+    }
+
+    private long loadNodes(CsvFileGroup file) throws IOException {
+        String mainLabel = file.getName();
+        long count = 0;
+        try (BufferedReader bufferedReader = file.newBufferedReader()) {
+            String line = bufferedReader.readLine();
+            if (line == null || !line.startsWith("uid:ID(")) {
+                return 0;
+            }
+            String[] header = line.split(CsvInfo.SEPARATOR, -1);
+            int labelColumn = Arrays.asList(header).indexOf(":LABEL");
+
+            // Rows are grouped by their labels, labels can not be query parameters
+            Map<String, List<Map<String, Object>>> batches = new HashMap<>();
+            while ((line = bufferedReader.readLine()) != null) {
+                // Blank lines, e.g. at the end of the file, are skipped
+                if (StringUtils.isBlank(line)) {
+                    continue;
+                }
+                String[] fields = line.split(CsvInfo.SEPARATOR, -1);
+                Map<String, Object> row = new HashMap<>();
+                row.put("uid", Long.parseLong(fields[0]));
+                for (int i = 1; i < header.length && i < fields.length; i++) {
+                    // Empty values are skipped, as the offline importer does, and attributes are typed as when inserting a network
+                    if (i != labelColumn && StringUtils.isNotEmpty(fields[i])) {
+                        row.put(header[i], header[i].startsWith(PREFIX_ATTRIBUTES) ? Utils.getAttributeValue(fields[i]) : fields[i]);
+                    }
+                }
+                String labels = labelColumn < 0 || labelColumn >= fields.length || StringUtils.isEmpty(fields[labelColumn])
+                        ? mainLabel
+                        : fields[labelColumn];
+
+                List<Map<String, Object>> batch = batches.computeIfAbsent(labels, k -> new ArrayList<>());
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    mergeNodes(mainLabel, labels, batch);
+                    count += batch.size();
+                    batch.clear();
+                }
+            }
+            for (Map.Entry<String, List<Map<String, Object>>> entry : batches.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    mergeNodes(mainLabel, entry.getKey(), entry.getValue());
+                    count += entry.getValue().size();
+                }
+            }
+        }
+        logger.info("{} nodes merged from {}", count, file.getFiles());
+        return count;
+    }
+
+    private long loadRelations(CsvFileGroup file) throws IOException {
+        // Filenames are TYPE___SOURCE___DEST or SOURCE__DEST, as for the offline importer
+        String name = file.getName();
+        String type;
+        String[] labels;
+        if (name.contains(CsvInfo.FILENAME_SEPARATOR)) {
+            String[] fields = name.split(CsvInfo.FILENAME_SEPARATOR);
+            type = fields[0];
+            labels = new String[]{fields[1], fields[2]};
+        } else {
+            type = name;
+            labels = name.split("__");
+        }
+        String query = "UNWIND $rows AS row MATCH (s:" + labels[0] + " {uid: row.s}) MATCH (d:" + labels[1] + " {uid: row.d})"
+                + " MERGE (s)-[:" + type + "]->(d)";
+        createIndex(labels[0]);
+        createIndex(labels[1]);
+
+        long count = 0;
+        try (BufferedReader bufferedReader = file.newBufferedReader()) {
+            // Skip header
+            String line = bufferedReader.readLine();
+            List<Map<String, Object>> batch = new ArrayList<>();
+            while ((line = bufferedReader.readLine()) != null) {
+                if (StringUtils.isBlank(line)) {
+                    continue;
+                }
+                String[] fields = line.split(CsvInfo.SEPARATOR, -1);
+                Map<String, Object> row = new HashMap<>();
+                row.put("s", Long.parseLong(fields[0]));
+                row.put("d", Long.parseLong(fields[1]));
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    write(query, batch);
+                    count += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(query, batch);
+                count += batch.size();
+            }
+        }
+        if (count > 0) {
+            logger.info("{} relations merged from {}", count, file.getFiles());
+        }
+        return count;
+    }
+
+    private void mergeNodes(String mainLabel, String labels, List<Map<String, Object>> rows) {
+        createIndex(mainLabel);
+        StringBuilder query = new StringBuilder("UNWIND $rows AS row MERGE (n:").append(mainLabel).append(" {uid: row.uid})")
+                .append(" SET n += row");
+        for (String label : labels.split("\\" + CsvInfo.ARRAY_SEPARATOR)) {
+            if (!label.equals(mainLabel)) {
+                query.append(" SET n:").append(label);
+            }
+        }
+        write(query.toString(), rows);
+    }
+
+    private void createIndex(String label) {
+        // MERGE and MATCH by UID need the index. neo4j-admin import does not create it, Neo4JNetworkDBAdaptor.index() does after
+        // an offline import, but a delta may be loaded before that or bring new labels
+        if (indexedLabels.add(label)) {
+            try (Session session = driver.session()) {
+                session.writeTransaction(tx -> tx.run("CREATE INDEX IF NOT EXISTS FOR (n:" + label + ") ON (n.uid)").consume());
+            }
+        }
+    }
+
+    private void write(String query, List<Map<String, Object>> rows) {
+        try (Session session = driver.session()) {
+            session.writeTransaction(tx -> tx.run(query, Collections.singletonMap("rows", rows)).consume());
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public DeltaLoader setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+}
@@ -2,19 +2,18 @@ package org.opencb.bionetdb.lib.utils;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.opencb.bionetdb.lib.utils.csv.CsvFileGroup;
 import org.opencb.commons.exec.Command;
-import org.opencb.commons.utils.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class Importer {
 
@@ -66,38 +65,29 @@ public class Importer {
                 + " --array-delimiter=\"" + StringEscapeUtils.escapeJava(CsvInfo.ARRAY_SEPARATOR) + "\""
                 + " --skip-duplicate-nodes");
 
-        // Retrieving files from the input directory
-        List<File> relationFiles = new ArrayList<>();
-        for (File file : inputPath.toFile().listFiles()) {
-            if (file.isFile()) {
-                String filename = file.getName();
-                if (filename.endsWith(".csv.gz")) {
-                    if (filename.contains("__")) {
-                        relationFiles.add(file);
-                    } else {
-                        if (!isEmptyCsvFile(file)) {
-                            name = getNodeName(file);
-                            validNodes.add(name);
-                            sb.append(" --nodes=").append(file.getAbsolutePath());
-                            //sb.append(" --nodes=").append(name).append("=").append(file.getAbsolutePath());
-                        } else {
-                            logger.info("Skipping node file {} to import: file empty", file.getAbsolutePath());
-                        }
-                    }
+        // Retrieving files from the input directory, sharded files are passed as the header file followed by the parts
+        List<CsvFileGroup> relationFiles = new ArrayList<>();
+        for (CsvFileGroup file : CsvFileGroup.list(inputPath)) {
+            if (file.getName().contains("__")) {
+                relationFiles.add(file);
+            } else {
+                if (!isEmptyCsvFile(file)) {
+                    validNodes.add(file.getName());
+                    sb.append(" --nodes=").append(getFileList(file));
                 } else {
-                    logger.info("Skipping node file {} to import: no CSV format", file.getAbsolutePath());
+                    logger.info("Skipping node file {} to import: file empty", file.getFiles());
                 }
             }
         }
 
         // Now, relationhsip files
-        for (File file : relationFiles) {
+        for (CsvFileGroup file : relationFiles) {
             System.out.println("checking file: " + file.getName());
             if (isValidRelationCsvFile(file, validNodes)) {
                 name = getRelationName(file);
-                sb.append(" --relationships=").append(name).append("=").append(file.getAbsolutePath());
+                sb.append(" --relationships=").append(name).append("=").append(getFileList(file));
             } else {
-                logger.info("Skipping relationship file {} to import: invalid file", file.getAbsolutePath());
+                logger.info("Skipping relationship file {} to import: invalid file", file.getFiles());
             }
         }
 
@@ -129,60 +119,42 @@ public class Importer {
         return false;
     }
 
-    private boolean isEmptyCsvFile(File file) {
-        boolean isEmpty = false;
+    private boolean isEmptyCsvFile(CsvFileGroup file) {
+        boolean isEmpty;
         try {
-            BufferedReader bufferedReader = FileUtils.newBufferedReader(file.toPath());
-            int counter = 0;
-            String line = bufferedReader.readLine();
-            while (line != null) {
-                counter++;
-                if (counter > 1) {
-                    break;
-                }
-                line = bufferedReader.readLine();
-            }
-            isEmpty = (counter < 2);
+            isEmpty = file.isEmpty();
         } catch (IOException e) {
-            logger.warn("Something wrong checking CSV file {}, skipping it!", file.toPath());
+            logger.warn("Something wrong checking CSV file {}, skipping it!", file.getFiles());
             isEmpty = false;
         }
         return isEmpty;
     }
 
-    private boolean isValidRelationCsvFile(File file, Set<String> nodeNames) {
+    private boolean isValidRelationCsvFile(CsvFileGroup file, Set<String> nodeNames) {
         boolean isValid = false;
         if (!isEmptyCsvFile(file)) {
             String name = file.getName();
             if (name.contains(CsvInfo.FILENAME_SEPARATOR)) {
-                String[] fields = removeCsvExt(name).split(CsvInfo.FILENAME_SEPARATOR);
+                String[] fields = name.split(CsvInfo.FILENAME_SEPARATOR);
                 isValid = nodeNames.contains(fields[1]) && nodeNames.contains(fields[2]);
             } else {
-                String[] fields = removeCsvExt(name).split("__");
+                String[] fields = name.split("__");
                 isValid = nodeNames.contains(fields[0]) && nodeNames.contains(fields[1]);
             }
         }
         return isValid;
     }
 
-    private String getNodeName(File file) {
-        return removeCsvExt(file.getName());
-    }
-
-    private String getRelationName(File file) {
+    private String getRelationName(CsvFileGroup file) {
         String name = file.getName();
         if (name.contains(CsvInfo.FILENAME_SEPARATOR)) {
             return name.split(CsvInfo.FILENAME_SEPARATOR)[0];
         } else {
-            return removeCsvExt(name);
+            return name;
         }
     }
 
-    private String removeCsvExt(String filename) {
-        String name = null;
-        if (filename != null) {
-            return filename.replace(".csv.gz", "");
-        }
-        return name;
+    private String getFileList(CsvFileGroup file) {
+        return file.getFiles().stream().map(path -> path.toAbsolutePath().toString()).collect(Collectors.joining(","));
     }
 }
@@ -0,0 +1,235 @@
+package org.opencb.bionetdb.lib.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.metadata.Individual;
+import org.opencb.biodata.models.metadata.Sample;
+import org.opencb.biodata.models.variant.metadata.VariantFileMetadata;
+import org.opencb.biodata.models.variant.metadata.VariantMetadata;
+import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
+import org.opencb.bionetdb.core.models.network.Node;
+import org.opencb.bionetdb.lib.utils.index.UidIndex;
+import org.opencb.commons.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.opencb.bionetdb.core.models.network.Node.Label.*;
+import static org.opencb.bionetdb.lib.utils.CsvInfo.RelationFilename.*;
+
+/**
+ * Builds the nodes and relations of the variant metadata files: individuals, families, samples and variant files.
+ * The metadata files and the partitions of individuals are processed by the workers of the build executor, while UIDs are
+ * assigned and lines are written in input order, so the CSV files do not depend on the number of threads.
+ */
+public class MetadataBuilder {
+
+    // Individuals handled by each worker task
+    public static final int PARTITION_SIZE = 1000;
+
+    private CsvInfo csv;
+    private BuildExecutor executor;
+
+    public MetadataBuilder(CsvInfo csv, BuildExecutor executor) {
+        this.csv = csv;
+        this.executor = executor;
+    }
+
+    /**
+     * Processes the metadata files of the variant files, they are decoded by the workers and processed in the order of the
+     * variant files.
+     *
+     * @param variantFiles  Variant files, those without metadata file are skipped
+     * @throws IOException  If the nodes or relations can not be written
+     */
+    public void build(List<File> variantFiles) throws IOException {
+        if (CollectionUtils.isNotEmpty(variantFiles)) {
+            executor.mapPartitions(variantFiles, 1, files -> readVariantMetadata(files.get(0)), this::processMetadata);
+        }
+    }
+
+    private void processMetadata(VariantMetadata variantMetadata) throws IOException {
+        if (variantMetadata == null || CollectionUtils.isEmpty(variantMetadata.getStudies())) {
+            return;
+        }
+
+        // IMPORTANT: it considers only the first study
+        VariantStudyMetadata variantStudyMetadata = variantMetadata.getStudies().get(0);
+        List<Individual> individuals = variantStudyMetadata.getIndividuals() == null
+                ? Collections.emptyList()
+                : variantStudyMetadata.getIndividuals();
+
+        // Create individual and family nodes and relations. The workers build the nodes and look up the individuals and families
+        // of previous files, UIDs are assigned here in the order of the individuals; the families and individuals created by this
+        // file are only known here
+        Map<String, Long> familyUids = new HashMap<>();
+        Set<String> individualIds = new HashSet<>();
+        executor.mapPartitions(individuals, PARTITION_SIZE, this::newIndividualNodes, individualNodes -> {
+            for (int i = 0; i < individualNodes.individuals.size(); i++) {
+                Individual individual = individualNodes.individuals.get(i);
+                if (individualNodes.individualUids[i] != UidIndex.NO_UID || !individualIds.add(individual.getId())) {
+                    continue;
+                }
+
+                // First, check family
+                Long familyUid = null;
+                if (StringUtils.isNotEmpty(individual.getFamily())) {
+                    familyUid = familyUids.get(individual.getFamily());
+                    if (familyUid == null && individualNodes.familyUids[i] != UidIndex.NO_UID) {
+                        familyUid = individualNodes.familyUids[i];
+                    }
+                    if (familyUid == null) {
+                        Node familyNode = new Node(csv.getAndIncUid(), individual.getFamily(), individual.getFamily(), FAMILY);
+                        csv.writeNodeLine(familyNode);
+                        familyUid = familyNode.getUid();
+                        csv.putLong(individual.getFamily(), FAMILY.name(), familyUid);
+                        familyUids.put(individual.getFamily(), familyUid);
+                    }
+                }
+
+                // Create individual node
+                Node individualNode = individualNodes.individualNodes.get(i).setUid(csv.getAndIncUid());
+                csv.writeNodeLine(individualNode);
+                if (familyUid != null) {
+                    csv.writeRelationLine(HAS___FAMILY___INDIVIDUAL.name(), familyUid, individualNode.getUid());
+                }
+
+                // Create sample nodes
+                for (Node sampleNode : individualNodes.sampleNodes.get(i)) {
+                    sampleNode.setUid(csv.getAndIncUid());
+                    csv.writeNodeLine(sampleNode);
+                    csv.writeRelationLine(HAS___INDIVIDUAL___SAMPLE.name(), individualNode.getUid(), sampleNode.getUid());
+
+                    // Save sample UID
+                    csv.putLong(sampleNode.getId(), SAMPLE.name(), sampleNode.getUid());
+                }
+                csv.putLong(individual.getId(), INDIVIDUAL.name(), individualNode.getUid());
+            }
+        });
+
+        // Second loop, to fulfill mother-father relations, all the individuals are indexed now
+        executor.mapPartitions(individuals, PARTITION_SIZE, this::findParentUids, uids -> {
+            for (int i = 0; i < uids[0].length; i++) {
+                if (uids[0][i] == UidIndex.NO_UID) {
+                    continue;
+                }
+                if (uids[1][i] != UidIndex.NO_UID) {
+                    csv.writeRelationLine(MOTHER_OF___INDIVIDUAL___INDIVIDUAL.name(), uids[1][i], uids[0][i]);
+                }
+                if (uids[2][i] != UidIndex.NO_UID) {
+                    csv.writeRelationLine(FATHER_OF___INDIVIDUAL___INDIVIDUAL.name(), uids[2][i], uids[0][i]);
+                }
+            }
+        });
+
+        // File management
+        if (CollectionUtils.isNotEmpty(variantStudyMetadata.getFiles())) {
+            for (VariantFileMetadata fileMetadata : variantStudyMetadata.getFiles()) {
+                Long fileUid = csv.getLong(fileMetadata.getId(), VARIANT_FILE.name());
+                if (fileUid == null) {
+                    Node fileNode = new Node(csv.getAndIncUid(), fileMetadata.getId(), fileMetadata.getPath(), VARIANT_FILE);
+                    if (MapUtils.isNotEmpty(fileMetadata.getAttributes())) {
+                        for (Map.Entry<String, String> entry : fileMetadata.getAttributes().entrySet()) {
+                            fileNode.addAttribute(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    csv.writeNodeLine(fileNode);
+
+                    // Save variant file UID
+                    csv.putLong(fileMetadata.getId(), VARIANT_FILE.name(), fileNode.getUid());
+                }
+            }
+        }
+    }
+
+    /**
+     * Nodes of a partition of individuals and their samples, built by the workers with the UIDs of the individuals and families
+     * already indexed. The nodes get their UIDs when they are written.
+     */
+    private static class IndividualNodes {
+        private List<Individual> individuals;
+        private List<Node> individualNodes;
+        private List<List<Node>> sampleNodes;
+        private long[] individualUids;
+        private long[] familyUids;
+    }
+
+    private IndividualNodes newIndividualNodes(List<Individual> individuals) {
+        IndividualNodes individualNodes = new IndividualNodes();
+        individualNodes.individuals = individuals;
+        individualNodes.individualNodes = new ArrayList<>(individuals.size());
+        individualNodes.sampleNodes = new ArrayList<>(individuals.size());
+        List<String> ids = new ArrayList<>(individuals.size());
+        List<String> families = new ArrayList<>(individuals.size());
+        for (Individual individual : individuals) {
+            individualNodes.individualNodes.add(NodeBuilder.newNode(UidIndex.NO_UID, individual));
+            List<Node> sampleNodes = new ArrayList<>();
+            if (CollectionUtils.isNotEmpty(individual.getSamples())) {
+                for (Sample sample : individual.getSamples()) {
+                    if (StringUtils.isNotEmpty(sample.getId())) {
+                        Node sampleNode = new Node(UidIndex.NO_UID, sample.getId(), sample.getId(), SAMPLE);
+                        if (MapUtils.isNotEmpty(sample.getAnnotations())) {
+                            for (Map.Entry<String, String> entry : sample.getAnnotations().entrySet()) {
+                                sampleNode.addAttribute(entry.getKey(), entry.getValue());
+                            }
+                        }
+                        sampleNodes.add(sampleNode);
+                    }
+                }
+            }
+            individualNodes.sampleNodes.add(sampleNodes);
+            ids.add(individual.getId());
+            families.add(StringUtils.isEmpty(individual.getFamily()) ? "" : individual.getFamily());
+        }
+        individualNodes.individualUids = csv.findUids(ids, INDIVIDUAL.name());
+        individualNodes.familyUids = csv.findUids(families, FAMILY.name());
+        return individualNodes;
+    }
+
+    private long[][] findParentUids(List<Individual> individuals) {
+        List<String> ids = new ArrayList<>(individuals.size());
+        List<String> mothers = new ArrayList<>(individuals.size());
+        List<String> fathers = new ArrayList<>(individuals.size());
+        for (Individual individual : individuals) {
+            ids.add(individual.getId());
+            mothers.add(StringUtils.isEmpty(individual.getMother()) ? "" : individual.getMother());
+            fathers.add(StringUtils.isEmpty(individual.getFather()) ? "" : individual.getFather());
+        }
+        return new long[][]{csv.findUids(ids, INDIVIDUAL.name()), csv.findUids(mothers, INDIVIDUAL.name()),
+                csv.findUids(fathers, INDIVIDUAL.name()), };
+    }
+
+    /**
+     * Reads the metadata file of a variant file, i.e. the variant file name followed by .meta.json or .meta.json.gz.
+     *
+     * @param variantFile   Variant file
+     * @return              Variant metadata, or null if there is no metadata file or it can not be read
+     */
+    public static VariantMetadata readVariantMetadata(File variantFile) {
+        File metaFile = new File(variantFile.getAbsoluteFile() + ".meta.json");
+        if (!metaFile.exists()) {
+            metaFile = new File(variantFile.getAbsoluteFile() + ".meta.json.gz");
+        }
+        if (!metaFile.exists()) {
+            return null;
+        }
+
+        // Read info, format and sample from metadata file
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+        mapper.configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        try (BufferedReader bufferedReader = FileUtils.newBufferedReader(metaFile.toPath())) {
+            return mapper.readValue(bufferedReader.readLine(), VariantMetadata.class);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.opencb.bionetdb.lib.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opencb.bionetdb.core.models.network.Network;
+import org.opencb.bionetdb.core.models.network.Node;
+import org.opencb.bionetdb.core.models.network.Relation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads the nodes and relations of a network JSON file one by one, without loading the whole Network. Nodes are always
+ * handled before relations: if the relations come first in the file, they are kept in a SpillBuffer until the nodes are read.
+ */
+public class NetworkStreamReader {
+
+    private final Path spillPath;
+    private final ObjectMapper objectMapper;
+
+    @FunctionalInterface
+    public interface RelationConsumer {
+        void accept(Relation relation) throws IOException;
+    }
+
+    public NetworkStreamReader(Path spillPath) {
+        this.spillPath = spillPath;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * Reads a network file, i.e. a Network object serialized as JSON.
+     *
+     * @param file              Network file
+     * @param nodeConsumer      Called for each node, in file order
+     * @param relationConsumer  Called for each relation, in file order, once all the nodes are read
+     * @throws IOException      If the file is not a valid network or any consumer fails
+     */
+    public void read(Path file, NodeSpillQueue.NodeConsumer nodeConsumer, RelationConsumer relationConsumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(file.toFile());
+             SpillBuffer pendingRelations = new SpillBuffer(spillPath, "network_relations")) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid network file " + file + ", a " + Network.class.getSimpleName() + " object expected");
+            }
+
+            boolean nodesRead = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("nodes".equals(field) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        nodeConsumer.accept(objectMapper.readValue(parser, Node.class));
+                    }
+                    nodesRead = true;
+                } else if ("relations".equals(field) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        Relation relation = objectMapper.readValue(parser, Relation.class);
+                        if (nodesRead) {
+                            relationConsumer.accept(relation);
+                        } else {
+                            byte[] json = objectMapper.writeValueAsBytes(relation);
+                            pendingRelations.append(out -> {
+                                out.writeInt(json.length);
+                                out.write(json);
+                            });
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            pendingRelations.replay(in -> {
+                byte[] json = new byte[in.readInt()];
+                in.readFully(json);
+                relationConsumer.accept(objectMapper.readValue(json, Relation.class));
+            });
+        }
+    }
+}
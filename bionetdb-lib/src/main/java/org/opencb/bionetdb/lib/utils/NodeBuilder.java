@@ -19,7 +19,6 @@ import org.opencb.bionetdb.core.models.network.Node;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.utils.CryptoUtils;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
@@ -142,19 +141,14 @@ public class NodeBuilder {
         node.addAttribute("type", sv.getType());
 
         if (sv.getBreakend() != null) {
-            BufferedWriter bw;
-
             Node breakendNode = new Node(csvInfo.getAndIncUid(), null, null, Node.Label.BREAKEND);
             if (sv.getBreakend().getOrientation() != null) {
                 breakendNode.addAttribute("orientation", sv.getBreakend().getOrientation().name());
             }
-            bw = csvInfo.getWriter(Node.Label.BREAKEND.name());
-            bw.write(csvInfo.nodeLine(breakendNode));
-            bw.newLine();
+            csvInfo.writeNodeLine(breakendNode);
 
-            bw = csvInfo.getWriter(CsvInfo.RelationFilename.HAS___STRUCTURAL_VARIATION___BREAKEND.name());
-            bw.write(csvInfo.relationLine(node.getUid(), breakendNode.getUid()));
-            bw.newLine();
+            csvInfo.writeRelationLine(CsvInfo.RelationFilename.HAS___STRUCTURAL_VARIATION___BREAKEND.name(), node.getUid(),
+                    breakendNode.getUid());
 
             if (sv.getBreakend().getMate() != null) {
                 Node mateNode = new Node(csvInfo.getAndIncUid(), null, null, Node.Label.BREAKEND_MATE);
@@ -163,13 +157,10 @@ public class NodeBuilder {
                 mateNode.addAttribute("ciPositionLeft", sv.getBreakend().getMate().getCiPositionLeft());
                 mateNode.addAttribute("ciPositionRight", sv.getBreakend().getMate().getCiPositionRight());
 
-                bw = csvInfo.getWriter(Node.Label.BREAKEND_MATE.name());
-                bw.write(csvInfo.nodeLine(mateNode));
-                bw.newLine();
+                csvInfo.writeNodeLine(mateNode);
 
-                bw = csvInfo.getWriter(CsvInfo.RelationFilename.MATE___BREAKEND___BREAKEND_MATE.name());
-                bw.write(csvInfo.relationLine(breakendNode.getUid(), mateNode.getUid()));
-                bw.newLine();
+                csvInfo.writeRelationLine(CsvInfo.RelationFilename.MATE___BREAKEND___BREAKEND_MATE.name(), breakendNode.getUid(),
+                        mateNode.getUid());
             }
         }
 
@@ -214,19 +205,13 @@ public class NodeBuilder {
             node.addAttribute("alleleOrigin", alleleOri.toString());
         }
 
-        BufferedWriter bw;
-
         if (CollectionUtils.isNotEmpty(evidence.getSubmissions())) {
             for (EvidenceSubmission submission : evidence.getSubmissions()) {
                 Node submissionNode = newNode(csvInfo.getAndIncUid(), submission);
 
-                bw = csvInfo.getWriter(Node.Label.EVIDENCE_SUBMISSION.toString());
-                bw.write(csvInfo.nodeLine(submissionNode));
-                bw.newLine();
+                csvInfo.writeNodeLine(submissionNode);
 
-                bw = csvInfo.getWriter("HAS___" + nodeLabel.name() + "___EVIDENCE_SUBMISSION");
-                bw.write(csvInfo.relationLine(node.getUid(), submissionNode.getUid()));
-                bw.newLine();
+                csvInfo.writeRelationLine("HAS___" + nodeLabel.name() + "___EVIDENCE_SUBMISSION", node.getUid(), submissionNode.getUid());
             }
 
         }
@@ -244,13 +229,9 @@ public class NodeBuilder {
             for (HeritableTrait heritableTrait : evidence.getHeritableTraits()) {
                 Node heritableNode = newNode(csvInfo.getAndIncUid(), heritableTrait);
 
-                bw = csvInfo.getWriter(Node.Label.HERITABLE_TRAIT.name());
-                bw.write(csvInfo.nodeLine(heritableNode));
-                bw.newLine();
+                csvInfo.writeNodeLine(heritableNode);
 
-                bw = csvInfo.getWriter("HAS___" + nodeLabel.name() + "___HERITABLE_TRAIT");
-                bw.write(csvInfo.relationLine(node.getUid(), heritableNode.getUid()));
-                bw.newLine();
+                csvInfo.writeRelationLine("HAS___" + nodeLabel.name() + "___HERITABLE_TRAIT", node.getUid(), heritableNode.getUid());
             }
         }
 
@@ -258,26 +239,19 @@ public class NodeBuilder {
             for (org.opencb.biodata.models.variant.avro.GenomicFeature genomicFeature : evidence.getGenomicFeatures()) {
                 Node featureNode = newNode(csvInfo.getAndIncUid(), genomicFeature);
 
-                bw = csvInfo.getWriter(Node.Label.GENOMIC_FEATURE.name());
-                bw.write(csvInfo.nodeLine(featureNode));
-                bw.newLine();
+                csvInfo.writeNodeLine(featureNode);
 
-                bw = csvInfo.getWriter("HAS___" + nodeLabel.name() + "___GENOMIC_FEATURE");
-                bw.write(csvInfo.relationLine(node.getUid(), featureNode.getUid()));
-                bw.newLine();
+                csvInfo.writeRelationLine("HAS___" + nodeLabel.name() + "___GENOMIC_FEATURE", node.getUid(), featureNode.getUid());
             }
         }
 
         if (evidence.getVariantClassification() != null) {
             Node varClassificationNode = newNode(csvInfo.getAndIncUid(), evidence.getVariantClassification());
 
-            bw = csvInfo.getWriter(Node.Label.VARIANT_CLASSIFICATION.name());
-            bw.write(csvInfo.nodeLine(varClassificationNode));
-            bw.newLine();
+            csvInfo.writeNodeLine(varClassificationNode);
 
-            bw = csvInfo.getWriter("HAS___" + nodeLabel.name() + "___VARIANT_CLASSIFICATION");
-            bw.write(csvInfo.relationLine(node.getUid(), varClassificationNode.getUid()));
-            bw.newLine();
+            csvInfo.writeRelationLine("HAS___" + nodeLabel.name() + "___VARIANT_CLASSIFICATION", node.getUid(),
+                    varClassificationNode.getUid());
         }
 
         node.addAttribute("impact", evidence.getImpact());
@@ -292,13 +266,9 @@ public class NodeBuilder {
             for (Property property : evidence.getAdditionalProperties()) {
                 Node propertyNode = newNode(csvInfo.getAndIncUid(), property);
 
-                bw = csvInfo.getWriter(Node.Label.PROPERTY.name());
-                bw.write(csvInfo.nodeLine(propertyNode));
-                bw.newLine();
+                csvInfo.writeNodeLine(propertyNode);
 
-                bw = csvInfo.getWriter("HAS___" + nodeLabel.name() + "___PROPERTY");
-                bw.write(csvInfo.relationLine(node.getUid(), propertyNode.getUid()));
-                bw.newLine();
+                csvInfo.writeRelationLine("HAS___" + nodeLabel.name() + "___PROPERTY", node.getUid(), propertyNode.getUid());
             }
         }
 
@@ -0,0 +1,181 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.opencb.bionetdb.core.models.network.Node;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queue of nodes to be processed after a build stage, kept as compact binary records in a SpillBuffer instead of Node
+ * objects. Attribute values are restored as strings, numbers or booleans; other values, e.g. lists, are restored as the
+ * string written to the CSV files.
+ */
+public class NodeSpillQueue implements Closeable {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+
+    private static final Node.Label[] LABELS = Node.Label.values();
+
+    private final SpillBuffer buffer;
+
+    @FunctionalInterface
+    public interface NodeConsumer {
+        void accept(Node node) throws IOException;
+    }
+
+    public NodeSpillQueue(Path dir, String name) {
+        this.buffer = new SpillBuffer(dir, name);
+    }
+
+    public NodeSpillQueue(Path dir, String name, long maxMemoryBytes) {
+        this.buffer = new SpillBuffer(dir, name, maxMemoryBytes);
+    }
+
+    public void add(Node node) throws IOException {
+        buffer.append(out -> writeNode(out, node));
+    }
+
+    /**
+     * Reads the nodes back in the order they were added, each one is a new Node object.
+     *
+     * @param consumer      Node consumer
+     * @throws IOException  If the spill file can not be read or the consumer fails
+     */
+    public void forEach(NodeConsumer consumer) throws IOException {
+        buffer.replay(in -> consumer.accept(readNode(in)));
+    }
+
+    public long size() {
+        return buffer.getRecords();
+    }
+
+    public boolean isSpilled() {
+        return buffer.isSpilled();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.close();
+    }
+
+    static void writeNode(DataOutput out, Node node) throws IOException {
+        out.writeLong(node.getUid());
+        SpillBuffer.writeString(out, node.getId());
+        SpillBuffer.writeString(out, node.getName());
+
+        List<Node.Label> labels = node.getLabels();
+        out.writeShort(labels == null ? 0 : labels.size());
+        if (labels != null) {
+            for (Node.Label label : labels) {
+                out.writeShort(label.ordinal());
+            }
+        }
+
+        Map<String, Object> attributes = node.getAttributes();
+        out.writeInt(attributes == null ? 0 : attributes.size());
+        if (attributes != null) {
+            for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        }
+    }
+
+    static Node readNode(DataInput in) throws IOException {
+        long uid = in.readLong();
+        String id = SpillBuffer.readString(in);
+        String name = SpillBuffer.readString(in);
+
+        int numLabels = in.readShort();
+        List<Node.Label> labels = new ArrayList<>(numLabels);
+        for (int i = 0; i < numLabels; i++) {
+            labels.add(LABELS[in.readShort()]);
+        }
+
+        Node node = new Node(uid, id, name, labels);
+        int numAttributes = in.readInt();
+        for (int i = 0; i < numAttributes; i++) {
+            String key = in.readUTF();
+            node.getAttributes().put(key, readValue(in));
+        }
+        return node;
+    }
+
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            out.writeByte(STRING);
+            writeLongString(out, toText(value));
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case BOOLEAN:
+                return in.readBoolean();
+            case STRING:
+                return readLongString(in);
+            default:
+                throw new IOException("Invalid attribute value type " + type);
+        }
+    }
+
+    private static String toText(Object value) {
+        if (value instanceof Collection) {
+            // Same format as ObjectMap.getString and the CSV files
+            StringBuilder sb = new StringBuilder();
+            boolean first = true;
+            for (Object item : (Collection<?>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append(item);
+                first = false;
+            }
+            return sb.toString();
+        }
+        return value.toString();
+    }
+
+    // Attribute values, e.g. joined xrefs, may not fit in writeUTF
+    private static void writeLongString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readLongString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
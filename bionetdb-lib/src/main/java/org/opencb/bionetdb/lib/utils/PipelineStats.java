@@ -0,0 +1,98 @@
+package org.opencb.bionetdb.lib.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent by each stage of a BuildExecutor JSON lines pipeline: reading (I/O and decompression), decoding and handling.
+ * Rates are computed over the busy time of each stage, decoding time is summed over all the workers.
+ */
+public class PipelineStats {
+
+    private LongAdder items;
+    private LongAdder readNanos;
+    private LongAdder decodeNanos;
+    private LongAdder handleNanos;
+    private LongAdder waitNanos;
+    private long startNanos;
+    private long endNanos;
+    private int numWorkers;
+
+    public PipelineStats() {
+        items = new LongAdder();
+        readNanos = new LongAdder();
+        decodeNanos = new LongAdder();
+        handleNanos = new LongAdder();
+        waitNanos = new LongAdder();
+    }
+
+    void start(int workers) {
+        this.numWorkers = workers;
+        this.startNanos = System.nanoTime();
+    }
+
+    void end() {
+        this.endNanos = System.nanoTime();
+    }
+
+    void addRead(long nanos) {
+        readNanos.add(nanos);
+    }
+
+    void addDecode(long nanos) {
+        decodeNanos.add(nanos);
+    }
+
+    void addHandle(long count, long nanos) {
+        items.add(count);
+        handleNanos.add(nanos);
+    }
+
+    void addWait(long nanos) {
+        waitNanos.add(nanos);
+    }
+
+    public long getItems() {
+        return items.sum();
+    }
+
+    public double getReadRate() {
+        return rate(readNanos.sum());
+    }
+
+    /**
+     * Decoding rate of all the workers together, assuming they run in parallel.
+     *
+     * @return Items decoded per second
+     */
+    public double getDecodeRate() {
+        return rate(decodeNanos.sum()) * numWorkers;
+    }
+
+    public double getHandleRate() {
+        return rate(handleNanos.sum());
+    }
+
+    public double getTotalRate() {
+        return rate(endNanos - startNanos);
+    }
+
+    /**
+     * Time the consumer stage was blocked waiting for decoded items, a high value means the pipeline is limited by reading or
+     * decoding instead of handling.
+     *
+     * @return Waiting time in milliseconds
+     */
+    public long getWaitMillis() {
+        return waitNanos.sum() / 1000000;
+    }
+
+    public String summary(String itemName) {
+        return String.format("%d %s in %.1f s: %.0f %s/s (read %.0f/s, decode %.0f/s with %d workers, handle %.0f/s, waited %d ms)",
+                getItems(), itemName, (endNanos - startNanos) / 1e9, getTotalRate(), itemName, getReadRate(), getDecodeRate(),
+                numWorkers, getHandleRate(), getWaitMillis());
+    }
+
+    private double rate(long nanos) {
+        return nanos > 0 ? getItems() * 1e9 / nanos : 0;
+    }
+}
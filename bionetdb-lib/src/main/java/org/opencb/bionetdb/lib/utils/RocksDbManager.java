@@ -1,58 +1,402 @@
 package org.opencb.bionetdb.lib.utils;
 
 import com.google.common.primitives.Longs;
+import org.opencb.bionetdb.core.config.RocksDbConfiguration;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.LRUCache;
 import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteBufferManager;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
+/**
+ * Opens the RocksDB stores of a build. All the stores opened by a manager share its LRU block cache and its memtable budget,
+ * a store may hold several logical stores as column families, each one with the options of its type of values.
+ */
 public class RocksDbManager {
 
+    // Bulk-load mode: large memtables, compaction deferred until compact() is called
+    public static final long BULK_LOAD_WRITE_BUFFER_SIZE = 128L * 1024 * 1024;
+    public static final int BULK_LOAD_MAX_WRITE_BUFFER_NUMBER = 3;
+
+    // Bulk-load profile, for the stores that are read while they are written, e.g. the UID index
+    public static final long BULK_LOAD_PROFILE_WRITE_BUFFER_SIZE = 64L * 1024 * 1024;
+    public static final int BULK_LOAD_PROFILE_MAX_WRITE_BUFFER_NUMBER = 4;
+
+    public static final int BLOOM_FILTER_BITS_PER_KEY = 10;
+
+    /**
+     * Named sets of options, selected by the rocksDb section of the configuration.
+     */
+    public enum Profile {
+        DEFAULT(RocksDbConfiguration.DEFAULT_PROFILE),
+        BULK_LOAD(RocksDbConfiguration.BULK_LOAD_PROFILE),
+        READ_MOSTLY(RocksDbConfiguration.READ_MOSTLY_PROFILE);
+
+        private final String name;
+
+        Profile(String name) {
+            this.name = name;
+        }
+
+        public static Profile parse(String name) {
+            if (name == null || name.isEmpty()) {
+                return DEFAULT;
+            }
+            for (Profile profile : values()) {
+                if (profile.name.equalsIgnoreCase(name) || profile.name().equalsIgnoreCase(name)) {
+                    return profile;
+                }
+            }
+            throw new IllegalArgumentException("Unknown RocksDB profile '" + name + "', valid values: default, bulk-load, read-mostly");
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Values of a column family: short strings and numbers, e.g. UIDs and xrefs, or encoded objects, e.g. genes.
+     */
+    public enum FamilyType {
+        INDEX,
+        OBJECTS
+    }
+
+    /**
+     * RocksDB opened with its column families.
+     */
+    public static class Store {
+        private final String location;
+        private final RocksDB db;
+        private final Map<String, ColumnFamilyHandle> families;
+
+        Store(String location, RocksDB db, Map<String, ColumnFamilyHandle> families) {
+            this.location = location;
+            this.db = db;
+            this.families = families;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public RocksDB getDb() {
+            return db;
+        }
+
+        public ColumnFamilyHandle getFamily(String name) {
+            return families.get(name);
+        }
+
+        public Map<String, ColumnFamilyHandle> getFamilies() {
+            return families;
+        }
+    }
+
+    /**
+     * Reads and writes of all the stores opened by a manager, latencies are averaged over all the calls.
+     */
+    public static class Stats {
+        private final LongAdder gets = new LongAdder();
+        private final LongAdder getMisses = new LongAdder();
+        private final LongAdder getNanos = new LongAdder();
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder putNanos = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder batchRecords = new LongAdder();
+        private final LongAdder batchNanos = new LongAdder();
+
+        void addGet(long startNanos, boolean found) {
+            getNanos.add(System.nanoTime() - startNanos);
+            gets.increment();
+            if (!found) {
+                getMisses.increment();
+            }
+        }
+
+        void addPut(long startNanos) {
+            putNanos.add(System.nanoTime() - startNanos);
+            puts.increment();
+        }
+
+        void addBatch(long startNanos, int records) {
+            batchNanos.add(System.nanoTime() - startNanos);
+            batches.increment();
+            batchRecords.add(records);
+        }
+
+        public long getGets() {
+            return gets.sum();
+        }
+
+        public long getGetMisses() {
+            return getMisses.sum();
+        }
+
+        public double getGetAvgMicros() {
+            return average(getNanos.sum(), gets.sum());
+        }
+
+        public long getPuts() {
+            return puts.sum();
+        }
+
+        public double getPutAvgMicros() {
+            return average(putNanos.sum(), puts.sum());
+        }
+
+        public long getBatches() {
+            return batches.sum();
+        }
+
+        public long getBatchRecords() {
+            return batchRecords.sum();
+        }
+
+        public double getBatchAvgMicros() {
+            return average(batchNanos.sum(), batches.sum());
+        }
+
+        private static double average(long nanos, long count) {
+            return count > 0 ? Math.round(nanos / 1000.0 / count * 100) / 100.0 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d gets (%d misses, %.2f us), %d puts (%.2f us), %d batches of %d records (%.2f us)", getGets(),
+                    getGetMisses(), getGetAvgMicros(), getPuts(), getPutAvgMicros(), getBatches(), getBatchRecords(),
+                    getBatchAvgMicros());
+        }
+    }
+
+    private Profile profile;
+    private long blockCacheSize;
     private int maxOpenFiles = -1;
 
+    private LRUCache blockCache;
+    private WriteBufferManager writeBufferManager;
+    private BloomFilter bloomFilter;
+    private final Stats stats = new Stats();
+
+    private static Logger logger = LoggerFactory.getLogger(RocksDbManager.class);
+
     public RocksDbManager() {
-        this(1000);
+        this(new RocksDbConfiguration());
     }
 
     public RocksDbManager(int maxOpenFiles) {
-        this.maxOpenFiles = maxOpenFiles;
+        this(new RocksDbConfiguration().setMaxOpenFiles(maxOpenFiles));
+    }
+
+    public RocksDbManager(RocksDbConfiguration configuration) {
+        this.profile = Profile.parse(configuration.getProfile());
+        this.blockCacheSize = configuration.getBlockCacheSize() > 0
+                ? configuration.getBlockCacheSize()
+                : RocksDbConfiguration.DEFAULT_BLOCK_CACHE_SIZE;
+        this.maxOpenFiles = configuration.getMaxOpenFiles();
     }
 
     public RocksDB getDBConnection(String dbLocation, boolean forceCreate) {
+        return getDBConnection(dbLocation, forceCreate, false);
+    }
+
+    public RocksDB getDBConnection(String dbLocation, boolean forceCreate, boolean bulkLoad) {
+        Map<String, FamilyType> families = Collections.singletonMap(new String(RocksDB.DEFAULT_COLUMN_FAMILY,
+                StandardCharsets.UTF_8), FamilyType.INDEX);
+        Store store = getStore(dbLocation, families, forceCreate, bulkLoad);
+        return store == null ? null : store.getDb();
+    }
+
+    /**
+     * Opens a RocksDB with the given column families, they are created if they do not exist. Existing stores are opened
+     * read-only unless forceCreate is set.
+     *
+     * @param dbLocation    RocksDB directory
+     * @param families      Column families to open and their type of values
+     * @param forceCreate   Open read-write even if the store exists
+     * @param bulkLoad      Bulk-load mode: large memtables and no compaction until compact() is called
+     * @return              Store, or null if it can not be opened
+     */
+    public Store getStore(String dbLocation, Map<String, FamilyType> families, boolean forceCreate, boolean bulkLoad) {
         boolean indexingNeeded = forceCreate || !Files.exists(Paths.get(dbLocation));
 
         // A static method that loads the RocksDB C++ library.
         RocksDB.loadLibrary();
+        DBOptions options = getDBOptions(bulkLoad && indexingNeeded);
 
-        // The OptionsFilter class contains a set of configurable DB options that determines the behavior of a database.
-        Options options = new Options().setCreateIfMissing(true);
-        if (maxOpenFiles > 0) {
-            options.setMaxOpenFiles(maxOpenFiles);
+        // The default column family always exists, it is opened even if it is not used
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        if (!families.containsKey(new String(RocksDB.DEFAULT_COLUMN_FAMILY, StandardCharsets.UTF_8))) {
+            descriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY,
+                    getColumnFamilyOptions(FamilyType.INDEX, bulkLoad && indexingNeeded)));
+        }
+        for (Map.Entry<String, FamilyType> entry : families.entrySet()) {
+            descriptors.add(new ColumnFamilyDescriptor(entry.getKey().getBytes(StandardCharsets.UTF_8),
+                    getColumnFamilyOptions(entry.getValue(), bulkLoad && indexingNeeded)));
         }
 
+        List<ColumnFamilyHandle> handles = new ArrayList<>();
         RocksDB db;
         try {
             // A factory method that returns a RocksDB instance
             if (indexingNeeded) {
-                db = RocksDB.open(options, dbLocation);
+                db = RocksDB.open(options, dbLocation, descriptors, handles);
             } else {
-                db = RocksDB.openReadOnly(options, dbLocation);
+                checkColumnFamilies(dbLocation, descriptors);
+                db = RocksDB.openReadOnly(options, dbLocation, descriptors, handles);
             }
         } catch (RocksDBException e) {
             // Do some error handling
             e.printStackTrace();
-            db = null;
+            return null;
+        }
+
+        Map<String, ColumnFamilyHandle> familyHandles = new LinkedHashMap<>();
+        for (int i = 0; i < descriptors.size(); i++) {
+            familyHandles.put(new String(descriptors.get(i).getName(), StandardCharsets.UTF_8), handles.get(i));
+        }
+        return new Store(dbLocation, db, familyHandles);
+    }
+
+    private void checkColumnFamilies(String dbLocation, List<ColumnFamilyDescriptor> descriptors) throws RocksDBException {
+        List<String> existing = new ArrayList<>();
+        try (Options options = new Options()) {
+            for (byte[] name : RocksDB.listColumnFamilies(options, dbLocation)) {
+                existing.add(new String(name, StandardCharsets.UTF_8));
+            }
+        }
+        for (ColumnFamilyDescriptor descriptor : descriptors) {
+            String name = new String(descriptor.getName(), StandardCharsets.UTF_8);
+            if (!existing.contains(name)) {
+                logger.error("RocksDB {} has no column family '{}', it was created by an older version and must be rebuilt",
+                        dbLocation, name);
+                throw new RocksDBException("Column family '" + name + "' not found in " + dbLocation);
+            }
+        }
+    }
+
+    private synchronized DBOptions getDBOptions(boolean bulkLoad) {
+        if (blockCache == null) {
+            blockCache = new LRUCache(blockCacheSize);
+            // Memtables are charged to the block cache, so the stores of a build do not use more than blockCacheSize
+            writeBufferManager = new WriteBufferManager(blockCacheSize / 2, blockCache);
+            bloomFilter = new BloomFilter(BLOOM_FILTER_BITS_PER_KEY, false);
+        }
+
+        int cpus = Runtime.getRuntime().availableProcessors();
+        DBOptions options = new DBOptions()
+                .setCreateIfMissing(true)
+                .setCreateMissingColumnFamilies(true)
+                .setMaxBackgroundJobs(Math.max(2, cpus / 2));
+        if (maxOpenFiles > 0) {
+            options.setMaxOpenFiles(maxOpenFiles);
+        }
+        if (bulkLoad || profile == Profile.BULK_LOAD) {
+            options.setIncreaseParallelism(Math.max(2, cpus));
+        }
+        if (!bulkLoad) {
+            // Bulk loads flush their own large memtables, they are not limited by the shared budget
+            options.setWriteBufferManager(writeBufferManager);
+        }
+        return options;
+    }
+
+    private ColumnFamilyOptions getColumnFamilyOptions(FamilyType type, boolean bulkLoad) {
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig()
+                .setBlockCache(blockCache)
+                .setFilterPolicy(bloomFilter)
+                .setWholeKeyFiltering(true)
+                .setFormatVersion(4)
+                .setBlockSize(type == FamilyType.OBJECTS ? 16 * 1024 : 4 * 1024);
+        if (profile == Profile.READ_MOSTLY) {
+            // Filters and indexes count against the shared cache, the ones of the newest files are never evicted
+            tableConfig.setCacheIndexAndFilterBlocks(true)
+                    .setPinL0FilterAndIndexBlocksInCache(true);
+        }
+
+        ColumnFamilyOptions options = new ColumnFamilyOptions()
+                .setTableFormatConfig(tableConfig)
+                .setLevelCompactionDynamicLevelBytes(true)
+                .setCompressionType(CompressionType.LZ4_COMPRESSION);
+        if (type == FamilyType.OBJECTS) {
+            // Objects are written once and read many times: ZSTD where most of them end up, or everywhere if read-mostly
+            options.setBottommostCompressionType(CompressionType.ZSTD_COMPRESSION);
+            if (profile == Profile.READ_MOSTLY) {
+                options.setCompressionType(CompressionType.ZSTD_COMPRESSION);
+            }
         }
 
-        return db;
+        if (bulkLoad) {
+            // Same as Options.prepareForBulkLoad, for a column family
+            options.setWriteBufferSize(BULK_LOAD_WRITE_BUFFER_SIZE)
+                    .setMaxWriteBufferNumber(BULK_LOAD_MAX_WRITE_BUFFER_NUMBER)
+                    .setDisableAutoCompactions(true)
+                    .setLevel0FileNumCompactionTrigger(1 << 30)
+                    .setLevel0SlowdownWritesTrigger(1 << 30)
+                    .setLevel0StopWritesTrigger(1 << 30)
+                    .setBottommostCompressionType(CompressionType.LZ4_COMPRESSION);
+        } else if (profile == Profile.BULK_LOAD) {
+            options.setWriteBufferSize(BULK_LOAD_PROFILE_WRITE_BUFFER_SIZE)
+                    .setMaxWriteBufferNumber(BULK_LOAD_PROFILE_MAX_WRITE_BUFFER_NUMBER)
+                    .setLevel0FileNumCompactionTrigger(8);
+        }
+        return options;
     }
 
     public boolean putString(String key, String value, RocksDB db) {
+        return putString(key, value, db, db.getDefaultColumnFamily());
+    }
+
+    public boolean putString(String key, String value, RocksDB db, ColumnFamilyHandle family) {
+        long start = System.nanoTime();
         try {
             // Add string value into the database
-            db.put(key.getBytes(), value.getBytes());
+            db.put(family, key.getBytes(), value.getBytes());
+            stats.addPut(start);
+            return true;
+        } catch (RocksDBException e) {
+            // Do some error handling
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public boolean putBytes(String key, byte[] value, RocksDB db) {
+        return putBytes(key, value, db, db.getDefaultColumnFamily());
+    }
+
+    public boolean putBytes(String key, byte[] value, RocksDB db, ColumnFamilyHandle family) {
+        long start = System.nanoTime();
+        try {
+            // Add binary value into the database
+            db.put(family, key.getBytes(), value);
+            stats.addPut(start);
             return true;
         } catch (RocksDBException e) {
             // Do some error handling
@@ -62,9 +406,11 @@ public class RocksDbManager {
     }
 
     public boolean putLong(String key, Long value, RocksDB db) {
+        long start = System.nanoTime();
         try {
             // Add boolean value into the database
             db.put(key.getBytes(), Longs.toByteArray(value));
+            stats.addPut(start);
             return true;
         } catch (RocksDBException e) {
             // Do some error handling
@@ -74,9 +420,11 @@ public class RocksDbManager {
     }
 
     public boolean putBoolean(String key, Boolean value, RocksDB db) {
+        long start = System.nanoTime();
         try {
             // Add boolean value into the database
             db.put(key.getBytes(), new byte[]{(byte) (value ? 1 : 0)});
+            stats.addPut(start);
             return true;
         } catch (RocksDBException e) {
             // Do some error handling
@@ -86,9 +434,15 @@ public class RocksDbManager {
     }
 
     public String getString(String key, RocksDB db) {
+        return getString(key, db, db.getDefaultColumnFamily());
+    }
+
+    public String getString(String key, RocksDB db, ColumnFamilyHandle family) {
+        long start = System.nanoTime();
         try {
             // Get string value from the database
-            byte[] value = db.get(key.getBytes());
+            byte[] value = db.get(family, key.getBytes());
+            stats.addGet(start, value != null);
             if (value == null) {
                 return null;
             }
@@ -100,10 +454,30 @@ public class RocksDbManager {
         }
     }
 
+    public byte[] getBytes(String key, RocksDB db) {
+        return getBytes(key, db, db.getDefaultColumnFamily());
+    }
+
+    public byte[] getBytes(String key, RocksDB db, ColumnFamilyHandle family) {
+        long start = System.nanoTime();
+        try {
+            // Get binary value from the database
+            byte[] value = db.get(family, key.getBytes());
+            stats.addGet(start, value != null);
+            return value;
+        } catch (RocksDBException e) {
+            // Do some error handling
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     public Long getLong(String key, RocksDB db) {
+        long start = System.nanoTime();
         try {
             // Get string value from the database
             byte[] value = db.get(key.getBytes());
+            stats.addGet(start, value != null);
             if (value == null) {
                 return null;
             }
@@ -117,9 +491,11 @@ public class RocksDbManager {
 
 
     public Boolean getBoolean(String key, RocksDB db) {
+        long start = System.nanoTime();
         try {
             // Get boolean value from the database
             byte[] value = db.get(key.getBytes());
+            stats.addGet(start, value != null);
             if (value == null) {
                 return null;
             }
@@ -131,7 +507,136 @@ public class RocksDbManager {
         }
     }
 
+    public boolean put(WriteBatch batch, ColumnFamilyHandle family, byte[] key, byte[] value) {
+        try {
+            // Add the value to the batch, it is written by write()
+            batch.put(family, key, value);
+            return true;
+        } catch (RocksDBException e) {
+            // Do some error handling
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public boolean write(WriteBatch batch, RocksDB db, boolean disableWAL) {
+        long start = System.nanoTime();
+        try (WriteOptions writeOptions = new WriteOptions().setDisableWAL(disableWAL)) {
+            // Write all the batch operations at once
+            db.write(writeOptions, batch);
+            stats.addBatch(start, batch.count());
+            return true;
+        } catch (RocksDBException e) {
+            // Do some error handling
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public boolean compact(RocksDB db) {
+        try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+            // Flush memtables, writes without WAL are only safe after this, and then compact the whole key range
+            db.flush(flushOptions);
+            db.compactRange();
+            return true;
+        } catch (RocksDBException e) {
+            // Do some error handling
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public boolean flush(Store store) {
+        try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+            // Writes without WAL are only safe after this
+            for (ColumnFamilyHandle family : store.getFamilies().values()) {
+                store.getDb().flush(flushOptions, family);
+            }
+            return true;
+        } catch (RocksDBException e) {
+            // Do some error handling
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public boolean compact(Store store) {
+        try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+            for (ColumnFamilyHandle family : store.getFamilies().values()) {
+                store.getDb().flush(flushOptions, family);
+                store.getDb().compactRange(family);
+            }
+            return true;
+        } catch (RocksDBException e) {
+            // Do some error handling
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public long estimateNumKeys(RocksDB db) {
+        return estimateNumKeys(db, db.getDefaultColumnFamily());
+    }
+
+    public long estimateNumKeys(RocksDB db, ColumnFamilyHandle family) {
+        try {
+            return db.getLongProperty(family, "rocksdb.estimate-num-keys");
+        } catch (RocksDBException e) {
+            // Do some error handling
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    public void forEachKey(RocksDB db, Consumer<byte[]> consumer) {
+        forEachKey(db, db.getDefaultColumnFamily(), consumer);
+    }
+
+    public void forEachKey(RocksDB db, ColumnFamilyHandle family, Consumer<byte[]> consumer) {
+        try (RocksIterator iterator = db.newIterator(family)) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                consumer.accept(iterator.key());
+            }
+        }
+    }
+
     public void close(RocksDB db) {
         db.close();
     }
+
+    public void close(Store store) {
+        // Column family handles must be closed before the database
+        for (ColumnFamilyHandle family : store.getFamilies().values()) {
+            family.close();
+        }
+        store.getDb().close();
+    }
+
+    /**
+     * Releases the shared block cache, the stores still open keep using it until they are closed.
+     */
+    public synchronized void close() {
+        if (blockCache != null) {
+            writeBufferManager.close();
+            bloomFilter.close();
+            blockCache.close();
+            blockCache = null;
+        }
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    public long getBlockCacheSize() {
+        return blockCacheSize;
+    }
+
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
 }
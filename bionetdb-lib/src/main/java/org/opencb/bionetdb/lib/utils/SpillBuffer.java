@@ -0,0 +1,200 @@
+package org.opencb.bionetdb.lib.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only buffer of binary records, read back in order once they are all written. Records are kept in memory up to a
+ * limit, then the buffer is moved to a temporary file and the next records are appended there. The file is read back through
+ * memory-mapped windows, so replaying does not copy it into the heap.
+ */
+public class SpillBuffer implements Closeable {
+
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final Path dir;
+    private final String name;
+    private final long maxMemoryBytes;
+
+    private ByteArrayOutputStream memory;
+    private Path file;
+    private DataOutputStream out;
+    private long records;
+
+    @FunctionalInterface
+    public interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RecordReader {
+        void read(DataInput in) throws IOException;
+    }
+
+    public SpillBuffer(Path dir, String name) {
+        this(dir, name, DEFAULT_MAX_MEMORY_BYTES);
+    }
+
+    public SpillBuffer(Path dir, String name, long maxMemoryBytes) {
+        this.dir = dir;
+        this.name = name;
+        this.maxMemoryBytes = maxMemoryBytes;
+
+        this.memory = new ByteArrayOutputStream(BUFFER_SIZE);
+        this.out = new DataOutputStream(memory);
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param writer        Writes the record fields, they are read back by a RecordReader in the same order
+     * @throws IOException  If the buffer can not be spilled or written
+     */
+    public void append(RecordWriter writer) throws IOException {
+        writer.write(out);
+        records++;
+        if (memory != null && memory.size() > maxMemoryBytes) {
+            spill();
+        }
+    }
+
+    /**
+     * Reads all the records in the order they were appended.
+     *
+     * @param reader        Reads the fields of one record
+     * @throws IOException  If the spill file can not be read
+     */
+    public void replay(RecordReader reader) throws IOException {
+        out.flush();
+        try (InputStream is = memory != null
+                ? new ByteArrayInputStream(memory.toByteArray())
+                : new MappedInputStream(file);
+             DataInputStream in = new DataInputStream(is)) {
+            for (long i = 0; i < records; i++) {
+                reader.read(in);
+            }
+        }
+    }
+
+    /**
+     * Writes a string that can be null, it is read back by readString.
+     *
+     * @param out           Record output
+     * @param value         String or null
+     * @throws IOException  If the string can not be written
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public boolean isSpilled() {
+        return memory == null;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            memory = null;
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public long getSize() throws IOException {
+        out.flush();
+        return memory != null ? memory.size() : Files.size(file);
+    }
+
+    private void spill() throws IOException {
+        file = Files.createTempFile(dir, name, ".spill");
+        OutputStream os = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+        memory.writeTo(os);
+        memory = null;
+        out = new DataOutputStream(os);
+    }
+
+    /**
+     * Reads a file through consecutive read-only mappings of up to MAP_WINDOW_SIZE bytes.
+     */
+    private static class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+        private MappedByteBuffer window;
+
+        MappedInputStream(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextWindow()) {
+                return -1;
+            }
+            return window.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextWindow()) {
+                return -1;
+            }
+            int read = Math.min(len, window.remaining());
+            window.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+
+        private boolean nextWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (position >= size) {
+                return false;
+            }
+            long length = Math.min(MAP_WINDOW_SIZE, size - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            return true;
+        }
+    }
+}
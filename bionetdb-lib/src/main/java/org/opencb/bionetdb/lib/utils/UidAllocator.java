@@ -0,0 +1,69 @@
+package org.opencb.bionetdb.lib.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe UID allocator. Each thread takes a contiguous block of UIDs from a shared counter and then hands them out
+ * without any synchronization, so the shared counter is only touched once per block.
+ * UIDs are unique but, with several threads, not consecutive: a block may be left partially used.
+ */
+public class UidAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final int blockSize;
+    private final AtomicLong next;
+    private final AtomicLong generation;
+    private final ThreadLocal<Block> blocks;
+
+    private static class Block {
+        private long generation;
+        private long next;
+        private long end;
+    }
+
+    public UidAllocator(long firstUid) {
+        this(firstUid, DEFAULT_BLOCK_SIZE);
+    }
+
+    public UidAllocator(long firstUid, int blockSize) {
+        this.blockSize = Math.max(1, blockSize);
+        this.next = new AtomicLong(firstUid);
+        this.generation = new AtomicLong(0);
+        this.blocks = ThreadLocal.withInitial(Block::new);
+    }
+
+    public long getAndInc() {
+        Block block = blocks.get();
+        if (block.next >= block.end || block.generation != generation.get()) {
+            // Reserve a new block, also when the counter was reset since this block was taken
+            block.generation = generation.get();
+            block.next = next.getAndAdd(blockSize);
+            block.end = block.next + blockSize;
+        }
+        return block.next++;
+    }
+
+    /**
+     * Returns a UID greater than any UID handed out so far, it is the value to save as UID counter.
+     *
+     * @return Next free UID
+     */
+    public long getHighWaterMark() {
+        return next.get();
+    }
+
+    /**
+     * Restarts the allocation from the given UID, the blocks taken by the threads so far are discarded.
+     *
+     * @param uid Next UID to allocate
+     */
+    public void reset(long uid) {
+        next.set(uid);
+        generation.incrementAndGet();
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+}
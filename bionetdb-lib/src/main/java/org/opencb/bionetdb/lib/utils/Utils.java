@@ -2,11 +2,16 @@ package org.opencb.bionetdb.lib.utils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.CollectionType;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.opencb.commons.utils.StringUtils;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class Utils {
 
@@ -40,4 +45,38 @@ public class Utils {
         String output = StringUtils.gunzip(bytes);
         return output;
     }
+
+    /**
+     * Value of an attribute as a node or relation property: numeric values as numbers, the rest as strings.
+     *
+     * @param value Attribute value
+     * @return      Property value
+     */
+    public static Object getAttributeValue(String value) {
+        if (NumberUtils.isDigits(value)) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                // Too long for a number, keep it as a string
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Deletes a directory and all its content, nothing is done if it does not exist.
+     *
+     * @param dir           Directory
+     * @throws IOException  If any file can not be deleted
+     */
+    public static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
 }
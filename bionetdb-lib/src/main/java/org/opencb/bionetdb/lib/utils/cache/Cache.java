@@ -7,55 +7,296 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import org.apache.commons.lang3.StringUtils;
 import org.opencb.bionetdb.lib.utils.RocksDbManager;
+import org.opencb.bionetdb.lib.utils.index.BloomFilter;
+import org.opencb.bionetdb.lib.utils.index.UidIndex;
+import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDB;
+import org.rocksdb.WriteBatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Objects indexed by their primary ID and their xrefs, in one RocksDB: the column family objects keeps the encoded objects and
+ * xrefs maps each xref to its primary ID.
+ */
 public abstract class Cache<T> {
+    public static final String OBJECTS_FAMILY = "objects";
+    public static final String XREFS_FAMILY = "xrefs";
+
     protected String objFilename;
-    protected String xrefObjFilename;
 
-    protected RocksDB objRocksDb;
-    protected RocksDB xrefObjRocksDb;
+    protected RocksDbManager.Store rocksDbStore;
+    protected ColumnFamilyHandle objFamily;
+    protected ColumnFamilyHandle xrefFamily;
     protected RocksDbManager rocksDbManager;
+    private boolean ownRocksDbManager;
+
+    // Shared caches are read-only, the xrefs added by a build go to its own overlay store
+    private boolean readOnly;
+    private String xrefOverlayFilename;
+    private RocksDB xrefOverlayRocksDb;
+
+    // Most xref lookups miss (new variants, unknown genes...), Bloom filters answer them without reaching RocksDB
+    public static final String XREF_FILTER_SUFFIX = ".xrefs.bloom";
+
+    private double xrefFilterFpp;
+    private volatile BloomFilter xrefFilter;
+    private volatile BloomFilter xrefOverlayFilter;
 
     protected ObjectMapper objMapper;
     protected ObjectReader objReader;
+    protected ValueCodec<T> codec;
+
+    // Most recently decoded objects, the same genes and proteins are looked up many times in a row
+    public static final int DEFAULT_LRU_SIZE = 256;
+
+    private Map<String, T> lru;
+    private int lruSize;
+    private LongAdder lruHits;
+    private LongAdder lruMisses;
+
+    // Bulk-load mode: writes are grouped in batches, pending writes are kept in maps to be readable before the batch is written
+    public static final int BULK_LOAD_BATCH_SIZE = 10000;
+    public static final long BULK_LOAD_BATCH_BYTES = 32L * 1024 * 1024;
+
+    private volatile boolean bulkLoad;
+    private WriteBatch batch;
+    private Map<String, byte[]> pendingObjs;
+    private Map<String, String> pendingXrefs;
+    private long pendingBytes;
 
     private static Logger logger;
 
-    public Cache(String objFilename, String xrefObjFilename) {
-        this.objFilename = objFilename;
-        this.xrefObjFilename = xrefObjFilename;
+    public Cache(String objFilename, Class<T> clazz) {
+        this(objFilename, clazz, false);
+    }
 
-        rocksDbManager = new RocksDbManager();
+    public Cache(String objFilename, Class<T> clazz, boolean readOnly) {
+        this(objFilename, clazz, readOnly, null);
+    }
 
-        // Delete protein RocksDB files
-        Paths.get(objFilename).toFile().delete();
-        Paths.get(xrefObjFilename).toFile().delete();
+    /**
+     * Opens the cache store.
+     *
+     * @param objFilename       RocksDB directory
+     * @param clazz             Class of the objects
+     * @param readOnly          Open read-only, e.g. a shared cache already indexed
+     * @param rocksDbManager    Manager whose block cache is shared with the other stores of the build, or null to use its own
+     */
+    public Cache(String objFilename, Class<T> clazz, boolean readOnly, RocksDbManager rocksDbManager) {
+        this.objFilename = objFilename;
+        this.readOnly = readOnly;
+        this.ownRocksDbManager = rocksDbManager == null;
+        this.rocksDbManager = rocksDbManager == null ? new RocksDbManager() : rocksDbManager;
 
-        // Create gene RocksDB files (protein and xrefs)
-        objRocksDb = rocksDbManager.getDBConnection(objFilename, true);
-        xrefObjRocksDb = rocksDbManager.getDBConnection(xrefObjFilename, true);
+        // Existing stores are reopened read-write, so a resumed build keeps the objects indexed by the previous run.
+        openStore(!readOnly, false);
 
         objMapper = new ObjectMapper();
         objMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         objMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
         objMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objReader = objMapper.readerFor(clazz);
+        codec = new SmileValueCodec<>(objMapper, clazz);
+
+        lruHits = new LongAdder();
+        lruMisses = new LongAdder();
+        setLruSize(DEFAULT_LRU_SIZE);
 
         logger = LoggerFactory.getLogger(this.getClass());
     }
 
 //    public abstract void index(Path input, Path output) throws IOException;
 
+    /**
+     * Reopens the RocksDB stores tuned for bulk loading. Until endBulkLoad() is called, saveObject/saveXref/addXrefId calls are
+     * grouped into WriteBatches written without WAL.
+     */
+    public synchronized void startBulkLoad() {
+        if (bulkLoad) {
+            return;
+        }
+        if (readOnly) {
+            throw new IllegalStateException("Cache " + objFilename + " is read-only");
+        }
+        rocksDbManager.close(rocksDbStore);
+        openStore(true, true);
+
+        batch = new WriteBatch();
+        pendingObjs = new ConcurrentHashMap<>();
+        pendingXrefs = new ConcurrentHashMap<>();
+        pendingBytes = 0;
+        bulkLoad = true;
+    }
+
+    /**
+     * Writes the pending batch and reopens the store with the default options, then compacts it, so the objects are
+     * compressed as the profile sets for the bottom level.
+     */
+    public synchronized void endBulkLoad() {
+        if (!bulkLoad) {
+            return;
+        }
+        writeBatches();
+        bulkLoad = false;
+        batch.close();
+
+        rocksDbManager.flush(rocksDbStore);
+        rocksDbManager.close(rocksDbStore);
+        openStore(true, false);
+
+        long start = System.currentTimeMillis();
+        rocksDbManager.compact(rocksDbStore);
+        logger.info("Compacting {} done in {} s", objFilename, (System.currentTimeMillis() - start) / 1000);
+    }
+
+    /**
+     * Opens the overlay store, from now on the xrefs added by addXrefId are saved there and the cache stores are not modified.
+     *
+     * @param xrefOverlayFilename   Overlay store
+     * @return                      This cache
+     */
+    public Cache<T> setXrefOverlay(String xrefOverlayFilename) {
+        this.xrefOverlayFilename = xrefOverlayFilename;
+        xrefOverlayRocksDb = rocksDbManager.getDBConnection(xrefOverlayFilename, true);
+        if (xrefFilterFpp > 0) {
+            xrefOverlayFilter = buildXrefFilter(xrefOverlayRocksDb, xrefOverlayRocksDb.getDefaultColumnFamily());
+        }
+        return this;
+    }
+
+    /**
+     * Puts Bloom filters in front of the xref stores, so looking up an unknown xref does not reach RocksDB. The filters are
+     * built from the keys already stored, the filter of a read-only cache is saved next to its store and loaded from there.
+     *
+     * @param fpp   False positive rate, 0 to disable the filters
+     * @return      This cache
+     */
+    public synchronized Cache<T> setXrefFilter(double fpp) {
+        this.xrefFilterFpp = fpp;
+        if (fpp <= 0) {
+            xrefFilter = null;
+            xrefOverlayFilter = null;
+            return this;
+        }
+
+        long start = System.currentTimeMillis();
+        BloomFilter filter = readOnly ? loadXrefFilter() : null;
+        if (filter == null || filter.getFpp() != fpp) {
+            filter = buildXrefFilter(rocksDbStore.getDb(), xrefFamily);
+            if (bulkLoad) {
+                pendingXrefs.keySet().forEach(filter::add);
+            }
+            xrefFilter = filter;
+            if (readOnly) {
+                saveXrefFilter();
+            }
+        } else {
+            xrefFilter = filter;
+        }
+        if (xrefOverlayRocksDb != null) {
+            xrefOverlayFilter = buildXrefFilter(xrefOverlayRocksDb, xrefOverlayRocksDb.getDefaultColumnFamily());
+        }
+        logger.info("Xref filter of {} ready in {} ms: {}", objFilename, System.currentTimeMillis() - start, xrefFilter);
+        return this;
+    }
+
+    /**
+     * Reopens the stores read-only, once they are indexed.
+     */
+    public synchronized void setReadOnly() {
+        if (readOnly) {
+            return;
+        }
+        endBulkLoad();
+        rocksDbManager.close(rocksDbStore);
+        openStore(false, false);
+        readOnly = true;
+        if (xrefFilter != null) {
+            saveXrefFilter();
+        }
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public synchronized void close() {
+        endBulkLoad();
+        rocksDbManager.close(rocksDbStore);
+        if (xrefOverlayRocksDb != null) {
+            rocksDbManager.close(xrefOverlayRocksDb);
+        }
+        if (ownRocksDbManager) {
+            rocksDbManager.close();
+        }
+    }
+
+    private void openStore(boolean forceCreate, boolean bulkLoad) {
+        Map<String, RocksDbManager.FamilyType> families = new LinkedHashMap<>();
+        families.put(OBJECTS_FAMILY, RocksDbManager.FamilyType.OBJECTS);
+        families.put(XREFS_FAMILY, RocksDbManager.FamilyType.INDEX);
+        rocksDbStore = rocksDbManager.getStore(objFilename, families, forceCreate, bulkLoad);
+        if (rocksDbStore == null) {
+            throw new IllegalStateException("Cache " + objFilename + " can not be opened, it may be in use by another build");
+        }
+        objFamily = rocksDbStore.getFamily(OBJECTS_FAMILY);
+        xrefFamily = rocksDbStore.getFamily(XREFS_FAMILY);
+    }
+
     public String getPrimaryId(String id) {
-        return rocksDbManager.getString(id, xrefObjRocksDb);
+        if (bulkLoad) {
+            String primaryId = pendingXrefs.get(id);
+            if (primaryId != null) {
+                return primaryId;
+            }
+        }
+        BloomFilter filter = xrefFilter;
+        BloomFilter overlayFilter = xrefOverlayFilter;
+        long hash = filter != null || overlayFilter != null ? UidIndex.hash64(id) : 0;
+
+        String primaryId = null;
+        if (filter == null || filter.mightContain(hash)) {
+            primaryId = rocksDbManager.getString(id, rocksDbStore.getDb(), xrefFamily);
+            if (primaryId == null && filter != null) {
+                filter.falsePositive();
+            }
+        }
+        if (primaryId == null && xrefOverlayRocksDb != null && (overlayFilter == null || overlayFilter.mightContain(hash))) {
+            primaryId = rocksDbManager.getString(id, xrefOverlayRocksDb);
+            if (primaryId == null && overlayFilter != null) {
+                overlayFilter.falsePositive();
+            }
+        }
+        return primaryId;
     }
 
     public void addXrefId(String xrefId, String primaryId) {
-        rocksDbManager.putString(xrefId, primaryId, xrefObjRocksDb);
+        if (xrefOverlayRocksDb != null) {
+            // Added to the filter before the store, a concurrent lookup never misses a stored xref
+            if (xrefOverlayFilter != null) {
+                xrefOverlayFilter.add(xrefId);
+            }
+            rocksDbManager.putString(xrefId, primaryId, xrefOverlayRocksDb);
+        } else {
+            saveXref(xrefId, primaryId);
+        }
     }
 
     public T get(String id) {
@@ -63,12 +304,28 @@ public abstract class Cache<T> {
 
         String primaryId = getPrimaryId(id);
         if (StringUtils.isNotEmpty(primaryId)) {
+            synchronized (lru) {
+                obj = lru.get(primaryId);
+            }
+            if (obj != null) {
+                lruHits.increment();
+                return obj;
+            }
+            lruMisses.increment();
+
+            byte[] value = getObjectValue(primaryId);
+            if (value == null) {
+                return null;
+            }
             try {
-                obj = objReader.readValue(rocksDbManager.getString(primaryId, objRocksDb));
+                obj = codec.decode(value);
+                synchronized (lru) {
+                    lru.put(primaryId, obj);
+                }
             } catch (Exception e) {
                 System.out.println(">>>>>>>>Error parsing object with ID " + id + ", primaryId = " + primaryId);
                 System.out.println(e.getMessage());
-                System.out.println(rocksDbManager.getString(primaryId, objRocksDb));
+                System.out.println(toJson(value));
                 System.out.println("===================================");
                 logger.info("Error parsing object with ID {}: {}", id, primaryId);
                 logger.info(e.getMessage());
@@ -80,22 +337,205 @@ public abstract class Cache<T> {
     }
 
     public void saveObject(String id, String json) {
-        rocksDbManager.putString(id, json, objRocksDb);
+        byte[] value;
+        try {
+            value = codec.encode(json);
+        } catch (Exception e) {
+            logger.info("Error encoding object with ID {}: {}", id, e.getMessage());
+            return;
+        }
+        synchronized (lru) {
+            lru.remove(id);
+        }
+
+        if (bulkLoad) {
+            synchronized (this) {
+                rocksDbManager.put(batch, objFamily, id.getBytes(), value);
+                pendingObjs.put(id, value);
+                pendingBytes += value.length;
+                checkBatches();
+            }
+        } else {
+            rocksDbManager.putBytes(id, value, rocksDbStore.getDb(), objFamily);
+        }
     }
 
     public void saveXref(String xref, String id) {
-        rocksDbManager.putString(xref, id, xrefObjRocksDb);
+        if (xrefFilter != null) {
+            xrefFilter.add(xref);
+        }
+        if (bulkLoad) {
+            synchronized (this) {
+                rocksDbManager.put(batch, xrefFamily, xref.getBytes(), id.getBytes());
+                pendingXrefs.put(xref, id);
+                pendingBytes += xref.length() + id.length();
+                checkBatches();
+            }
+        } else {
+            rocksDbManager.putString(xref, id, rocksDbStore.getDb(), xrefFamily);
+        }
+    }
+
+    public void printStats() {
+        logger.info("Cache {}: {} LRU hits, {} LRU misses", objFilename, getLruHits(), getLruMisses());
+        if (xrefFilter != null) {
+            logger.info("Cache {} xref filter: {}", objFilename, xrefFilter);
+        }
+        if (xrefOverlayFilter != null) {
+            logger.info("Cache {} xref overlay filter: {}", objFilename, xrefOverlayFilter);
+        }
+    }
+
+    private BloomFilter buildXrefFilter(RocksDB rocksDb, ColumnFamilyHandle family) {
+        BloomFilter filter = new BloomFilter(Math.max(rocksDbManager.estimateNumKeys(rocksDb, family),
+                BloomFilter.DEFAULT_EXPECTED_ENTRIES), xrefFilterFpp);
+        rocksDbManager.forEachKey(rocksDb, family, key -> filter.add(new String(key)));
+        return filter;
     }
 
-    public RocksDB getObjRocksDb() {
-        return objRocksDb;
+    private BloomFilter loadXrefFilter() {
+        Path path = Paths.get(getXrefFilterFilename());
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(path))) {
+            return BloomFilter.readFrom(new DataInputStream(is));
+        } catch (IOException e) {
+            logger.info("Error loading xref filter {}: {}", path, e.getMessage());
+            return null;
+        }
     }
 
-    public RocksDB getXrefObjRocksDb() {
-        return xrefObjRocksDb;
+    private void saveXrefFilter() {
+        // Written to a temporary file and renamed, other builds may be loading it
+        Path path = Paths.get(getXrefFilterFilename());
+        Path tmp = Paths.get(path + ".tmp");
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+            xrefFilter.writeTo(new DataOutputStream(os));
+        } catch (IOException e) {
+            logger.info("Error saving xref filter {}: {}", path, e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.info("Error saving xref filter {}: {}", path, e.getMessage());
+        }
+    }
+
+    private byte[] getObjectValue(String primaryId) {
+        if (bulkLoad) {
+            byte[] value = pendingObjs.get(primaryId);
+            if (value != null) {
+                return value;
+            }
+        }
+        return rocksDbManager.getBytes(primaryId, rocksDbStore.getDb(), objFamily);
+    }
+
+    private String toJson(byte[] value) {
+        try {
+            return codec.toJson(value);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private void checkBatches() {
+        if (batch.count() >= BULK_LOAD_BATCH_SIZE || pendingBytes >= BULK_LOAD_BATCH_BYTES) {
+            writeBatches();
+        }
+    }
+
+    private void writeBatches() {
+        // Write to RocksDB before clearing the pending maps, so readers always find the values. Objects and xrefs are in the
+        // same batch, they are written atomically
+        rocksDbManager.write(batch, rocksDbStore.getDb(), true);
+        batch.clear();
+        pendingObjs.clear();
+        pendingXrefs.clear();
+        pendingBytes = 0;
+    }
+
+    public String getObjFilename() {
+        return objFilename;
+    }
+
+    public String getXrefFilterFilename() {
+        return objFilename + XREF_FILTER_SUFFIX;
+    }
+
+    public RocksDbManager.Store getRocksDbStore() {
+        return rocksDbStore;
+    }
+
+    public ColumnFamilyHandle getObjFamily() {
+        return objFamily;
+    }
+
+    public ColumnFamilyHandle getXrefFamily() {
+        return xrefFamily;
+    }
+
+    public RocksDbManager getRocksDbManager() {
+        return rocksDbManager;
+    }
+
+    public String getXrefOverlayFilename() {
+        return xrefOverlayFilename;
+    }
+
+    public double getXrefFilterFpp() {
+        return xrefFilterFpp;
+    }
+
+    public BloomFilter getXrefFilter() {
+        return xrefFilter;
+    }
+
+    public BloomFilter getXrefOverlayFilter() {
+        return xrefOverlayFilter;
     }
 
     public ObjectReader getObjReader() {
         return objReader;
     }
+
+    public ValueCodec<T> getCodec() {
+        return codec;
+    }
+
+    /**
+     * Sets the encoding of the stored objects, it must be set before any object is saved.
+     *
+     * @param codec Value codec
+     * @return this
+     */
+    public Cache<T> setCodec(ValueCodec<T> codec) {
+        this.codec = codec;
+        return this;
+    }
+
+    public int getLruSize() {
+        return lruSize;
+    }
+
+    public Cache<T> setLruSize(int lruSize) {
+        this.lruSize = lruSize;
+        this.lru = new LinkedHashMap<String, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > Cache.this.lruSize;
+            }
+        };
+        return this;
+    }
+
+    public long getLruHits() {
+        return lruHits.sum();
+    }
+
+    public long getLruMisses() {
+        return lruMisses.sum();
+    }
 }
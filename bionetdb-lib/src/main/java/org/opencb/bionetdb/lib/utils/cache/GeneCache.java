@@ -1,18 +1,95 @@
 package org.opencb.bionetdb.lib.utils.cache;
 
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.core.MirnaTarget;
+import org.opencb.bionetdb.lib.utils.RocksDbManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
+import java.util.List;
 
 public class GeneCache extends Cache<Gene> {
     private static Logger logger;
 
+    /**
+     * Gene fields needed to create the gene nodes and their miRNA targets, the rest of the gene is skipped.
+     */
+    public static class GeneIds {
+        private String id;
+        private String name;
+        private String source;
+        private Annotation annotation;
+
+        /**
+         * Gene annotation, only the miRNA targets.
+         */
+        public static class Annotation {
+            private List<MirnaTarget> mirnaTargets;
+
+            public List<MirnaTarget> getMirnaTargets() {
+                return mirnaTargets;
+            }
+
+            public Annotation setMirnaTargets(List<MirnaTarget> mirnaTargets) {
+                this.mirnaTargets = mirnaTargets;
+                return this;
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public GeneIds setId(String id) {
+            this.id = id;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public GeneIds setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public GeneIds setSource(String source) {
+            this.source = source;
+            return this;
+        }
+
+        public Annotation getAnnotation() {
+            return annotation;
+        }
+
+        public GeneIds setAnnotation(Annotation annotation) {
+            this.annotation = annotation;
+            return this;
+        }
+    }
+
     public GeneCache(Path indexPath) {
-        super(indexPath + "/genes.rocksdb", indexPath + "/xref.genes.rocksdb");
+        this(indexPath, false);
+    }
+
+    public GeneCache(Path indexPath, boolean readOnly) {
+        this(indexPath, readOnly, null);
+    }
+
+    public GeneCache(Path indexPath, boolean readOnly, RocksDbManager rocksDbManager) {
+        super(indexPath + "/genes.rocksdb", Gene.class, readOnly, rocksDbManager);
 
-        objReader = objMapper.reader(Gene.class);
         logger = LoggerFactory.getLogger(this.getClass());
     }
+
+    public ObjectReader getIdsReader() {
+        return objMapper.readerFor(GeneIds.class);
+    }
 }
@@ -0,0 +1,36 @@
+package org.opencb.bionetdb.lib.utils.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stores the JSON text as it is, the former Cache format.
+ *
+ * @param <T> Object type
+ */
+public class JsonValueCodec<T> implements ValueCodec<T> {
+
+    private ObjectReader reader;
+
+    public JsonValueCodec(ObjectMapper jsonMapper, Class<T> clazz) {
+        this.reader = jsonMapper.readerFor(clazz);
+    }
+
+    @Override
+    public byte[] encode(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public T decode(byte[] value) throws IOException {
+        return reader.readValue(value);
+    }
+
+    @Override
+    public String toJson(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -1,19 +1,128 @@
 package org.opencb.bionetdb.lib.utils.cache;
 
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.formats.protein.uniprot.v202003jaxb.DbReferenceType;
 import org.opencb.biodata.formats.protein.uniprot.v202003jaxb.Entry;
+import org.opencb.biodata.formats.protein.uniprot.v202003jaxb.EvidencedStringType;
+import org.opencb.biodata.formats.protein.uniprot.v202003jaxb.PropertyType;
+import org.opencb.bionetdb.lib.utils.RocksDbManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class ProteinCache extends Cache<Entry> {
 
     protected static Logger logger;
 
+    /**
+     * Protein fields needed to create the protein nodes when the cache is already indexed, the rest of the entry is skipped.
+     */
+    public static class ProteinIds {
+        private List<String> accession;
+        private List<String> name;
+
+        public List<String> getAccession() {
+            return accession;
+        }
+
+        public ProteinIds setAccession(List<String> accession) {
+            this.accession = accession;
+            return this;
+        }
+
+        public List<String> getName() {
+            return name;
+        }
+
+        public ProteinIds setName(List<String> name) {
+            this.name = name;
+            return this;
+        }
+    }
+
     public ProteinCache(Path indexPath) {
-        super(indexPath + "/proteins.rocksdb", indexPath + "/xref.proteins.rocksdb");
+        this(indexPath, false);
+    }
+
+    public ProteinCache(Path indexPath, boolean readOnly) {
+        this(indexPath, readOnly, null);
+    }
+
+    public ProteinCache(Path indexPath, boolean readOnly, RocksDbManager rocksDbManager) {
+        super(indexPath + "/proteins.rocksdb", Entry.class, readOnly, rocksDbManager);
 
-        objReader = objMapper.reader(Entry.class);
         logger = LoggerFactory.getLogger(this.getClass());
     }
+
+    /**
+     * Saves the protein and its xrefs: accessions, short names, names and database references.
+     *
+     * @param jsonProtein   Protein in JSON format
+     * @param protein       Protein
+     */
+    public void index(String jsonProtein, Entry protein) {
+        if (CollectionUtils.isEmpty(protein.getAccession())) {
+            return;
+        }
+
+        // Save protein in RocksDB
+        String proteinAcc = protein.getAccession().get(0);
+        saveObject(proteinAcc, jsonProtein);
+
+        // Save protein xrefs
+        saveXref(proteinAcc, proteinAcc);
+        for (String acc: protein.getAccession()) {
+            saveXref(acc, proteinAcc);
+        }
+
+        if (protein.getProtein() != null && protein.getProtein().getRecommendedName() != null
+                && CollectionUtils.isNotEmpty(protein.getProtein().getRecommendedName().getShortName())) {
+            for (EvidencedStringType shortName : protein.getProtein().getRecommendedName().getShortName()) {
+                if (StringUtils.isNotEmpty(shortName.getValue())) {
+                    saveXref(shortName.getValue(), proteinAcc);
+                }
+            }
+        }
+
+        if (CollectionUtils.isNotEmpty(protein.getName())) {
+            for (String name: protein.getName()) {
+                saveXref(name, proteinAcc);
+            }
+        }
+
+        if (CollectionUtils.isNotEmpty(protein.getDbReference())) {
+            Set<String> done = new HashSet<>();
+            for (DbReferenceType dbRef: protein.getDbReference()) {
+                if ("Ensembl".equals(dbRef.getType())) {
+                    for (PropertyType propertyType : dbRef.getProperty()) {
+                        if ("protein sequence ID".equals(propertyType.getType())) {
+                            String xrefId = dbRef.getType() + "." + propertyType.getValue();
+                            // In the list, one db reference can be multiple times
+                            if (!done.contains(xrefId)) {
+                                saveXref(xrefId, proteinAcc);
+                                done.add(xrefId);
+                            }
+                            break;
+                        }
+                    }
+                }
+                String xrefId = dbRef.getType() + "." + dbRef.getId();
+                // In the list, one db reference can be multiple times
+                if (!done.contains(xrefId)) {
+                    saveXref(xrefId, proteinAcc);
+                    done.add(xrefId);
+                }
+            }
+        }
+    }
+
+    public ObjectReader getIdsReader() {
+        return objMapper.readerFor(ProteinIds.class);
+    }
 }
@@ -0,0 +1,309 @@
+package org.opencb.bionetdb.lib.utils.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.opencb.bionetdb.lib.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Gene and protein caches shared by builds, stored by type and by the checksum of their input files:
+ * cacheDir/genes/checksum and cacheDir/proteins/checksum. A complete cache is opened read-only by any build of the same
+ * release, so several builds can use it at the same time.
+ */
+public class ReferenceCacheStore {
+
+    public static final String GENES = "genes";
+    public static final String PROTEINS = "proteins";
+    public static final String METADATA_FILENAME = "cache.json";
+
+    // Part of the checksum, caches written in an older layout are not reused. 2: objects and xrefs in one RocksDB
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private Path cacheDir;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(SerializationFeature.INDENT_OUTPUT, true);
+
+    private static Logger logger = LoggerFactory.getLogger(ReferenceCacheStore.class);
+
+    /**
+     * Cached release: its input files and state, saved as JSON in its directory.
+     */
+    public static class Release {
+        private String type;
+        private String checksum;
+        private List<String> inputs;
+        private long inputBytes;
+        private boolean complete;
+        private long created;
+        private long lastUsed;
+
+        @JsonIgnore
+        private Path path;
+
+        public Release() {
+            inputs = new ArrayList<>();
+        }
+
+        @JsonIgnore
+        public long getSize() throws IOException {
+            try (Stream<Path> paths = Files.walk(path)) {
+                long size = 0;
+                for (Path file : (Iterable<Path>) paths::iterator) {
+                    if (Files.isRegularFile(file)) {
+                        size += Files.size(file);
+                    }
+                }
+                return size;
+            }
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("Release{");
+            sb.append("type='").append(type).append('\'');
+            sb.append(", checksum='").append(checksum).append('\'');
+            sb.append(", inputs=").append(inputs);
+            sb.append(", complete=").append(complete);
+            sb.append(", lastUsed=").append(lastUsed);
+            sb.append('}');
+            return sb.toString();
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Release setType(String type) {
+            this.type = type;
+            return this;
+        }
+
+        public String getChecksum() {
+            return checksum;
+        }
+
+        public Release setChecksum(String checksum) {
+            this.checksum = checksum;
+            return this;
+        }
+
+        public List<String> getInputs() {
+            return inputs;
+        }
+
+        public Release setInputs(List<String> inputs) {
+            this.inputs = inputs;
+            return this;
+        }
+
+        public long getInputBytes() {
+            return inputBytes;
+        }
+
+        public Release setInputBytes(long inputBytes) {
+            this.inputBytes = inputBytes;
+            return this;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public Release setComplete(boolean complete) {
+            this.complete = complete;
+            return this;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public Release setCreated(long created) {
+            this.created = created;
+            return this;
+        }
+
+        public long getLastUsed() {
+            return lastUsed;
+        }
+
+        public Release setLastUsed(long lastUsed) {
+            this.lastUsed = lastUsed;
+            return this;
+        }
+
+        @JsonIgnore
+        public Path getPath() {
+            return path;
+        }
+
+        @JsonIgnore
+        public Release setPath(Path path) {
+            this.path = path;
+            return this;
+        }
+    }
+
+    public ReferenceCacheStore(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Gets the cached release of the input files, a new empty one is created if there is none.
+     *
+     * @param type          Cache type, GENES or PROTEINS
+     * @param inputs        Input files, in the order they are indexed
+     * @return              Release, it has to be indexed if it is not complete
+     * @throws IOException  If the input files can not be read or the release can not be created
+     */
+    public Release open(String type, List<Path> inputs) throws IOException {
+        long start = System.currentTimeMillis();
+        String checksum = checksum(inputs);
+        logger.info("Checksum of {} input files {} computed in {} ms: {}", type, inputs, System.currentTimeMillis() - start, checksum);
+
+        Path path = cacheDir.resolve(type).resolve(checksum);
+        Release release = load(path);
+        if (release == null) {
+            Files.createDirectories(path);
+            release = new Release().setType(type).setChecksum(checksum).setCreated(System.currentTimeMillis()).setPath(path);
+            for (Path input : inputs) {
+                release.getInputs().add(input.getFileName().toString());
+                release.setInputBytes(release.getInputBytes() + Files.size(input));
+            }
+        }
+        release.setLastUsed(System.currentTimeMillis());
+        save(release);
+        return release;
+    }
+
+    /**
+     * Marks the release as complete, from now on it is opened read-only.
+     *
+     * @param release       Release
+     * @throws IOException  If the release metadata can not be written
+     */
+    public void complete(Release release) throws IOException {
+        release.setComplete(true);
+        save(release);
+    }
+
+    /**
+     * Lists the cached releases.
+     *
+     * @return              Releases sorted by type and by last use, most recent first
+     * @throws IOException  If the cache directory can not be read
+     */
+    public List<Release> list() throws IOException {
+        List<Release> releases = new ArrayList<>();
+        for (String type : new String[]{GENES, PROTEINS}) {
+            Path typeDir = cacheDir.resolve(type);
+            if (!Files.isDirectory(typeDir)) {
+                continue;
+            }
+            try (DirectoryStream<Path> paths = Files.newDirectoryStream(typeDir)) {
+                for (Path path : paths) {
+                    Release release = load(path);
+                    if (release != null) {
+                        releases.add(release);
+                    }
+                }
+            }
+        }
+        releases.sort(Comparator.comparing(Release::getType).thenComparing(Release::getLastUsed, Comparator.reverseOrder()));
+        return releases;
+    }
+
+    /**
+     * Removes the incomplete releases and, for each type, the complete ones but the most recently used. Releases being
+     * indexed by a running build are incomplete, so no build must be running.
+     *
+     * @param keep          Complete releases to keep by type
+     * @return              Removed releases
+     * @throws IOException  If any release can not be removed
+     */
+    public List<Release> prune(int keep) throws IOException {
+        List<Release> removed = new ArrayList<>();
+        String type = null;
+        int kept = 0;
+        for (Release release : list()) {
+            if (!release.getType().equals(type)) {
+                type = release.getType();
+                kept = 0;
+            }
+            if (release.isComplete() && kept < keep) {
+                kept++;
+            } else {
+                Utils.deleteDirectory(release.getPath());
+                removed.add(release);
+            }
+        }
+        return removed;
+    }
+
+    public static String checksum(List<Path> inputs) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(FORMAT_VERSION).array());
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (Path input : inputs) {
+            try (InputStream is = Files.newInputStream(input)) {
+                int read;
+                while ((read = is.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            // File sizes are included, so moving bytes from one file to the next changes the checksum
+            digest.update(ByteBuffer.allocate(Long.BYTES).putLong(Files.size(input)).array());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private Release load(Path path) throws IOException {
+        Path file = path.resolve(METADATA_FILENAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        return MAPPER.readValue(file.toFile(), Release.class).setPath(path);
+    }
+
+    private void save(Release release) throws IOException {
+        // Written to a temporary file and renamed, a release is never left with partial metadata
+        Path tmp = release.getPath().resolve(METADATA_FILENAME + ".tmp");
+        MAPPER.writeValue(tmp.toFile(), release);
+        Files.move(tmp, release.getPath().resolve(METADATA_FILENAME), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+}
@@ -0,0 +1,67 @@
+package org.opencb.bionetdb.lib.utils.cache;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Stores objects in Smile, the Jackson binary JSON format. The JSON input is transcoded token by token, so nothing is lost,
+ * and property names and short string values are written once per object and then back-referenced.
+ *
+ * @param <T> Object type
+ */
+public class SmileValueCodec<T> implements ValueCodec<T> {
+
+    private JsonFactory jsonFactory;
+    private SmileFactory smileFactory;
+    private ObjectReader reader;
+
+    public SmileValueCodec(ObjectMapper jsonMapper, Class<T> clazz) {
+        this.jsonFactory = jsonMapper.getFactory();
+        this.smileFactory = new SmileFactory();
+        this.smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+
+        // Same deserialization settings as the Cache JSON mapper, only the data format changes
+        ObjectMapper smileMapper = new ObjectMapper(smileFactory);
+        smileMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+        smileMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.reader = smileMapper.readerFor(clazz);
+    }
+
+    @Override
+    public byte[] encode(String json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length() / 2);
+        try (JsonParser parser = jsonFactory.createParser(json);
+             JsonGenerator generator = smileFactory.createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public T decode(byte[] value) throws IOException {
+        return reader.readValue(value);
+    }
+
+    @Override
+    public String toJson(byte[] value) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonParser parser = smileFactory.createParser(value);
+             JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        return writer.toString();
+    }
+}
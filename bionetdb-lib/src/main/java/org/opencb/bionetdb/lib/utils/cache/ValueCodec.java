@@ -0,0 +1,17 @@
+package org.opencb.bionetdb.lib.utils.cache;
+
+import java.io.IOException;
+
+/**
+ * Encoding of the objects stored by a Cache. Objects arrive as JSON strings, as they are read from the input files.
+ *
+ * @param <T> Object type
+ */
+public interface ValueCodec<T> {
+
+    byte[] encode(String json) throws IOException;
+
+    T decode(byte[] value) throws IOException;
+
+    String toJson(byte[] value) throws IOException;
+}
@@ -0,0 +1,235 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream that hands the data to a thread pool in chunks, so the compression and the disk writes do not run on the
+ * thread producing the data. Chunks are always written in order, a few chunks per stream can be pending, after that the
+ * writer blocks until the pool catches up.
+ */
+public class AsyncCompressedOutputStream extends OutputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_PENDING_CHUNKS = 4;
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final OutputStream fileOut;
+    private final int level;
+    private OutputStream out;
+    private final CompressionTask compressionTask;
+    private final ExecutorService pool;
+    private final int chunkSize;
+    private final Semaphore pendingChunks;
+
+    private byte[] buffer;
+    private int count;
+    private CompletableFuture<Void> tail;
+    private volatile IOException error;
+    private boolean closed;
+
+    @FunctionalInterface
+    private interface CompressionTask {
+        byte[] compress(byte[] chunk, int length) throws IOException;
+    }
+
+    public AsyncCompressedOutputStream(OutputStream fileOut, CsvCompression compression, int level, ExecutorService pool)
+            throws IOException {
+        this(fileOut, compression, level, pool, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_PENDING_CHUNKS);
+    }
+
+    public AsyncCompressedOutputStream(OutputStream fileOut, CsvCompression compression, int level, ExecutorService pool,
+                                       int chunkSize, int maxPendingChunks) throws IOException {
+        this.fileOut = fileOut;
+        this.level = level;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.pendingChunks = new Semaphore(Math.max(1, maxPendingChunks));
+
+        switch (compression) {
+            case GZIP:
+                // A single deflate stream, chunks are compressed one after the other
+                this.out = newGzipStream(fileOut, level);
+                this.compressionTask = null;
+                break;
+            case PARALLEL_GZIP:
+                // Each chunk is a complete gzip member, they can be compressed at the same time
+                this.out = fileOut;
+                this.compressionTask = (chunk, length) -> gzipMember(chunk, length, level);
+                break;
+            case NONE:
+            default:
+                this.out = fileOut;
+                this.compressionTask = null;
+                break;
+        }
+
+        this.buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, chunkSize)];
+        this.count = 0;
+        this.tail = CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            ensureCapacity();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == buffer.length) {
+                ensureCapacity();
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Waits for all the pending chunks to be written.
+     *
+     * @throws IOException If any chunk could not be written
+     */
+    @Override
+    public void flush() throws IOException {
+        submitBuffer();
+        waitForPendingChunks();
+        (out == null ? fileOut : out).flush();
+    }
+
+    /**
+     * Writes the pending chunks and, with GZIP, ends the current gzip member, so the file is complete up to this point: it can
+     * be truncated here and appended later, since concatenated gzip members are read as a single stream. The next write starts
+     * a new member.
+     *
+     * @throws IOException If any chunk could not be written
+     */
+    public void finishMember() throws IOException {
+        submitBuffer();
+        waitForPendingChunks();
+        if (out instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) out).finish();
+            out = null;
+        }
+        fileOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submitBuffer();
+            waitForPendingChunks();
+        } finally {
+            (out == null ? fileOut : out).close();
+        }
+    }
+
+    private void ensureCapacity() throws IOException {
+        if (buffer.length < chunkSize) {
+            // Buffers grow up to the chunk size, most of the files are small
+            byte[] newBuffer = new byte[Math.min(buffer.length * 2, chunkSize)];
+            System.arraycopy(buffer, 0, newBuffer, 0, count);
+            buffer = newBuffer;
+        } else {
+            submitBuffer();
+        }
+    }
+
+    private void submitBuffer() throws IOException {
+        checkError();
+        if (count == 0) {
+            return;
+        }
+        try {
+            pendingChunks.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+
+        byte[] chunk = buffer;
+        int length = count;
+        if (compressionTask == null) {
+            tail = tail.thenRunAsync(() -> writeChunk(chunk, length), pool);
+        } else {
+            CompletableFuture<byte[]> compressed = CompletableFuture.supplyAsync(() -> compress(chunk, length), pool);
+            tail = tail.thenCombineAsync(compressed, (Void v, byte[] bytes) -> {
+                writeChunk(bytes, bytes == null ? 0 : bytes.length);
+                return null;
+            }, pool);
+        }
+
+        buffer = new byte[chunkSize];
+        count = 0;
+    }
+
+    private byte[] compress(byte[] chunk, int length) {
+        if (error != null) {
+            return null;
+        }
+        try {
+            return compressionTask.compress(chunk, length);
+        } catch (IOException e) {
+            error = e;
+            return null;
+        }
+    }
+
+    private void writeChunk(byte[] chunk, int length) {
+        try {
+            if (error == null && chunk != null) {
+                if (out == null) {
+                    out = newGzipStream(fileOut, level);
+                }
+                out.write(chunk, 0, length);
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            pendingChunks.release();
+        }
+    }
+
+    private void waitForPendingChunks() throws IOException {
+        tail.join();
+        checkError();
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static OutputStream newGzipStream(OutputStream out, int level) throws IOException {
+        return new GZIPOutputStream(out, 64 * 1024) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    private static byte[] gzipMember(byte[] chunk, int length, int level) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 4);
+        try (OutputStream gzip = newGzipStream(bytes, level)) {
+            gzip.write(chunk, 0, length);
+        }
+        return bytes.toByteArray();
+    }
+}
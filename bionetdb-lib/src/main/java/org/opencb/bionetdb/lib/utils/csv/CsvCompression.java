@@ -0,0 +1,48 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+/**
+ * Compression of the CSV files written by the builder.
+ */
+public enum CsvCompression {
+
+    /** One gzip stream per file, compressed on a background thread. */
+    GZIP(".csv.gz"),
+
+    /** Independent gzip members per block, compressed in parallel and concatenated, any gzip reader can read them. */
+    PARALLEL_GZIP(".csv.gz"),
+
+    /** Plain text, the fastest option when the import runs on the same machine. */
+    NONE(".csv");
+
+    private final String extension;
+
+    CsvCompression(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Parses the compression name, also accepts the short names gzip, pgzip and none.
+     *
+     * @param name Compression name
+     * @return CSV compression
+     */
+    public static CsvCompression parse(String name) {
+        switch (name.toLowerCase()) {
+            case "gz":
+            case "gzip":
+                return GZIP;
+            case "pgzip":
+            case "parallel_gzip":
+                return PARALLEL_GZIP;
+            case "none":
+            case "csv":
+                return NONE;
+            default:
+                throw new IllegalArgumentException("Unknown CSV compression '" + name + "', valid values are: gzip, pgzip, none");
+        }
+    }
+}
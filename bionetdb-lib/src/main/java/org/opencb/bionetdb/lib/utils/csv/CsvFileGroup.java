@@ -0,0 +1,191 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+import org.opencb.commons.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CSV files of a node label or a relation in a build directory: a single file starting with the header line, or the header
+ * file and the part files written by ShardedCsvWriter.
+ */
+public class CsvFileGroup {
+
+    private static final Pattern PART_PATTERN = Pattern.compile("(.+)" + Pattern.quote(ShardedCsvWriter.PART_SUFFIX) + "(\\d+)");
+
+    private final String name;
+    private Path file;
+    private Path header;
+    private final Map<Integer, Path> parts;
+
+    public CsvFileGroup(String name) {
+        this.name = name;
+        this.parts = new TreeMap<>();
+    }
+
+    /**
+     * Lists the CSV file groups of a directory.
+     *
+     * @param path  Directory
+     * @return      CSV file groups sorted by name
+     */
+    public static List<CsvFileGroup> list(Path path) {
+        Map<String, CsvFileGroup> groups = new TreeMap<>();
+        File[] files = path.toFile().listFiles();
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        for (File file : files) {
+            String name = removeCsvExtension(file.getName());
+            if (!file.isFile() || name == null) {
+                continue;
+            }
+            Matcher matcher = PART_PATTERN.matcher(name);
+            if (matcher.matches()) {
+                groups.computeIfAbsent(matcher.group(1), CsvFileGroup::new).parts.put(Integer.parseInt(matcher.group(2)), file.toPath());
+            } else if (name.endsWith(ShardedCsvWriter.HEADER_SUFFIX)) {
+                String groupName = name.substring(0, name.length() - ShardedCsvWriter.HEADER_SUFFIX.length());
+                groups.computeIfAbsent(groupName, CsvFileGroup::new).header = file.toPath();
+            } else {
+                groups.computeIfAbsent(name, CsvFileGroup::new).file = file.toPath();
+            }
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Gets the CSV file group of a node label or relation.
+     *
+     * @param path          Directory
+     * @param name          Node label or relation file name
+     * @return              CSV file group
+     * @throws IOException  If there are no CSV files with that name
+     */
+    public static CsvFileGroup get(Path path, String name) throws IOException {
+        for (CsvFileGroup group : list(path)) {
+            if (group.getName().equals(name)) {
+                return group;
+            }
+        }
+        throw new IOException("CSV file " + name + " not found in " + path);
+    }
+
+    /**
+     * Removes the CSV extension of a file name.
+     *
+     * @param filename  File name
+     * @return          File name without extension, or null if it is not a CSV file
+     */
+    public static String removeCsvExtension(String filename) {
+        for (CsvCompression compression : CsvCompression.values()) {
+            if (filename.endsWith(compression.getExtension())) {
+                return filename.substring(0, filename.length() - compression.getExtension().length());
+            }
+        }
+        return null;
+    }
+
+    public boolean isSharded() {
+        return header != null;
+    }
+
+    /**
+     * Gets the files in import order: the header file and the parts, or the single file.
+     *
+     * @return  Files
+     */
+    public List<Path> getFiles() {
+        List<Path> files = new ArrayList<>();
+        if (isSharded()) {
+            files.add(header);
+            files.addAll(parts.values());
+        } else if (file != null) {
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Checks whether there are no rows, i.e. only the header line.
+     *
+     * @return              True if there are no rows
+     * @throws IOException  If the files can not be read
+     */
+    public boolean isEmpty() throws IOException {
+        try (BufferedReader bufferedReader = newBufferedReader()) {
+            return bufferedReader.readLine() == null || bufferedReader.readLine() == null;
+        }
+    }
+
+    /**
+     * Opens a reader over the header line and all the rows, as if the group was a single file.
+     *
+     * @return              Reader
+     * @throws IOException  If any file can not be opened
+     */
+    public BufferedReader newBufferedReader() throws IOException {
+        return new BufferedReader(new ConcatReader(getFiles()));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Path getHeader() {
+        return header;
+    }
+
+    public List<Path> getParts() {
+        return new ArrayList<>(parts.values());
+    }
+
+    /**
+     * Reads the files one after the other, each one is opened when the previous one ends.
+     */
+    private static class ConcatReader extends Reader {
+        private final List<Path> files;
+        private int next;
+        private Reader current;
+
+        ConcatReader(List<Path> files) {
+            this.files = files;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            while (true) {
+                if (current == null) {
+                    if (next >= files.size()) {
+                        return -1;
+                    }
+                    current = FileUtils.newBufferedReader(files.get(next++));
+                }
+                int read = current.read(cbuf, off, len);
+                if (read != -1) {
+                    return read;
+                }
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            next = files.size();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+import org.opencb.bionetdb.core.models.network.Node;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.opencb.bionetdb.lib.utils.CsvInfo.ARRAY_SEPARATOR;
+import static org.opencb.bionetdb.lib.utils.CsvInfo.MISSING_VALUE;
+import static org.opencb.bionetdb.lib.utils.CsvInfo.SEPARATOR;
+
+/**
+ * Serialises node and relation lines straight into a reusable char buffer, so no intermediate strings are created.
+ * Double quotes are removed, empty values are written as missing values and collections are joined by commas, as
+ * StringUtils.join does. Writes synchronize on the underlying writer.
+ */
+public class CsvLineWriter {
+
+    private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+
+    private final Writer bw;
+    private char[] buffer;
+    private int length;
+
+    // Lines and characters written, before compression
+    private volatile long lines;
+    private volatile long chars;
+
+    public CsvLineWriter(Writer bw) {
+        this.bw = bw;
+        this.buffer = new char[1024];
+    }
+
+    /**
+     * Writes a node line: UID, ID, name, the given attributes and the labels.
+     *
+     * @param node          Node
+     * @param attributes    Attribute names after UID, ID and name, or null if the label has no attributes, then only the labels
+     *                      are written
+     * @throws IOException  If the line can not be written
+     */
+    public void writeNode(Node node, String[] attributes) throws IOException {
+        synchronized (bw) {
+            length = 0;
+            if (attributes != null) {
+                appendLong(node.getUid());
+                append(SEPARATOR);
+                appendValue(node.getId());
+                append(SEPARATOR);
+                appendValue(node.getName());
+                Map<String, Object> nodeAttributes = node.getAttributes();
+                for (String attribute : attributes) {
+                    append(SEPARATOR);
+                    appendValue(nodeAttributes == null ? null : nodeAttributes.get(attribute));
+                }
+            }
+
+            List<Node.Label> labels = node.getLabels();
+            append(SEPARATOR);
+            append(labels.get(0).toString());
+            for (int i = 1; i < labels.size(); i++) {
+                append(ARRAY_SEPARATOR);
+                append(labels.get(i).toString());
+            }
+            writeBuffer();
+        }
+    }
+
+    public void writeRelation(long origUid, long destUid) throws IOException {
+        synchronized (bw) {
+            length = 0;
+            appendLong(origUid);
+            append(SEPARATOR);
+            appendLong(destUid);
+            writeBuffer();
+        }
+    }
+
+    public Writer getWriter() {
+        return bw;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getChars() {
+        return chars;
+    }
+
+    private void writeBuffer() throws IOException {
+        ensureCapacity(LINE_SEPARATOR.length);
+        System.arraycopy(LINE_SEPARATOR, 0, buffer, length, LINE_SEPARATOR.length);
+        length += LINE_SEPARATOR.length;
+        bw.write(buffer, 0, length);
+        lines++;
+        chars += length;
+    }
+
+    private void appendValue(Object value) {
+        int start = length;
+        if (value instanceof String) {
+            appendClean((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            appendLong(((Number) value).longValue());
+        } else if (value instanceof Collection) {
+            // Same format as StringUtils.join, null items are empty
+            boolean first = true;
+            for (Object item : (Collection<?>) value) {
+                if (!first) {
+                    append(",");
+                }
+                if (item != null) {
+                    appendClean(item.toString());
+                }
+                first = false;
+            }
+        } else if (value != null) {
+            appendClean(value.toString());
+        }
+        if (length == start) {
+            append(MISSING_VALUE);
+        }
+    }
+
+    private void appendClean(String value) {
+        int size = value.length();
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            if (c != '"') {
+                buffer[length++] = c;
+            }
+        }
+    }
+
+    private void append(String value) {
+        int size = value.length();
+        ensureCapacity(size);
+        value.getChars(0, size, buffer, length);
+        length += size;
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        // Digits are written backwards and then reversed
+        int start = length;
+        do {
+            buffer[length++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (length + size > buffer.length) {
+            char[] newBuffer = new char[Math.max(buffer.length * 2, length + size)];
+            System.arraycopy(buffer, 0, newBuffer, 0, length);
+            buffer = newBuffer;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the CSV writers of a build. Compression and disk writes run on a thread pool shared by all the files, so the
+ * build threads only fill buffers.
+ */
+public class CsvWriterFactory implements Closeable {
+
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    public static final int WRITER_BUFFER_SIZE = 64 * 1024;
+    public static final int FILE_BUFFER_SIZE = 256 * 1024;
+
+    private CsvCompression compression;
+    private int compressionLevel;
+    private int numThreads;
+    private ExecutorService pool;
+    private Map<String, CsvFile> files;
+    // Lengths of the files closed before the build ends, i.e. rolled over part files
+    private Map<String, Long> closedLengths;
+
+    private static class CsvFile {
+        private final Path path;
+        private final FileOutputStream fileOut;
+        private final AsyncCompressedOutputStream out;
+        private final BufferedWriter writer;
+
+        CsvFile(Path path, FileOutputStream fileOut, AsyncCompressedOutputStream out, BufferedWriter writer) {
+            this.path = path;
+            this.fileOut = fileOut;
+            this.out = out;
+            this.writer = writer;
+        }
+    }
+
+    public CsvWriterFactory() {
+        this(CsvCompression.GZIP, DEFAULT_COMPRESSION_LEVEL, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CsvWriterFactory(CsvCompression compression, int compressionLevel, int numThreads) {
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+        this.numThreads = Math.max(1, numThreads);
+        this.files = new LinkedHashMap<>();
+        this.closedLengths = new TreeMap<>();
+    }
+
+    public BufferedWriter newWriter(Path outputPath, String name) throws IOException {
+        return openWriter(outputPath.resolve(getFilename(name)), false);
+    }
+
+    /**
+     * Creates the CSV writer of a node label or relation file. With a row or byte limit the file is split into a header file
+     * and part files, see ShardedCsvWriter.
+     *
+     * @param outputPath    Directory of the CSV files
+     * @param name          File name, without extension
+     * @param maxRows       Rows by part file, 0 for no limit
+     * @param maxBytes      Bytes of text by part file, 0 for no limit
+     * @return              Writer, a single file if there are no limits
+     * @throws IOException  If the file can not be created
+     */
+    public Writer newCsvWriter(Path outputPath, String name, long maxRows, long maxBytes) throws IOException {
+        if (maxRows <= 0 && maxBytes <= 0) {
+            return newWriter(outputPath, name);
+        }
+        return new ShardedCsvWriter(this, outputPath, name, maxRows, maxBytes, 0, true);
+    }
+
+    /**
+     * Reopens the CSV writer of a resumed build, a single file or a sharded one as it was written before the checkpoint.
+     * The last part is truncated to its checkpoint length, the part files written after the checkpoint are removed and the
+     * new rows go to a new part file.
+     *
+     * @param outputPath    Directory of the CSV files
+     * @param name          File name, without extension
+     * @param lengths       File lengths returned by checkpoint()
+     * @param maxRows       Rows by part file, 0 for no limit
+     * @param maxBytes      Bytes of text by part file, 0 for no limit
+     * @return              Writer appending to the file or adding part files
+     * @throws IOException  If the file is not in the checkpoint or can not be reopened
+     */
+    public Writer appendCsvWriter(Path outputPath, String name, Map<String, Long> lengths, long maxRows, long maxBytes)
+            throws IOException {
+        if (lengths.containsKey(getFilename(name))) {
+            return appendWriter(outputPath, name, lengths.get(getFilename(name)));
+        }
+        if (maxRows <= 0 && maxBytes <= 0) {
+            throw new IOException("CSV file " + getFilename(name) + " not found in the build manifest");
+        }
+        // Sharded files are not created until their first line, nothing was written before the checkpoint
+        String headerFilename = getFilename(ShardedCsvWriter.headerName(name));
+        if (!lengths.containsKey(headerFilename)) {
+            deleteParts(outputPath, name, 1);
+            Files.deleteIfExists(outputPath.resolve(headerFilename));
+            return newCsvWriter(outputPath, name, maxRows, maxBytes);
+        }
+
+        int lastPart = 0;
+        while (lengths.containsKey(getFilename(ShardedCsvWriter.partName(name, lastPart + 1)))) {
+            lastPart++;
+        }
+        if (lastPart > 0) {
+            truncate(outputPath.resolve(getFilename(ShardedCsvWriter.partName(name, lastPart))),
+                    lengths.get(getFilename(ShardedCsvWriter.partName(name, lastPart))));
+        }
+        synchronized (this) {
+            closedLengths.put(headerFilename, lengths.get(headerFilename));
+            for (int i = 1; i <= lastPart; i++) {
+                String partFilename = getFilename(ShardedCsvWriter.partName(name, i));
+                closedLengths.put(partFilename, lengths.get(partFilename));
+            }
+        }
+        deleteParts(outputPath, name, lastPart + 1);
+        return new ShardedCsvWriter(this, outputPath, name, maxRows, maxBytes, lastPart, false);
+    }
+
+    /**
+     * Reopens the CSV file of a resumed build: the file is truncated to the length saved at a checkpoint and the new lines
+     * are appended from there.
+     *
+     * @param outputPath    Directory of the CSV files
+     * @param name          File name, without extension
+     * @param length        File length returned by checkpoint()
+     * @return              Writer appending to the file
+     * @throws IOException  If the file can not be truncated or opened
+     */
+    public BufferedWriter appendWriter(Path outputPath, String name, long length) throws IOException {
+        Path path = outputPath.resolve(getFilename(name));
+        truncate(path, length);
+        return openWriter(path, true);
+    }
+
+    private void deleteParts(Path outputPath, String name, int firstPart) throws IOException {
+        int partIndex = firstPart;
+        while (Files.deleteIfExists(outputPath.resolve(getFilename(ShardedCsvWriter.partName(name, partIndex))))) {
+            partIndex++;
+        }
+    }
+
+    private void truncate(Path path, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (channel.size() < length) {
+                throw new IOException("CSV file " + path + " is shorter than its checkpoint, " + channel.size() + " < " + length);
+            }
+            channel.truncate(length);
+        }
+    }
+
+    /**
+     * Makes all the lines written so far durable: flushes the writers, ends the current gzip members and syncs the files to
+     * disk. Writers must not be used meanwhile.
+     *
+     * @return              File lengths by file name, the files can be reopened with appendWriter from these lengths
+     * @throws IOException  If any file can not be written
+     */
+    public synchronized Map<String, Long> checkpoint() throws IOException {
+        Map<String, Long> lengths = new TreeMap<>(closedLengths);
+        for (Map.Entry<String, CsvFile> entry : files.entrySet()) {
+            CsvFile file = entry.getValue();
+            synchronized (file.writer) {
+                file.writer.flush();
+                file.out.finishMember();
+            }
+            file.fileOut.getFD().sync();
+            lengths.put(entry.getKey(), file.fileOut.getChannel().size());
+        }
+        return lengths;
+    }
+
+    /**
+     * Closes a writer before the build ends, its file length is still returned by checkpoint().
+     *
+     * @param writer        Writer created by this factory
+     * @throws IOException  If the file can not be written
+     */
+    public synchronized void closeWriter(BufferedWriter writer) throws IOException {
+        for (Map.Entry<String, CsvFile> entry : files.entrySet()) {
+            if (entry.getValue().writer == writer) {
+                writer.close();
+                closedLengths.put(entry.getKey(), Files.size(entry.getValue().path));
+                files.remove(entry.getKey());
+                return;
+            }
+        }
+        writer.close();
+    }
+
+    private synchronized BufferedWriter openWriter(Path path, boolean append) throws IOException {
+        FileOutputStream fileOut = new FileOutputStream(path.toFile(), append);
+        AsyncCompressedOutputStream out = new AsyncCompressedOutputStream(new BufferedOutputStream(fileOut, FILE_BUFFER_SIZE),
+                compression, compressionLevel, getPool());
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+        files.put(path.getFileName().toString(), new CsvFile(path, fileOut, out, writer));
+        return writer;
+    }
+
+    public String getFilename(String name) {
+        return name + compression.getExtension();
+    }
+
+    /**
+     * Stops the writer threads, all the writers must be closed before.
+     */
+    @Override
+    public synchronized void close() {
+        files.clear();
+        closedLengths.clear();
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private synchronized ExecutorService getPool() {
+        if (pool == null) {
+            AtomicInteger threadCounter = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(numThreads, runnable -> {
+                Thread thread = new Thread(runnable, "csv-writer-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    public CsvCompression getCompression() {
+        return compression;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+}
@@ -0,0 +1,117 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * CSV writer that rolls over to a new part file every N rows or M bytes of text: name.part-0001, name.part-0002... The first
+ * line written, the header, goes to its own file, name.header, then neo4j-admin import can read the parts in parallel.
+ * Files are only rolled after a complete line, and a part file is not created until its first line is written.
+ */
+public class ShardedCsvWriter extends Writer {
+
+    public static final String HEADER_SUFFIX = ".header";
+    public static final String PART_SUFFIX = ".part-";
+
+    private final CsvWriterFactory writerFactory;
+    private final Path outputPath;
+    private final String name;
+    private final long maxRows;
+    private final long maxBytes;
+
+    private boolean headerPending;
+    private BufferedWriter header;
+    private BufferedWriter part;
+    private int partIndex;
+    private long rows;
+    private long bytes;
+
+    ShardedCsvWriter(CsvWriterFactory writerFactory, Path outputPath, String name, long maxRows, long maxBytes, int partIndex,
+                     boolean headerPending) {
+        this.writerFactory = writerFactory;
+        this.outputPath = outputPath;
+        this.name = name;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.partIndex = partIndex;
+        this.headerPending = headerPending;
+    }
+
+    public static String headerName(String name) {
+        return name + HEADER_SUFFIX;
+    }
+
+    public static String partName(String name, int partIndex) {
+        return name + PART_SUFFIX + String.format("%04d", partIndex);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        boolean lineEnded = cbuf[off + len - 1] == '\n';
+        if (headerPending) {
+            if (header == null) {
+                header = writerFactory.newWriter(outputPath, headerName(name));
+            }
+            header.write(cbuf, off, len);
+            if (lineEnded) {
+                writerFactory.closeWriter(header);
+                header = null;
+                headerPending = false;
+            }
+            return;
+        }
+
+        if (part == null) {
+            partIndex++;
+            part = writerFactory.newWriter(outputPath, partName(name, partIndex));
+            rows = 0;
+            bytes = 0;
+        }
+        part.write(cbuf, off, len);
+        bytes += len;
+        for (int i = off; i < off + len; i++) {
+            if (cbuf[i] == '\n') {
+                rows++;
+            }
+        }
+        if (lineEnded && ((maxRows > 0 && rows >= maxRows) || (maxBytes > 0 && bytes >= maxBytes))) {
+            writerFactory.closeWriter(part);
+            part = null;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (header != null) {
+            header.flush();
+        }
+        if (part != null) {
+            part.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (header != null) {
+            writerFactory.closeWriter(header);
+            header = null;
+        }
+        if (part != null) {
+            writerFactory.closeWriter(part);
+            part = null;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPartIndex() {
+        return partIndex;
+    }
+}
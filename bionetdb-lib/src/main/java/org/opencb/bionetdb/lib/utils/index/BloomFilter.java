@@ -0,0 +1,238 @@
+package org.opencb.bionetdb.lib.utils.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over the 64-bit hashes of the keys (see UidIndex.hash64). A negative answer means the key was never added,
+ * so the store lookup can be skipped. The filter grows by adding segments, each one with twice the capacity and half the
+ * false positive rate of the previous one, then the overall rate stays below the configured one.
+ */
+public class BloomFilter {
+
+    public static final double DEFAULT_FPP = 0.01;
+    public static final long DEFAULT_EXPECTED_ENTRIES = 1024 * 1024;
+
+    private static final int VERSION = 1;
+
+    private final double fpp;
+    private volatile Segment[] segments;
+
+    private final LongAdder queries;
+    private final LongAdder negatives;
+    private final LongAdder falsePositives;
+
+    private static final class Segment {
+        private final long capacity;
+        private final long numBits;
+        private final int numHashes;
+        private final AtomicLongArray words;
+        private volatile long entries;
+
+        private Segment(long capacity, double fpp) {
+            this.capacity = capacity;
+            this.numBits = Math.max(Long.SIZE, (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((numBits + Long.SIZE - 1) / Long.SIZE));
+        }
+
+        private Segment(long capacity, long numBits, int numHashes, long entries, AtomicLongArray words) {
+            this.capacity = capacity;
+            this.numBits = numBits;
+            this.numHashes = numHashes;
+            this.entries = entries;
+            this.words = words;
+        }
+
+        private void add(long hash) {
+            long hash2 = mix(hash) | 1;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = ((hash + i * hash2) & Long.MAX_VALUE) % numBits;
+                long mask = 1L << bit;
+                words.accumulateAndGet((int) (bit >>> 6), mask, (a, b) -> a | b);
+            }
+            entries++;
+        }
+
+        private boolean mightContain(long hash) {
+            long hash2 = mix(hash) | 1;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = ((hash + i * hash2) & Long.MAX_VALUE) % numBits;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public BloomFilter() {
+        this(DEFAULT_EXPECTED_ENTRIES, DEFAULT_FPP);
+    }
+
+    public BloomFilter(long expectedEntries, double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("Invalid false positive rate " + fpp);
+        }
+        this.fpp = fpp;
+        this.segments = new Segment[]{new Segment(Math.max(1024, expectedEntries), fpp / 2)};
+        this.queries = new LongAdder();
+        this.negatives = new LongAdder();
+        this.falsePositives = new LongAdder();
+    }
+
+    public void add(CharSequence key) {
+        add(UidIndex.hash64(key));
+    }
+
+    public synchronized void add(long hash) {
+        Segment last = segments[segments.length - 1];
+        if (last.entries >= last.capacity) {
+            Segment[] grown = new Segment[segments.length + 1];
+            System.arraycopy(segments, 0, grown, 0, segments.length);
+            grown[segments.length] = new Segment(last.capacity * 2, fpp / (2L << segments.length));
+            last = grown[segments.length];
+            segments = grown;
+        }
+        last.add(hash);
+    }
+
+    public boolean mightContain(CharSequence key) {
+        return mightContain(UidIndex.hash64(key));
+    }
+
+    /**
+     * Checks the filter, a false answer is a saved lookup.
+     *
+     * @param hash  Key hash
+     * @return      False if the key was never added, true if it may have been added
+     */
+    public boolean mightContain(long hash) {
+        queries.increment();
+        for (Segment segment : segments) {
+            if (segment.mightContain(hash)) {
+                return true;
+            }
+        }
+        negatives.increment();
+        return false;
+    }
+
+    /**
+     * Counts a false positive, i.e. the store did not find a key the filter might contain.
+     */
+    public void falsePositive() {
+        falsePositives.increment();
+    }
+
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeDouble(fpp);
+        out.writeInt(segments.length);
+        for (Segment segment : segments) {
+            out.writeLong(segment.capacity);
+            out.writeLong(segment.numBits);
+            out.writeInt(segment.numHashes);
+            out.writeLong(segment.entries);
+            out.writeInt(segment.words.length());
+            for (int i = 0; i < segment.words.length(); i++) {
+                out.writeLong(segment.words.get(i));
+            }
+        }
+    }
+
+    public static BloomFilter readFrom(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported Bloom filter version " + version);
+        }
+        BloomFilter filter = new BloomFilter(1, in.readDouble());
+        Segment[] segments = new Segment[in.readInt()];
+        for (int s = 0; s < segments.length; s++) {
+            long capacity = in.readLong();
+            long numBits = in.readLong();
+            int numHashes = in.readInt();
+            long entries = in.readLong();
+            AtomicLongArray words = new AtomicLongArray(in.readInt());
+            for (int i = 0; i < words.length(); i++) {
+                words.set(i, in.readLong());
+            }
+            segments[s] = new Segment(capacity, numBits, numHashes, entries, words);
+        }
+        filter.segments = segments;
+        return filter;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("BloomFilter{");
+        sb.append("entries=").append(getEntries());
+        sb.append(", memoryBytes=").append(getMemoryBytes());
+        sb.append(", queries=").append(getQueries());
+        sb.append(", savedLookups=").append(getSavedLookups());
+        sb.append(", falsePositives=").append(getFalsePositives());
+        sb.append(", falsePositiveRate=").append(String.format("%.5f", getFalsePositiveRate()));
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public double getFpp() {
+        return fpp;
+    }
+
+    public long getEntries() {
+        long entries = 0;
+        for (Segment segment : segments) {
+            entries += segment.entries;
+        }
+        return entries;
+    }
+
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += (long) segment.words.length() * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    /**
+     * Gets the number of store lookups skipped, i.e. the queries answered negatively.
+     *
+     * @return Saved lookups
+     */
+    public long getSavedLookups() {
+        return negatives.sum();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * Gets the observed false positive rate: false positives out of the queries for keys that were never added.
+     *
+     * @return False positive rate
+     */
+    public double getFalsePositiveRate() {
+        long fp = falsePositives.sum();
+        long absent = fp + negatives.sum();
+        return absent == 0 ? 0 : (double) fp / absent;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 31;
+        hash *= 0x7fb5d329728ea185L;
+        hash ^= hash >>> 27;
+        hash *= 0x81dadef4bc2dd44dL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
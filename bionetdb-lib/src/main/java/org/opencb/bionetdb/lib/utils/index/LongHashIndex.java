@@ -0,0 +1,104 @@
+package org.opencb.bionetdb.lib.utils.index;
+
+/**
+ * Open-addressing hash table from a 64-bit key hash to a long value, backed by primitive arrays.
+ * Each entry also keeps a 32-bit check hash computed with a different function, so two keys are only confused
+ * if both hashes collide. It is not thread-safe.
+ */
+public class LongHashIndex {
+
+    public static final long NO_VALUE = -1L;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] checks;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    public LongHashIndex() {
+        this(1024);
+    }
+
+    public LongHashIndex(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(16, initialCapacity) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public long get(long hash, int check) {
+        long key = nonZero(hash);
+        int pos = (int) mix(key) & mask;
+        while (keys[pos] != 0) {
+            if (keys[pos] == key && checks[pos] == check) {
+                return values[pos];
+            }
+            pos = (pos + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public void put(long hash, int check, long value) {
+        long key = nonZero(hash);
+        int pos = (int) mix(key) & mask;
+        while (keys[pos] != 0) {
+            if (keys[pos] == key && checks[pos] == check) {
+                values[pos] = value;
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        checks[pos] = check;
+        values[pos] = value;
+        if (++size > threshold) {
+            resize();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getMemoryBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES + Long.BYTES);
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldChecks = checks;
+        long[] oldValues = values;
+
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int pos = (int) mix(oldKeys[i]) & mask;
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = oldKeys[i];
+                checks[pos] = oldChecks[i];
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        checks = new int[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static long nonZero(long hash) {
+        // Zero marks the empty slots
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long mix(long key) {
+        // Spread the high bits into the low bits used as slot position
+        return key ^ (key >>> 32) ^ (key >>> 17);
+    }
+}
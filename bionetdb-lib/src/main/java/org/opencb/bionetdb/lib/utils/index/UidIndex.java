@@ -0,0 +1,291 @@
+package org.opencb.bionetdb.lib.utils.index;
+
+import org.opencb.bionetdb.lib.utils.RocksDbManager;
+import org.rocksdb.RocksDB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory index from (ID, type) to UID, with one primitive hash table per type (usually a node label).
+ * Lookups hash the ID characters directly, without building any key string. When a type reaches the maximum number of
+ * entries kept in memory, the new entries are spilled to RocksDB using the former "ID.type" keys, and added to a Bloom filter
+ * so that most misses do not reach RocksDB.
+ * With a journal, every entry is also logged, so a resumed build can rebuild the index.
+ */
+public class UidIndex {
+
+    public static final long NO_UID = LongHashIndex.NO_VALUE;
+    public static final int DEFAULT_MAX_ENTRIES_PER_TYPE = 16 * 1024 * 1024;
+
+    private int maxEntriesPerType;
+    private double bloomFilterFpp;
+    private RocksDbManager rocksDbManager;
+    private RocksDB spillRocksDb;
+    private Map<String, TypeIndex> typeIndexes;
+    private UidJournal journal;
+
+    private static Logger logger = LoggerFactory.getLogger(UidIndex.class);
+
+    public static class TypeIndex {
+        private final String type;
+        private final LongHashIndex index;
+        private final LongAdder hits;
+        private final LongAdder misses;
+        private final LongAdder spillHits;
+        private volatile boolean spilled;
+        private volatile BloomFilter spillFilter;
+
+        TypeIndex(String type) {
+            this.type = type;
+            this.index = new LongHashIndex();
+            this.hits = new LongAdder();
+            this.misses = new LongAdder();
+            this.spillHits = new LongAdder();
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public synchronized int getSize() {
+            return index.size();
+        }
+
+        public synchronized long getMemoryBytes() {
+            return index.getMemoryBytes();
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getSpillHits() {
+            return spillHits.sum();
+        }
+
+        public boolean isSpilled() {
+            return spilled;
+        }
+
+        public BloomFilter getSpillFilter() {
+            return spillFilter;
+        }
+    }
+
+    public UidIndex(RocksDbManager rocksDbManager, RocksDB spillRocksDb) {
+        this(rocksDbManager, spillRocksDb, DEFAULT_MAX_ENTRIES_PER_TYPE);
+    }
+
+    public UidIndex(RocksDbManager rocksDbManager, RocksDB spillRocksDb, int maxEntriesPerType) {
+        this.rocksDbManager = rocksDbManager;
+        this.spillRocksDb = spillRocksDb;
+        this.maxEntriesPerType = maxEntriesPerType;
+        this.bloomFilterFpp = BloomFilter.DEFAULT_FPP;
+        this.typeIndexes = new ConcurrentHashMap<>();
+    }
+
+    public long get(String id, String type) {
+        TypeIndex typeIndex = typeIndexes.get(type);
+        if (typeIndex == null) {
+            return NO_UID;
+        }
+
+        long hash = hash64(id);
+        int check = id.hashCode();
+        long uid;
+        synchronized (typeIndex) {
+            uid = typeIndex.index.get(hash, check);
+        }
+        if (uid != NO_UID) {
+            typeIndex.hits.increment();
+            return uid;
+        }
+        return getSpilled(typeIndex, id, type, hash);
+    }
+
+    private long getSpilled(TypeIndex typeIndex, String id, String type, long hash) {
+        if (typeIndex.spilled) {
+            // Definite misses skip RocksDB
+            BloomFilter spillFilter = typeIndex.spillFilter;
+            if (spillFilter == null || spillFilter.mightContain(hash)) {
+                Long spilledUid = rocksDbManager.getLong(spillKey(id, type), spillRocksDb);
+                if (spilledUid != null) {
+                    typeIndex.spillHits.increment();
+                    return spilledUid;
+                }
+                if (spillFilter != null) {
+                    spillFilter.falsePositive();
+                }
+            }
+        }
+        typeIndex.misses.increment();
+        return NO_UID;
+    }
+
+    /**
+     * Looks up several IDs of the same type, the in-memory table is locked once for all of them.
+     *
+     * @param ids   IDs
+     * @param type  Type, usually the node label
+     * @return      UIDs in the same order as the IDs, NO_UID for the IDs not found
+     */
+    public long[] get(List<String> ids, String type) {
+        long[] uids = new long[ids.size()];
+        Arrays.fill(uids, NO_UID);
+        TypeIndex typeIndex = typeIndexes.get(type);
+        if (typeIndex == null || ids.isEmpty()) {
+            return uids;
+        }
+
+        long[] hashes = new long[uids.length];
+        for (int i = 0; i < uids.length; i++) {
+            hashes[i] = hash64(ids.get(i));
+        }
+        int found = 0;
+        synchronized (typeIndex) {
+            for (int i = 0; i < uids.length; i++) {
+                uids[i] = typeIndex.index.get(hashes[i], ids.get(i).hashCode());
+                if (uids[i] != NO_UID) {
+                    found++;
+                }
+            }
+        }
+        typeIndex.hits.add(found);
+
+        // Misses of a spilled type may be in RocksDB
+        for (int i = 0; i < uids.length; i++) {
+            if (uids[i] == NO_UID) {
+                uids[i] = getSpilled(typeIndex, ids.get(i), type, hashes[i]);
+            }
+        }
+        return uids;
+    }
+
+    public void put(String id, String type, long uid) {
+        TypeIndex typeIndex = typeIndexes.computeIfAbsent(type, TypeIndex::new);
+
+        long hash = hash64(id);
+        int check = id.hashCode();
+        synchronized (typeIndex) {
+            if (journal != null) {
+                try {
+                    journal.append(id, type, uid);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (typeIndex.index.size() < maxEntriesPerType || typeIndex.index.get(hash, check) != NO_UID) {
+                typeIndex.index.put(hash, check, uid);
+                return;
+            }
+            if (!typeIndex.spilled) {
+                logger.info("UID index for {} reached {} entries, spilling new entries to RocksDB", type, maxEntriesPerType);
+                if (bloomFilterFpp > 0) {
+                    typeIndex.spillFilter = new BloomFilter(Math.min(maxEntriesPerType, BloomFilter.DEFAULT_EXPECTED_ENTRIES),
+                            bloomFilterFpp);
+                }
+                typeIndex.spilled = true;
+            }
+            if (typeIndex.spillFilter != null) {
+                typeIndex.spillFilter.add(hash);
+            }
+        }
+        rocksDbManager.putLong(spillKey(id, type), uid, spillRocksDb);
+    }
+
+    /**
+     * Adds the journal entries to the index and then logs the new entries to the journal. The spill store must not contain
+     * entries of a previous run.
+     *
+     * @param uidJournal    Journal opened with the lengths of the last checkpoint, or a new journal
+     * @return              Number of replayed entries
+     * @throws IOException  If the journal can not be read
+     */
+    public long open(UidJournal uidJournal) throws IOException {
+        this.journal = null;
+        long entries = uidJournal.replay(this::put);
+        this.journal = uidJournal;
+        return entries;
+    }
+
+    public UidJournal getJournal() {
+        return journal;
+    }
+
+    public Map<String, TypeIndex> getTypeIndexes() {
+        return new TreeMap<>(typeIndexes);
+    }
+
+    public void printStats() {
+        for (TypeIndex typeIndex : getTypeIndexes().values()) {
+            logger.info("UID index {}: {} entries, {} MB, {} hits, {} misses, {} spill hits{}", typeIndex.getType(),
+                    typeIndex.getSize(), typeIndex.getMemoryBytes() / (1024 * 1024), typeIndex.getHits(), typeIndex.getMisses(),
+                    typeIndex.getSpillHits(), typeIndex.isSpilled() ? " (spilled)" : "");
+            if (typeIndex.getSpillFilter() != null) {
+                logger.info("UID index {} spill filter: {}", typeIndex.getType(), typeIndex.getSpillFilter());
+            }
+        }
+    }
+
+    public int getMaxEntriesPerType() {
+        return maxEntriesPerType;
+    }
+
+    public UidIndex setMaxEntriesPerType(int maxEntriesPerType) {
+        this.maxEntriesPerType = maxEntriesPerType;
+        return this;
+    }
+
+    public double getBloomFilterFpp() {
+        return bloomFilterFpp;
+    }
+
+    /**
+     * Sets the false positive rate of the filters in front of the spilled entries, 0 to disable them. It applies to the types
+     * spilled from now on.
+     *
+     * @param bloomFilterFpp    False positive rate
+     * @return                  this
+     */
+    public UidIndex setBloomFilterFpp(double bloomFilterFpp) {
+        this.bloomFilterFpp = bloomFilterFpp;
+        return this;
+    }
+
+    /**
+     * 64-bit FNV-1a hash over the characters of the ID, followed by a finalization mix.
+     *
+     * @param id ID
+     * @return Hash value
+     */
+    public static long hash64(CharSequence id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static String spillKey(String id, String type) {
+        return id + "." + type;
+    }
+}
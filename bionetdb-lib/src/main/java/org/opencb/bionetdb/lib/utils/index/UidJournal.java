@@ -0,0 +1,181 @@
+package org.opencb.bionetdb.lib.utils.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only log of the UID index entries, with one file of (UID, ID) records per type. IDs are written as an int length
+ * and the UTF-8 bytes, so there is no limit on their length. A resumed build truncates the files to the lengths saved at
+ * its last checkpoint and replays them to rebuild the index.
+ */
+public class UidJournal implements Closeable {
+
+    public static final String EXTENSION = ".uids";
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path dir;
+    private final Map<String, TypeLog> logs;
+
+    @FunctionalInterface
+    public interface EntryHandler {
+        void handle(String id, String type, long uid);
+    }
+
+    private static class TypeLog {
+        private final FileOutputStream fileOut;
+        private final DataOutputStream out;
+
+        TypeLog(Path path) throws IOException {
+            this.fileOut = new FileOutputStream(path.toFile(), true);
+            this.out = new DataOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE));
+        }
+    }
+
+    /**
+     * Opens the journal in the given directory.
+     *
+     * @param dir           Journal directory, it is created if needed
+     * @param lengths       File lengths by type saved at the last checkpoint, files are truncated to them; types not present
+     *                      are removed. If null, the journal starts empty
+     * @throws IOException  If the directory can not be read or any file can not be truncated
+     */
+    public UidJournal(Path dir, Map<String, Long> lengths) throws IOException {
+        this.dir = dir;
+        this.logs = new ConcurrentHashMap<>();
+
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path path : paths) {
+                Long length = lengths == null ? null : lengths.get(getType(path));
+                if (length == null) {
+                    Files.delete(path);
+                } else {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        if (channel.size() < length) {
+                            throw new IOException("UID journal " + path + " is shorter than its checkpoint");
+                        }
+                        channel.truncate(length);
+                    }
+                    logs.put(getType(path), new TypeLog(path));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an entry. Entries of the same type must not be appended concurrently, UidIndex appends them under its type lock.
+     *
+     * @param id            ID
+     * @param type          Type
+     * @param uid           UID
+     * @throws IOException  If the entry can not be written
+     */
+    public void append(String id, String type, long uid) throws IOException {
+        // Encoded before writing, so a failure does not leave half a record
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        TypeLog log = logs.get(type);
+        if (log == null) {
+            log = openLog(type);
+        }
+        synchronized (log) {
+            log.out.writeLong(uid);
+            log.out.writeInt(bytes.length);
+            log.out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads all the entries in file order.
+     *
+     * @param handler       Entry handler
+     * @return              Number of entries
+     * @throws IOException  If any file can not be read
+     */
+    public long replay(EntryHandler handler) throws IOException {
+        long entries = 0;
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path path : paths) {
+                String type = getType(path);
+                try (InputStream is = Files.newInputStream(path);
+                     DataInputStream in = new DataInputStream(new BufferedInputStream(is, BUFFER_SIZE))) {
+                    while (true) {
+                        long uid;
+                        try {
+                            uid = in.readLong();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        handler.handle(new String(bytes, StandardCharsets.UTF_8), type, uid);
+                        entries++;
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the buffered entries and syncs the files to disk.
+     *
+     * @return              File lengths by type, to be passed to the constructor of a resumed build
+     * @throws IOException  If any file can not be written
+     */
+    public synchronized Map<String, Long> sync() throws IOException {
+        Map<String, Long> lengths = new TreeMap<>();
+        for (Map.Entry<String, TypeLog> entry : logs.entrySet()) {
+            TypeLog log = entry.getValue();
+            synchronized (log) {
+                log.out.flush();
+                log.fileOut.getFD().sync();
+                lengths.put(entry.getKey(), log.fileOut.getChannel().size());
+            }
+        }
+        return lengths;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (TypeLog log : logs.values()) {
+            synchronized (log) {
+                log.out.close();
+            }
+        }
+        logs.clear();
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    private synchronized TypeLog openLog(String type) throws IOException {
+        TypeLog log = logs.get(type);
+        if (log == null) {
+            log = new TypeLog(dir.resolve(type + EXTENSION));
+            logs.put(type, log);
+        }
+        return log;
+    }
+
+    private static String getType(Path path) {
+        String filename = path.getFileName().toString();
+        return filename.substring(0, filename.length() - EXTENSION.length());
+    }
+}
@@ -0,0 +1,181 @@
+package org.opencb.bionetdb.lib.db;
+
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionWork;
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.summary.SummaryCounters;
+import org.opencb.bionetdb.core.config.BioNetDBConfiguration;
+import org.opencb.bionetdb.core.config.DatabaseConfiguration;
+import org.opencb.bionetdb.core.models.network.Node;
+import org.opencb.bionetdb.core.models.network.Relation;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class Neo4JNetworkDBAdaptorTest {
+
+    private static class Write {
+        private final String cypher;
+        private final List<Map<String, Object>> batch;
+
+        @SuppressWarnings("unchecked")
+        Write(String cypher, Map<String, Object> params) {
+            this.cypher = cypher;
+            // Batches are cleared once written, so rows are copied
+            this.batch = params == null ? null : new ArrayList<>((List<Map<String, Object>>) params.get("batch"));
+        }
+
+        @Override
+        public String toString() {
+            return cypher + (batch == null ? "" : " " + batch);
+        }
+    }
+
+    @Test
+    public void insertNodes() throws Exception {
+        List<Write> writes = new ArrayList<>();
+        Neo4JNetworkDBAdaptor adaptor = newAdaptor(2, writes, Collections.emptySet());
+        List<Node> nodes = Arrays.asList(new Node(1, "G1", "g1", Node.Label.GENE), new Node(2, "G2", "g2", Node.Label.GENE),
+                new Node(3, "P1", "p1", Node.Label.PROTEIN), new Node(4, "G3", "g3", Node.Label.GENE),
+                new Node(5, "G4", "g4", Node.Label.GENE));
+        nodes.get(2).addAttribute("length", "3418");
+
+        assertEquals(5, adaptor.insertNodes(nodes.iterator()));
+        writes.forEach(System.out::println);
+
+        // Each label gets its UID index once, GENE nodes are flushed when the batch is full and PROTEIN nodes at the end
+        assertEquals(5, writes.size());
+        assertEquals("CREATE INDEX IF NOT EXISTS FOR (n:GENE) ON (n.uid)", writes.get(0).cypher);
+        assertEquals("UNWIND $batch AS row CREATE (n:GENE) SET n = row", writes.get(1).cypher);
+        assertEquals(Arrays.asList(1L, 2L), uids(writes.get(1)));
+        assertEquals("UNWIND $batch AS row CREATE (n:GENE) SET n = row", writes.get(2).cypher);
+        assertEquals(Arrays.asList(4L, 5L), uids(writes.get(2)));
+        assertEquals("CREATE INDEX IF NOT EXISTS FOR (n:PROTEIN) ON (n.uid)", writes.get(3).cypher);
+        assertEquals("UNWIND $batch AS row CREATE (n:PROTEIN) SET n = row", writes.get(4).cypher);
+        assertEquals(Collections.singletonList(3L), uids(writes.get(4)));
+        assertEquals("P1", writes.get(4).batch.get(0).get("id"));
+        assertEquals(3418L, writes.get(4).batch.get(0).get("attr_length"));
+    }
+
+    @Test
+    public void insertRelations() throws Exception {
+        List<Write> writes = new ArrayList<>();
+        // Node 4 is not in the database
+        Neo4JNetworkDBAdaptor adaptor = newAdaptor(2, writes, Collections.singleton(4L));
+        // Two relations of the same type between the same nodes, with different attributes
+        Relation first = new Relation(10, null, 1, Node.Label.GENE, 2, Node.Label.PROTEIN, Relation.Label.ANNOTATION);
+        first.addAttribute("source", "uniprot");
+        Relation second = new Relation(11, null, 1, Node.Label.GENE, 2, Node.Label.PROTEIN, Relation.Label.ANNOTATION);
+        second.addAttribute("source", "ensembl");
+        Relation other = new Relation(12, "target", 3, Node.Label.MIRNA_MATURE, 1, Node.Label.GENE, Relation.Label.TARGET);
+        Relation third = new Relation(13, null, 4, Node.Label.GENE, 2, Node.Label.PROTEIN, Relation.Label.ANNOTATION);
+
+        // The relation of the missing node is not created, nor counted
+        assertEquals(3, adaptor.insertRelations(Arrays.asList(first, other, second, third).iterator()));
+        writes.forEach(System.out::println);
+
+        List<Write> batches = new ArrayList<>();
+        for (Write write : writes) {
+            if (write.batch != null) {
+                batches.add(write);
+            } else {
+                assertTrue(write.cypher, write.cypher.startsWith("CREATE INDEX IF NOT EXISTS FOR (n:"));
+            }
+        }
+        assertEquals(3, batches.size());
+
+        // ANNOTATION relations are flushed when the batch is full, both are created with their own properties
+        assertEquals("UNWIND $batch AS row MATCH (o:GENE {uid: row.o}) MATCH (d:PROTEIN {uid: row.d})"
+                + " CREATE (o)-[r:ANNOTATION]->(d) SET r = row.props", batches.get(0).cypher);
+        assertEquals(2, batches.get(0).batch.size());
+        assertEquals(10L, props(batches.get(0), 0).get("uid"));
+        assertEquals("uniprot", props(batches.get(0), 0).get("attr_source"));
+        assertEquals(11L, props(batches.get(0), 1).get("uid"));
+        assertEquals("ensembl", props(batches.get(0), 1).get("attr_source"));
+
+        // The rest are flushed at the end, one batch per type and node labels
+        Map<String, Write> last = new HashMap<>();
+        for (Write write : batches.subList(1, 3)) {
+            last.put(write.cypher.contains("[r:TARGET]") ? "TARGET" : "ANNOTATION", write);
+        }
+        assertEquals(13L, props(last.get("ANNOTATION"), 0).get("uid"));
+        assertEquals("target", props(last.get("TARGET"), 0).get("name"));
+        assertEquals(3L, last.get("TARGET").batch.get(0).get("o"));
+        assertEquals(1L, last.get("TARGET").batch.get(0).get("d"));
+    }
+
+    @Test
+    public void insertNodesEmpty() throws Exception {
+        List<Write> writes = new ArrayList<>();
+        assertEquals(0, newAdaptor(2, writes, Collections.emptySet()).insertNodes(Collections.emptyIterator()));
+        assertTrue(writes.isEmpty());
+    }
+
+    private static List<Object> uids(Write write) {
+        List<Object> uids = new ArrayList<>();
+        write.batch.forEach(row -> uids.add(row.get("uid")));
+        return uids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> props(Write write, int index) {
+        return (Map<String, Object>) write.batch.get(index).get("props");
+    }
+
+    // Relations are created when both nodes are in the database
+    @SuppressWarnings("unchecked")
+    private static Neo4JNetworkDBAdaptor newAdaptor(int batchSize, List<Write> writes, Set<Long> missingUids) {
+        Transaction tx = proxy(Transaction.class, (method, args) -> {
+            if (method.equals("run")) {
+                Write write = new Write((String) args[0], args.length > 1 ? (Map<String, Object>) args[1] : null);
+                writes.add(write);
+                int nodes = 0;
+                int relationships = 0;
+                if (write.batch != null && write.cypher.contains("CREATE (n")) {
+                    nodes = write.batch.size();
+                } else if (write.batch != null) {
+                    for (Map<String, Object> row : write.batch) {
+                        if (!missingUids.contains(row.get("o")) && !missingUids.contains(row.get("d"))) {
+                            relationships++;
+                        }
+                    }
+                }
+                int nodesCreated = nodes;
+                int relationshipsCreated = relationships;
+                SummaryCounters counters = proxy(SummaryCounters.class, (counter, counterArgs) -> counter.equals("nodesCreated")
+                        ? nodesCreated : counter.equals("relationshipsCreated") ? relationshipsCreated : null);
+                ResultSummary summary = proxy(ResultSummary.class, (summaryMethod, summaryArgs) -> summaryMethod.equals("counters")
+                        ? counters : null);
+                return proxy(Result.class, (resultMethod, resultArgs) -> resultMethod.equals("consume") ? summary : null);
+            }
+            return null;
+        });
+        Session session = proxy(Session.class, (method, args) -> {
+            if (method.equals("writeTransaction")) {
+                return ((TransactionWork<Object>) args[0]).execute(tx);
+            }
+            return null;
+        });
+        Driver driver = proxy(Driver.class, (method, args) -> method.equals("session") ? session : null);
+
+        DatabaseConfiguration databaseConfiguration = new DatabaseConfiguration();
+        databaseConfiguration.setWriteBatchSize(batchSize);
+        return new Neo4JNetworkDBAdaptor(new BioNetDBConfiguration(databaseConfiguration), driver);
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type, },
+                (proxy, method, args) -> handler.invoke(method.getName(), args));
+    }
+}
@@ -0,0 +1,98 @@
+package org.opencb.bionetdb.lib.db;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.opencb.bionetdb.core.models.network.Node;
+import org.opencb.bionetdb.core.models.network.Relation;
+import org.opencb.bionetdb.lib.utils.BuildExecutor;
+import org.opencb.bionetdb.lib.utils.CsvInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class Neo4jBioPaxStreamBuilderTest {
+
+    private static final Path BIOPAX_FILE = Paths.get("../bionetdb-core/src/test/resources/Saccharomyces_cerevisiae.owl.gz");
+
+    private static class CapturingProcessing implements Neo4jBioPaxBuilder.BioPAXProcessing {
+        private Map<Long, Node> nodes = new HashMap<>();
+        private List<Relation> relations = new ArrayList<>();
+
+        @Override
+        public void processNodes(List<Node> nodeList) {
+            for (Node node : nodeList) {
+                nodes.put(node.getUid(), node);
+            }
+        }
+
+        @Override
+        public void processRelations(List<Relation> relationList) {
+            relations.addAll(relationList);
+        }
+
+        private String nodeKey(long uid) {
+            Node node = nodes.get(uid);
+            if (node == null) {
+                return "?";
+            }
+            return node.getLabels().get(0) == Node.Label.CELLULAR_LOCATION ? "CL:" + node.getName() : node.getId();
+        }
+
+        // Nodes and relations by content, UIDs are replaced by the node IDs
+        private SortedSet<String> canonicalNodes() {
+            SortedSet<String> lines = new TreeSet<>();
+            for (Node node : nodes.values()) {
+                SortedMap<String, String> attributes = new TreeMap<>();
+                node.getAttributes().forEach((key, value) -> {
+                    if (!key.matches("feat\\d+_name")) {
+                        attributes.put(key, String.valueOf(value));
+                    }
+                });
+                lines.add(nodeKey(node.getUid()) + "|" + node.getName() + "|" + node.getLabels() + "|" + attributes);
+            }
+            return lines;
+        }
+
+        private SortedSet<String> canonicalRelations() {
+            SortedSet<String> lines = new TreeSet<>();
+            for (Relation relation : relations) {
+                lines.add(nodeKey(relation.getOrigUid()) + "|" + relation.getLabel() + "|" + nodeKey(relation.getDestUid()));
+            }
+            return lines;
+        }
+    }
+
+    @Test
+    public void sameAsPaxtoolsBuilder() throws IOException {
+        Assume.assumeTrue(Files.exists(BIOPAX_FILE));
+
+        // The Paxtools builder splits its relationship pass among the executor threads
+        CapturingProcessing expected = new CapturingProcessing();
+        Path modelPath = Files.createTempDirectory("biopax-model");
+        CsvInfo modelCsv = new CsvInfo(modelPath, modelPath);
+        try (BuildExecutor executor = new BuildExecutor(4)) {
+            new Neo4jBioPaxBuilder(modelCsv, expected).setExecutor(executor).build(BIOPAX_FILE);
+        } finally {
+            modelCsv.close();
+        }
+
+        CapturingProcessing actual = new CapturingProcessing();
+        Path streamPath = Files.createTempDirectory("biopax-stream");
+        CsvInfo streamCsv = new CsvInfo(streamPath, streamPath);
+        try {
+            new Neo4jBioPaxStreamBuilder(streamCsv, actual).build(BIOPAX_FILE);
+        } finally {
+            streamCsv.close();
+        }
+
+        assertEquals(expected.nodes.size(), actual.nodes.size());
+        assertEquals(expected.relations.size(), actual.relations.size());
+        assertEquals(expected.canonicalNodes(), actual.canonicalNodes());
+        assertEquals(expected.canonicalRelations(), actual.canonicalRelations());
+    }
+}
@@ -0,0 +1,92 @@
+package org.opencb.bionetdb.lib.db.iterators;
+
+import org.junit.Test;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class Neo4JRecordIteratorTest {
+
+    private static class RecordIterator extends Neo4JRecordIterator<Integer> {
+        RecordIterator(Session session, Transaction tx, Result result) {
+            super(session, tx, result);
+        }
+
+        @Override
+        protected Collection<Integer> convert(Record record) {
+            // Each record is converted into as many results as its hash code, i.e. the record number
+            List<Integer> values = new ArrayList<>();
+            for (int i = 0; i < record.hashCode(); i++) {
+                values.add(record.hashCode());
+            }
+            return values;
+        }
+    }
+
+    @Test
+    public void readAndClose() {
+        List<String> closed = new ArrayList<>();
+        RecordIterator iterator = newIterator(3, closed);
+        List<Integer> values = new ArrayList<>();
+        while (iterator.hasNext()) {
+            values.add(iterator.next());
+        }
+        System.out.println(values + " " + closed);
+        assertEquals(Arrays.asList(1, 2, 2, 3, 3, 3), values);
+        // Closed when the last result is read
+        assertEquals(Arrays.asList("tx", "session"), closed);
+        iterator.close();
+        assertEquals(2, closed.size());
+    }
+
+    @Test
+    public void closeEarly() {
+        List<String> closed = new ArrayList<>();
+        try (RecordIterator iterator = newIterator(1000, closed)) {
+            assertEquals(1, (int) iterator.next());
+            assertTrue(closed.isEmpty());
+        }
+        assertEquals(Arrays.asList("tx", "session"), closed);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void nextAfterEnd() {
+        RecordIterator iterator = newIterator(0, new ArrayList<>());
+        assertFalse(iterator.hasNext());
+        iterator.next();
+    }
+
+    private RecordIterator newIterator(int numRecords, List<String> closed) {
+        int[] read = new int[1];
+        Result result = proxy(Result.class, (method, args) -> {
+            switch (method) {
+                case "hasNext":
+                    return read[0] < numRecords;
+                case "next":
+                    int number = ++read[0];
+                    return proxy(Record.class, (m, a) -> m.equals("hashCode") ? number : null);
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+        Transaction tx = proxy(Transaction.class, (method, args) -> method.equals("close") ? closed.add("tx") : null);
+        Session session = proxy(Session.class, (method, args) -> method.equals("close") ? closed.add("session") : null);
+        return new RecordIterator(session, tx, result);
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type, },
+                (proxy, method, args) -> handler.invoke(method.getName(), args));
+    }
+}
@@ -0,0 +1,144 @@
+package org.opencb.bionetdb.lib.db.iterators;
+
+import org.junit.Test;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.reactive.RxResult;
+import org.neo4j.driver.reactive.RxSession;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.*;
+
+public class Neo4JRecordPublisherTest {
+
+    private List<Long> upstreamRequests = new ArrayList<>();
+    private List<String> events = new ArrayList<>();
+
+    private class TestSubscriber implements Flow.Subscriber<Integer> {
+        private Flow.Subscription subscription;
+        private List<Integer> values = new ArrayList<>();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            values.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            events.add("error: " + throwable.getMessage());
+        }
+
+        @Override
+        public void onComplete() {
+            events.add("complete");
+        }
+    }
+
+    @Test
+    public void readAll() {
+        TestSubscriber subscriber = new TestSubscriber();
+        newPublisher(3, 2).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        System.out.println(subscriber.values + " " + upstreamRequests + " " + events);
+        assertEquals(Arrays.asList(1, 2, 2, 3, 3, 3), subscriber.values);
+        assertEquals(Arrays.asList(2L, 2L), upstreamRequests);
+        assertEquals(Arrays.asList("session closed", "complete"), events);
+    }
+
+    @Test
+    public void backPressure() {
+        TestSubscriber subscriber = new TestSubscriber();
+        newPublisher(1000, 10).subscribe(subscriber);
+        assertTrue(upstreamRequests.isEmpty());
+
+        subscriber.subscription.request(4);
+        System.out.println(subscriber.values + " " + upstreamRequests + " " + events);
+        // Only one batch of records is requested to the server, the results not yet requested by the subscriber are buffered
+        assertEquals(Arrays.asList(1, 2, 2, 3), subscriber.values);
+        assertEquals(Collections.singletonList(10L), upstreamRequests);
+        assertTrue(events.isEmpty());
+
+        subscriber.subscription.cancel();
+        assertEquals(Arrays.asList("upstream cancelled", "session closed"), events);
+        subscriber.subscription.request(10);
+        assertEquals(4, subscriber.values.size());
+    }
+
+    @Test
+    public void invalidRequest() {
+        TestSubscriber subscriber = new TestSubscriber();
+        newPublisher(10, 10).subscribe(subscriber);
+        subscriber.subscription.request(0);
+        System.out.println(events);
+        assertEquals(Arrays.asList("upstream cancelled", "session closed", "error: Non-positive request: 0"), events);
+    }
+
+    /**
+     * Publisher over a fake session returning numRecords records, record i is converted into i copies of i.
+     */
+    private Neo4JRecordPublisher<Integer> newPublisher(int numRecords, long batchSize) {
+        Publisher<Record> records = subscriber -> subscriber.onSubscribe(new Subscription() {
+            private int sent;
+            private boolean stopped;
+
+            @Override
+            public void request(long n) {
+                upstreamRequests.add(n);
+                for (long i = 0; i < n && sent < numRecords && !stopped; i++) {
+                    int number = ++sent;
+                    subscriber.onNext(proxy(Record.class, (method, args) -> method.equals("hashCode") ? number : null));
+                }
+                if (sent == numRecords && !stopped) {
+                    stopped = true;
+                    subscriber.onComplete();
+                }
+            }
+
+            @Override
+            public void cancel() {
+                stopped = true;
+                events.add("upstream cancelled");
+            }
+        });
+        RxResult result = proxy(RxResult.class, (method, args) -> method.equals("records") ? records : null);
+        Publisher<Object> close = subscriber -> subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                events.add("session closed");
+                subscriber.onComplete();
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        RxSession session = proxy(RxSession.class, (method, args) -> method.equals("run") ? result : method.equals("close") ? close : null);
+        return new Neo4JRecordPublisher<>(() -> session, "MATCH (n) RETURN n", Collections.emptyMap(), batchSize, record -> {
+            List<Integer> values = new ArrayList<>();
+            for (int i = 0; i < record.hashCode(); i++) {
+                values.add(record.hashCode());
+            }
+            return values;
+        });
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type, },
+                (proxy, method, args) -> handler.invoke(method.getName(), args));
+    }
+}
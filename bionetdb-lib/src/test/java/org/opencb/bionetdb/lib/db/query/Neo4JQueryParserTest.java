@@ -8,8 +8,10 @@ import org.opencb.bionetdb.lib.api.query.VariantQueryParam;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 /**
  * Created by joaquin on 2/19/18.
@@ -20,8 +22,71 @@ public class Neo4JQueryParserTest {
         Neo4JQueryParser parser = new Neo4JQueryParser();
         NodeQuery query = new NodeQuery(Node.Label.PROTEIN);
         query.put("name", "RDH11");
-        String cypher = parser.parseNodeQuery(query, QueryOptions.empty());
-        System.out.println(cypher);
+        Map<String, Object> params = new HashMap<>();
+        String cypher = parser.parseNodeQuery(query, QueryOptions.empty(), params);
+        System.out.println(cypher + " " + params);
+    }
+
+    @Test
+    public void parseNodeTemplate() throws Exception {
+        Map<String, Object> params1 = new HashMap<>();
+        String cypher1 = Neo4JQueryParser.parseNodeQuery(new Query("id", "BRCA1").append("uid", "1,2")
+                .append("attribute", "biotype=protein_coding"), new QueryOptions(QueryOptions.LIMIT, 10), params1);
+        Map<String, Object> params2 = new HashMap<>();
+        String cypher2 = Neo4JQueryParser.parseNodeQuery(new Query("id", "TP53,\"KRAS\"").append("uid", "3")
+                .append("attribute", "biotype=lincRNA"), new QueryOptions(QueryOptions.LIMIT, 20), params2);
+        System.out.println(cypher1 + " " + params1);
+        System.out.println(cypher2 + " " + params2);
+
+        // Different values, same statement
+        assertEquals(cypher1, cypher2);
+        assertFalse(cypher1.contains("BRCA1"));
+        assertEquals(Arrays.asList(1L, 2L), params1.get("n_uid"));
+        assertEquals(Arrays.asList("TP53", "\"KRAS\""), params2.get("n_id"));
+        assertEquals("lincRNA", params2.get("n_attr_biotype"));
+        assertEquals(20L, params2.get("limit"));
+    }
+
+    @Test
+    public void parseVariantQueryTemplate() throws Exception {
+        Map<String, Object> params1 = new HashMap<>();
+        String cypher1 = Neo4JVariantQueryParser.parse(new Query(VariantQueryParam.GENE.key(), "BRCA1")
+                .append(VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "JPN<0.001,AFR>0.3"), QueryOptions.empty(), params1);
+        Map<String, Object> params2 = new HashMap<>();
+        String cypher2 = Neo4JVariantQueryParser.parse(new Query(VariantQueryParam.GENE.key(), "TP53,KRAS")
+                .append(VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "EUR<0.01,AMR>0.5"), QueryOptions.empty(), params2);
+        System.out.println(cypher1 + "\n" + params1);
+
+        assertEquals(cypher1, cypher2);
+        assertEquals(Arrays.asList("TP53", "KRAS"), params2.get("r_id"));
+        assertEquals("EUR", params2.get("pf_id"));
+        assertEquals("AMR", params2.get("pf_id1"));
+        assertEquals(0.5, (double) params2.get("pf_altAlleleFreq1"), 0);
+    }
+
+    @Test
+    public void parseVariantQueryTemplateEqualValues() throws Exception {
+        // Repeated values get their own parameters, so the statement does not depend on the values
+        Map<String, Object> params1 = new HashMap<>();
+        String cypher1 = Neo4JVariantQueryParser.parse(new Query(VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(),
+                "EUR<0.01,EUR<0.01"), QueryOptions.empty(), params1);
+        Map<String, Object> params2 = new HashMap<>();
+        String cypher2 = Neo4JVariantQueryParser.parse(new Query(VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(),
+                "EUR<0.01,AMR<0.5"), QueryOptions.empty(), params2);
+        System.out.println(cypher1 + "\n" + params1);
+
+        assertEquals(cypher1, cypher2);
+        assertEquals(params2.keySet(), params1.keySet());
+        assertEquals("EUR", params1.get("pf_id1"));
+    }
+
+    @Test
+    public void addParam() {
+        Map<String, Object> params = new HashMap<>();
+        assertEquals("$id", Neo4JQueryParser.addParam(params, "id", "BRCA1"));
+        assertEquals("$id1", Neo4JQueryParser.addParam(params, "id", "BRCA1"));
+        assertEquals("$id2", Neo4JQueryParser.addParam(params, "id", "TP53"));
+        assertEquals(3, params.size());
     }
 
     @Test
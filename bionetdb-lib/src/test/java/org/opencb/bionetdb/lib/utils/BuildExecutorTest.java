@@ -0,0 +1,209 @@
+package org.opencb.bionetdb.lib.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BuildExecutorTest {
+
+    @Test
+    public void readJsonLinesInOrder() throws IOException {
+        Path path = Files.createTempFile("build-executor", ".json");
+        int numLines = 10007;
+        try (BufferedWriter bw = Files.newBufferedWriter(path)) {
+            for (int i = 0; i < numLines; i++) {
+                bw.write("{\"id\": " + i + "}");
+                bw.newLine();
+            }
+        }
+
+        ObjectReader reader = new ObjectMapper().readerFor(Map.class);
+        for (int numThreads : new int[]{1, 4}) {
+            List<Integer> ids = new ArrayList<>();
+            PipelineStats stats = new PipelineStats();
+            try (BuildExecutor executor = new BuildExecutor(numThreads, 100)) {
+                long counter = executor.readJsonLines(path, reader, (String line, Map map) -> ids.add((Integer) map.get("id")), stats);
+                assertEquals(numLines, counter);
+            }
+            System.out.println(stats.summary("lines"));
+            assertEquals(numLines, ids.size());
+            for (int i = 0; i < numLines; i++) {
+                assertEquals(i, (int) ids.get(i));
+            }
+            System.out.println(numThreads + " threads, " + ids.size() + " lines in order");
+        }
+
+        Files.delete(path);
+    }
+
+    @Test
+    public void readJsonLinesHandlerError() throws IOException {
+        Path path = Files.createTempFile("build-executor", ".json");
+        try (BufferedWriter bw = Files.newBufferedWriter(path)) {
+            for (int i = 0; i < 100000; i++) {
+                bw.write("{\"id\": " + i + "}");
+                bw.newLine();
+            }
+        }
+
+        // The error stops the reader, the queue is bounded so it must not read the whole file
+        ObjectReader reader = new ObjectMapper().readerFor(Map.class);
+        try (BuildExecutor executor = new BuildExecutor(4, 10)) {
+            executor.readJsonLines(path, reader, (String line, Map map) -> {
+                if ((Integer) map.get("id") == 50) {
+                    throw new IllegalStateException("handler error");
+                }
+            });
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("handler error", e.getCause().getMessage());
+        }
+
+        Files.delete(path);
+    }
+
+    @Test
+    public void readJsonLinesHandlerErrorReleasesReader() throws IOException {
+        Path path = Files.createTempFile("build-executor", ".json");
+        try (BufferedWriter bw = Files.newBufferedWriter(path)) {
+            for (int i = 0; i < 100000; i++) {
+                bw.write("{\"id\": " + i + "}");
+                bw.newLine();
+            }
+        }
+
+        // The reader fills the queue before the handler fails, it must not stay blocked on it until the executor is closed
+        ObjectReader reader = new ObjectMapper().readerFor(Map.class);
+        BuildExecutor executor = new BuildExecutor(4, 10);
+        try {
+            executor.readJsonLines(path, reader, (String line, Map map) -> {
+                if ((Integer) map.get("id") == 50) {
+                    Thread.sleep(500);
+                    throw new IllegalStateException("handler error");
+                }
+            });
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("handler error", e.getCause().getMessage());
+        }
+
+        List<String> busyThreads = new ArrayList<>();
+        for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            if (!entry.getKey().getName().startsWith("build-stage-")) {
+                continue;
+            }
+            for (StackTraceElement element : entry.getValue()) {
+                if (element.getClassName().startsWith(BuildExecutor.class.getName())) {
+                    busyThreads.add(entry.getKey().getName());
+                    break;
+                }
+            }
+        }
+        System.out.println("Stage threads still running after the error: " + busyThreads);
+        assertEquals(Collections.emptyList(), busyThreads);
+        executor.close();
+
+        Files.delete(path);
+    }
+
+    @Test
+    public void failedStageThreads() {
+        // Pool threads are daemon, a build that fails without closing its executor must not keep the JVM alive
+        List<Boolean> daemon = Collections.synchronizedList(new ArrayList<>());
+        BuildExecutor executor = new BuildExecutor(4);
+        try {
+            executor.runStages(() -> {
+                throw new IOException("stage error");
+            }, () -> daemon.add(Thread.currentThread().isDaemon()));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("stage error", e.getMessage());
+        }
+        System.out.println("Stage threads daemon: " + daemon);
+        assertEquals(Collections.singletonList(true), daemon);
+    }
+
+    @Test
+    public void runPartitions() throws IOException {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 10007; i++) {
+            items.add(i);
+        }
+
+        for (int numThreads : new int[]{1, 4}) {
+            List<Integer> results = new ArrayList<>();
+            try (BuildExecutor executor = new BuildExecutor(numThreads)) {
+                executor.runPartitions(items, 1000, (List<Integer> partition, BuildExecutor.BatchSink<Integer> sink) -> {
+                    List<Integer> batch = new ArrayList<>();
+                    for (Integer item : partition) {
+                        batch.add(item * 2);
+                        if (batch.size() == 100) {
+                            sink.add(batch);
+                            batch = new ArrayList<>();
+                        }
+                    }
+                    sink.add(batch);
+                }, results::addAll);
+            }
+            // Batches from different partitions may come in any order
+            Collections.sort(results);
+            assertEquals(items.size(), results.size());
+            for (int i = 0; i < items.size(); i++) {
+                assertEquals(i * 2, (int) results.get(i));
+            }
+            System.out.println(numThreads + " threads, " + results.size() + " results");
+        }
+    }
+
+    @Test
+    public void mapInOrder() throws IOException {
+        Path path = Files.createTempFile("build-executor", ".json");
+        List<Integer> items = new ArrayList<>();
+        try (BufferedWriter bw = Files.newBufferedWriter(path)) {
+            for (int i = 0; i < 10007; i++) {
+                bw.write("{\"id\": " + i + "}");
+                bw.newLine();
+                items.add(i);
+            }
+        }
+
+        ObjectReader reader = new ObjectMapper().readerFor(Map.class);
+        for (int numThreads : new int[]{1, 4}) {
+            List<Integer> lines = new ArrayList<>();
+            List<Integer> partitions = new ArrayList<>();
+            try (BuildExecutor executor = new BuildExecutor(numThreads, 100)) {
+                // Lines are mapped by the workers and handled in file order
+                executor.readJsonLines(path, reader, (String line, Map map) -> 2 * (Integer) map.get("id"),
+                        (String line, Integer id) -> lines.add(id), new PipelineStats(), 0);
+                // Partitions are mapped by the workers and handled in order
+                executor.mapPartitions(items, 1000, partition -> {
+                    List<Integer> result = new ArrayList<>();
+                    for (Integer item : partition) {
+                        result.add(2 * item);
+                    }
+                    return result;
+                }, partitions::addAll);
+            }
+            assertEquals(items.size(), lines.size());
+            assertEquals(lines, partitions);
+            for (int i = 0; i < items.size(); i++) {
+                assertEquals(2 * i, (int) lines.get(i));
+            }
+            System.out.println(numThreads + " threads, " + lines.size() + " lines and " + partitions.size() + " items in order");
+        }
+
+        Files.delete(path);
+    }
+}
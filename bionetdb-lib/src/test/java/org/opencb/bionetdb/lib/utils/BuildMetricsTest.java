@@ -0,0 +1,47 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BuildMetricsTest {
+
+    @Test
+    public void stagesAndReport() throws IOException {
+        AtomicLong lines = new AtomicLong();
+        BuildMetrics metrics = new BuildMetrics(lines::get);
+
+        BuildMetrics.Timer timer = metrics.start("genes");
+        assertEquals("[genes]", metrics.getRunningStages().toString());
+        lines.addAndGet(1000);
+        BuildMetrics.Stage stage = timer.stop();
+        metrics.skip("proteins");
+        System.out.println(stage);
+        assertEquals(1000, stage.getRecords());
+        assertTrue(stage.getWallMillis() >= 0);
+        assertTrue(metrics.getRunningStages().isEmpty());
+
+        RocksDbManager.Stats stats = new RocksDbManager().getStats();
+        stats.addGet(System.nanoTime(), false);
+        BuildReport report = new BuildReport().setStages(metrics.getStages()).setRecords(metrics.getRecords()).setRocksDbStats(stats);
+        report.getNodes().put("GENE", 1000L);
+        report.getCaches().put("genes", new BuildReport.CacheStats(3, 1));
+
+        Path path = Files.createTempDirectory("build-report");
+        report.save(path);
+        BuildReport loaded = BuildReport.load(path);
+        System.out.println(new String(Files.readAllBytes(path.resolve(BuildReport.FILENAME))));
+        assertEquals(2, loaded.getStages().size());
+        assertTrue(loaded.getStages().get(1).isSkipped());
+        assertEquals(1000, loaded.getRecords());
+        assertEquals(1000L, (long) loaded.getNodes().get("GENE"));
+        assertEquals(0.75, loaded.getCaches().get("genes").getHitRate(), 0);
+        assertEquals(1, loaded.getRocksDb().get("getMisses").longValue());
+    }
+}
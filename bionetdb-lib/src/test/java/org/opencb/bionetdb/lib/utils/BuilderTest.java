@@ -0,0 +1,111 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.junit.Test;
+import org.opencb.bionetdb.core.models.network.Node;
+import org.opencb.bionetdb.lib.utils.csv.CsvCompression;
+import org.opencb.bionetdb.lib.utils.csv.CsvFileGroup;
+import org.opencb.bionetdb.lib.utils.csv.CsvWriterFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BuilderTest {
+
+    @Test
+    public void additionalNetwork() throws Exception {
+        Path inputPath = Files.createTempDirectory("builder-input");
+        Path outputPath = Files.createTempDirectory("builder-output");
+        writePreviousBuild(inputPath, outputPath, 100);
+
+        // BRCA2 is in the previous build, the protein is new
+        Path networkPath = inputPath.resolve("network.json");
+        Files.write(networkPath, Collections.singletonList("{\"nodes\": ["
+                + "{\"uid\": 1, \"id\": \"ENSG00000139618\", \"name\": \"BRCA2\", \"labels\": [\"GENE\"]},"
+                + "{\"uid\": 2, \"id\": \"P51587\", \"name\": \"BRCA2_HUMAN\", \"labels\": [\"PROTEIN\"]}"
+                + "]}"));
+
+        Builder builder = new Builder(inputPath, outputPath, Collections.emptyMap());
+        builder.setIncremental(true).setCsvCompression(CsvCompression.NONE)
+                .setAdditionalNeworkFiles(Collections.singletonList(networkPath.toString()));
+        builder.build();
+
+        Path deltaPath = outputPath.resolve(BuildManifest.DELTAS_DIRNAME).resolve("0001");
+        List<String> genes = readLines(deltaPath, Node.Label.GENE.name());
+        List<String> proteins = readLines(deltaPath, Node.Label.PROTEIN.name());
+        System.out.println(genes + " " + proteins);
+        assertTrue(genes.isEmpty());
+        assertEquals(1, proteins.size());
+        assertTrue(proteins.get(0).startsWith(String.join(CsvInfo.SEPARATOR, "100", "P51587", "BRCA2_HUMAN")));
+    }
+
+    @Test
+    public void secondDelta() throws Exception {
+        Path inputPath = Files.createTempDirectory("builder-input");
+        Path outputPath = Files.createTempDirectory("builder-output");
+        writePreviousBuild(inputPath, outputPath, 100);
+
+        Path networkPath = inputPath.resolve("network.json");
+        Files.write(networkPath, Collections.singletonList("{\"nodes\": ["
+                + "{\"uid\": 1, \"id\": \"P51587\", \"name\": \"BRCA2_HUMAN\", \"labels\": [\"PROTEIN\"]}"
+                + "]}"));
+        buildDelta(inputPath, outputPath, networkPath);
+
+        // The second delta does not repeat the nodes of the first one and its UIDs come after the first ones
+        Files.write(networkPath, Collections.singletonList("{\"nodes\": ["
+                + "{\"uid\": 1, \"id\": \"P51587\", \"name\": \"BRCA2_HUMAN\", \"labels\": [\"PROTEIN\"]},"
+                + "{\"uid\": 2, \"id\": \"P38398\", \"name\": \"BRCA1_HUMAN\", \"labels\": [\"PROTEIN\"]}"
+                + "]}"));
+        buildDelta(inputPath, outputPath, networkPath);
+
+        Path deltasPath = outputPath.resolve(BuildManifest.DELTAS_DIRNAME);
+        List<String> first = readLines(deltasPath.resolve("0001"), Node.Label.PROTEIN.name());
+        List<String> second = readLines(deltasPath.resolve("0002"), Node.Label.PROTEIN.name());
+        System.out.println(first + " " + second);
+        assertEquals(1, first.size());
+        assertTrue(first.get(0).startsWith(String.join(CsvInfo.SEPARATOR, "100", "P51587")));
+        assertEquals(1, second.size());
+        assertTrue(second.get(0).startsWith("P38398", second.get(0).indexOf(CsvInfo.SEPARATOR) + 1));
+        assertTrue(Long.parseLong(second.get(0).split(CsvInfo.SEPARATOR)[0]) > 100);
+    }
+
+    private static void buildDelta(Path inputPath, Path outputPath, Path networkPath) throws Exception {
+        new Builder(inputPath, outputPath, Collections.emptyMap()).setIncremental(true).setCsvCompression(CsvCompression.NONE)
+                .setAdditionalNeworkFiles(Collections.singletonList(networkPath.toString()))
+                .build();
+    }
+
+    // Writes the CSV files of a build without manifest: one gene node with UID 10 and the configuration node
+    static void writePreviousBuild(Path inputPath, Path outputPath, long uidCounter) throws IOException {
+        CsvInfo csv = new CsvInfo(inputPath, outputPath);
+        csv.setWriterFactory(new CsvWriterFactory(CsvCompression.NONE, 0, 1));
+        csv.openCSVFiles(Collections.emptyList(), null);
+        csv.writeNodeLine(new Node(10, "ENSG00000139618", "BRCA2", Node.Label.GENE));
+        Node config = new Node(0, null, null, Node.Label.INTERNAL_CONNFIG);
+        config.addAttribute("uidCounter", uidCounter);
+        csv.writeNodeLine(config);
+        csv.close();
+        // A new build opens its own UID index
+        Utils.deleteDirectory(outputPath.resolve(CsvInfo.UID_ROCKSDB_DIRNAME));
+    }
+
+    // Reads the data lines of a node or relation CSV file, without its header
+    static List<String> readLines(Path path, String name) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader bufferedReader = CsvFileGroup.get(path, name).newBufferedReader()) {
+            bufferedReader.readLine();
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
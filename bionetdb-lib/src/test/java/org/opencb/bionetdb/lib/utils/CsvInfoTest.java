@@ -0,0 +1,43 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.junit.Test;
+import org.opencb.bionetdb.core.models.network.Node;
+import org.opencb.bionetdb.lib.utils.index.UidIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class CsvInfoTest {
+
+    @Test
+    public void previousBuildUids() throws Exception {
+        Path inputPath = Files.createTempDirectory("csv-input");
+        Path outputPath = Files.createTempDirectory("csv-output");
+        BuilderTest.writePreviousBuild(inputPath, outputPath, 100);
+
+        CsvInfo csv = new CsvInfo(inputPath, outputPath);
+        try {
+            assertEquals(100, csv.readUidCounter(outputPath));
+            csv.openUidJournal(null);
+            // The configuration node has no ID, so only the gene is indexed
+            assertEquals(1, csv.indexNodeFiles(outputPath));
+            assertEquals(10, csv.findUid("ENSG00000139618", Node.Label.GENE.name()));
+            assertEquals(UidIndex.NO_UID, csv.findUid("ENSG00000139618", Node.Label.PROTEIN.name()));
+            assertEquals(UidIndex.NO_UID, csv.findUid("P51587", Node.Label.PROTEIN.name()));
+        } finally {
+            csv.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void uidCounterNotFound() throws Exception {
+        Path outputPath = Files.createTempDirectory("csv-output");
+        Files.write(outputPath.resolve(Node.Label.INTERNAL_CONNFIG.name() + ".csv"),
+                Arrays.asList("uid:ID(INTERNAL_CONNFIG)\tid\tname\t:LABEL", "0\t\t\tINTERNAL_CONNFIG"));
+        new CsvInfo(outputPath, outputPath).readUidCounter(outputPath);
+    }
+}
@@ -0,0 +1,176 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionWork;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DeltaLoaderTest {
+
+    private static class Write {
+        private final String query;
+        private final List<Map<String, Object>> rows;
+
+        @SuppressWarnings("unchecked")
+        Write(String query, Map<String, Object> params) {
+            this.query = query;
+            // Batches are cleared once written, so rows are copied
+            this.rows = params == null ? null : new ArrayList<>((List<Map<String, Object>>) params.get("rows"));
+        }
+
+        @Override
+        public String toString() {
+            return query + (rows == null ? "" : " " + rows);
+        }
+    }
+
+    @Test
+    public void load() throws Exception {
+        Path deltaPath = Files.createTempDirectory("delta");
+        // Relation files are listed before the node files, but they are loaded after them
+        write(deltaPath.resolve("ANNOTATION___GENE___PROTEIN.csv"), ":START_ID(GENE)\t:END_ID(PROTEIN)",
+                "100\t200", "101\t200");
+        write(deltaPath.resolve("GENE.csv"), "uid:ID(GENE)\tid\tname\tattr_start\tattr_biotype\t:LABEL",
+                "100\tENSG00000139618\tBRCA2\t32315474\tprotein_coding\tGENE",
+                "101\tENSG00000141510\t\t7661779\tprotein_coding\tGENE|ENSEMBL_GENE",
+                "102\tENSG00000012048\tBRCA1\t43044295\tprotein_coding\tGENE");
+        write(deltaPath.resolve("PROTEIN.csv"), "uid:ID(PROTEIN)\tid\tname\tattr_length\t:LABEL",
+                "200\tP51587\tBRCA2_HUMAN\t3418\tPROTEIN");
+        write(deltaPath.resolve("GENE__PROTEIN.csv"), ":START_ID(GENE)\t:END_ID(PROTEIN)", "102\t200");
+        // Files that are not node or relation files are ignored
+        write(deltaPath.resolve("build.log"), "100\tnot a CSV file");
+        write(deltaPath.resolve("summary.csv"), "label\tcount", "GENE\t3");
+
+        List<Write> writes = new ArrayList<>();
+        new DeltaLoader(newDriver(writes), 2).load(deltaPath);
+        writes.forEach(System.out::println);
+
+        List<Write> batches = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        for (Write write : writes) {
+            if (write.rows == null) {
+                indexes.add(write.query);
+            } else {
+                batches.add(write);
+            }
+        }
+        assertEquals(Arrays.asList("CREATE INDEX IF NOT EXISTS FOR (n:GENE) ON (n.uid)",
+                "CREATE INDEX IF NOT EXISTS FOR (n:PROTEIN) ON (n.uid)"), indexes);
+        assertEquals(5, batches.size());
+
+        // GENE nodes: the two GENE rows are flushed when the batch is full, the rest at the end of the file
+        assertEquals("UNWIND $rows AS row MERGE (n:GENE {uid: row.uid}) SET n += row", batches.get(0).query);
+        assertEquals(2, batches.get(0).rows.size());
+        Map<String, Object> brca2 = batches.get(0).rows.get(0);
+        assertEquals(100L, brca2.get("uid"));
+        assertEquals("ENSG00000139618", brca2.get("id"));
+        assertEquals("BRCA2", brca2.get("name"));
+        assertEquals(32315474L, brca2.get("attr_start"));
+        assertEquals("protein_coding", brca2.get("attr_biotype"));
+        assertFalse(brca2.containsKey(":LABEL"));
+        assertEquals(102L, batches.get(0).rows.get(1).get("uid"));
+
+        assertEquals("UNWIND $rows AS row MERGE (n:GENE {uid: row.uid}) SET n += row SET n:ENSEMBL_GENE", batches.get(1).query);
+        assertEquals(1, batches.get(1).rows.size());
+        // Empty values are not set
+        assertFalse(batches.get(1).rows.get(0).containsKey("name"));
+
+        assertEquals("UNWIND $rows AS row MERGE (n:PROTEIN {uid: row.uid}) SET n += row", batches.get(2).query);
+        assertEquals(3418L, batches.get(2).rows.get(0).get("attr_length"));
+
+        // Relations, by type and node labels from the file name
+        assertEquals("UNWIND $rows AS row MATCH (s:GENE {uid: row.s}) MATCH (d:PROTEIN {uid: row.d}) MERGE (s)-[:ANNOTATION]->(d)",
+                batches.get(3).query);
+        assertEquals(2, batches.get(3).rows.size());
+        assertEquals(101L, batches.get(3).rows.get(1).get("s"));
+        assertEquals(200L, batches.get(3).rows.get(1).get("d"));
+        assertEquals("UNWIND $rows AS row MATCH (s:GENE {uid: row.s}) MATCH (d:PROTEIN {uid: row.d}) MERGE (s)-[:GENE__PROTEIN]->(d)",
+                batches.get(4).query);
+        assertEquals(1, batches.get(4).rows.size());
+    }
+
+    @Test
+    public void numericAttributes() throws Exception {
+        Path deltaPath = Files.createTempDirectory("delta");
+        write(deltaPath.resolve("VARIANT.csv"), "uid:ID(VARIANT)\tid\tname\tattr_start\tattr_ref\tattr_big\t:LABEL",
+                "300\t1:100:A:T\t123\t100\t0A\t123456789012345678901234567890\tVARIANT");
+
+        List<Write> writes = new ArrayList<>();
+        new DeltaLoader(newDriver(writes), 10).load(deltaPath);
+        Map<String, Object> row = writes.get(writes.size() - 1).rows.get(0);
+        System.out.println(row);
+
+        // Only attributes are typed, IDs and names are always strings
+        assertEquals("123", row.get("name"));
+        assertEquals(100L, row.get("attr_start"));
+        assertEquals("0A", row.get("attr_ref"));
+        assertEquals("123456789012345678901234567890", row.get("attr_big"));
+    }
+
+    @Test
+    public void blankLines() throws Exception {
+        Path deltaPath = Files.createTempDirectory("delta");
+        write(deltaPath.resolve("GENE.csv"), "uid:ID(GENE)\tid\tname\t:LABEL", "100\tENSG00000139618\tBRCA2\tGENE", "",
+                "101\tENSG00000012048\tBRCA1\tGENE", "");
+        write(deltaPath.resolve("GENE__GENE.csv"), ":START_ID(GENE)\t:END_ID(GENE)", "100\t101", " ");
+
+        List<Write> writes = new ArrayList<>();
+        new DeltaLoader(newDriver(writes), 10).load(deltaPath);
+        writes.forEach(System.out::println);
+
+        Write genes = writes.get(1);
+        assertEquals(2, genes.rows.size());
+        assertEquals(101L, genes.rows.get(1).get("uid"));
+        Write relations = writes.get(2);
+        assertEquals(1, relations.rows.size());
+        assertEquals(100L, relations.rows.get(0).get("s"));
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidDelta() throws Exception {
+        new DeltaLoader(newDriver(new ArrayList<>())).load(Files.createTempDirectory("delta").resolve("0001"));
+    }
+
+    private static void write(Path path, String... lines) throws IOException {
+        Files.write(path, Arrays.asList(lines));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Driver newDriver(List<Write> writes) {
+        Result result = proxy(Result.class, (method, args) -> null);
+        Transaction tx = proxy(Transaction.class, (method, args) -> {
+            if (method.equals("run")) {
+                writes.add(new Write((String) args[0], args.length > 1 ? (Map<String, Object>) args[1] : null));
+                return result;
+            }
+            return null;
+        });
+        Session session = proxy(Session.class, (method, args) -> {
+            if (method.equals("writeTransaction")) {
+                return ((TransactionWork<Object>) args[0]).execute(tx);
+            }
+            return null;
+        });
+        return proxy(Driver.class, (method, args) -> method.equals("session") ? session : null);
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type, },
+                (proxy, method, args) -> handler.invoke(method.getName(), args));
+    }
+}
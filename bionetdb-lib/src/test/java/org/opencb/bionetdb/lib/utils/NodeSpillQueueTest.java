@@ -0,0 +1,61 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.junit.Test;
+import org.opencb.bionetdb.core.models.network.Node;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NodeSpillQueueTest {
+
+    @Test
+    public void addAndReplay() throws IOException {
+        Path dir = Files.createTempDirectory("node-spill-queue");
+        int numNodes = 20000;
+        try (NodeSpillQueue queue = new NodeSpillQueue(dir, "dna", 64 * 1024)) {
+            for (int i = 0; i < numNodes; i++) {
+                Node node = new Node(i, i % 3 == 0 ? null : "DNA" + i, "GENE" + i, Node.Label.DNA);
+                node.getLabels().add(Node.Label.PHYSICAL_ENTITY);
+                node.addAttribute("source", "reactome");
+                node.addAttribute("xrefIds", "ENSG" + i + ";" + i);
+                node.addAttribute("position", i);
+                node.addAttribute("score", i / 2.0);
+                node.addAttribute("spontaneous", i % 2 == 0);
+                node.addAttribute("names", Arrays.asList("GENE" + i, "gene " + i));
+                queue.add(node);
+            }
+            System.out.println(queue.size() + " nodes, spilled = " + queue.isSpilled() + ", files = "
+                    + Files.list(dir).count());
+            assertTrue(queue.isSpilled());
+
+            List<Node> nodes = new ArrayList<>();
+            queue.forEach(nodes::add);
+            assertEquals(numNodes, nodes.size());
+            for (int i = 0; i < numNodes; i += 997) {
+                Node node = nodes.get(i);
+                assertEquals(i, node.getUid());
+                if (i % 3 == 0) {
+                    assertNull(node.getId());
+                } else {
+                    assertEquals("DNA" + i, node.getId());
+                }
+                assertEquals(Arrays.asList(Node.Label.DNA, Node.Label.PHYSICAL_ENTITY), node.getLabels());
+                assertEquals("ENSG" + i + ";" + i, node.getAttributes().getString("xrefIds"));
+                assertEquals(i, node.getAttributes().getInt("position"));
+                assertEquals(i / 2.0, node.getAttributes().getDouble("score"), 0);
+                assertEquals(i % 2 == 0, node.getAttributes().getBoolean("spontaneous"));
+                // Lists are kept as they are written to the CSV files
+                assertEquals("GENE" + i + ",gene " + i, node.getAttributes().getString("names"));
+            }
+        }
+        assertEquals(0, Files.list(dir).count());
+    }
+}
@@ -1,8 +1,17 @@
 package org.opencb.bionetdb.lib.utils;
 
 import org.junit.Test;
+import org.opencb.bionetdb.core.config.RocksDbConfiguration;
 import org.rocksdb.RocksDB;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 public class RocksDbManagerTest {
 
     @Test
@@ -31,4 +40,38 @@ public class RocksDbManagerTest {
         rocksDbManager.close(db);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void columnFamilies() throws IOException {
+        String dbLocation = Files.createTempDirectory("rocksdb").resolve("store.rocksdb").toString();
+        Map<String, RocksDbManager.FamilyType> families = new LinkedHashMap<>();
+        families.put("objects", RocksDbManager.FamilyType.OBJECTS);
+        families.put("xrefs", RocksDbManager.FamilyType.INDEX);
+
+        for (String profile : new String[]{"default", "bulk-load", "read-mostly"}) {
+            RocksDbManager rocksDbManager = new RocksDbManager(new RocksDbConfiguration().setProfile(profile)
+                    .setBlockCacheSize(8 * 1024 * 1024));
+            assertEquals(profile, rocksDbManager.getProfile().toString());
+
+            RocksDbManager.Store store = rocksDbManager.getStore(dbLocation, families, true, false);
+            rocksDbManager.putString("GENE1", "ENSG1", store.getDb(), store.getFamily("xrefs"));
+            rocksDbManager.putBytes("ENSG1", ("{\"id\": \"ENSG1\", \"profile\": \"" + profile + "\"}").getBytes(), store.getDb(),
+                    store.getFamily("objects"));
+            rocksDbManager.compact(store);
+            rocksDbManager.close(store);
+
+            // Same keys, different families
+            store = rocksDbManager.getStore(dbLocation, families, false, false);
+            assertEquals("ENSG1", rocksDbManager.getString("GENE1", store.getDb(), store.getFamily("xrefs")));
+            assertNull(rocksDbManager.getString("GENE1", store.getDb(), store.getFamily("objects")));
+            assertEquals(1, rocksDbManager.estimateNumKeys(store.getDb(), store.getFamily("objects")));
+            System.out.println(profile + ": " + new String(rocksDbManager.getBytes("ENSG1", store.getDb(), store.getFamily("objects"))));
+            rocksDbManager.close(store);
+            rocksDbManager.close();
+        }
+
+        // A store without the families can not be opened read-only
+        RocksDbManager rocksDbManager = new RocksDbManager();
+        families.put("uids", RocksDbManager.FamilyType.INDEX);
+        assertNull(rocksDbManager.getStore(dbLocation, families, false, false));
+    }
+}
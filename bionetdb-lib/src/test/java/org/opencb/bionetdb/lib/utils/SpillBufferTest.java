@@ -0,0 +1,79 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpillBufferTest {
+
+    @Test
+    public void spill() throws IOException {
+        Path dir = Files.createTempDirectory("spill-buffer");
+        for (long maxMemoryBytes : new long[]{SpillBuffer.DEFAULT_MAX_MEMORY_BYTES, 1024}) {
+            SpillBuffer buffer = new SpillBuffer(dir, "test", maxMemoryBytes);
+            int numRecords = 10000;
+            for (int i = 0; i < numRecords; i++) {
+                long uid = i;
+                String id = i % 10 == 0 ? null : "MIMAT" + i;
+                buffer.append(out -> {
+                    out.writeLong(uid);
+                    SpillBuffer.writeString(out, id);
+                });
+            }
+            System.out.println(numRecords + " records, max. memory " + maxMemoryBytes + " bytes, spilled = " + buffer.isSpilled());
+            assertEquals(maxMemoryBytes == 1024, buffer.isSpilled());
+
+            // Records are read back in order, twice
+            for (int r = 0; r < 2; r++) {
+                List<Long> uids = new ArrayList<>();
+                buffer.replay(in -> {
+                    long uid = in.readLong();
+                    String id = SpillBuffer.readString(in);
+                    if (uid % 10 == 0) {
+                        assertNull(id);
+                    } else {
+                        assertEquals("MIMAT" + uid, id);
+                    }
+                    uids.add(uid);
+                });
+                assertEquals(numRecords, uids.size());
+                assertEquals(numRecords - 1, (long) uids.get(numRecords - 1));
+            }
+
+            buffer.close();
+        }
+
+        // Spill files are removed when closing
+        assertTrue(Files.isDirectory(dir));
+        assertFalse(Files.list(dir).findAny().isPresent());
+    }
+
+    @Test
+    public void closeAfterError() throws IOException {
+        Path dir = Files.createTempDirectory("spill-buffer");
+        try (SpillBuffer buffer = new SpillBuffer(dir, "test", 1024)) {
+            for (int i = 0; i < 10000; i++) {
+                long uid = i;
+                buffer.append(out -> out.writeLong(uid));
+                if (i == 5000) {
+                    assertTrue(buffer.isSpilled());
+                    throw new IOException("stage error");
+                }
+            }
+        } catch (IOException e) {
+            assertEquals("stage error", e.getMessage());
+        }
+
+        // The spill file of a failed stage is removed too
+        assertFalse(Files.list(dir).findAny().isPresent());
+    }
+}
@@ -0,0 +1,59 @@
+package org.opencb.bionetdb.lib.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UidAllocatorTest {
+
+    @Test
+    public void uniqueUids() throws Exception {
+        int numThreads = 8;
+        int numUids = 100000;
+
+        UidAllocator uidAllocator = new UidAllocator(1, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            futures.add(executor.submit(() -> {
+                long[] uids = new long[numUids];
+                for (int j = 0; j < numUids; j++) {
+                    uids[j] = uidAllocator.getAndInc();
+                }
+                return uids;
+            }));
+        }
+
+        Set<Long> uids = new HashSet<>();
+        for (Future<long[]> future : futures) {
+            for (long uid : future.get()) {
+                assertTrue(uid > 0 && uid < uidAllocator.getHighWaterMark());
+                uids.add(uid);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(numThreads * numUids, uids.size());
+        System.out.println(uids.size() + " unique UIDs, UID counter = " + uidAllocator.getHighWaterMark());
+    }
+
+    @Test
+    public void reset() {
+        UidAllocator uidAllocator = new UidAllocator(1);
+        assertEquals(1, uidAllocator.getAndInc());
+        assertEquals(2, uidAllocator.getAndInc());
+
+        uidAllocator.reset(5000);
+        assertEquals(5000, uidAllocator.getAndInc());
+        assertTrue(uidAllocator.getHighWaterMark() > 5000);
+    }
+}
@@ -0,0 +1,123 @@
+package org.opencb.bionetdb.lib.utils.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.opencb.biodata.models.core.Gene;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GeneCacheTest {
+
+    @Test
+    public void bulkLoad() throws IOException {
+        Path path = Files.createTempDirectory("gene-cache");
+        GeneCache geneCache = new GeneCache(path);
+
+        int numGenes = 25000;
+        long start = System.currentTimeMillis();
+        geneCache.startBulkLoad();
+        for (int i = 0; i < numGenes; i++) {
+            String id = "ENSG" + i;
+            geneCache.saveObject(id, "{\"id\": \"" + id + "\", \"name\": \"GENE" + i + "\"}");
+            geneCache.saveXref(id, id);
+            geneCache.saveXref("GENE" + i, id);
+
+            // Pending writes must be readable
+            assertEquals(id, geneCache.get("GENE" + i).getId());
+        }
+        geneCache.endBulkLoad();
+        System.out.println(numGenes + " genes loaded in " + (System.currentTimeMillis() - start) + " ms");
+
+        for (int i = 0; i < numGenes; i += 1000) {
+            Gene gene = geneCache.get("GENE" + i);
+            assertEquals("ENSG" + i, gene.getId());
+        }
+        assertNull(geneCache.get("GENE" + numGenes));
+
+        // Writes after the bulk load go straight to RocksDB
+        geneCache.addXrefId("ALIAS1", "ENSG1");
+        assertEquals("GENE1", geneCache.get("ALIAS1").getName());
+    }
+
+    @Test
+    public void codecs() throws IOException {
+        String json = "{\"id\": \"ENSG1\", \"name\": \"GENE1\", \"biotype\": \"protein_coding\", \"chromosome\": \"1\", \"start\": 100}";
+        for (boolean smile : new boolean[]{true, false}) {
+            Path path = Files.createTempDirectory("gene-cache");
+            GeneCache geneCache = new GeneCache(path);
+            if (!smile) {
+                geneCache.setCodec(new JsonValueCodec<>(new ObjectMapper(), Gene.class));
+            }
+            byte[] value = geneCache.getCodec().encode(json);
+            System.out.println(geneCache.getCodec().getClass().getSimpleName() + ": " + json.length() + " -> " + value.length + " bytes");
+
+            geneCache.saveObject("ENSG1", json);
+            geneCache.saveXref("GENE1", "ENSG1");
+            Gene gene = geneCache.get("GENE1");
+            assertEquals("protein_coding", gene.getBiotype());
+            assertEquals(100, gene.getStart());
+
+            // Second lookup is served by the LRU, until the object is saved again
+            assertSame(gene, geneCache.get("GENE1"));
+            assertEquals(1, geneCache.getLruHits());
+            geneCache.saveObject("ENSG1", json.replace("GENE1", "GENE2"));
+            assertEquals("GENE2", geneCache.get("GENE1").getName());
+        }
+    }
+
+    @Test
+    public void sharedReadOnly() throws IOException {
+        Path cacheDir = Files.createTempDirectory("reference-cache");
+        Path geneFile = cacheDir.resolve("gene.json");
+        Files.write(geneFile, "{\"id\": \"ENSG1\", \"name\": \"GENE1\"}\n".getBytes());
+
+        // First build: the release is indexed and then completed
+        ReferenceCacheStore store = new ReferenceCacheStore(cacheDir);
+        ReferenceCacheStore.Release release = store.open(ReferenceCacheStore.GENES, Collections.singletonList(geneFile));
+        assertFalse(release.isComplete());
+        GeneCache geneCache = new GeneCache(release.getPath());
+        geneCache.setXrefFilter(0.01);
+        geneCache.saveObject("ENSG1", new String(Files.readAllBytes(geneFile)));
+        geneCache.saveXref("GENE1", "ENSG1");
+        geneCache.setReadOnly();
+        store.complete(release);
+        geneCache.close();
+        assertTrue(Files.exists(Paths.get(geneCache.getXrefFilterFilename())));
+
+        // Second build: read-only, its own xrefs go to the overlay. The xref filter is loaded, unknown xrefs skip both stores
+        release = store.open(ReferenceCacheStore.GENES, Collections.singletonList(geneFile));
+        assertTrue(release.isComplete());
+        geneCache = new GeneCache(release.getPath(), true);
+        geneCache.setXrefOverlay(Files.createTempDirectory("build").resolve("overlay.rocksdb").toString());
+        geneCache.setXrefFilter(0.01);
+        assertEquals(1, geneCache.getXrefFilter().getEntries());
+        geneCache.addXrefId("ALIAS1", "ENSG1");
+        assertEquals("GENE1", geneCache.get("ALIAS1").getName());
+        assertNull(geneCache.get("GENE2"));
+        assertEquals(2, geneCache.getXrefFilter().getSavedLookups());
+        assertEquals(1, geneCache.getXrefOverlayFilter().getSavedLookups());
+        geneCache.printStats();
+        geneCache.close();
+
+        geneCache = new GeneCache(release.getPath(), true);
+        assertNull(geneCache.getPrimaryId("ALIAS1"));
+        geneCache.close();
+
+        // A different gene file is a different release, pruning keeps the most recently used one
+        Files.write(geneFile, "{\"id\": \"ENSG2\", \"name\": \"GENE2\"}\n".getBytes());
+        store.open(ReferenceCacheStore.GENES, Collections.singletonList(geneFile));
+        assertEquals(2, store.list().size());
+        assertEquals(1, store.prune(1).size());
+        assertEquals(release.getChecksum(), store.list().get(0).getChecksum());
+    }
+}
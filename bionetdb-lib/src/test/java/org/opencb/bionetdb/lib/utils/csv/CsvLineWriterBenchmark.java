@@ -0,0 +1,93 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+import org.opencb.bionetdb.core.models.network.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.opencb.bionetdb.lib.utils.csv.CsvLineWriterTest.GENE_ATTRIBUTES;
+
+/**
+ * Node and relation line serialisation: StringCsvLines strings, as CsvInfo used to build them, vs CsvLineWriter.
+ * Run the main method with the GC profiler to compare the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvLineWriterBenchmark {
+
+    private List<String> attrList;
+    private String[] attrs;
+    private Node node;
+    private BufferedWriter bw;
+    private CsvLineWriter lineWriter;
+    private long uid;
+
+    @Setup
+    public void setup() throws IOException {
+        attrList = GENE_ATTRIBUTES.subList(3, GENE_ATTRIBUTES.size());
+        attrs = attrList.toArray(new String[0]);
+
+        node = new Node(123456789L, "ENSG00000139618", "BRCA2", Node.Label.GENE);
+        node.addAttribute("biotype", "protein_coding");
+        node.addAttribute("start", 32315474);
+        node.addAttribute("strand", "+");
+        node.addAttribute("description", "BRCA2 DNA repair associated [Source:HGNC Symbol;Acc:HGNC:1101]");
+        node.addAttribute("synonyms", Arrays.asList("FANCD1", "BRCC2", "FAD1"));
+
+        // Writers to nowhere, only the serialisation is measured
+        bw = new BufferedWriter(Writer.nullWriter(), 64 * 1024);
+        lineWriter = new CsvLineWriter(bw);
+    }
+
+    @Benchmark
+    public void nodeLineString() throws IOException {
+        StringCsvLines.writeLine(bw, StringCsvLines.nodeLine(node, attrList));
+    }
+
+    @Benchmark
+    public void nodeLineWriter() throws IOException {
+        lineWriter.writeNode(node, attrs);
+    }
+
+    @Benchmark
+    public void relationLineString() throws IOException {
+        uid++;
+        StringCsvLines.writeLine(bw, StringCsvLines.relationLine(uid, uid + 1000000));
+    }
+
+    @Benchmark
+    public void relationLineWriter() throws IOException {
+        uid++;
+        lineWriter.writeRelation(uid, uid + 1000000);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CsvLineWriterBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,53 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+import org.junit.Test;
+import org.opencb.bionetdb.core.models.network.Node;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CsvLineWriterTest {
+
+    public static final List<String> GENE_ATTRIBUTES = Arrays.asList("uid", "id", "name", "biotype", "start", "strand",
+            "description", "synonyms");
+
+    @Test
+    public void sameAsNodeLine() throws IOException {
+        List<String> attrList = GENE_ATTRIBUTES.subList(3, GENE_ATTRIBUTES.size());
+        String[] attrs = attrList.toArray(new String[0]);
+
+        Node gene = new Node(123456789L, "ENSG00000139618", "BRCA2", Node.Label.GENE);
+        gene.getLabels().add(Node.Label.ENSEMBL_GENE);
+        gene.addAttribute("biotype", "protein_coding");
+        gene.addAttribute("start", 32315474);
+        gene.addAttribute("description", "BRCA2 \"DNA repair\" associated");
+        gene.addAttribute("synonyms", Arrays.asList("FANCD1", "\"BRCC2\""));
+
+        // Null items of a list are written as empty values
+        Node nullItems = new Node(2L, "ENSG00000012048", "BRCA1", Node.Label.GENE);
+        nullItems.addAttribute("synonyms", Arrays.asList("RNF53", null, "PPP1R53"));
+        nullItems.addAttribute("description", Collections.singletonList(null));
+
+        Node empty = new Node(-1L, "", null, Node.Label.GENE);
+
+        StringWriter expected = new StringWriter();
+        StringWriter actual = new StringWriter();
+        try (BufferedWriter bw = new BufferedWriter(actual)) {
+            CsvLineWriter lineWriter = new CsvLineWriter(bw);
+            for (Node node : Arrays.asList(gene, nullItems, empty)) {
+                expected.append(StringCsvLines.nodeLine(node, attrList)).append(System.lineSeparator());
+                lineWriter.writeNode(node, attrs);
+            }
+            expected.append(StringCsvLines.relationLine(0, Long.MAX_VALUE)).append(System.lineSeparator());
+            lineWriter.writeRelation(0, Long.MAX_VALUE);
+        }
+        System.out.print(actual);
+        assertEquals(expected.toString(), actual.toString());
+    }
+}
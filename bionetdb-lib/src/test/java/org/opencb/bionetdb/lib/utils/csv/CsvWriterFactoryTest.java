@@ -0,0 +1,142 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+import org.junit.Test;
+import org.opencb.commons.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CsvWriterFactoryTest {
+
+    @Test
+    public void writeAndRead() throws IOException {
+        Path path = Files.createTempDirectory("csv-writer");
+        int numLines = 500000;
+
+        for (CsvCompression compression : CsvCompression.values()) {
+            long start = System.currentTimeMillis();
+            try (CsvWriterFactory writerFactory = new CsvWriterFactory(compression, 1, 4)) {
+                try (BufferedWriter bw = writerFactory.newWriter(path, compression.name())) {
+                    for (int i = 0; i < numLines; i++) {
+                        bw.write(i + "\tGENE" + i + "\tprotein_coding\t" + (i * 31L));
+                        bw.newLine();
+                    }
+                }
+            }
+            Path file = path.resolve(compression.name() + compression.getExtension());
+            System.out.println(compression + ": " + Files.size(file) + " bytes in " + (System.currentTimeMillis() - start) + " ms");
+
+            // Concatenated gzip members are read as a single stream
+            try (BufferedReader reader = FileUtils.newBufferedReader(file)) {
+                for (int i = 0; i < numLines; i++) {
+                    assertEquals(i + "\tGENE" + i + "\tprotein_coding\t" + (i * 31L), reader.readLine());
+                }
+                assertNull(reader.readLine());
+            }
+        }
+    }
+
+    @Test
+    public void checkpointAndAppend() throws IOException {
+        Path path = Files.createTempDirectory("csv-checkpoint");
+        int numLines = 100000;
+
+        for (CsvCompression compression : CsvCompression.values()) {
+            String filename = compression.name() + compression.getExtension();
+            Map<String, Long> lengths;
+            try (CsvWriterFactory writerFactory = new CsvWriterFactory(compression, 1, 4)) {
+                BufferedWriter bw = writerFactory.newWriter(path, compression.name());
+                for (int i = 0; i < numLines; i++) {
+                    bw.write("line" + i);
+                    bw.newLine();
+                }
+                lengths = writerFactory.checkpoint();
+
+                // Lines after the checkpoint are lost when resuming
+                for (int i = 0; i < numLines; i++) {
+                    bw.write("lost" + i);
+                    bw.newLine();
+                }
+                bw.close();
+            }
+
+            try (CsvWriterFactory writerFactory = new CsvWriterFactory(compression, 1, 4)) {
+                try (BufferedWriter bw = writerFactory.appendWriter(path, compression.name(), lengths.get(filename))) {
+                    for (int i = numLines; i < 2 * numLines; i++) {
+                        bw.write("line" + i);
+                        bw.newLine();
+                    }
+                }
+            }
+            System.out.println(compression + ": checkpoint at " + lengths.get(filename) + " bytes, "
+                    + Files.size(path.resolve(filename)) + " bytes after resuming");
+
+            try (BufferedReader reader = FileUtils.newBufferedReader(path.resolve(filename))) {
+                for (int i = 0; i < 2 * numLines; i++) {
+                    assertEquals("line" + i, reader.readLine());
+                }
+                assertNull(reader.readLine());
+            }
+        }
+    }
+
+    @Test
+    public void shardedWriteAndResume() throws IOException {
+        Path path = Files.createTempDirectory("csv-sharded");
+        int numLines = 10000;
+        int maxRows = 3000;
+
+        Map<String, Long> lengths;
+        try (CsvWriterFactory writerFactory = new CsvWriterFactory(CsvCompression.GZIP, 1, 1)) {
+            Writer writer = writerFactory.newCsvWriter(path, "GENE", maxRows, 0);
+            writer.write("uid:ID(GENE)\tid");
+            writer.write(System.lineSeparator());
+            for (int i = 0; i < numLines; i++) {
+                writer.write(i + "\tENSG" + i + System.lineSeparator());
+            }
+            lengths = writerFactory.checkpoint();
+
+            // Rows after the checkpoint are lost when resuming, including the parts created after it
+            for (int i = 0; i < numLines; i++) {
+                writer.write("lost" + i + System.lineSeparator());
+            }
+            writer.close();
+        }
+        CsvFileGroup group = CsvFileGroup.get(path, "GENE");
+        System.out.println(group.getParts().size() + " part files before resuming: " + group.getFiles());
+        assertTrue(group.isSharded());
+        assertEquals(7, group.getParts().size());
+
+        try (CsvWriterFactory writerFactory = new CsvWriterFactory(CsvCompression.GZIP, 1, 1)) {
+            try (Writer writer = writerFactory.appendCsvWriter(path, "GENE", lengths, maxRows, 0)) {
+                for (int i = numLines; i < 2 * numLines; i++) {
+                    writer.write(i + "\tENSG" + i + System.lineSeparator());
+                }
+            }
+        }
+
+        // The header file is followed by the parts: 10000 rows in 4 parts, the last one cut at the checkpoint, and 4 more
+        group = CsvFileGroup.get(path, "GENE");
+        System.out.println(group.getParts().size() + " part files after resuming: " + group.getFiles());
+        assertEquals(8, group.getParts().size());
+        assertEquals(1, CsvFileGroup.list(path).size());
+        try (BufferedReader reader = group.newBufferedReader()) {
+            assertEquals("uid:ID(GENE)\tid", reader.readLine());
+            for (int i = 0; i < 2 * numLines; i++) {
+                assertEquals(i + "\tENSG" + i, reader.readLine());
+            }
+            assertNull(reader.readLine());
+        }
+        assertFalse(group.isEmpty());
+    }
+}
@@ -0,0 +1,72 @@
+package org.opencb.bionetdb.lib.utils.csv;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.bionetdb.core.models.network.Node;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import static org.opencb.bionetdb.lib.utils.CsvInfo.ARRAY_SEPARATOR;
+import static org.opencb.bionetdb.lib.utils.CsvInfo.MISSING_VALUE;
+import static org.opencb.bionetdb.lib.utils.CsvInfo.SEPARATOR;
+
+/**
+ * Reference node and relation line serialisation, as CsvInfo built the lines before CsvLineWriter: one string per line,
+ * collection attributes joined with StringUtils.join. CsvLineWriter output must be the same.
+ */
+public final class StringCsvLines {
+
+    private StringCsvLines() {
+    }
+
+    /**
+     * Node line: UID, ID, name, the attributes and the labels.
+     *
+     * @param node          Node
+     * @param attributes    Attribute names after UID, ID and name
+     * @return              Line, without line separator
+     */
+    public static String nodeLine(Node node, List<String> attributes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(node.getUid()).append(SEPARATOR);
+        String value = cleanString(node.getId());
+        sb.append(StringUtils.isEmpty(value) ? MISSING_VALUE : value).append(SEPARATOR);
+        value = cleanString(node.getName());
+        sb.append(StringUtils.isEmpty(value) ? MISSING_VALUE : value);
+        for (String attribute : attributes) {
+            value = cleanString(toString(node.getAttributes().get(attribute)));
+            sb.append(SEPARATOR).append(StringUtils.isEmpty(value) ? MISSING_VALUE : value);
+        }
+
+        sb.append(SEPARATOR).append(node.getLabels().get(0));
+        for (int i = 1; i < node.getLabels().size(); i++) {
+            sb.append(ARRAY_SEPARATOR).append(node.getLabels().get(i));
+        }
+        return sb.toString();
+    }
+
+    public static String relationLine(long startUid, long endUid) {
+        return startUid + SEPARATOR + endUid;
+    }
+
+    public static void writeLine(BufferedWriter bw, String line) throws IOException {
+        synchronized (bw) {
+            bw.write(line);
+            bw.newLine();
+        }
+    }
+
+    private static String toString(Object value) {
+        if (value instanceof Collection) {
+            // Null items are written as empty values
+            return StringUtils.join((Collection<?>) value, ",");
+        }
+        return value == null ? null : value.toString();
+    }
+
+    private static String cleanString(String input) {
+        return StringUtils.isNotEmpty(input) ? input.replace("\"", "") : null;
+    }
+}
@@ -0,0 +1,52 @@
+package org.opencb.bionetdb.lib.utils.index;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void falsePositiveRate() throws IOException {
+        // Small initial capacity, the filter has to grow several times
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        int numKeys = 200000;
+        for (int i = 0; i < numKeys; i++) {
+            filter.add("rs" + i);
+        }
+        for (int i = 0; i < numKeys; i++) {
+            assertTrue(filter.mightContain("rs" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = numKeys; i < 2 * numKeys; i++) {
+            if (filter.mightContain("rs" + i)) {
+                filter.falsePositive();
+                falsePositives++;
+            }
+        }
+        System.out.println(filter);
+        assertEquals(numKeys, filter.getEntries());
+        assertEquals(numKeys - falsePositives, filter.getSavedLookups());
+        assertTrue(filter.getFalsePositiveRate() < filter.getFpp());
+
+        // Serialized filters give the same answers
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+        BloomFilter read = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(filter.getEntries(), read.getEntries());
+        assertEquals(filter.getMemoryBytes(), read.getMemoryBytes());
+        for (int i = 0; i < 2 * numKeys; i += 7) {
+            assertEquals(filter.mightContain("rs" + i), read.mightContain("rs" + i));
+        }
+        assertFalse(new BloomFilter().mightContain("rs1"));
+    }
+}
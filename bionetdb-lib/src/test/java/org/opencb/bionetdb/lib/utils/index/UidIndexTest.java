@@ -0,0 +1,113 @@
+package org.opencb.bionetdb.lib.utils.index;
+
+import org.junit.Test;
+import org.opencb.bionetdb.lib.utils.RocksDbManager;
+import org.rocksdb.RocksDB;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UidIndexTest {
+
+    @Test
+    public void putAndGet() throws IOException {
+        RocksDbManager rocksDbManager = new RocksDbManager();
+        RocksDB rocksDB = rocksDbManager.getDBConnection(Files.createTempDirectory("uid-index").toString(), true);
+
+        UidIndex uidIndex = new UidIndex(rocksDbManager, rocksDB, 1000);
+        int numIds = 5000;
+        for (int i = 0; i < numIds; i++) {
+            uidIndex.put("rs" + i, "VARIANT", i);
+            uidIndex.put("rs" + i, "XREF", numIds + i);
+        }
+
+        for (int i = 0; i < numIds; i++) {
+            assertEquals(i, uidIndex.get("rs" + i, "VARIANT"));
+            assertEquals(numIds + i, uidIndex.get("rs" + i, "XREF"));
+        }
+        assertEquals(UidIndex.NO_UID, uidIndex.get("rs" + numIds, "VARIANT"));
+        assertEquals(UidIndex.NO_UID, uidIndex.get("rs1", "GENE"));
+
+        // Updating an entry kept in memory
+        uidIndex.put("rs1", "VARIANT", 123456);
+        assertEquals(123456, uidIndex.get("rs1", "VARIANT"));
+
+        UidIndex.TypeIndex typeIndex = uidIndex.getTypeIndexes().get("VARIANT");
+        assertEquals(1000, typeIndex.getSize());
+        assertTrue(typeIndex.isSpilled());
+        assertEquals(1000 + 1, typeIndex.getHits());
+        assertEquals(numIds - 1000, typeIndex.getSpillHits());
+        assertEquals(1, typeIndex.getMisses());
+
+        // Misses of the spilled entries are mostly answered by the filter
+        for (int i = 0; i < numIds; i++) {
+            assertEquals(UidIndex.NO_UID, uidIndex.get("rs" + (numIds + i), "VARIANT"));
+        }
+        BloomFilter spillFilter = typeIndex.getSpillFilter();
+        assertEquals(numIds - 1000, spillFilter.getEntries());
+        assertEquals(numIds + 1, spillFilter.getSavedLookups() + spillFilter.getFalsePositives());
+        assertTrue(spillFilter.getFalsePositiveRate() < 2 * BloomFilter.DEFAULT_FPP);
+        uidIndex.printStats();
+
+        // Batch lookups of entries in memory, spilled and missing
+        long[] uids = uidIndex.get(Arrays.asList("rs0", "rs" + (numIds - 1), "rs" + (2 * numIds), "rs1"), "VARIANT");
+        assertArrayEquals(new long[]{0, numIds - 1, UidIndex.NO_UID, 123456}, uids);
+        assertArrayEquals(new long[]{UidIndex.NO_UID}, uidIndex.get(Collections.singletonList("rs1"), "GENE"));
+
+        rocksDbManager.close(rocksDB);
+    }
+
+    @Test
+    public void replayJournal() throws IOException {
+        RocksDbManager rocksDbManager = new RocksDbManager();
+        Path journalPath = Files.createTempDirectory("uid-journal");
+        int numIds = 5000;
+
+        UidIndex uidIndex = new UidIndex(rocksDbManager, rocksDbManager.getDBConnection(Files.createTempDirectory("uid-index")
+                .toString(), true), 1000);
+        UidJournal journal = new UidJournal(journalPath, null);
+        uidIndex.open(journal);
+        for (int i = 0; i < numIds; i++) {
+            uidIndex.put("rs" + i, "VARIANT", i);
+        }
+        Map<String, Long> lengths = journal.sync();
+
+        // Entries after the checkpoint are discarded when resuming
+        uidIndex.put("rs" + numIds, "VARIANT", numIds);
+        uidIndex.put("ENSG1", "GENE", 1);
+        journal.close();
+
+        UidIndex resumed = new UidIndex(rocksDbManager, rocksDbManager.getDBConnection(Files.createTempDirectory("uid-index")
+                .toString(), true), 1000);
+        assertEquals(numIds, resumed.open(new UidJournal(journalPath, lengths)));
+        for (int i = 0; i < numIds; i++) {
+            assertEquals(i, resumed.get("rs" + i, "VARIANT"));
+        }
+        assertEquals(UidIndex.NO_UID, resumed.get("rs" + numIds, "VARIANT"));
+        assertEquals(UidIndex.NO_UID, resumed.get("ENSG1", "GENE"));
+        resumed.getJournal().close();
+    }
+
+    @Test
+    public void growInMemory() {
+        LongHashIndex index = new LongHashIndex(16);
+        for (int i = 0; i < 100000; i++) {
+            String id = "ENST" + i;
+            index.put(UidIndex.hash64(id), id.hashCode(), i);
+        }
+        assertEquals(100000, index.size());
+        for (int i = 0; i < 100000; i++) {
+            String id = "ENST" + i;
+            assertEquals(i, index.get(UidIndex.hash64(id), id.hashCode()));
+        }
+        assertEquals(LongHashIndex.NO_VALUE, index.get(UidIndex.hash64("ENST"), "ENST".hashCode()));
+    }
+}
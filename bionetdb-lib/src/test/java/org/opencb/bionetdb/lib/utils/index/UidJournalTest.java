@@ -0,0 +1,43 @@
+package org.opencb.bionetdb.lib.utils.index;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class UidJournalTest {
+
+    @Test
+    public void longIds() throws IOException {
+        Path journalPath = Files.createTempDirectory("uid-journal");
+        // Longer than the 65535 bytes of DataOutput.writeUTF, with multi-byte characters
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 70000) {
+            sb.append("ACGTé");
+        }
+        String longId = sb.toString();
+
+        UidJournal journal = new UidJournal(journalPath, null);
+        journal.append("rs1", "VARIANT", 1);
+        journal.append(longId, "VARIANT", 2);
+        journal.append("", "VARIANT", 3);
+        journal.append("ENSG00000139618", "GENE", 4);
+        Map<String, Long> lengths = journal.sync();
+        journal.close();
+
+        List<String> entries = new ArrayList<>();
+        journal = new UidJournal(journalPath, lengths);
+        assertEquals(4, journal.replay((id, type, uid) -> entries.add(type + " " + uid + " " + id)));
+        journal.close();
+        entries.sort(null);
+        System.out.println(entries.size() + " entries, long ID of " + longId.length() + " characters");
+        assertEquals(Arrays.asList("GENE 4 ENSG00000139618", "VARIANT 1 rs1", "VARIANT 2 " + longId, "VARIANT 3 "), entries);
+    }
+}
@@ -0,0 +1,19 @@
+package org.opencb.bionetdb.server.rest;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Closes the BioNetDB manager shared by the web services, and its pool of Neo4j connections, when the web application is stopped.
+ */
+public class BioNetDBContextListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent servletContextEvent) {
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        GenericRestWSServer.closeBioNetDBObjects();
+    }
+}
@@ -111,9 +111,15 @@ public class GenericRestWSServer {
     }
 
     private void init() throws VersionException {
-        // This must be only executed once, this method loads the configuration and create the BioNetDBManagers
-        if (initialized.compareAndSet(false, true)) {
-            initBioNetDBObjects();
+        // This must be only executed once, this method loads the configuration and create the BioNetDBManagers. Concurrent
+        // requests wait until the manager is created, it is shared by all of them together with its pool of connections
+        if (!initialized.get()) {
+            synchronized (GenericRestWSServer.class) {
+                if (!initialized.get()) {
+                    initBioNetDBObjects();
+                    initialized.set(true);
+                }
+            }
         }
 
         query = new Query();
@@ -163,6 +169,23 @@ public class GenericRestWSServer {
         }
     }
 
+    /**
+     * Closes the BioNetDB manager and its pool of connections, called when the web application is stopped.
+     */
+    static void closeBioNetDBObjects() {
+        synchronized (GenericRestWSServer.class) {
+            if (bioNetDBManager != null) {
+                try {
+                    bioNetDBManager.close();
+                } catch (Exception e) {
+                    logger.error("Error closing BioNetDB manager: {}", e.getMessage());
+                }
+                bioNetDBManager = null;
+            }
+            initialized.set(false);
+        }
+    }
+
     private void parseQueryParams() throws VersionException {
         // If by any reason 'apiVersion' is null we try to read it from the URI path, if not present an Exception is thrown
         if (this.apiVersion == null) {
@@ -2,7 +2,6 @@ package org.opencb.bionetdb.server.rest;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
-import org.opencb.bionetdb.lib.BioNetDbManager;
 import org.opencb.bionetdb.server.exception.VersionException;
 import org.opencb.commons.datastore.core.DataResult;
 
@@ -39,8 +38,7 @@ public class NetworkWSServer extends GenericRestWSServer {
     @ApiOperation(value = "Get network stats", position = 1)
     public Response stats() {
         try {
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            DataResult result = bioNetDbManager.getNetworkQueryExecutor().stats();
+            DataResult result = bioNetDBManager.getNetworkQueryExecutor().stats();
 
             return createOkResponse(result);
         } catch (Exception e) {
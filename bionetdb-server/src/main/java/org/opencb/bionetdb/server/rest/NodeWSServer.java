@@ -8,7 +8,6 @@ import org.opencb.bionetdb.core.exceptions.BioNetDBException;
 import org.opencb.bionetdb.core.models.network.Node;
 import org.opencb.bionetdb.core.models.network.Relation;
 import org.opencb.bionetdb.core.response.BioNetDBResult;
-import org.opencb.bionetdb.lib.BioNetDbManager;
 import org.opencb.bionetdb.server.exception.VersionException;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.ObjectMap;
@@ -77,8 +76,7 @@ public class NodeWSServer extends GenericRestWSServer {
             QueryOptions queryOptions = new QueryOptions();
             queryOptions.put(QueryOptions.LIMIT, limit);
 
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            DataResult result = bioNetDbManager.getNodeQueryExecutor().query(query, queryOptions);
+            DataResult result = bioNetDBManager.getNodeQueryExecutor().query(query, queryOptions);
 
             return createOkResponse(result);
         } catch (Exception e) {
@@ -107,8 +105,7 @@ public class NodeWSServer extends GenericRestWSServer {
     @ApiOperation(httpMethod = "GET", value = "Get Nodes by Cypher statement")
     public Response getNodesByCypher(@QueryParam("cypher") String cypher) {
         try {
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            BioNetDBResult<Node> result = bioNetDbManager.getNodeQueryExecutor().query(cypher);
+            BioNetDBResult<Node> result = bioNetDBManager.getNodeQueryExecutor().query(cypher);
             return createOkResponse(result);
         } catch (Exception e) {
             return createErrorResponse(e);
@@ -128,8 +125,7 @@ public class NodeWSServer extends GenericRestWSServer {
                 query.put("attribute", Arrays.asList(attribute.split(",")));
             }
 
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            DataResult result = bioNetDbManager.getNodeQueryExecutor().stats(query);
+            DataResult result = bioNetDBManager.getNodeQueryExecutor().stats(query);
 
             return createOkResponse(result);
         } catch (Exception e) {
@@ -151,8 +147,7 @@ public class NodeWSServer extends GenericRestWSServer {
             Node node = buildNode(id, name, label, attribute);
 
             // Add node to the BioNetDB
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            long uid = bioNetDbManager.getNodeQueryExecutor().add(node);
+            long uid = bioNetDBManager.getNodeQueryExecutor().add(node);
 
             return createOkResponse("Added. UID node: " + uid);
         } catch (Exception e) {
@@ -174,8 +169,7 @@ public class NodeWSServer extends GenericRestWSServer {
             Node node = buildNode(id, name, label, attribute);
 
             // Update node in the BioNetDB
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            bioNetDbManager.getNodeQueryExecutor().update(node);
+            bioNetDBManager.getNodeQueryExecutor().update(node);
 
             return createOkResponse("Updated.");
         } catch (Exception e) {
@@ -194,8 +188,7 @@ public class NodeWSServer extends GenericRestWSServer {
             Node node = buildNode(id, null, label, null);
 
             // Delete node from the BioNetDB
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            bioNetDbManager.getNodeQueryExecutor().delete(node);
+            bioNetDBManager.getNodeQueryExecutor().delete(node);
 
             return createOkResponse("Deleted.");
         } catch (Exception e) {
@@ -222,8 +215,7 @@ public class NodeWSServer extends GenericRestWSServer {
             Relation relation = buildRelation(relationType, relationAttr);
 
             // Link origin and destination nodes
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            bioNetDbManager.getNodeQueryExecutor().link(origNode, destNode, relation);
+            bioNetDBManager.getNodeQueryExecutor().link(origNode, destNode, relation);
 
             return createOkResponse("Relation added.");
         } catch (Exception e) {
@@ -250,8 +242,7 @@ public class NodeWSServer extends GenericRestWSServer {
             Relation relation = buildRelation(relationLabel, relationAttr);
 
             // Link origin and destination nodes
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            bioNetDbManager.getNodeQueryExecutor().updateLink(origNode, destNode, relation);
+            bioNetDBManager.getNodeQueryExecutor().updateLink(origNode, destNode, relation);
 
             return createOkResponse("Relation updated.");
         } catch (Exception e) {
@@ -277,8 +268,7 @@ public class NodeWSServer extends GenericRestWSServer {
             Relation relation = buildRelation(relationLabel, null);
 
             // Delete origin-destination link
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            bioNetDbManager.getNodeQueryExecutor().unlink(origNode, destNode, relation);
+            bioNetDBManager.getNodeQueryExecutor().unlink(origNode, destNode, relation);
 
             return createOkResponse("Relation deleted.");
         } catch (Exception e) {
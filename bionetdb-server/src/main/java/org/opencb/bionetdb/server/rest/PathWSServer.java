@@ -6,7 +6,6 @@ import io.swagger.annotations.ApiParam;
 import org.apache.commons.lang3.StringUtils;
 import org.opencb.bionetdb.core.models.network.NetworkPath;
 import org.opencb.bionetdb.core.response.BioNetDBResult;
-import org.opencb.bionetdb.lib.BioNetDbManager;
 import org.opencb.bionetdb.server.exception.VersionException;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -69,8 +68,7 @@ public class PathWSServer extends GenericRestWSServer {
             QueryOptions queryOptions = new QueryOptions();
             queryOptions.put(QueryOptions.LIMIT, limit);
 
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            BioNetDBResult<NetworkPath> result = bioNetDbManager.getPathQueryExecutor().query(query, queryOptions);
+            BioNetDBResult<NetworkPath> result = bioNetDBManager.getPathQueryExecutor().query(query, queryOptions);
 
             return createOkResponse(result);
         } catch (Exception e) {
@@ -83,8 +81,7 @@ public class PathWSServer extends GenericRestWSServer {
     @ApiOperation(httpMethod = "GET", value = "Get Nodes by Cypher statement")
     public Response getNetworkPathsByCypher(@QueryParam("cypher") String cypher) {
         try {
-            BioNetDbManager bioNetDbManager = new BioNetDbManager(bioNetDBConfiguration);
-            BioNetDBResult<NetworkPath> result = bioNetDbManager.getPathQueryExecutor().query(cypher);
+            BioNetDBResult<NetworkPath> result = bioNetDBManager.getPathQueryExecutor().query(cypher);
             return createOkResponse(result);
         } catch (Exception e) {
             return createErrorResponse(e);
@@ -2,8 +2,6 @@ package org.opencb.bionetdb.server.rest;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
-import org.opencb.bionetdb.lib.api.NetworkDBAdaptor;
-import org.opencb.bionetdb.lib.db.Neo4JNetworkDBAdaptor;
 import org.opencb.bionetdb.server.exception.VersionException;
 import org.opencb.commons.datastore.core.QueryResult;
 
@@ -38,16 +36,14 @@ public class TableWSServer extends GenericRestWSServer {
         try {
             logger.info(cypher);
 
-            NetworkDBAdaptor networkDBAdaptor = new Neo4JNetworkDBAdaptor(bioNetDBConfiguration);
             List<List<Object>> rows = new ArrayList<>();
-//            RowIterator rowIterator = networkDBAdaptor.rowIterator(cypher);
+//            RowIterator rowIterator = bioNetDBManager.getNetworkDBAdaptor().rowIterator(cypher);
 //            while (rowIterator.hasNext()) {
 //                List<Object> row = rowIterator.next();
 //                logger.info(StringUtils.join(row, ","));
 //                rows.add(row);
 //            }
             QueryResult<List<Object>> queryResult = new QueryResult<>(null, 0, rows.size(), rows.size(), null, null, rows);
-            networkDBAdaptor.close();
             return createOkResponse(queryResult);
         } catch (Exception e) {
             return createErrorResponse(e);
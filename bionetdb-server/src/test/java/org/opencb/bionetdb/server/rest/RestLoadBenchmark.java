@@ -0,0 +1,186 @@
+package org.opencb.bionetdb.server.rest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the REST server under concurrent clients: each client sends GET requests one after another for a fixed time, and
+ * the latency percentiles of all the requests after the warm-up are printed.
+ *
+ * The server must be running on a loaded database, e.g. the war deployed in Tomcat. Run the main method, e.g. from the IDE, with:
+ *   [base URL] [clients] [seconds] [warm-up seconds] [request paths...]
+ * By default 200 clients query http://localhost:8080/bionetdb/webservices/rest/v1 for 60 seconds, after 10 seconds of warm-up,
+ * cycling through the node and path queries of DEFAULT_PATHS.
+ */
+public class RestLoadBenchmark {
+
+    public static final String DEFAULT_BASE_URL = "http://localhost:8080/bionetdb/webservices/rest/v1";
+    public static final int DEFAULT_CLIENTS = 200;
+    public static final List<String> DEFAULT_PATHS = Arrays.asList(
+            "node/query?label=GENE&limit=25",
+            "node/query?id=ENSG00000139618",
+            "node/query?name=BRCA2,BRCA1&label=GENE",
+            "path/query?origLabel=GENE&origFilter=name=BRCA2&destLabel=PROTEIN&maxNumHops=2&limit=25");
+
+    public static class Result {
+        private long requests;
+        private long errors;
+        private double seconds;
+        private long[] latencies;
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getThroughput() {
+            return seconds > 0 ? requests / seconds : 0;
+        }
+
+        /**
+         * Latency percentile, nearest rank.
+         *
+         * @param percentile    Percentile, from 0 to 100
+         * @return              Latency in microseconds, 0 if there are no requests
+         */
+        public long getLatency(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+            return latencies[Math.min(Math.max(rank, 1), latencies.length) - 1];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d errors, %.1f requests/s, latency p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms",
+                    requests, errors, getThroughput(), getLatency(50) / 1000.0, getLatency(95) / 1000.0, getLatency(99) / 1000.0,
+                    getLatency(100) / 1000.0);
+        }
+    }
+
+    private static class ClientResult {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        private void add(long latency) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latency;
+        }
+    }
+
+    /**
+     * Runs the clients, all of them start at the same time.
+     *
+     * @param baseUrl   Base URL of the web services, the paths are relative to it
+     * @param paths     Request paths, each client cycles through them starting at a different one
+     * @param clients   Number of concurrent clients
+     * @param warmup    Time before measuring
+     * @param duration  Measured time
+     * @return          Requests, errors and latencies of the measured time
+     * @throws Exception If a client fails or is interrupted
+     */
+    public static Result run(String baseUrl, List<String> paths, int clients, Duration warmup, Duration duration) throws Exception {
+        String base = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        List<HttpRequest> requests = new ArrayList<>();
+        for (String path : paths) {
+            requests.add(HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofMinutes(1)).GET().build());
+        }
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        CountDownLatch ready = new CountDownLatch(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] times = new long[2];
+        try {
+            List<Future<ClientResult>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                futures.add(executor.submit(() -> {
+                    ClientResult result = new ClientResult();
+                    ready.countDown();
+                    start.await();
+                    for (int n = client; System.nanoTime() < times[1]; n++) {
+                        HttpRequest request = requests.get(n % requests.size());
+                        long begin = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException e) {
+                            ok = false;
+                        }
+                        long end = System.nanoTime();
+                        if (begin >= times[0] && end <= times[1]) {
+                            result.add((end - begin) / 1000);
+                            if (!ok) {
+                                result.errors++;
+                            }
+                        }
+                    }
+                    return result;
+                }));
+            }
+            ready.await();
+            // The latch publishes the times to the clients
+            times[0] = System.nanoTime() + warmup.toNanos();
+            times[1] = times[0] + duration.toNanos();
+            start.countDown();
+
+            Result result = new Result();
+            List<long[]> latencies = new ArrayList<>();
+            int size = 0;
+            for (Future<ClientResult> future : futures) {
+                ClientResult clientResult = future.get();
+                latencies.add(Arrays.copyOf(clientResult.latencies, clientResult.size));
+                size += clientResult.size;
+                result.errors += clientResult.errors;
+            }
+            result.latencies = new long[size];
+            int offset = 0;
+            for (long[] clientLatencies : latencies) {
+                System.arraycopy(clientLatencies, 0, result.latencies, offset, clientLatencies.length);
+                offset += clientLatencies.length;
+            }
+            Arrays.sort(result.latencies);
+            result.requests = size;
+            result.seconds = duration.toNanos() / 1e9;
+            return result;
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : DEFAULT_BASE_URL;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CLIENTS;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int warmupSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        List<String> paths = args.length > 4 ? Arrays.asList(args).subList(4, args.length) : DEFAULT_PATHS;
+
+        System.out.println(clients + " clients, " + seconds + " s after " + warmupSeconds + " s of warm-up, " + baseUrl + " " + paths);
+        Result result = run(baseUrl, paths, clients, Duration.ofSeconds(warmupSeconds), Duration.ofSeconds(seconds));
+        System.out.println(result);
+    }
+}
@@ -0,0 +1,76 @@
+package org.opencb.bionetdb.server.rest;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RestLoadBenchmarkTest {
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        // Stand-in for the web services: node queries take 2 ms, any other path fails
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/", exchange -> {
+            boolean ok = exchange.getRequestURI().getPath().equals("/v1/node/query");
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(ok ? 200 : 500, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        executor = Executors.newFixedThreadPool(20);
+        server.setExecutor(executor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/v1";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void run() throws Exception {
+        RestLoadBenchmark.Result result = RestLoadBenchmark.run(baseUrl, Collections.singletonList("node/query?label=GENE"), 20,
+                Duration.ofMillis(200), Duration.ofSeconds(1));
+        System.out.println(result);
+        assertTrue(result.getRequests() > 20);
+        assertEquals(0, result.getErrors());
+        assertTrue(result.getLatency(50) >= 2000);
+        assertTrue(result.getLatency(50) <= result.getLatency(99));
+        assertTrue(result.getLatency(99) <= result.getLatency(100));
+    }
+
+    @Test
+    public void errors() throws Exception {
+        RestLoadBenchmark.Result result = RestLoadBenchmark.run(baseUrl, Arrays.asList("node/query", "path/query"), 4,
+                Duration.ofMillis(200), Duration.ofSeconds(1));
+        System.out.println(result);
+        // Each client alternates both paths, so about half of the requests fail
+        assertTrue(result.getErrors() > 0);
+        assertTrue(result.getErrors() < result.getRequests());
+    }
+}